@@ -0,0 +1,135 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.flow;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kieker.common.record.flow.IFlowRecord;
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+
+/**
+ * Measures the cost per record of the {@link AbstractEventRecordTraceReconstructionStage} with a trace timeout for a
+ * given number of concurrently open traces. The traces are interleaved round robin, each trace consists of a
+ * metadata record and two nested operations, and every sixteenth trace is abandoned after its first event, hence, it
+ * is closed by the timeout.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TraceReconstructionBenchmark {
+
+	private static final int RECORDS_PER_TRACE = 5;
+	private static final int ABANDONED_TRACE_RATIO = 16;
+	/** an open trace receives a record every openTraces records; it times out after missing a few rounds. */
+	private static final int TIMEOUT_ROUNDS = 8;
+
+	@Param({ "1000", "100000" })
+	private int openTraces;
+
+	private BenchmarkStage stage;
+	private long[] traceIds;
+	private int[] steps;
+	private long nextTraceId;
+	private long timestamp;
+
+	/** Create the benchmark. */
+	public TraceReconstructionBenchmark() {
+		// nothing to be done here
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		this.stage = new BenchmarkStage((long) TIMEOUT_ROUNDS * this.openTraces);
+		this.traceIds = new long[this.openTraces];
+		this.steps = new int[this.openTraces];
+		this.nextTraceId = 0;
+		for (int i = 0; i < this.openTraces; i++) {
+			this.traceIds[i] = this.nextTraceId++;
+		}
+		this.timestamp = 0;
+		// fill the stage with open traces
+		for (int i = 0; i < (2 * this.openTraces); i++) {
+			this.receiveRecord();
+		}
+	}
+
+	@Benchmark
+	public void receiveRecord() {
+		final int slot = (int) (this.timestamp % this.openTraces);
+		final long traceId = this.traceIds[slot];
+		this.timestamp++;
+
+		final int step = this.steps[slot]++;
+		this.stage.receive(this.createRecord(step, traceId));
+
+		final boolean abandoned = ((traceId % ABANDONED_TRACE_RATIO) == 0) && (step == 1);
+		if ((this.steps[slot] == RECORDS_PER_TRACE) || abandoned) {
+			this.steps[slot] = 0;
+			this.traceIds[slot] = this.nextTraceId++;
+		}
+	}
+
+	private IFlowRecord createRecord(final int step, final long traceId) {
+		switch (step) {
+		case 0:
+			return new TraceMetadata(traceId, 1, "session", "host", -1, -1);
+		case 1:
+			return new BeforeOperationEvent(this.timestamp, traceId, 0, "public void kieker.Benchmark.outer()", "kieker.Benchmark");
+		case 2:
+			return new BeforeOperationEvent(this.timestamp, traceId, 1, "public void kieker.Benchmark.inner()", "kieker.Benchmark");
+		case 3:
+			return new AfterOperationEvent(this.timestamp, traceId, 2, "public void kieker.Benchmark.inner()", "kieker.Benchmark");
+		default:
+			return new AfterOperationEvent(this.timestamp, traceId, 3, "public void kieker.Benchmark.outer()", "kieker.Benchmark");
+		}
+	}
+
+	/**
+	 * Exposes the record handling of the stage; the traces are sent to unconnected output ports.
+	 */
+	private static final class BenchmarkStage extends AbstractEventRecordTraceReconstructionStage {
+
+		public BenchmarkStage(final long maxTraceTimeout) {
+			super(TimeUnit.NANOSECONDS, false, Long.MAX_VALUE, maxTraceTimeout);
+		}
+
+		public void receive(final IFlowRecord record) {
+			this.newFlowRecordEvent(record);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kieker.analysis.generic.source.rewriter.NoneTraceMetadataRewriter;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.record.io.IValueSerializer;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+
+import teetime.framework.AbstractConsumerStage;
+import teetime.framework.AbstractProducerStage;
+import teetime.framework.Configuration;
+import teetime.framework.Execution;
+
+/**
+ * Compares the selector based {@link MultipleConnectionTcpSourceStage} with the
+ * {@link ThreadPerConnectionTcpSourceStage} for many short-lived connections. Each operation opens the given number
+ * of connections, each sending its string registry and a fixed number of records before it is closed, and waits until
+ * the stage has sent all records.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TcpSourceBenchmark {
+
+	private static final int PORT = 10560;
+	private static final int BUFFER_SIZE = 65536;
+	private static final int RECORDS_PER_CONNECTION = 1000;
+	private static final int SENDERS = 16;
+
+	@Param({ "selector", "threadPerConnection" })
+	private String stageType;
+
+	@Param({ "16", "256" })
+	private int connections;
+
+	private AbstractProducerStage<IMonitoringRecord> stage;
+	private Execution<SourceConfiguration> execution;
+	private final AtomicLong receivedRecords = new AtomicLong();
+	private ExecutorService senders;
+	private byte[] stream;
+
+	/** Create the benchmark. */
+	public TcpSourceBenchmark() {
+		// nothing to be done here
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.stream = TcpSourceBenchmark.encodeStream();
+		if ("selector".equals(this.stageType)) {
+			this.stage = new MultipleConnectionTcpSourceStage(PORT, BUFFER_SIZE, new NoneTraceMetadataRewriter());
+		} else {
+			this.stage = new ThreadPerConnectionTcpSourceStage(PORT, BUFFER_SIZE, new NoneTraceMetadataRewriter());
+		}
+		this.execution = new Execution<>(new SourceConfiguration(this.stage, this.receivedRecords));
+		this.execution.executeNonBlocking();
+		this.senders = Executors.newFixedThreadPool(SENDERS);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.senders.shutdown();
+		if (this.stage instanceof MultipleConnectionTcpSourceStage) {
+			((MultipleConnectionTcpSourceStage) this.stage).rejectNewConnection();
+		} else {
+			((ThreadPerConnectionTcpSourceStage) this.stage).rejectNewConnection();
+		}
+		this.execution.abortEventually();
+	}
+
+	@Benchmark
+	public long receiveConnections() throws InterruptedException, ExecutionException {
+		final long expected = this.receivedRecords.get() + ((long) this.connections * RECORDS_PER_CONNECTION);
+		final List<Future<?>> futures = new ArrayList<>(this.connections);
+		for (int i = 0; i < this.connections; i++) {
+			futures.add(this.senders.submit(new Runnable() {
+				@Override
+				public void run() {
+					TcpSourceBenchmark.this.sendStream();
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		while (this.receivedRecords.get() < expected) {
+			LockSupport.parkNanos(10000);
+		}
+		return this.receivedRecords.get();
+	}
+
+	private void sendStream() {
+		try (SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT))) {
+			final ByteBuffer buffer = ByteBuffer.wrap(this.stream);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Encode the stream of one connection in the format of the SingleSocketTcpWriter, i.e., the string registry
+	 * entries followed by the records.
+	 */
+	private static byte[] encodeStream() {
+		final ByteBuffer registryBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+		final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORDS_PER_CONNECTION * 64);
+		final WriterRegistry writerRegistry = new WriterRegistry(new IRegistryListener<String>() {
+			@Override
+			public void onNewRegistryEntry(final String value, final int id) {
+				final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				registryBuffer.putInt(RegistryRecord.CLASS_ID);
+				registryBuffer.putInt(id);
+				registryBuffer.putInt(bytes.length);
+				registryBuffer.put(bytes);
+			}
+		});
+		final IValueSerializer serializer = BinaryValueSerializer.create(recordBuffer, writerRegistry);
+		for (int i = 0; i < RECORDS_PER_CONNECTION; i++) {
+			final BeforeOperationEvent record = new BeforeOperationEvent(i, 1L, i, "public void kieker.Test.operation" + (i % 32) + "()",
+					"kieker.Test");
+			recordBuffer.putInt(writerRegistry.getId(record.getClass().getName()));
+			recordBuffer.putLong(record.getLoggingTimestamp());
+			record.serialize(serializer);
+		}
+		registryBuffer.flip();
+		recordBuffer.flip();
+		final byte[] stream = new byte[registryBuffer.remaining() + recordBuffer.remaining()];
+		registryBuffer.get(stream, 0, registryBuffer.remaining());
+		recordBuffer.get(stream, stream.length - recordBuffer.remaining(), recordBuffer.remaining());
+		return stream;
+	}
+
+	/**
+	 * Connects the source stage to a stage counting the records.
+	 */
+	private static class SourceConfiguration extends Configuration {
+
+		public SourceConfiguration(final AbstractProducerStage<IMonitoringRecord> source, final AtomicLong receivedRecords) {
+			this.connectPorts(source.getOutputPort(), new CountingStage(receivedRecords).getInputPort());
+		}
+	}
+
+	/**
+	 * Counts the received records.
+	 */
+	private static class CountingStage extends AbstractConsumerStage<IMonitoringRecord> {
+
+		private final AtomicLong receivedRecords;
+
+		public CountingStage(final AtomicLong receivedRecords) {
+			this.receivedRecords = receivedRecords;
+		}
+
+		@Override
+		protected void execute(final IMonitoringRecord element) {
+			this.receivedRecords.incrementAndGet();
+		}
+	}
+}
@@ -18,8 +18,6 @@ package kieker.analysis.architecture.trace.aggregation;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import com.google.common.base.Equivalence;
 
@@ -34,6 +32,10 @@ import kieker.model.analysismodel.trace.OperationCall;
  * With this class, two {@link OperationCall}s are considered equal iff both belong to the same
  * {@link DeployedOperation}, their children are also considered equal (in the same order) and - optionally -
  * have the same failed cause.
+ * <p>
+ * The hash is a structural (Merkle-style) hash: it combines the hash of the operation, optionally the failed state,
+ * and the hashes of the children in their order. It is computed in one pass over the call tree, hence, structurally
+ * equal call trees fall into the same hash bucket.
  *
  * @author Sören Henning
  *
@@ -41,6 +43,8 @@ import kieker.model.analysismodel.trace.OperationCall;
  */
 public class OperationCallEquivalence extends Equivalence<OperationCall> {
 
+	private static final int PRIME = 31;
+
 	private final boolean considerFailed;
 
 	public OperationCallEquivalence(final boolean considerFailed) {
@@ -51,7 +55,6 @@ public class OperationCallEquivalence extends Equivalence<OperationCall> {
 	protected boolean doEquivalent(final OperationCall operationCallA, final OperationCall operationCallB) {
 		// A and B are not the same object and are not nulls.
 		final boolean equalsWithoutFailed = Objects.equals(operationCallA.getOperation(), operationCallB.getOperation())
-				&& (operationCallA.getChildren().size() == operationCallB.getChildren().size())
 				&& this.equivalent(operationCallA.getChildren(), operationCallB.getChildren());
 		if (this.considerFailed) {
 			return equalsWithoutFailed
@@ -64,19 +67,28 @@ public class OperationCallEquivalence extends Equivalence<OperationCall> {
 
 	@Override
 	protected int doHash(final OperationCall operationCall) {
-		final List<Integer> childrenHashs = operationCall.getChildren().stream().map(c -> this.hash(c)).collect(Collectors.toList());
+		int hash = Objects.hashCode(operationCall.getOperation());
 		if (this.considerFailed) {
-			return Objects.hash(operationCall.getOperation(), operationCall.isFailed(), operationCall.getFailedCause(), childrenHashs);
-		} else {
-			return Objects.hash(operationCall.getOperation(), childrenHashs);
+			hash = (PRIME * hash) + Boolean.hashCode(operationCall.isFailed());
+			hash = (PRIME * hash) + Objects.hashCode(operationCall.getFailedCause());
 		}
+		final List<OperationCall> children = operationCall.getChildren();
+		for (int i = 0; i < children.size(); i++) {
+			hash = (PRIME * hash) + this.hash(children.get(i));
+		}
+		return (PRIME * hash) + children.size();
 	}
 
 	private boolean equivalent(final List<OperationCall> listA, final List<OperationCall> listB) {
 		if (listA.size() != listB.size()) {
 			return false;
 		}
-		return IntStream.range(0, listA.size()).allMatch(i -> this.equivalent(listA.get(i), listB.get(i)));
+		for (int i = 0; i < listA.size(); i++) {
+			if (!this.equivalent(listA.get(i), listB.get(i))) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 }
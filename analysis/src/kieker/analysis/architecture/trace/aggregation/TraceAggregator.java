@@ -27,7 +27,8 @@ import kieker.model.analysismodel.trace.TraceFactory;
 
 /**
  * This class creates aggregated traces from normal {@link Trace}s. Traces are aggregated if they
- * are considered equal using the {@link TraceEquivalence}.
+ * are considered equal using the {@link TraceEquivalence}. As it hashes traces structurally, each trace costs one
+ * hash computation and one lookup.
  *
  * @author Sören Henning
  *
@@ -47,14 +48,11 @@ public class TraceAggregator {
 	}
 
 	public AggregatedTraceWrapper handleTrace(final Trace trace) {
-		final Equivalence.Wrapper<Trace> equalityWrappedTrace = this.traceEquivalence.wrap(trace);
-		Trace aggregatedTrace = this.aggregatedTraces.get(equalityWrappedTrace);
-		boolean isFirst = false;
-		if (aggregatedTrace == null) {
-			aggregatedTrace = this.createAggregatedTrace(trace);
-			this.aggregatedTraces.put(equalityWrappedTrace, aggregatedTrace);
-			isFirst = true;
-		}
+		// computeIfAbsent computes the structural hash of the trace only once for lookup and insertion
+		final int numberOfAggregatedTraces = this.aggregatedTraces.size();
+		final Trace aggregatedTrace = this.aggregatedTraces.computeIfAbsent(this.traceEquivalence.wrap(trace),
+				t -> this.createAggregatedTrace(trace));
+		final boolean isFirst = this.aggregatedTraces.size() != numberOfAggregatedTraces;
 		return new AggregatedTraceWrapper(aggregatedTrace, trace, isFirst);
 	}
 
@@ -16,8 +16,6 @@
 
 package kieker.analysis.architecture.trace.aggregation;
 
-import java.util.Objects;
-
 import com.google.common.base.Equivalence;
 
 import kieker.model.analysismodel.trace.OperationCall;
@@ -29,7 +27,8 @@ import kieker.model.analysismodel.trace.Trace;
  * methods using its {@link #wrap(Trace)} method.
  *
  * With this class, two {@link Traces}s are considered equal iff both the root {@link OperationCall} are
- * considered equal using the {@link OperationCallEquivalence} or a specified {@link Equivalence}.
+ * considered equal using the {@link OperationCallEquivalence} or a specified {@link Equivalence}. The hash of a
+ * {@link Trace} is the hash of its root {@link OperationCall}, i.e., structurally equal traces have the same hash.
  *
  * @author Sören Henning
  *
@@ -55,7 +54,7 @@ public class TraceEquivalence extends Equivalence<Trace> {
 
 	@Override
 	protected int doHash(final Trace trace) {
-		return Objects.hash(trace);
+		return this.operationCallEquivalence.hash(trace.getRootOperationCall());
 	}
 
 }
@@ -16,14 +16,18 @@
 package kieker.analysis.architecture.trace.flow;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -57,6 +61,10 @@ import teetime.framework.OutputPort;
 
 /**
  * Trace Reconstruction Filter (Event) to reconstruct event based (flow) traces.
+ * <p>
+ * Open traces are indexed by their timeout deadline in a min-heap, hence, a timeout check only visits the traces which
+ * are due. The heap entries are updated lazily: an entry is only replaced when a trace becomes due earlier than
+ * indexed; a due entry of a trace which received further events is reinserted with its current deadline.
  *
  * @author Jan Waller
  * @author Reiner Jung -- teetime port
@@ -82,6 +90,9 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 
 	private final Map<Long, TraceBuffer> traceId2trace;
 
+	/** open traces ordered by their timeout deadline; only accessed within synchronized. */
+	private final Queue<TimeoutEntry> timeoutQueue;
+
 	/**
 	 * Creates a new instance of this class using the given parameters.
 	 *
@@ -109,6 +120,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 			this.timestampsInputPort = null;
 		}
 		this.traceId2trace = new ConcurrentHashMap<>();
+		this.timeoutQueue = new PriorityQueue<>(new TimeoutEntryComparator());
 	}
 
 	@Override
@@ -166,7 +178,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 		}
 	}
 
-	private void handleTimeoutQueue(final long loggingTimestamp) {
+	private void handleTimeoutQueue(final long loggingTimestamp, final long traceId, final TraceBuffer traceBuffer) {
 		if (this.hasTimeout) {
 			synchronized (this) {
 				// can we assume a rough order of logging timestamps? (yes, except with DB
@@ -174,11 +186,43 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 				if (loggingTimestamp > this.maxEncounteredLoggingTimestamp) {
 					this.maxEncounteredLoggingTimestamp = loggingTimestamp;
 				}
+				this.updateTimeoutDeadline(traceId, traceBuffer);
 				this.processTimeoutQueue(this.maxEncounteredLoggingTimestamp);
 			}
 		}
 	}
 
+	/**
+	 * Index the trace again if it became due earlier than indexed. Later deadlines are handled when the indexed
+	 * deadline is reached. Only called within synchronized.
+	 */
+	private void updateTimeoutDeadline(final long traceId, final TraceBuffer traceBuffer) {
+		if (this.traceId2trace.get(traceId) == traceBuffer) {
+			final long deadline = this.computeTimeoutDeadline(traceBuffer);
+			if (deadline < traceBuffer.getTimeoutDeadline()) {
+				traceBuffer.setTimeoutDeadline(deadline);
+				this.timeoutQueue.add(new TimeoutEntry(deadline, traceId));
+			}
+		}
+	}
+
+	/**
+	 * @return the earliest timestamp at which the trace times out, either due to the trace timeout or due to the
+	 *         maximal trace duration. A trace without events is active since its creation.
+	 */
+	private long computeTimeoutDeadline(final TraceBuffer traceBuffer) {
+		final long lastActivity = Math.max(traceBuffer.getMaxLoggingTimestamp(), traceBuffer.getCreationTimestamp());
+		return Math.min(AbstractEventRecordTraceReconstructionStage.addSaturated(lastActivity, this.maxTraceTimeout),
+				AbstractEventRecordTraceReconstructionStage.addSaturated(traceBuffer.getMinLoggingTimestamp(), this.maxTraceDuration));
+	}
+
+	private static long addSaturated(final long timestamp, final long duration) {
+		if ((timestamp > 0) && (duration > (Long.MAX_VALUE - timestamp))) {
+			return Long.MAX_VALUE;
+		}
+		return timestamp + duration;
+	}
+
 	private void newTraceMetadataEvent(final TraceMetadata record) {
 		final Long traceId = record.getTraceId();
 		TraceBuffer traceBuffer = this.traceId2trace.get(traceId);
@@ -186,7 +230,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 			synchronized (this) {
 				traceBuffer = this.traceId2trace.get(traceId);
 				if (traceBuffer == null) { // NOCS (DCL)
-					traceBuffer = new TraceBuffer();
+					traceBuffer = new TraceBuffer(this.maxEncounteredLoggingTimestamp);
 					traceBuffer.setRepairEventBasedTracesEnabled(this.repairEventBasedTraces);
 					this.traceId2trace.put(traceId, traceBuffer);
 				}
@@ -194,7 +238,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 		}
 		traceBuffer.setTrace(record);
 		this.handleTrace(traceBuffer, traceId);
-		this.handleTimeoutQueue(-1);
+		this.handleTimeoutQueue(-1, traceId, traceBuffer);
 	}
 
 	private void newAbstractTraceEvent(final AbstractTraceEvent event) {
@@ -204,7 +248,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 			synchronized (this) {
 				traceBuffer = this.traceId2trace.get(traceId);
 				if (traceBuffer == null) { // NOCS (DCL)
-					traceBuffer = new TraceBuffer();
+					traceBuffer = new TraceBuffer(this.maxEncounteredLoggingTimestamp);
 					traceBuffer.setRepairEventBasedTracesEnabled(this.repairEventBasedTraces);
 					this.traceId2trace.put(traceId, traceBuffer);
 				}
@@ -212,7 +256,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 		}
 		traceBuffer.insertEvent(event);
 		this.handleTrace(traceBuffer, traceId);
-		this.handleTimeoutQueue(event.getTimestamp());
+		this.handleTimeoutQueue(event.getTimestamp(), traceId, traceBuffer);
 	}
 
 	/**
@@ -225,7 +269,7 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 
 			for (final Long traceId : sortedTraceIds) {
 				final TraceBuffer traceBuffer = this.traceId2trace.get(traceId);
-				if (this.repairEventBasedTraces && !traceBuffer.getEventStack().isEmpty()) {
+				if (this.repairEventBasedTraces && !traceBuffer.isEventStackEmpty()) {
 					traceBuffer.repairAllBeforeEventsLeftInStackAtTermination();
 				}
 
@@ -237,29 +281,43 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 			}
 
 			// this.traceId2trace.clear();
+			this.timeoutQueue.clear();
 		}
 		super.onTerminating();
 	}
 
 	// only called within synchronized! We assume timestamps >= 0
 	private void processTimeoutQueue(final long timestamp) {
-		final long duration = timestamp - this.maxTraceDuration;
-		final long traceTimeout = timestamp - this.maxTraceTimeout;
-
-		final Collection<Long> sortedTraceIds = this.getSortedTraceIds(this.traceId2trace.keySet());
-
-		for (final Long traceId : sortedTraceIds) {
-			final TraceBuffer traceBuffer = this.traceId2trace.get(traceId);
-			if ((traceBuffer.getMaxLoggingTimestamp() <= traceTimeout) // long time no see
-					|| (traceBuffer.getMinLoggingTimestamp() <= duration)) { // max duration is gone
+		TimeoutEntry entry = this.timeoutQueue.peek();
+		if ((entry == null) || (entry.getDeadline() > timestamp)) {
+			return;
+		}
 
-				if (traceBuffer.isInvalid()) {
-					this.invalidTracesOutputPort.send(traceBuffer.toTraceEvents());
+		final List<Long> timedOutTraceIds = new ArrayList<>();
+		while ((entry != null) && (entry.getDeadline() <= timestamp)) {
+			this.timeoutQueue.poll();
+			final TraceBuffer traceBuffer = this.traceId2trace.get(entry.getTraceId());
+			// skip entries of finished traces and entries replaced by an earlier deadline
+			if ((traceBuffer != null) && (traceBuffer.getTimeoutDeadline() == entry.getDeadline())) {
+				final long deadline = this.computeTimeoutDeadline(traceBuffer);
+				if (deadline <= timestamp) { // long time no see or max duration is gone
+					timedOutTraceIds.add(entry.getTraceId());
 				} else {
-					this.validTracesOutputPort.send(traceBuffer.toTraceEvents());
+					traceBuffer.setTimeoutDeadline(deadline);
+					this.timeoutQueue.add(new TimeoutEntry(deadline, entry.getTraceId()));
 				}
+			}
+			entry = this.timeoutQueue.peek();
+		}
 
-				this.traceId2trace.remove(traceId);
+		// send in the order of the trace ids, see getSortedTraceIds
+		Collections.sort(timedOutTraceIds);
+		for (final Long traceId : timedOutTraceIds) {
+			final TraceBuffer traceBuffer = this.traceId2trace.remove(traceId);
+			if (traceBuffer.isInvalid()) {
+				this.invalidTracesOutputPort.send(traceBuffer.toTraceEvents());
+			} else {
+				this.validTracesOutputPort.send(traceBuffer.toTraceEvents());
 			}
 		}
 	}
@@ -280,7 +338,52 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 	}
 
 	/**
-	 * The TraceBuffer is synchronized to prevent problems with concurrent access.
+	 * Entry of the timeout queue. The entry refers to its trace by id only, so the entries of finished traces, which
+	 * remain in the queue until their deadline, do not keep the events of these traces in memory.
+	 */
+	private static final class TimeoutEntry {
+		private final long deadline;
+		private final long traceId;
+
+		public TimeoutEntry(final long deadline, final long traceId) {
+			this.deadline = deadline;
+			this.traceId = traceId;
+		}
+
+		public long getDeadline() {
+			return this.deadline;
+		}
+
+		public long getTraceId() {
+			return this.traceId;
+		}
+	}
+
+	/**
+	 * Orders timeout entries by their deadline.
+	 */
+	private static final class TimeoutEntryComparator implements Comparator<TimeoutEntry>, Serializable {
+		private static final long serialVersionUID = -2817358462409416521L;
+
+		/**
+		 * Creates a new instance of this class.
+		 */
+		public TimeoutEntryComparator() {
+			// default empty constructor
+		}
+
+		@Override
+		public int compare(final TimeoutEntry o1, final TimeoutEntry o2) {
+			return Long.compare(o1.getDeadline(), o2.getDeadline());
+		}
+	}
+
+	/**
+	 * The TraceBuffer stores the events of a trace in an array indexed by their order index, hence, an event costs
+	 * only an array slot. Events with a negative order index or an order index far beyond the number of stored events
+	 * are kept in a sorted set instead, so a corrupt order index cannot grow the array beyond the size of the trace. The
+	 * deques of the repair path are only created when repairing is enabled. The buffer is only accessed by the thread
+	 * executing the stage.
 	 *
 	 * @author Jan Waller
 	 */
@@ -288,8 +391,14 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 		private static final Logger LOGGER = LoggerFactory.getLogger(TraceBuffer.class);
 		private static final Comparator<AbstractTraceEvent> COMPARATOR = new TraceEventComperator();
 
+		private static final int INITIAL_CAPACITY = 8;
+
 		private TraceMetadata trace;
-		private final SortedSet<AbstractTraceEvent> events = new TreeSet<>(COMPARATOR);
+		/** events by order index, null for missing events. */
+		private AbstractTraceEvent[] events = new AbstractTraceEvent[INITIAL_CAPACITY];
+		/** events with a negative order index or an order index beyond the array; created on demand. */
+		private SortedSet<AbstractTraceEvent> irregularEvents;
+		private int numberOfEvents;
 
 		private boolean closeable;
 		private boolean damaged;
@@ -301,21 +410,30 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 
 		private long traceId = -1;
 
+		/** latest logging timestamp seen by the stage when this buffer was created. */
+		private final long creationTimestamp;
+		/** deadline of the timeout queue entry of this buffer; only accessed within synchronized of the stage. */
+		private long timeoutDeadline = Long.MAX_VALUE;
+
 		private boolean beforeEventStackEmptyAtTermination;
 		private boolean repairEventBasedTracesEnabled;
 
-		private final Deque<BeforeOperationEvent> beforeEventStack = new LinkedList<>();
-		private final Deque<AbstractTraceEvent> eventQueue = new LinkedList<>();
+		/** only used when repairing is enabled. */
+		private Deque<BeforeOperationEvent> beforeEventStack;
+		/** only used when repairing is enabled. */
+		private Deque<AbstractTraceEvent> eventQueue;
 
 		/**
 		 * Creates a new instance of this class.
+		 *
+		 * @param creationTimestamp
+		 *            latest logging timestamp seen by the stage
 		 */
-		public TraceBuffer() {
-			// default empty constructor
+		public TraceBuffer(final long creationTimestamp) {
+			this.creationTimestamp = creationTimestamp;
 		}
 
 		public void insertEvent(final AbstractTraceEvent event) {
-			final long myTraceId = event.getTraceId();
 			if (this.repairEventBasedTracesEnabled) {
 				if ((event instanceof CallOperationEvent) || (event instanceof ConstructionEvent)
 						|| this.beforeEventStackEmptyAtTermination) {
@@ -323,43 +441,99 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 				} else {
 					this.checkIfAfterEventsMissingThenRepair(event);
 				}
+				while (!this.eventQueue.isEmpty()) {
+					this.addEvent(this.eventQueue.removeFirst(), event);
+				}
 			} else {
-				this.eventQueue.add(event);
+				this.addEvent(event, event);
 			}
-			synchronized (this) {
-				while (!this.eventQueue.isEmpty()) {
-					final AbstractTraceEvent receivedEvent = this.eventQueue.removeFirst();
-					if (this.traceId == -1) {
-						this.traceId = myTraceId;
-					} else if (this.traceId != myTraceId) {
-						LOGGER.error("Invalid traceId! Expected: {} but found: {} in event {}", this.traceId, myTraceId,
-								event.toString());
-						this.damaged = true;
-					}
-					final long loggingTimestamp = receivedEvent.getTimestamp();
-					if (loggingTimestamp > this.maxLoggingTimestamp) {
-						this.maxLoggingTimestamp = loggingTimestamp;
-					}
-					if (loggingTimestamp < this.minLoggingTimestamp) {
-						this.minLoggingTimestamp = loggingTimestamp;
-					}
-					final int orderIndex = receivedEvent.getOrderIndex();
-					if (orderIndex > this.maxOrderIndex) {
-						this.maxOrderIndex = orderIndex;
-					}
-					if (receivedEvent instanceof BeforeOperationEvent) {
-						if (orderIndex == 0) {
-							this.closeable = true;
-						}
-						this.openEvents++;
-					} else if (receivedEvent instanceof AfterOperationEvent) {
-						this.openEvents--;
-					} else if (receivedEvent instanceof AfterOperationFailedEvent) {
-						this.openEvents--;
-					}
-					if (!this.events.add(receivedEvent)) {
-						LOGGER.error("Duplicate entry for orderIndex {} with traceId {}", orderIndex, myTraceId);
-						this.damaged = true;
+		}
+
+		/**
+		 * Add a received or repaired event to the trace.
+		 *
+		 * @param receivedEvent
+		 *            event to add
+		 * @param event
+		 *            the event received by the stage, which caused the event to be added
+		 */
+		private void addEvent(final AbstractTraceEvent receivedEvent, final AbstractTraceEvent event) {
+			final long myTraceId = event.getTraceId();
+			if (this.traceId == -1) {
+				this.traceId = myTraceId;
+			} else if (this.traceId != myTraceId) {
+				LOGGER.error("Invalid traceId! Expected: {} but found: {} in event {}", this.traceId, myTraceId,
+						event.toString());
+				this.damaged = true;
+			}
+			final long loggingTimestamp = receivedEvent.getTimestamp();
+			if (loggingTimestamp > this.maxLoggingTimestamp) {
+				this.maxLoggingTimestamp = loggingTimestamp;
+			}
+			if (loggingTimestamp < this.minLoggingTimestamp) {
+				this.minLoggingTimestamp = loggingTimestamp;
+			}
+			final int orderIndex = receivedEvent.getOrderIndex();
+			if (orderIndex > this.maxOrderIndex) {
+				this.maxOrderIndex = orderIndex;
+			}
+			if (receivedEvent instanceof BeforeOperationEvent) {
+				if (orderIndex == 0) {
+					this.closeable = true;
+				}
+				this.openEvents++;
+			} else if (receivedEvent instanceof AfterOperationEvent) {
+				this.openEvents--;
+			} else if (receivedEvent instanceof AfterOperationFailedEvent) {
+				this.openEvents--;
+			}
+			if (!this.storeEvent(receivedEvent, orderIndex)) {
+				LOGGER.error("Duplicate entry for orderIndex {} with traceId {}", orderIndex, myTraceId);
+				this.damaged = true;
+			}
+		}
+
+		/**
+		 * @return false if an event with the same order index is already stored
+		 */
+		private boolean storeEvent(final AbstractTraceEvent event, final int orderIndex) {
+			if ((orderIndex >= this.events.length) && (orderIndex <= ((2 * this.numberOfEvents) + INITIAL_CAPACITY))) {
+				this.growEvents(orderIndex);
+			}
+			if ((orderIndex < 0) || (orderIndex >= this.events.length)) {
+				if (this.irregularEvents == null) {
+					this.irregularEvents = new TreeSet<>(COMPARATOR);
+				}
+				if (!this.irregularEvents.add(event)) {
+					return false;
+				}
+			} else {
+				if (this.events[orderIndex] != null) {
+					return false;
+				}
+				this.events[orderIndex] = event;
+			}
+			this.numberOfEvents++;
+			return true;
+		}
+
+		/**
+		 * Grow the array to hold the given order index. Events of the sorted set which are within the range of the
+		 * array afterwards are moved to the array, i.e., all events of the set have a negative order index or one
+		 * beyond the array.
+		 */
+		private void growEvents(final int orderIndex) {
+			this.events = Arrays.copyOf(this.events, Math.max(2 * this.events.length, orderIndex + 1));
+			if (this.irregularEvents != null) {
+				final Iterator<AbstractTraceEvent> iterator = this.irregularEvents.iterator();
+				while (iterator.hasNext()) {
+					final AbstractTraceEvent event = iterator.next();
+					final int index = event.getOrderIndex();
+					if (index >= this.events.length) {
+						break;
+					} else if (index >= 0) {
+						this.events[index] = event;
+						iterator.remove();
 					}
 				}
 			}
@@ -483,61 +657,89 @@ public abstract class AbstractEventRecordTraceReconstructionStage extends Abstra
 
 		public void setTrace(final TraceMetadata trace) {
 			final long myTraceId = trace.getTraceId();
-			synchronized (this) {
-				if (this.traceId == -1) {
-					this.traceId = myTraceId;
-				} else if (this.traceId != myTraceId) {
-					LOGGER.error("Invalid traceId! Expected: {} but found: {} in trace {}", this.traceId, myTraceId,
-							trace.toString());
-					this.damaged = true;
-				}
-				if (this.trace == null) {
-					this.trace = trace;
-				} else {
-					LOGGER.error("Duplicate Trace entry for traceId {}", myTraceId);
-					this.damaged = true;
-				}
+			if (this.traceId == -1) {
+				this.traceId = myTraceId;
+			} else if (this.traceId != myTraceId) {
+				LOGGER.error("Invalid traceId! Expected: {} but found: {} in trace {}", this.traceId, myTraceId,
+						trace.toString());
+				this.damaged = true;
+			}
+			if (this.trace == null) {
+				this.trace = trace;
+			} else {
+				LOGGER.error("Duplicate Trace entry for traceId {}", myTraceId);
+				this.damaged = true;
 			}
 		}
 
 		public boolean isFinished() {
-			synchronized (this) {
-				return this.closeable && !this.isInvalid();
-			}
+			return this.closeable && !this.isInvalid();
 		}
 
 		public boolean isInvalid() {
-			synchronized (this) {
-				return (this.trace == null) || this.damaged || (this.openEvents != 0)
-						|| (((this.maxOrderIndex + 1) != this.events.size()) || this.events.isEmpty());
-			}
+			return (this.trace == null) || this.damaged || (this.openEvents != 0)
+					|| (((this.maxOrderIndex + 1) != this.numberOfEvents) || (this.numberOfEvents == 0));
 		}
 
+		/**
+		 * @return the trace with its events ordered by their order index
+		 */
 		public TraceEventRecords toTraceEvents() {
-			synchronized (this) {
-				return new TraceEventRecords(this.trace,
-						this.events.toArray(new AbstractTraceEvent[this.events.size()]));
+			final AbstractTraceEvent[] orderedEvents = new AbstractTraceEvent[this.numberOfEvents];
+			int index = 0;
+			if (this.irregularEvents != null) {
+				// the set is sorted, negative order indices precede the array
+				for (final AbstractTraceEvent event : this.irregularEvents) {
+					if (event.getOrderIndex() < 0) {
+						orderedEvents[index++] = event;
+					}
+				}
+			}
+			for (final AbstractTraceEvent event : this.events) {
+				if (event != null) {
+					orderedEvents[index++] = event;
+				}
 			}
+			if (this.irregularEvents != null) {
+				for (final AbstractTraceEvent event : this.irregularEvents) {
+					if (event.getOrderIndex() >= 0) {
+						orderedEvents[index++] = event;
+					}
+				}
+			}
+			return new TraceEventRecords(this.trace, orderedEvents);
 		}
 
 		public long getMaxLoggingTimestamp() {
-			synchronized (this) {
-				return this.maxLoggingTimestamp;
-			}
+			return this.maxLoggingTimestamp;
 		}
 
 		public long getMinLoggingTimestamp() {
-			synchronized (this) {
-				return this.minLoggingTimestamp;
-			}
+			return this.minLoggingTimestamp;
+		}
+
+		public long getCreationTimestamp() {
+			return this.creationTimestamp;
+		}
+
+		public long getTimeoutDeadline() {
+			return this.timeoutDeadline;
+		}
+
+		public void setTimeoutDeadline(final long timeoutDeadline) {
+			this.timeoutDeadline = timeoutDeadline;
 		}
 
 		public void setRepairEventBasedTracesEnabled(final boolean isEnabled) {
 			this.repairEventBasedTracesEnabled = isEnabled;
+			if (isEnabled && (this.eventQueue == null)) {
+				this.beforeEventStack = new ArrayDeque<>(INITIAL_CAPACITY);
+				this.eventQueue = new ArrayDeque<>(INITIAL_CAPACITY / 2);
+			}
 		}
 
-		public Deque<BeforeOperationEvent> getEventStack() {
-			return this.beforeEventStack;
+		public boolean isEventStackEmpty() {
+			return (this.beforeEventStack == null) || this.beforeEventStack.isEmpty();
 		}
 
 		/**
@@ -0,0 +1,144 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import kieker.analysis.util.stage.OrderedMergerStage;
+import kieker.common.record.flow.IFlowRecord;
+
+import teetime.framework.CompositeStage;
+import teetime.framework.InputPort;
+import teetime.framework.OutputPort;
+import teetime.stage.basic.distributor.Distributor;
+import teetime.stage.basic.distributor.strategy.CopyByReferenceStrategy;
+import teetime.stage.basic.merger.Merger;
+
+/**
+ * Reconstructs event based (flow) traces with several {@link EventRecordTraceReconstructionStage}s, each running in its
+ * own thread. The flow records are partitioned by their trace id, hence, each trace is reconstructed by one shard with
+ * its own trace buffers and timeout handling. Timestamps are sent to all shards. The valid and invalid traces of all
+ * shards are merged.
+ * <br>
+ * By default, traces are merged in the order the shards complete them. Optionally, they are merged in round robin
+ * order of the shards, which makes the order independent of the thread scheduling at the cost of buffering traces of
+ * shards which are ahead. This order is best-effort: a shard without completed traces holds back the others until at
+ * most {@link OrderedMergerStage#DEFAULT_CAPACITY} traces are buffered; beyond that, shards without completed traces
+ * are skipped and the order depends on the scheduling, see {@link OrderedMergerStage}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ShardedEventRecordTraceReconstructionStage extends CompositeStage {
+
+	private final InputPort<IFlowRecord> traceRecordsInputPort;
+	private final InputPort<Long> timestampsInputPort;
+	private final OutputPort<TraceEventRecords> validTracesOutputPort;
+	private final OutputPort<TraceEventRecords> invalidTracesOutputPort;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 *
+	 * @param timeUnit
+	 *            property determining the time unit
+	 * @param repairEventBasedTraces
+	 *            repair traces where AfterEvents are missing
+	 * @param maxTraceDuration
+	 *            max trace duration
+	 * @param maxTraceTimeout
+	 *            max trace timeout, if set to Long.MAX_VALUE no timeout is used
+	 * @param shards
+	 *            number of reconstruction stages, e.g., the number of available cores
+	 * @param deterministicOrder
+	 *            merge the traces in an order independent of the thread scheduling as long as the shards do not drift
+	 *            apart by more than {@link OrderedMergerStage#DEFAULT_CAPACITY} traces
+	 */
+	public ShardedEventRecordTraceReconstructionStage(final TimeUnit timeUnit, final boolean repairEventBasedTraces, final long maxTraceDuration,
+			final long maxTraceTimeout, final int shards, final boolean deterministicOrder) {
+		final TraceIdPartitionStage partitionStage = new TraceIdPartitionStage(shards);
+		final List<OutputPort<TraceEventRecords>> validTracesOutputPorts = new ArrayList<>(shards);
+		final List<OutputPort<TraceEventRecords>> invalidTracesOutputPorts = new ArrayList<>(shards);
+		final List<InputPort<Long>> timestampsInputPorts = new ArrayList<>(shards);
+
+		for (final OutputPort<IFlowRecord> partitionOutputPort : partitionStage.getOutputPorts()) {
+			final EventRecordTraceReconstructionStage shard = new EventRecordTraceReconstructionStage(timeUnit, repairEventBasedTraces,
+					maxTraceDuration, maxTraceTimeout);
+			shard.declareActive();
+			this.connectPorts(partitionOutputPort, shard.getTraceRecordsInputPort());
+			validTracesOutputPorts.add(shard.getValidTracesOutputPort());
+			invalidTracesOutputPorts.add(shard.getInvalidTracesOutputPort());
+			if (shard.getTimestampsInputPort() != null) {
+				timestampsInputPorts.add(shard.getTimestampsInputPort());
+			}
+		}
+
+		this.traceRecordsInputPort = this.createInputPort(partitionStage.getInputPort());
+		if (timestampsInputPorts.isEmpty()) {
+			this.timestampsInputPort = null;
+		} else {
+			final Distributor<Long> timestampsDistributor = new Distributor<>(new CopyByReferenceStrategy());
+			for (final InputPort<Long> timestampsInputPort : timestampsInputPorts) {
+				this.connectPorts(timestampsDistributor.getNewOutputPort(), timestampsInputPort);
+			}
+			this.timestampsInputPort = this.createInputPort(timestampsDistributor.getInputPort());
+		}
+		this.validTracesOutputPort = this.createOutputPort(this.mergeTraces(validTracesOutputPorts, deterministicOrder));
+		this.invalidTracesOutputPort = this.createOutputPort(this.mergeTraces(invalidTracesOutputPorts, deterministicOrder));
+	}
+
+	private OutputPort<TraceEventRecords> mergeTraces(final List<OutputPort<TraceEventRecords>> outputPorts, final boolean deterministicOrder) {
+		if (deterministicOrder) {
+			final OrderedMergerStage<TraceEventRecords> merger = new OrderedMergerStage<>();
+			merger.declareActive();
+			for (final OutputPort<TraceEventRecords> outputPort : outputPorts) {
+				this.connectPorts(outputPort, merger.getNewInputPort());
+			}
+			return merger.getOutputPort();
+		} else {
+			final Merger<TraceEventRecords> merger = new Merger<>();
+			merger.declareActive();
+			for (final OutputPort<TraceEventRecords> outputPort : outputPorts) {
+				this.connectPorts(outputPort, merger.getNewInputPort());
+			}
+			return merger.getOutputPort();
+		}
+	}
+
+	/**
+	 * @return Return reconstruct traces from incoming flow records port.
+	 */
+	public InputPort<IFlowRecord> getTraceRecordsInputPort() {
+		return this.traceRecordsInputPort;
+	}
+
+	/**
+	 * @return Return input port for a periodic time signal, null if no timeout is used.
+	 */
+	public InputPort<Long> getTimestampsInputPort() {
+		return this.timestampsInputPort;
+	}
+
+	public OutputPort<TraceEventRecords> getValidTracesOutputPort() {
+		return this.validTracesOutputPort;
+	}
+
+	public OutputPort<TraceEventRecords> getInvalidTracesOutputPort() {
+		return this.invalidTracesOutputPort;
+	}
+}
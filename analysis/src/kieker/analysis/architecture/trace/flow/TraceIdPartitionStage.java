@@ -0,0 +1,88 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.common.record.flow.IFlowRecord;
+import kieker.common.record.flow.ITraceRecord;
+import kieker.common.record.flow.trace.TraceMetadata;
+
+import teetime.framework.AbstractConsumerStage;
+import teetime.framework.OutputPort;
+
+/**
+ * Partitions flow records by their trace id, hence, all records of one trace are sent to the same output port. Records
+ * without a trace id are sent to the first output port.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceIdPartitionStage extends AbstractConsumerStage<IFlowRecord> {
+
+	/** golden ratio multiplier spreading consecutive trace ids over the partitions. */
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private final List<OutputPort<IFlowRecord>> outputPorts;
+
+	/**
+	 * Create a partition stage.
+	 *
+	 * @param partitions
+	 *            number of partitions, i.e., output ports
+	 */
+	public TraceIdPartitionStage(final int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("At least one partition is required, found " + partitions);
+		}
+		this.outputPorts = new ArrayList<>(partitions);
+		for (int i = 0; i < partitions; i++) {
+			this.outputPorts.add(this.createOutputPort(IFlowRecord.class));
+		}
+	}
+
+	@Override
+	protected void execute(final IFlowRecord record) throws Exception {
+		final long traceId;
+		if (record instanceof ITraceRecord) {
+			traceId = ((ITraceRecord) record).getTraceId();
+		} else if (record instanceof TraceMetadata) {
+			traceId = ((TraceMetadata) record).getTraceId();
+		} else {
+			traceId = 0;
+		}
+		this.outputPorts.get(TraceIdPartitionStage.computePartition(traceId, this.outputPorts.size())).send(record);
+	}
+
+	/**
+	 * Compute the partition of a trace.
+	 *
+	 * @param traceId
+	 *            trace id
+	 * @param partitions
+	 *            number of partitions
+	 * @return partition index between 0 and partitions - 1
+	 */
+	public static int computePartition(final long traceId, final int partitions) {
+		return (int) (((traceId * HASH_MULTIPLIER) >>> 33) % partitions);
+	}
+
+	public List<OutputPort<IFlowRecord>> getOutputPorts() {
+		return this.outputPorts;
+	}
+}
@@ -17,6 +17,7 @@
 package kieker.analysis.architecture.trace.reconstruction;
 
 import java.time.temporal.TemporalUnit;
+import java.util.List;
 import java.util.Optional;
 
 import kieker.common.record.flow.IFlowRecord;
@@ -26,12 +27,16 @@ import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
 import kieker.model.analysismodel.deployment.DeploymentModel;
 import kieker.model.analysismodel.trace.Trace;
 
+import teetime.framework.OutputPort;
 import teetime.stage.basic.AbstractTransformation;
 
 /**
  * Reconstruct traces based on the incoming instances of {@code IFlowRecord}.
  * Currently only {@link TraceMetadata}, {@link BeforeOperationEvent} and
  * {@link AfterOperationEvent} instances are supported.
+ * <p>
+ * Optionally, incomplete traces are evicted after a timeout or when too many traces are open. They are sent to the
+ * incomplete trace output port, as well as all open traces on termination.
  *
  * @author Nils Christian Ehmke, Sören Henning
  *
@@ -40,12 +45,32 @@ import teetime.stage.basic.AbstractTransformation;
  */
 public class FlowRecordTraceReconstructionStage extends AbstractTransformation<IFlowRecord, Trace> {
 
+	private final OutputPort<Trace> incompleteTraceOutputPort = this.createOutputPort(Trace.class);
+
 	private final TraceReconstructor traceReconstructor;
 
 	public FlowRecordTraceReconstructionStage(final DeploymentModel deploymentModel, final TemporalUnit temporalUnit) {
 		this.traceReconstructor = new TraceReconstructor(deploymentModel, temporalUnit);
 	}
 
+	/**
+	 * Create a trace reconstruction stage which evicts incomplete traces.
+	 *
+	 * @param deploymentModel
+	 *            deployment model used to resolve the operations
+	 * @param temporalUnit
+	 *            temporal unit of the event timestamps
+	 * @param maxTraceTimeout
+	 *            time in temporal units after the last event of a trace until it is evicted, if set to Long.MAX_VALUE
+	 *            no timeout is used
+	 * @param maxOpenTraces
+	 *            maximum number of open traces, the least recently active trace is evicted when it is exceeded
+	 */
+	public FlowRecordTraceReconstructionStage(final DeploymentModel deploymentModel, final TemporalUnit temporalUnit, final long maxTraceTimeout,
+			final int maxOpenTraces) {
+		this.traceReconstructor = new TraceReconstructor(deploymentModel, temporalUnit, maxTraceTimeout, maxOpenTraces);
+	}
+
 	// "activateAdditionalLogChecks" not yet implemented
 	//
 	// public TraceReconstructorStage(final DeploymentModel deploymentModel, final
@@ -68,6 +93,43 @@ public class FlowRecordTraceReconstructionStage extends AbstractTransformation<I
 				this.outputPort.send(trace.get());
 			}
 		}
+		this.sendIncompleteTraces(this.traceReconstructor.evictTraces());
+	}
+
+	private void sendIncompleteTraces(final List<Trace> traces) {
+		for (int i = 0; i < traces.size(); i++) {
+			this.incompleteTraceOutputPort.send(traces.get(i));
+		}
+	}
+
+	@Override
+	protected void onTerminating() {
+		this.sendIncompleteTraces(this.traceReconstructor.evictAllTraces());
+		super.onTerminating();
+	}
+
+	public OutputPort<Trace> getIncompleteTraceOutputPort() {
+		return this.incompleteTraceOutputPort;
+	}
+
+	public int getOpenTraces() {
+		return this.traceReconstructor.countOpenTraces();
+	}
+
+	public long getCompletedTraces() {
+		return this.traceReconstructor.countCompletedTraces();
+	}
+
+	public long getTracesEvictedByTimeout() {
+		return this.traceReconstructor.countTracesEvictedByTimeout();
+	}
+
+	public long getTracesEvictedByCapacity() {
+		return this.traceReconstructor.countTracesEvictedByCapacity();
+	}
+
+	public int getDanglingRecords() {
+		return this.traceReconstructor.countDanglingRecords();
 	}
 
 }
@@ -51,6 +51,7 @@ public class TraceReconstructionBuffer {
 	private final Deque<BeforeOperationEvent> stack = new LinkedList<>();
 	private OperationCall root;
 	private OperationCall current;
+	private long lastActivityTimestamp;
 
 	public TraceReconstructionBuffer(final DeploymentModel deploymentModel, final TraceMetadata traceMetadata,
 			final TemporalUnit temporalUnit) {
@@ -121,4 +122,19 @@ public class TraceReconstructionBuffer {
 		return this.stack.isEmpty();
 	}
 
+	/**
+	 * @return true if the buffer received no operation event, i.e., the trace has no root call
+	 */
+	public boolean isEmpty() {
+		return this.root == null;
+	}
+
+	public long getLastActivityTimestamp() {
+		return this.lastActivityTimestamp;
+	}
+
+	public void setLastActivityTimestamp(final long lastActivityTimestamp) {
+		this.lastActivityTimestamp = lastActivityTimestamp;
+	}
+
 }
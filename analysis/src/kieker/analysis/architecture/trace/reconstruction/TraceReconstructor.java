@@ -18,7 +18,9 @@ package kieker.analysis.architecture.trace.reconstruction;
 
 import java.time.temporal.TemporalUnit;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -33,6 +35,11 @@ import kieker.model.analysismodel.trace.Trace;
  * Reconstruct traces based on the incoming instances of {@code IFlowRecord}.
  * Currently only {@link TraceMetadata}, {@link BeforeOperationEvent} and
  * {@link AfterOperationEvent} instances are supported.
+ * <p>
+ * Open traces are evicted when they received no event for the trace timeout or when the maximum number of open traces
+ * is exceeded. The buffers are kept in the order of their last activity, which is the maximum event timestamp seen so
+ * far, hence, only the least recently active buffers have to be checked. Evicted buffers which received no operation
+ * event do not result in a trace, their trace metadata record is counted as dangling record.
  *
  * @author Nils Christian Ehmke, Sören Henning
  *
@@ -41,16 +48,51 @@ import kieker.model.analysismodel.trace.Trace;
 final class TraceReconstructor {
 
 	private final DeploymentModel deploymentModel;
-	private final Map<Long, TraceReconstructionBuffer> traceBuffers = new HashMap<>(); // NOPMD (no concurrent access
-																						// intended)
+	/** open trace buffers in access order, i.e., the least recently active buffer comes first. */
+	private final Map<Long, TraceReconstructionBuffer> traceBuffers = new LinkedHashMap<>(16, 0.75f, true); // NOPMD (no concurrent access
+																												// intended)
 	private final List<TraceReconstructionBuffer> faultyTraceBuffers = new ArrayList<>();
 	// private final boolean activateAdditionalLogChecks;
 	private int danglingRecords;
 	private final TemporalUnit temporalUnit; // BETTER get this value by KiekerMetadataRecord
 
+	private final long maxTraceTimeout;
+	private final int maxOpenTraces;
+	private long maxEncounteredTimestamp;
+
+	private long completedTraces;
+	private long tracesEvictedByTimeout;
+	private long tracesEvictedByCapacity;
+
 	public TraceReconstructor(final DeploymentModel deploymentRoot, final TemporalUnit temporalUnit) {
+		this(deploymentRoot, temporalUnit, Long.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Create a trace reconstructor which evicts incomplete traces.
+	 *
+	 * @param deploymentRoot
+	 *            deployment model used to resolve the operations
+	 * @param temporalUnit
+	 *            temporal unit of the event timestamps
+	 * @param maxTraceTimeout
+	 *            time in temporal units after the last event of a trace until it is evicted, if set to Long.MAX_VALUE
+	 *            no timeout is used
+	 * @param maxOpenTraces
+	 *            maximum number of open traces, the least recently active trace is evicted when it is exceeded
+	 */
+	public TraceReconstructor(final DeploymentModel deploymentRoot, final TemporalUnit temporalUnit, final long maxTraceTimeout,
+			final int maxOpenTraces) {
+		if (maxTraceTimeout < 0) {
+			throw new IllegalArgumentException("Trace timeout must not be negative, found " + maxTraceTimeout);
+		}
+		if (maxOpenTraces < 1) {
+			throw new IllegalArgumentException("At least one open trace must be allowed, found " + maxOpenTraces);
+		}
 		this.deploymentModel = deploymentRoot;
 		this.temporalUnit = temporalUnit;
+		this.maxTraceTimeout = maxTraceTimeout;
+		this.maxOpenTraces = maxOpenTraces;
 	}
 
 	// "activateAdditionalLogChecks" not yet implemented
@@ -70,10 +112,27 @@ final class TraceReconstructor {
 		return this.danglingRecords - this.faultyTraceBuffers.size();
 	}
 
+	public int countOpenTraces() {
+		return this.traceBuffers.size();
+	}
+
+	public long countCompletedTraces() {
+		return this.completedTraces;
+	}
+
+	public long countTracesEvictedByTimeout() {
+		return this.tracesEvictedByTimeout;
+	}
+
+	public long countTracesEvictedByCapacity() {
+		return this.tracesEvictedByCapacity;
+	}
+
 	public void handleTraceMetadataRecord(final TraceMetadata record) {
 		final long traceID = record.getTraceId();
 		final TraceReconstructionBuffer newTraceBuffer = new TraceReconstructionBuffer(this.deploymentModel, record,
 				this.temporalUnit);
+		newTraceBuffer.setLastActivityTimestamp(this.maxEncounteredTimestamp);
 
 		this.traceBuffers.put(traceID, newTraceBuffer);
 	}
@@ -83,8 +142,10 @@ final class TraceReconstructor {
 		final TraceReconstructionBuffer traceBuffer = this.traceBuffers.get(traceID);
 
 		if (traceBuffer != null) {
+			traceBuffer.setLastActivityTimestamp(this.updateMaxEncounteredTimestamp(event.getTimestamp()));
 			traceBuffer.handleBeforeOperationEventRecord(event);
 		} else {
+			this.updateMaxEncounteredTimestamp(event.getTimestamp());
 			this.danglingRecords++;
 		}
 	}
@@ -94,16 +155,76 @@ final class TraceReconstructor {
 		final TraceReconstructionBuffer traceBuffer = this.traceBuffers.get(traceID);
 
 		if (traceBuffer != null) {
+			traceBuffer.setLastActivityTimestamp(this.updateMaxEncounteredTimestamp(event.getTimestamp()));
 			traceBuffer.handleAfterOperationEventRecord(event);
 			if (traceBuffer.isTraceComplete()) {
 				final Trace trace = traceBuffer.reconstructTrace();
 				this.traceBuffers.remove(traceID);
+				this.completedTraces++;
 				return Optional.of(trace);
 			}
 		} else {
+			this.updateMaxEncounteredTimestamp(event.getTimestamp());
 			this.danglingRecords++;
 		}
 		return Optional.empty();
 	}
 
+	private long updateMaxEncounteredTimestamp(final long timestamp) {
+		if (timestamp > this.maxEncounteredTimestamp) {
+			this.maxEncounteredTimestamp = timestamp;
+		}
+		return this.maxEncounteredTimestamp;
+	}
+
+	/**
+	 * Evict the traces which exceed the maximum number of open traces or which timed out. As the buffers are ordered
+	 * by their last activity, only the evicted buffers and one further buffer are visited.
+	 *
+	 * @return the incomplete traces of the evicted buffers which received an operation event, calls without after event
+	 *         have no duration
+	 */
+	public List<Trace> evictTraces() {
+		List<Trace> evictedTraces = Collections.emptyList();
+		final Iterator<TraceReconstructionBuffer> iterator = this.traceBuffers.values().iterator();
+		while (iterator.hasNext()) {
+			final TraceReconstructionBuffer traceBuffer = iterator.next();
+			if (this.traceBuffers.size() > this.maxOpenTraces) {
+				this.tracesEvictedByCapacity++;
+			} else if ((this.maxEncounteredTimestamp - traceBuffer.getLastActivityTimestamp()) > this.maxTraceTimeout) {
+				this.tracesEvictedByTimeout++;
+			} else {
+				break;
+			}
+			iterator.remove();
+			if (traceBuffer.isEmpty()) {
+				this.danglingRecords++;
+			} else {
+				if (evictedTraces.isEmpty()) {
+					evictedTraces = new ArrayList<>();
+				}
+				evictedTraces.add(traceBuffer.reconstructTrace());
+			}
+		}
+		return evictedTraces;
+	}
+
+	/**
+	 * Evict all open traces, e.g., on termination.
+	 *
+	 * @return the incomplete traces of all open buffers which received an operation event
+	 */
+	public List<Trace> evictAllTraces() {
+		final List<Trace> evictedTraces = new ArrayList<>(this.traceBuffers.size());
+		for (final TraceReconstructionBuffer traceBuffer : this.traceBuffers.values()) {
+			if (traceBuffer.isEmpty()) {
+				this.danglingRecords++;
+			} else {
+				evictedTraces.add(traceBuffer.reconstructTrace());
+			}
+		}
+		this.traceBuffers.clear();
+		return evictedTraces;
+	}
+
 }
@@ -0,0 +1,112 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kieker.common.util.filesystem.BlockFileFormat;
+import kieker.common.util.filesystem.FSUtil;
+
+/**
+ * Decompression filter for the {@link BlockFileFormat}. Frames are decompressed in parallel by a pool of workers shared
+ * by all filters.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BlockDecompressionFilter extends AbstractDecompressionFilter {
+
+	/** number of frames read ahead per worker. */
+	private static final int READ_AHEAD_PER_WORKER = 2;
+
+	/**
+	 * Create new block decompression filter.
+	 */
+	public BlockDecompressionFilter() {
+		super();
+	}
+
+	@Override
+	public InputStream chainInputStream(final InputStream inputStream) throws IOException {
+		return new BlockDecompressionInputStream(inputStream, WorkerPool.EXECUTOR, WorkerPool.WORKERS * READ_AHEAD_PER_WORKER);
+	}
+
+	/**
+	 * Create an input stream which starts at the given frame. The frames are found with the frame index of the file.
+	 *
+	 * @param channel
+	 *            channel of the file
+	 * @param index
+	 *            frame index of the file, see {@link BlockFrameIndex#read(SeekableByteChannel)}
+	 * @param frame
+	 *            number of the first frame
+	 *
+	 * @return the decompression input stream
+	 *
+	 * @throws IOException
+	 *             on file or stream errors
+	 */
+	public InputStream chainInputStream(final SeekableByteChannel channel, final BlockFrameIndex index, final int frame) throws IOException {
+		channel.position(0);
+		final InputStream inputStream = Channels.newInputStream(channel);
+		final int blockSize = BlockDecompressionInputStream.readHeader(new DataInputStream(inputStream));
+		if (frame < index.getNumberOfFrames()) {
+			channel.position(index.getFrameOffset(frame));
+		}
+		return BlockDecompressionInputStream.createAtFrame(inputStream, WorkerPool.EXECUTOR, WorkerPool.WORKERS * READ_AHEAD_PER_WORKER,
+				blockSize);
+	}
+
+	@Override
+	public String getExtension() {
+		return FSUtil.BLOCK_FILE_EXTENSION;
+	}
+
+	/**
+	 * Shared daemon workers, created on first use.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class WorkerPool { // NOCS (holder class)
+		static final int WORKERS = Runtime.getRuntime().availableProcessors(); // NOPMD (package for outer class)
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, new ThreadFactory() { // NOPMD (package for outer class)
+			private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "kieker-block-decompression-" + this.threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		private WorkerPool() {
+			// holder class
+		}
+	}
+}
@@ -0,0 +1,261 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import kieker.common.util.filesystem.BlockFileFormat;
+
+/**
+ * Input stream which reads frames of the {@link BlockFileFormat}. The frames following the current frame are read
+ * ahead and decompressed in parallel by the workers of an executor.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BlockDecompressionInputStream extends InputStream {
+
+	private final DataInputStream inputStream;
+	private final ExecutorService executor;
+	private final int readAhead;
+	/** block size of the file, bounds the lengths of the frames. */
+	private final int blockSize;
+
+	/** frames in decompression in the order of the file. */
+	private final Queue<Future<byte[]>> pendingFrames = new ArrayDeque<>();
+	private boolean endOfFrames;
+
+	private byte[] frame = new byte[0];
+	private int framePosition;
+
+	/**
+	 * Create a block decompression stream, which reads the file header.
+	 *
+	 * @param inputStream
+	 *            stream of the file positioned at the file header
+	 * @param executor
+	 *            executor used to decompress the frames
+	 * @param readAhead
+	 *            maximal number of frames in decompression
+	 *
+	 * @throws IOException
+	 *             when the header cannot be read or is invalid
+	 */
+	public BlockDecompressionInputStream(final InputStream inputStream, final ExecutorService executor, final int readAhead)
+			throws IOException {
+		this.inputStream = new DataInputStream(inputStream);
+		this.executor = executor;
+		this.readAhead = Math.max(1, readAhead);
+		this.blockSize = BlockDecompressionInputStream.readHeader(this.inputStream);
+	}
+
+	private BlockDecompressionInputStream(final DataInputStream inputStream, final ExecutorService executor, final int readAhead,
+			final int blockSize) {
+		this.inputStream = inputStream;
+		this.executor = executor;
+		this.readAhead = Math.max(1, readAhead);
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Create a block decompression stream for a stream positioned at a frame boundary, e.g., by seeking to an offset of
+	 * the {@link BlockFrameIndex}. The header must have been checked before.
+	 *
+	 * @param inputStream
+	 *            stream of the file positioned at a frame header
+	 * @param executor
+	 *            executor used to decompress the frames
+	 * @param readAhead
+	 *            maximal number of frames in decompression
+	 * @param blockSize
+	 *            block size of the file as returned by {@link #readHeader(DataInputStream)}
+	 *
+	 * @return the decompression stream
+	 */
+	public static BlockDecompressionInputStream createAtFrame(final InputStream inputStream, final ExecutorService executor,
+			final int readAhead, final int blockSize) {
+		return new BlockDecompressionInputStream(new DataInputStream(inputStream), executor, readAhead, blockSize);
+	}
+
+	/**
+	 * Reads and checks the file header.
+	 *
+	 * @param inputStream
+	 *            stream positioned at the beginning of the file
+	 * @return the block size of the file
+	 * @throws IOException
+	 *             when the header is invalid
+	 */
+	public static int readHeader(final DataInputStream inputStream) throws IOException {
+		if (inputStream.readInt() != BlockFileFormat.MAGIC) {
+			throw new IOException("Not a block compressed file.");
+		}
+		final byte version = inputStream.readByte();
+		if (version != BlockFileFormat.VERSION) {
+			throw new IOException("Unsupported version " + version + " of the block compressed format.");
+		}
+		final byte codec = inputStream.readByte();
+		if (codec != BlockFileFormat.CODEC_DEFLATE) {
+			throw new IOException("Unsupported codec " + codec + " of the block compressed format.");
+		}
+		final int blockSize = inputStream.readInt();
+		if ((blockSize <= 0) || (blockSize > BlockFileFormat.MAX_BLOCK_SIZE)) {
+			throw new IOException("Invalid block size " + blockSize + " of the block compressed format.");
+		}
+		return blockSize;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ((this.framePosition == this.frame.length) && !this.nextFrame()) {
+			return -1;
+		}
+		return this.frame[this.framePosition++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		if ((this.framePosition == this.frame.length) && !this.nextFrame()) {
+			return -1;
+		}
+		final int size = Math.min(length, this.frame.length - this.framePosition);
+		System.arraycopy(this.frame, this.framePosition, bytes, offset, size);
+		this.framePosition += size;
+		return size;
+	}
+
+	@Override
+	public int available() {
+		return this.frame.length - this.framePosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (final Future<byte[]> future : this.pendingFrames) {
+			future.cancel(false);
+		}
+		this.pendingFrames.clear();
+		this.inputStream.close();
+	}
+
+	private boolean nextFrame() throws IOException {
+		this.readFrames();
+		final Future<byte[]> future = this.pendingFrames.poll();
+		if (future == null) {
+			return false;
+		}
+		try {
+			this.frame = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for decompression.");
+		} catch (final ExecutionException e) {
+			throw new IOException("Decompression of a frame failed.", e.getCause());
+		}
+		this.framePosition = 0;
+		this.readFrames(); // keep the workers busy while the frame is consumed
+		return true;
+	}
+
+	/**
+	 * Reads frames and passes them to the workers until the read ahead limit is reached. The lengths of a frame are
+	 * checked before its buffers are allocated.
+	 */
+	private void readFrames() throws IOException {
+		while (!this.endOfFrames && (this.pendingFrames.size() < this.readAhead)) {
+			final int uncompressedLength;
+			final int compressedLength;
+			try {
+				uncompressedLength = this.inputStream.readInt();
+				if (uncompressedLength == BlockFileFormat.END_OF_FRAMES) {
+					this.endOfFrames = true;
+					return;
+				}
+				compressedLength = this.inputStream.readInt();
+			} catch (final EOFException e) { // file without trailer or incomplete last frame header
+				this.endOfFrames = true;
+				return;
+			}
+			if ((uncompressedLength < 0) || (uncompressedLength > this.blockSize) || (compressedLength < 0)
+					|| (compressedLength > BlockFileFormat.getMaxCompressedLength(this.blockSize))) {
+				throw new IOException("Invalid frame with " + uncompressedLength + " uncompressed and " + compressedLength
+						+ " compressed bytes in a file with block size " + this.blockSize + ".");
+			}
+			final byte[] compressed = new byte[compressedLength];
+			try {
+				this.inputStream.readFully(compressed);
+			} catch (final EOFException e) { // incomplete last frame
+				this.endOfFrames = true;
+				return;
+			}
+			this.pendingFrames.add(this.executor.submit(new DecompressionTask(compressed, uncompressedLength)));
+		}
+	}
+
+	/**
+	 * Decompresses one frame.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class DecompressionTask implements Callable<byte[]> {
+		private final byte[] compressed;
+		private final int uncompressedLength;
+
+		public DecompressionTask(final byte[] compressed, final int uncompressedLength) {
+			this.compressed = compressed;
+			this.uncompressedLength = uncompressedLength;
+		}
+
+		@Override
+		public byte[] call() throws DataFormatException {
+			final Inflater inflater = new Inflater();
+			try {
+				inflater.setInput(this.compressed);
+				final byte[] uncompressed = new byte[this.uncompressedLength];
+				int length = 0;
+				while (length < this.uncompressedLength) {
+					final int size = inflater.inflate(uncompressed, length, this.uncompressedLength - length);
+					if ((size == 0) && (inflater.finished() || inflater.needsInput())) {
+						throw new DataFormatException("Frame is shorter than its declared length.");
+					}
+					length += size;
+				}
+				return uncompressed;
+			} finally {
+				inflater.end();
+			}
+		}
+	}
+}
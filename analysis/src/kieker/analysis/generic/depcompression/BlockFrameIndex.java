@@ -0,0 +1,119 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+import kieker.common.util.filesystem.BlockFileFormat;
+
+/**
+ * Frame index of a file in the {@link BlockFileFormat}, which allows to seek to frame boundaries.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class BlockFrameIndex {
+
+	private final long[] frameOffsets;
+	private final long[] uncompressedOffsets;
+
+	private BlockFrameIndex(final long[] frameOffsets, final long[] uncompressedOffsets) {
+		this.frameOffsets = frameOffsets;
+		this.uncompressedOffsets = uncompressedOffsets;
+	}
+
+	/**
+	 * Read the frame index from the trailer of a file. The position of the channel is changed.
+	 *
+	 * @param channel
+	 *            channel of the file
+	 * @return the frame index
+	 * @throws IOException
+	 *             when the file has no valid trailer, e.g., because the writer did not close the file
+	 */
+	public static BlockFrameIndex read(final SeekableByteChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size < (BlockFileFormat.HEADER_SIZE + BlockFileFormat.TRAILER_SIZE)) {
+			throw new IOException("File is too short for a frame index.");
+		}
+		final ByteBuffer trailer = BlockFrameIndex.readFully(channel, size - BlockFileFormat.TRAILER_SIZE, BlockFileFormat.TRAILER_SIZE);
+		final long indexOffset = trailer.getLong();
+		final int numberOfFrames = trailer.getInt();
+		if ((trailer.getInt() != BlockFileFormat.INDEX_MAGIC) || (numberOfFrames < 0)
+				|| ((indexOffset + ((long) numberOfFrames * BlockFileFormat.INDEX_ENTRY_SIZE)) != (size - BlockFileFormat.TRAILER_SIZE))) {
+			throw new IOException("File has no valid frame index.");
+		}
+		final ByteBuffer index = BlockFrameIndex.readFully(channel, indexOffset, numberOfFrames * BlockFileFormat.INDEX_ENTRY_SIZE);
+		final long[] frameOffsets = new long[numberOfFrames];
+		final long[] uncompressedOffsets = new long[numberOfFrames];
+		for (int i = 0; i < numberOfFrames; i++) {
+			frameOffsets[i] = index.getLong();
+			uncompressedOffsets[i] = index.getLong();
+		}
+		return new BlockFrameIndex(frameOffsets, uncompressedOffsets);
+	}
+
+	private static ByteBuffer readFully(final SeekableByteChannel channel, final long position, final int length) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+		channel.position(position);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	public int getNumberOfFrames() {
+		return this.frameOffsets.length;
+	}
+
+	/**
+	 * @param frame
+	 *            number of the frame
+	 * @return position of the frame header in the file
+	 */
+	public long getFrameOffset(final int frame) {
+		return this.frameOffsets[frame];
+	}
+
+	/**
+	 * @param frame
+	 *            number of the frame
+	 * @return position of the first byte of the frame in the uncompressed data
+	 */
+	public long getUncompressedOffset(final int frame) {
+		return this.uncompressedOffsets[frame];
+	}
+
+	/**
+	 * Find the frame containing an uncompressed position.
+	 *
+	 * @param uncompressedOffset
+	 *            position in the uncompressed data
+	 * @return number of the frame, or -1 if the position is before the first frame or there are no frames
+	 */
+	public int findFrame(final long uncompressedOffset) {
+		final int result = Arrays.binarySearch(this.uncompressedOffsets, uncompressedOffset);
+		return (result >= 0) ? result : (-result - 2); // NOCS (inline conditional)
+	}
+}
@@ -0,0 +1,50 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import kieker.common.util.filesystem.FSUtil;
+import kieker.common.util.filesystem.LZFileFormat;
+
+/**
+ * Decompression filter for the fast {@link LZFileFormat}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class LZDecompressionFilter extends AbstractDecompressionFilter {
+
+	/**
+	 * Create new LZ decompression filter.
+	 */
+	public LZDecompressionFilter() {
+		super();
+	}
+
+	@Override
+	public InputStream chainInputStream(final InputStream inputStream) throws IOException {
+		return new LZDecompressionInputStream(inputStream);
+	}
+
+	@Override
+	public String getExtension() {
+		return FSUtil.LZ_FILE_EXTENSION;
+	}
+}
@@ -0,0 +1,158 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import kieker.common.util.filesystem.LZCodec;
+import kieker.common.util.filesystem.LZFileFormat;
+
+/**
+ * Input stream which reads frames of the {@link LZFileFormat}. The dictionary is collected from the first frames in the
+ * same way the writer builds it.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class LZDecompressionInputStream extends InputStream {
+
+	private final DataInputStream inputStream;
+	private final int blockSize;
+	private final int dictionarySize;
+
+	/** dictionary at <code>[0, dictionaryLength)</code> followed by the current frame. */
+	private final byte[] window;
+	private int dictionaryLength;
+	private int frameLength;
+	private int framePosition;
+
+	private byte[] compressed = new byte[0];
+	private boolean endOfFrames;
+
+	/**
+	 * Create a decompression stream, which reads the file header.
+	 *
+	 * @param inputStream
+	 *            stream of the file positioned at the file header
+	 *
+	 * @throws IOException
+	 *             when the header cannot be read or is invalid
+	 */
+	public LZDecompressionInputStream(final InputStream inputStream) throws IOException {
+		this.inputStream = new DataInputStream(inputStream);
+		if (this.inputStream.readInt() != LZFileFormat.MAGIC) {
+			throw new IOException("Not an LZ compressed file.");
+		}
+		final byte version = this.inputStream.readByte();
+		if (version != LZFileFormat.VERSION) {
+			throw new IOException("Unsupported version " + version + " of the LZ compressed format.");
+		}
+		this.blockSize = this.inputStream.readInt();
+		this.dictionarySize = this.inputStream.readInt();
+		if ((this.blockSize <= 0) || (this.dictionarySize < 0) || (this.dictionarySize > LZCodec.MAX_OFFSET)) {
+			throw new IOException("Invalid header of the LZ compressed format.");
+		}
+		this.window = new byte[this.dictionarySize + this.blockSize];
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ((this.framePosition == this.frameLength) && !this.nextFrame()) {
+			return -1;
+		}
+		return this.window[this.dictionaryLength + this.framePosition++] & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		if ((this.framePosition == this.frameLength) && !this.nextFrame()) {
+			return -1;
+		}
+		final int size = Math.min(length, this.frameLength - this.framePosition);
+		System.arraycopy(this.window, this.dictionaryLength + this.framePosition, bytes, offset, size);
+		this.framePosition += size;
+		return size;
+	}
+
+	@Override
+	public int available() {
+		return this.frameLength - this.framePosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.inputStream.close();
+	}
+
+	private boolean nextFrame() throws IOException {
+		// the consumed frame extends the dictionary like in the writer
+		if ((this.frameLength > 0) && (this.dictionaryLength < this.dictionarySize)) {
+			this.dictionaryLength += Math.min(this.dictionarySize - this.dictionaryLength, this.frameLength);
+		}
+		this.frameLength = 0;
+		this.framePosition = 0;
+
+		while (!this.endOfFrames) {
+			final byte type;
+			try {
+				type = this.inputStream.readByte();
+			} catch (final EOFException e) { // file without end marker
+				this.endOfFrames = true;
+				return false;
+			}
+			if (type == LZFileFormat.END_OF_FRAMES) {
+				this.endOfFrames = true;
+				return false;
+			}
+			final int uncompressedLength;
+			final int storedLength;
+			try {
+				uncompressedLength = this.inputStream.readInt();
+				storedLength = this.inputStream.readInt();
+				if ((uncompressedLength < 0) || (uncompressedLength > this.blockSize) || (storedLength < 0)) {
+					throw new IOException("Invalid frame header of the LZ compressed format.");
+				}
+				if (type == LZFileFormat.FRAME_STORED) {
+					this.inputStream.readFully(this.window, this.dictionaryLength, uncompressedLength);
+				} else if (type == LZFileFormat.FRAME_COMPRESSED) {
+					if (this.compressed.length < storedLength) {
+						this.compressed = new byte[storedLength];
+					}
+					this.inputStream.readFully(this.compressed, 0, storedLength);
+					LZCodec.decompress(this.compressed, 0, storedLength, this.window, this.dictionaryLength, uncompressedLength);
+				} else {
+					throw new IOException("Unsupported frame type " + type + " of the LZ compressed format.");
+				}
+			} catch (final EOFException e) { // incomplete last frame
+				this.endOfFrames = true;
+				return false;
+			}
+			if (uncompressedLength > 0) {
+				this.frameLength = uncompressedLength;
+				return true;
+			}
+		}
+		return false;
+	}
+}
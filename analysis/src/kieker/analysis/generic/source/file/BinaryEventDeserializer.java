@@ -29,13 +29,19 @@ import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.factory.CachedRecordFactoryCatalog;
 import kieker.common.record.factory.IRecordFactory;
 import kieker.common.record.io.BinaryValueDeserializer;
+import kieker.common.record.io.CompactValueDeserializer;
 import kieker.common.record.io.IValueDeserializer;
 import kieker.common.registry.reader.ReaderRegistry;
+import kieker.common.util.dataformat.FormatIdentifier;
 
 import teetime.framework.OutputPort;
 
 /**
  * This deserializer reads a binary input stream and deserializes them into IMonitoringRecords.
+ * <br>
+ * Log files of the {@code MappedLogStreamHandler} are not truncated when the writing process is killed. Such files end
+ * with the end marker (type id -1) followed by unwritten, zero filled space. The deserializer stops at the end marker
+ * and at unwritten space, and it reports an incomplete record at the end of a log file.
  *
  * @author Reiner Jung
  *
@@ -49,12 +55,19 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryEventDeserializer.class);
 
+	private static final int INT_BYTES = AbstractMonitoringRecord.TYPE_SIZE_INT;
 	private static final int LONG_BYTES = AbstractMonitoringRecord.TYPE_SIZE_LONG;
+	private static final int COMPACT_FORMAT_IDENTIFIER = FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue();
+	/** type id written after the last record of a log file which is not truncated. */
+	private static final int END_MARKER = -1;
 
 	private final CachedRecordFactoryCatalog recordFactories = CachedRecordFactoryCatalog.getInstance();
 
 	private final ByteBuffer buffer;
 
+	/** true when the end marker or unwritten space has been read. */
+	private boolean endOfLogReached;
+
 	public BinaryEventDeserializer(final Integer bufferSize, final ReaderRegistry<String> registry) {
 		super(registry);
 		this.buffer = ByteBuffer.allocate(bufferSize == null ? DEFAULT_BUFFER_SIZE : bufferSize); // NOCS
@@ -63,7 +76,10 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 	@Override
 	public void processDataStream(final InputStream chainInputStream, final OutputPort<IMonitoringRecord> outputPort) throws IOException {
 		final BinaryValueDeserializer deserializer = BinaryValueDeserializer.create(this.buffer, this.registry);
+		CompactValueDeserializer compactDeserializer = null;
 
+		this.endOfLogReached = false;
+		boolean formatDetected = false;
 		boolean endOfStreamReached = false;
 		while (!endOfStreamReached) {
 			byte[] bytes = this.buffer.array();
@@ -80,7 +96,22 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 				endOfStreamReached = true;
 			}
 
-			this.processBuffer(deserializer, outputPort);
+			if (!formatDetected && ((this.buffer.position() >= INT_BYTES) || endOfStreamReached)) {
+				formatDetected = true;
+				compactDeserializer = this.detectCompactFormat();
+			}
+
+			if (compactDeserializer != null) {
+				this.processCompactBuffer(compactDeserializer, outputPort);
+			} else if (formatDetected) {
+				this.processBuffer(deserializer, outputPort);
+				if (this.endOfLogReached) {
+					endOfStreamReached = true;
+				} else if (endOfStreamReached && (this.buffer.position() > 0)) {
+					LOGGER.warn("Log ends with an incomplete record of {} bytes, the writing process was probably terminated.",
+							this.buffer.position());
+				}
+			}
 
 			if (endOfStreamReached) {
 				chainInputStream.close();
@@ -88,6 +119,38 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 		}
 	}
 
+	/**
+	 * Files of the compact binary encoding start with its format identifier, while files of the default binary encoding
+	 * start with a record type id.
+	 *
+	 * @return a deserializer for the compact encoding, or null for the default encoding
+	 */
+	private CompactValueDeserializer detectCompactFormat() {
+		if ((this.buffer.position() >= INT_BYTES) && (this.buffer.getInt(0) == COMPACT_FORMAT_IDENTIFIER)) {
+			this.buffer.flip();
+			this.buffer.position(INT_BYTES);
+			this.buffer.compact();
+			return CompactValueDeserializer.create(this.buffer, this.registry);
+		} else {
+			return null;
+		}
+	}
+
+	private void processCompactBuffer(final CompactValueDeserializer deserializer, final OutputPort<IMonitoringRecord> outputPort) {
+		this.buffer.flip();
+		while (deserializer.hasEntry()) {
+			try {
+				final IMonitoringRecord record = deserializer.readEntry();
+				if (record != null) {
+					outputPort.send(record);
+				}
+			} catch (final RecordInstantiationException ex) {
+				LOGGER.error("Cannot deserialize record: {}", ex.getMessage());
+			}
+		}
+		this.buffer.compact();
+	}
+
 	private void processBuffer(final IValueDeserializer deserializer,
 			final OutputPort<IMonitoringRecord> outputPort) throws IOException {
 		this.buffer.flip();
@@ -116,6 +179,10 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 	private IMonitoringRecord deserializeRecord(final IValueDeserializer deserializer)
 			throws IOException {
 		final int clazzId = this.buffer.getInt();
+		if (this.isEndOfLog(clazzId)) {
+			this.endOfLogReached = true;
+			return null;
+		}
 		final String eventTypeName = this.registry.get(clazzId);
 
 		if (eventTypeName == null) {
@@ -170,4 +237,15 @@ public class BinaryEventDeserializer extends AbstractEventDeserializer {
 		}
 	}
 
+	/**
+	 * The end of a log file is the end marker or unwritten space. Unwritten space is detected by a zero type id and a
+	 * zero logging timestamp, as records are logged with a proper timestamp or -1.
+	 */
+	private boolean isEndOfLog(final int clazzId) {
+		if (clazzId == END_MARKER) {
+			return true;
+		} else {
+			return (clazzId == 0) && (this.buffer.remaining() >= LONG_BYTES) && (this.buffer.getLong(this.buffer.position()) == 0);
+		}
+	}
 }
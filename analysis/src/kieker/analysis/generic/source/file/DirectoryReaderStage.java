@@ -26,9 +26,11 @@ import java.nio.file.StandardOpenOption;
 import java.util.stream.Stream;
 
 import kieker.analysis.generic.depcompression.AbstractDecompressionFilter;
+import kieker.analysis.generic.depcompression.BlockDecompressionFilter;
 import kieker.analysis.generic.depcompression.Bzip2DecompressionFilter;
 import kieker.analysis.generic.depcompression.DeflateDecompressionFilter;
 import kieker.analysis.generic.depcompression.GZipDecompressionFilter;
+import kieker.analysis.generic.depcompression.LZDecompressionFilter;
 import kieker.analysis.generic.depcompression.NoneDecompressionFilter;
 import kieker.analysis.generic.depcompression.XZDecompressionFilter;
 import kieker.analysis.generic.depcompression.ZipDecompressionFilter;
@@ -105,6 +107,10 @@ public class DirectoryReaderStage extends AbstractTransformation<File, IMonitori
 			return new ZipDecompressionFilter();
 		} else if (FSUtil.BZIP2_FILE_EXTENSION.equals(extension)) {
 			return new Bzip2DecompressionFilter();
+		} else if (FSUtil.BLOCK_FILE_EXTENSION.equals(extension)) {
+			return new BlockDecompressionFilter();
+		} else if (FSUtil.LZ_FILE_EXTENSION.equals(extension)) {
+			return new LZDecompressionFilter();
 		} else {
 			return new NoneDecompressionFilter();
 		}
@@ -19,6 +19,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 import kieker.common.record.io.BinaryValueDeserializer;
+import kieker.common.record.io.CompactValueDeserializer;
 import kieker.common.record.io.IValueDeserializer;
 import kieker.common.registry.reader.ReaderRegistry;
 
@@ -38,6 +39,10 @@ public class Connection {
 	private final ByteBuffer buffer;
 	/** Deserializer setup. */
 	private final IValueDeserializer deserializer;
+	/** Deserializer of the compact binary encoding, null for the default binary encoding. */
+	private CompactValueDeserializer compactDeserializer;
+	/** Is true when the encoding of the stream has been determined. */
+	private boolean formatDetected;
 
 	/** Is true when there was an unrecoverable error with the stream. */
 	private boolean error;
@@ -51,8 +56,22 @@ public class Connection {
 	 *            buffer size for reading information
 	 */
 	public Connection(final SocketChannel channel, final int bufferSize) {
+		this(channel, ByteBuffer.allocateDirect(bufferSize));
+	}
+
+	/**
+	 * Create a connection for the given channel reading into the given buffer, e.g., a pooled buffer.
+	 *
+	 * @param channel
+	 *            connection channel used to read data
+	 * @param buffer
+	 *            empty buffer for reading information
+	 *
+	 * @since 2.0.0
+	 */
+	public Connection(final SocketChannel channel, final ByteBuffer buffer) {
 		this.channel = channel;
-		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffer = buffer;
 		this.deserializer = BinaryValueDeserializer.create(this.buffer, this.registry);
 		this.error = false;
 	}
@@ -73,6 +92,28 @@ public class Connection {
 		return this.deserializer;
 	}
 
+	/**
+	 * Switch the connection to the compact binary encoding.
+	 */
+	public void useCompactFormat() {
+		this.compactDeserializer = CompactValueDeserializer.create(this.buffer, this.registry);
+	}
+
+	/**
+	 * @return the deserializer of the compact binary encoding, or null if the stream uses the default binary encoding
+	 */
+	public CompactValueDeserializer getCompactDeserializer() {
+		return this.compactDeserializer;
+	}
+
+	public void setFormatDetected(final boolean formatDetected) {
+		this.formatDetected = formatDetected;
+	}
+
+	public boolean isFormatDetected() {
+		return this.formatDetected;
+	}
+
 	public void setError(final boolean error) {
 		this.error = error;
 	}
@@ -0,0 +1,230 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+
+import kieker.common.exception.RecordInstantiationException;
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.factory.CachedRecordFactoryCatalog;
+import kieker.common.record.factory.IRecordFactory;
+import kieker.common.record.io.CompactValueDeserializer;
+import kieker.common.util.dataformat.FormatIdentifier;
+
+/**
+ * Decodes the binary record stream of a {@link Connection}, both in the default and in the compact binary encoding.
+ * Used by the reader threads of the TCP source stages; each thread uses its own decoder.
+ *
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+final class ConnectionDecoder {
+
+	private static final int INT_BYTES = AbstractMonitoringRecord.TYPE_SIZE_INT;
+	private static final int LONG_BYTES = AbstractMonitoringRecord.TYPE_SIZE_LONG;
+	private static final Charset ENCODING = StandardCharsets.UTF_8;
+	private static final int COMPACT_FORMAT_IDENTIFIER = FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue();
+
+	private final CachedRecordFactoryCatalog recordFactories = CachedRecordFactoryCatalog.getInstance();
+	private final Logger logger;
+
+	/** the batch of the connection which is decoded. */
+	private RecordBatch batch;
+
+	/**
+	 * Create a decoder.
+	 *
+	 * @param logger
+	 *            logger of the source stage
+	 */
+	public ConnectionDecoder(final Logger logger) {
+		this.logger = logger;
+	}
+
+	/**
+	 * Decode the complete records and registry entries in the buffer of the connection. The buffer is expected in
+	 * write mode, i.e., as filled by a channel read, and is compacted afterwards, keeping incomplete entries.
+	 *
+	 * @param connection
+	 *            the connection
+	 * @param recordBatch
+	 *            batch receiving the decoded records
+	 * @throws IOException
+	 *             on connection errors
+	 */
+	public void decode(final Connection connection, final RecordBatch recordBatch) throws IOException {
+		this.batch = recordBatch;
+		try {
+			this.processBuffer(connection);
+		} finally {
+			this.batch = null; // NOPMD (the batch belongs to the caller)
+		}
+	}
+
+	private void emit(final IMonitoringRecord record, final long loggingTimestamp) {
+		record.setLoggingTimestamp(loggingTimestamp);
+		this.batch.getRecords().add(record);
+	}
+
+	private void processBuffer(final Connection connection) throws IOException {
+		final ByteBuffer buffer = connection.getBuffer();
+
+		buffer.flip();
+
+		if (!connection.isFormatDetected()) {
+			if (buffer.remaining() < INT_BYTES) {
+				buffer.compact();
+				return;
+			}
+			// streams in the compact binary encoding start with its format identifier
+			if (buffer.getInt(buffer.position()) == COMPACT_FORMAT_IDENTIFIER) {
+				buffer.getInt();
+				connection.useCompactFormat();
+			}
+			connection.setFormatDetected(true);
+		}
+
+		if (connection.getCompactDeserializer() != null) {
+			this.processCompactBuffer(connection);
+			return;
+		}
+
+		try {
+			while ((buffer.position() + 4) < buffer.limit()) {
+				buffer.mark();
+				if (!this.onBufferReceived(connection)) {
+					return;
+				}
+			}
+			buffer.mark();
+			buffer.compact();
+		} catch (final BufferUnderflowException ex) {
+			this.logger.warn("Unexpected buffer underflow. Resetting and compacting buffer.", ex);
+			buffer.reset();
+			buffer.compact();
+		}
+	}
+
+	private void processCompactBuffer(final Connection connection) throws IOException {
+		final CompactValueDeserializer deserializer = connection.getCompactDeserializer();
+		while (deserializer.hasEntry()) {
+			try {
+				final IMonitoringRecord record = deserializer.readEntry();
+				if (record != null) {
+					this.emit(record, record.getLoggingTimestamp());
+				}
+			} catch (final RecordInstantiationException ex) {
+				this.logger.error("Failed to create record.", ex);
+			}
+		}
+		connection.getBuffer().compact();
+	}
+
+	private boolean onBufferReceived(final Connection connection) throws IOException {
+		// identify record class
+		if (connection.getBuffer().remaining() < INT_BYTES) {
+			return false;
+		}
+		final int clazzId = connection.getBuffer().getInt();
+
+		if (clazzId == -1) {
+			return this.registerRegistryEntry(connection);
+		} else {
+			return this.deserializeRecord(connection, clazzId);
+		}
+	}
+
+	private boolean registerRegistryEntry(final Connection connection) {
+		// identify string identifier and string length
+		if (connection.getBuffer().remaining() < (INT_BYTES
+				+ INT_BYTES)) {
+			// incomplete record, move back
+			connection.getBuffer().reset();
+			connection.getBuffer().compact();
+
+			return false;
+		} else {
+			final int id = connection.getBuffer().getInt();
+			final int stringLength = connection.getBuffer().getInt();
+
+			if (connection.getBuffer().remaining() < stringLength) {
+				// incomplete record, move back
+				connection.getBuffer().reset();
+				connection.getBuffer().compact();
+
+				return false;
+			} else {
+				final byte[] strBytes = new byte[stringLength];
+				connection.getBuffer().get(strBytes);
+				final String string = new String(strBytes, ENCODING);
+
+				connection.getRegistry().register(id, string);
+				return true;
+			}
+		}
+	}
+
+	private boolean deserializeRecord(final Connection connection, final int clazzId) throws IOException {
+		final String recordClassName = connection.getRegistry().get(clazzId);
+
+		// identify logging timestamp
+		if (connection.getBuffer().remaining() < LONG_BYTES) {
+			// incomplete record, move back
+			connection.getBuffer().reset();
+			connection.getBuffer().compact();
+
+			return false;
+		} else {
+			final long loggingTimestamp = connection.getBuffer().getLong();
+
+			// identify record data
+			final IRecordFactory<? extends IMonitoringRecord> recordFactory = this.recordFactories.get(recordClassName);
+			if (recordFactory == null) {
+				this.logger.debug("Unknown class {}: No factory present. Aborting...", recordClassName);
+				connection.setError(true);
+				return false;
+			} else {
+				if (connection.getBuffer().remaining() < recordFactory.getRecordSizeInBytes()) {
+					// incomplete record, move back
+					connection.getBuffer().reset();
+					connection.getBuffer().compact();
+
+					return false;
+				} else {
+					try {
+						final IMonitoringRecord record = recordFactory.create(connection.getValueDeserializer());
+
+						this.emit(record, loggingTimestamp);
+						return true;
+					} catch (final RecordInstantiationException ex) {
+						this.logger.error("Failed to create: " + recordClassName, ex);
+						// incomplete record, move back
+						connection.getBuffer().reset();
+						connection.getBuffer().compact();
+						return false;
+					}
+				}
+			}
+		}
+	}
+}
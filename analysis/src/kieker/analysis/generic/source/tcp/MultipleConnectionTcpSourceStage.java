@@ -23,6 +23,9 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.List;
+
+import org.jctools.queues.SpscArrayQueue;
 
 import kieker.analysis.generic.source.rewriter.ITraceMetadataRewriter;
 import kieker.common.record.IMonitoringRecord;
@@ -30,25 +33,39 @@ import kieker.common.record.IMonitoringRecord;
 import teetime.framework.AbstractProducerStage;
 
 /**
- * This is a multi connection tcp source stage.
+ * This is a multi connection tcp source stage. Connections are accepted by the stage and distributed round robin
+ * over several reader reactors, each with its own selector and thread. The reactors deserialize the records and hand
+ * them over to the stage via one single-producer single-consumer queue per reactor. The stage rewrites the records
+ * and sends them to its output port, hence neither the rewriter nor the output port is shared between threads. As all
+ * records of a connection pass the same reactor and queue, their order is kept.
  *
  * @author Reiner Jung
  * @since 1.15
  */
 public class MultipleConnectionTcpSourceStage extends AbstractProducerStage<IMonitoringRecord> {
 
+	/** capacity of the batch queue of each reactor. */
+	private static final int QUEUE_CAPACITY = 1024;
+	/** maximal number of batches taken from one reactor in a row, so that one busy reactor cannot starve others. */
+	private static final int BATCHES_PER_REACTOR = 16;
+	/** time in ms to wait for new connections when no records have been received. */
+	private static final long IDLE_TIMEOUT_IN_MS = 1;
+
 	/** server input port. */
 	private final int inputPort;
 	private final int bufferSize;
+	private final int numOfReaders;
+	private final int queueCapacity;
 
 	private final ITraceMetadataRewriter recordRewriter;
 
-	private ReaderThread reader;
+	private ReaderThread[] readers;
+	private int nextReader;
 
-	private boolean allowNewConnection;
+	private volatile boolean allowNewConnection;
 
 	/**
-	 * Create a single threaded multi connection tcp reader stage.
+	 * Create a multi connection tcp reader stage with one reader reactor per available processor.
 	 *
 	 * @param inputPort
 	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
@@ -59,39 +76,70 @@ public class MultipleConnectionTcpSourceStage extends AbstractProducerStage<IMon
 	 */
 	public MultipleConnectionTcpSourceStage(final int inputPort, final int bufferSize,
 			final ITraceMetadataRewriter recordRewriter) {
+		this(inputPort, bufferSize, recordRewriter, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Create a multi connection tcp reader stage.
+	 *
+	 * @param inputPort
+	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
+	 * @param bufferSize
+	 *            capacity of the receiving buffer
+	 * @param recordRewriter
+	 *            rewriting records
+	 * @param numOfReaders
+	 *            number of reader reactors, i.e., threads reading and deserializing records
+	 *
+	 * @since 2.0.0
+	 */
+	public MultipleConnectionTcpSourceStage(final int inputPort, final int bufferSize,
+			final ITraceMetadataRewriter recordRewriter, final int numOfReaders) {
+		this(inputPort, bufferSize, recordRewriter, numOfReaders, QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Create a multi connection tcp reader stage with the given capacity of the batch queue of each reactor.
+	 *
+	 * @param inputPort
+	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
+	 * @param bufferSize
+	 *            capacity of the receiving buffer
+	 * @param recordRewriter
+	 *            rewriting records
+	 * @param numOfReaders
+	 *            number of reader reactors, i.e., threads reading and deserializing records
+	 * @param queueCapacity
+	 *            capacity of the batch queue of each reactor
+	 */
+	/* default */ MultipleConnectionTcpSourceStage(final int inputPort, final int bufferSize, // NOPMD (package visible for tests)
+			final ITraceMetadataRewriter recordRewriter, final int numOfReaders, final int queueCapacity) {
 		this.inputPort = inputPort;
 		this.bufferSize = bufferSize;
 		this.recordRewriter = recordRewriter;
+		this.numOfReaders = Math.max(1, numOfReaders);
+		this.queueCapacity = queueCapacity;
 	}
 
 	@Override
 	protected void execute() {
-		try {
-			final ServerSocketChannel serverSocket = ServerSocketChannel.open();
+		try (ServerSocketChannel serverSocket = ServerSocketChannel.open(); Selector acceptSelector = Selector.open()) {
 			serverSocket.bind(new InetSocketAddress(this.inputPort));
-			serverSocket.configureBlocking(true);
-			final Selector readSelector = Selector.open();
-			this.reader = new ReaderThread(this.logger, readSelector, this.recordRewriter, this.outputPort);
-			this.reader.start();
+			serverSocket.configureBlocking(false);
+			serverSocket.register(acceptSelector, SelectionKey.OP_ACCEPT);
+			this.startReaders();
 
 			this.allowNewConnection = true;
 
 			while (this.allowNewConnection && !this.shouldBeTerminated()) {
-				final SocketChannel socketChannel = serverSocket.accept();
-
-				if (socketChannel != null) {
-					this.logger.debug("Connection from {}.", socketChannel.getRemoteAddress().toString());
-					// add socketChannel to list of channels
-					socketChannel.configureBlocking(false);
-
-					readSelector.wakeup();
-					final SelectionKey key = socketChannel.register(readSelector, SelectionKey.OP_READ);
-					final Connection connection = new Connection(socketChannel, this.bufferSize);
-					key.attach(connection);
+				this.acceptConnections(serverSocket);
+				if (!this.sendReceivedRecords()) {
+					// nothing received, wait for new connections for a moment
+					acceptSelector.select(IDLE_TIMEOUT_IN_MS);
+					acceptSelector.selectedKeys().clear();
 				}
 			}
-			this.reader.terminate();
-			this.reader.join();
+			this.stopReaders();
 		} catch (final ClosedByInterruptException e) {
 			this.logger.info("External shutdown called");
 		} catch (final BindException e) {
@@ -105,6 +153,74 @@ public class MultipleConnectionTcpSourceStage extends AbstractProducerStage<IMon
 		}
 	}
 
+	private void startReaders() throws IOException {
+		this.readers = new ReaderThread[this.numOfReaders];
+		for (int i = 0; i < this.numOfReaders; i++) {
+			this.readers[i] = new ReaderThread(this.logger, Selector.open(), new SpscArrayQueue<>(this.queueCapacity));
+			this.readers[i].setName("tcp-reader-" + this.inputPort + "-" + i);
+			this.readers[i].start();
+		}
+	}
+
+	private void stopReaders() throws InterruptedException, IOException {
+		for (final ReaderThread reader : this.readers) {
+			reader.terminate();
+		}
+		// a reader waits for queue space to publish its last batch, hence the queues are drained while joining
+		for (final ReaderThread reader : this.readers) {
+			while (reader.isAlive()) {
+				if (!this.sendReceivedRecords()) {
+					reader.join(IDLE_TIMEOUT_IN_MS);
+				}
+			}
+		}
+		// records read before the termination
+		boolean received = this.sendReceivedRecords();
+		while (received) {
+			received = this.sendReceivedRecords();
+		}
+	}
+
+	/**
+	 * Accept all pending connections and assign them round robin to the readers.
+	 */
+	private void acceptConnections(final ServerSocketChannel serverSocket) throws IOException {
+		SocketChannel socketChannel = serverSocket.accept();
+		while (socketChannel != null) {
+			this.logger.debug("Connection from {}.", socketChannel.getRemoteAddress().toString());
+			socketChannel.configureBlocking(false);
+			this.readers[this.nextReader].addConnection(new Connection(socketChannel, this.bufferSize));
+			this.nextReader = (this.nextReader + 1) % this.readers.length;
+
+			socketChannel = serverSocket.accept();
+		}
+	}
+
+	/**
+	 * Rewrite and send the records received by the readers.
+	 *
+	 * @return true if any records have been received
+	 */
+	private boolean sendReceivedRecords() throws IOException {
+		boolean received = false;
+		for (final ReaderThread reader : this.readers) {
+			for (int i = 0; i < BATCHES_PER_REACTOR; i++) {
+				final RecordBatch batch = reader.getBatchQueue().poll();
+				if (batch == null) {
+					break;
+				}
+				received = true;
+				final Connection connection = batch.getConnection();
+				final List<IMonitoringRecord> records = batch.getRecords();
+				for (int j = 0; j < records.size(); j++) {
+					final IMonitoringRecord record = records.get(j);
+					this.recordRewriter.rewrite(connection, record, record.getLoggingTimestamp(), this.outputPort);
+				}
+			}
+		}
+		return received;
+	}
+
 	public void rejectNewConnection() {
 		this.allowNewConnection = false;
 	}
@@ -112,12 +228,13 @@ public class MultipleConnectionTcpSourceStage extends AbstractProducerStage<IMon
 	@Override
 	protected void onTerminating() {
 		this.rejectNewConnection();
-		if (this.reader.isAlive()) {
-			this.reader.terminate();
+		if (this.readers != null) {
 			try {
-				this.reader.join();
+				this.stopReaders();
 			} catch (final InterruptedException e) {
 				this.logger.warn("Reader termination was interrupted.");
+			} catch (final IOException e) {
+				this.logger.warn("Sending the remaining records failed.", e);
 			}
 		}
 
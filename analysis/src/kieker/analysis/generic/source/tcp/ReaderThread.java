@@ -16,48 +16,43 @@
 package kieker.analysis.generic.source.tcp;
 
 import java.io.IOException;
-import java.nio.BufferUnderflowException;
-import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 
-import kieker.analysis.generic.source.rewriter.ITraceMetadataRewriter;
-import kieker.common.exception.RecordInstantiationException;
-import kieker.common.record.AbstractMonitoringRecord;
-import kieker.common.record.IMonitoringRecord;
-import kieker.common.record.factory.CachedRecordFactoryCatalog;
-import kieker.common.record.factory.IRecordFactory;
-
-import teetime.framework.OutputPort;
-
 /**
- * This is the reader for the MultipleConnectionTcpSourceStage.
+ * This is a reader reactor for the MultipleConnectionTcpSourceStage. It reads and deserializes the records of the
+ * connections registered with its selector and hands them over in {@link RecordBatch}es via a single-producer
+ * single-consumer queue. When the queue is full, the reactor stops reading, which pushes back to the senders.
  *
  * @author Reiner Jung
  * @since 1.15
  */
 final class ReaderThread extends Thread {
 
-	private static final int INT_BYTES = AbstractMonitoringRecord.TYPE_SIZE_INT;
-	private static final int LONG_BYTES = AbstractMonitoringRecord.TYPE_SIZE_LONG;
-	private static final Charset ENCODING = StandardCharsets.UTF_8;
 
-	private final CachedRecordFactoryCatalog recordFactories = CachedRecordFactoryCatalog.getInstance();
+	private static final long FULL_QUEUE_WAIT_IN_NS = TimeUnit.MICROSECONDS.toNanos(100);
 
 	private final Selector readSelector;
 	private final Logger logger;
+	private final ConnectionDecoder decoder;
 
-	private final ITraceMetadataRewriter recordRewriter;
-	private final OutputPort<IMonitoringRecord> outputPort;
-	private boolean active;
+	/** connections accepted by the stage which are not yet registered with the selector. */
+	private final Queue<Connection> newConnections = new ConcurrentLinkedQueue<>();
+	/** batches for the stage, this thread is the only producer. */
+	private final Queue<RecordBatch> batchQueue;
+	/** the batch of the connection which is read. */
+	private RecordBatch batch;
+	private volatile boolean active;
 
 	/**
 	 * Create a multi stream reader thread.
@@ -67,24 +62,38 @@ final class ReaderThread extends Thread {
 	 *
 	 * @param readSelector
 	 *            channel selector
-	 * @param recordRewriter
-	 *            record rewriter
-	 * @param outputPort
-	 *            output port
+	 * @param batchQueue
+	 *            bounded single-producer single-consumer queue for the deserialized records
 	 */
-	public ReaderThread(final Logger logger, final Selector readSelector, final ITraceMetadataRewriter recordRewriter,
-			final OutputPort<IMonitoringRecord> outputPort) {
+	public ReaderThread(final Logger logger, final Selector readSelector, final Queue<RecordBatch> batchQueue) {
 		this.readSelector = readSelector;
 		this.logger = logger;
-		this.recordRewriter = recordRewriter;
-		this.outputPort = outputPort;
+		this.batchQueue = batchQueue;
+		this.decoder = new ConnectionDecoder(logger);
+		this.active = true;
+	}
+
+	/**
+	 * Hand a new connection to this reader. The connection is registered by the reader thread itself, as registering
+	 * blocks while the selector is selecting.
+	 *
+	 * @param connection
+	 *            the connection
+	 */
+	public void addConnection(final Connection connection) {
+		this.newConnections.add(connection);
+		this.readSelector.wakeup();
+	}
+
+	public Queue<RecordBatch> getBatchQueue() {
+		return this.batchQueue;
 	}
 
 	@Override
 	public void run() {
-		this.active = true;
-		while (this.isAlive() && this.active) {
+		while (this.active) {
 			try {
+				this.registerNewConnections();
 				final int readReady = this.readSelector.select();
 
 				if (readReady > 0) {
@@ -100,17 +109,38 @@ final class ReaderThread extends Thread {
 					}
 
 					selectedKeys.clear();
-				} else {
-					Thread.sleep(100); // wait for the registration of the new key in MultipleConnectionTypSourceStage
 				}
 			} catch (final ClosedSelectorException e1) {
 				this.logger.error("Selector has already been closed.", e1);
+				this.active = false;
 			} catch (final IOException e2) {
 				this.logger.info("IO error while reading from connection.");
-			} catch (final InterruptedException e) {
-				this.logger.warn("Thread.sleep was interrupted.");
 			}
 		}
+		this.closeConnections();
+	}
+
+	private void registerNewConnections() throws IOException {
+		Connection connection = this.newConnections.poll();
+		while (connection != null) {
+			connection.getChannel().register(this.readSelector, SelectionKey.OP_READ, connection);
+			connection = this.newConnections.poll();
+		}
+	}
+
+	private void closeConnections() {
+		for (final SelectionKey key : this.readSelector.keys()) {
+			try {
+				key.channel().close();
+			} catch (final IOException e) {
+				this.logger.debug("Closing connection failed.", e);
+			}
+		}
+		try {
+			this.readSelector.close();
+		} catch (final IOException e) {
+			this.logger.debug("Closing selector failed.", e);
+		}
 	}
 
 	private void readFromSocket(final SelectionKey key) throws IOException {
@@ -127,7 +157,9 @@ final class ReaderThread extends Thread {
 			endOfStreamReached = true;
 		}
 
-		this.processBuffer(connection);
+		this.batch = new RecordBatch(connection);
+		this.decoder.decode(connection, this.batch);
+		this.publishBatch();
 
 		if (endOfStreamReached || connection.isError()) {
 			this.logger.debug("Socket closed: " + socketChannel.getRemoteAddress().toString());
@@ -137,113 +169,17 @@ final class ReaderThread extends Thread {
 		}
 	}
 
-	private void processBuffer(final Connection connection) throws IOException {
-		final ByteBuffer buffer = connection.getBuffer();
-
-		buffer.flip();
-
-		try {
-			while ((buffer.position() + 4) < buffer.limit()) {
-				buffer.mark();
-				if (!this.onBufferReceived(connection)) {
-					return;
-				}
-			}
-			buffer.mark();
-			buffer.compact();
-		} catch (final BufferUnderflowException ex) {
-			this.logger.warn("Unexpected buffer underflow. Resetting and compacting buffer.", ex);
-			buffer.reset();
-			buffer.compact();
-		}
-	}
-
-	private boolean onBufferReceived(final Connection connection) throws IOException {
-		// identify record class
-		if (connection.getBuffer().remaining() < INT_BYTES) {
-			return false;
-		}
-		final int clazzId = connection.getBuffer().getInt();
-
-		if (clazzId == -1) {
-			return this.registerRegistryEntry(connection);
-		} else {
-			return this.deserializeRecord(connection, clazzId);
-		}
-	}
-
-	private boolean registerRegistryEntry(final Connection connection) {
-		// identify string identifier and string length
-		if (connection.getBuffer().remaining() < (INT_BYTES
-				+ INT_BYTES)) {
-			// incomplete record, move back
-			connection.getBuffer().reset();
-			connection.getBuffer().compact();
-
-			return false;
-		} else {
-			final int id = connection.getBuffer().getInt();
-			final int stringLength = connection.getBuffer().getInt();
-
-			if (connection.getBuffer().remaining() < stringLength) {
-				// incomplete record, move back
-				connection.getBuffer().reset();
-				connection.getBuffer().compact();
-
-				return false;
-			} else {
-				final byte[] strBytes = new byte[stringLength];
-				connection.getBuffer().get(strBytes);
-				final String string = new String(strBytes, ENCODING);
-
-				connection.getRegistry().register(id, string);
-				return true;
-			}
-		}
-	}
-
-	private boolean deserializeRecord(final Connection connection, final int clazzId) throws IOException {
-		final String recordClassName = connection.getRegistry().get(clazzId);
-
-		// identify logging timestamp
-		if (connection.getBuffer().remaining() < LONG_BYTES) {
-			// incomplete record, move back
-			connection.getBuffer().reset();
-			connection.getBuffer().compact();
-
-			return false;
-		} else {
-			final long loggingTimestamp = connection.getBuffer().getLong();
-
-			// identify record data
-			final IRecordFactory<? extends IMonitoringRecord> recordFactory = this.recordFactories.get(recordClassName);
-			if (recordFactory == null) {
-				this.logger.debug("Unknown class {}: No factory present. Aborting...", recordClassName);
-				connection.setError(true);
-				return false;
-			} else {
-				if (connection.getBuffer().remaining() < recordFactory.getRecordSizeInBytes()) {
-					// incomplete record, move back
-					connection.getBuffer().reset();
-					connection.getBuffer().compact();
-
-					return false;
-				} else {
-					try {
-						final IMonitoringRecord record = recordFactory.create(connection.getValueDeserializer());
-
-						this.recordRewriter.rewrite(connection, record, loggingTimestamp, this.outputPort);
-						return true;
-					} catch (final RecordInstantiationException ex) {
-						this.logger.error("Failed to create: " + recordClassName, ex);
-						// incomplete record, move back
-						connection.getBuffer().reset();
-						connection.getBuffer().compact();
-						return false;
-					}
-				}
+	/**
+	 * Hand the records of the last read to the stage. Waits while the queue is full, also after the termination has been
+	 * requested, as the stage drains the queue until the reader has ended.
+	 */
+	private void publishBatch() {
+		if (!this.batch.getRecords().isEmpty()) {
+			while (!this.batchQueue.offer(this.batch)) {
+				LockSupport.parkNanos(FULL_QUEUE_WAIT_IN_NS);
 			}
 		}
+		this.batch = null; // NOPMD (the batch belongs to the stage now)
 	}
 
 	public void terminate() {
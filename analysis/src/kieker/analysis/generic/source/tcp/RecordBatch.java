@@ -0,0 +1,52 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.common.record.IMonitoringRecord;
+
+/**
+ * Records deserialized by a {@link ReaderThread} from one read of a connection, in the order of the stream. The logging
+ * timestamps of the records are already set.
+ *
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+final class RecordBatch {
+
+	private final Connection connection;
+	private final List<IMonitoringRecord> records = new ArrayList<>();
+
+	/**
+	 * Create an empty batch.
+	 *
+	 * @param connection
+	 *            the connection the records have been read from
+	 */
+	public RecordBatch(final Connection connection) {
+		this.connection = connection;
+	}
+
+	public Connection getConnection() {
+		return this.connection;
+	}
+
+	public List<IMonitoringRecord> getRecords() {
+		return this.records;
+	}
+}
@@ -0,0 +1,311 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jctools.queues.MpscArrayQueue;
+
+import kieker.analysis.generic.source.rewriter.ITraceMetadataRewriter;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.thread.DaemonThreadFactory;
+
+import teetime.framework.AbstractProducerStage;
+
+/**
+ * TCP source stage which reads each connection with its own thread, an alternative to the selector based
+ * {@link MultipleConnectionTcpSourceStage}. On Java 21 and later, the threads are virtual threads, hence the stage
+ * scales to many short-lived connections; on earlier versions, platform daemon threads are used.
+ * <br>
+ * Each connection thread performs blocking reads into a pooled buffer and decodes the records like the reactors of
+ * the {@link MultipleConnectionTcpSourceStage}. The records are handed to the stage via one bounded multi-producer
+ * single-consumer queue, and the stage rewrites and sends them. The order of the records of a connection is kept.
+ *
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+public class ThreadPerConnectionTcpSourceStage extends AbstractProducerStage<IMonitoringRecord> {
+
+	/** capacity of the batch queue shared by all connections. */
+	private static final int QUEUE_CAPACITY = 4096;
+	/** time in ms to wait for new connections when no records have been received. */
+	private static final long IDLE_TIMEOUT_IN_MS = 1;
+	private static final long FULL_QUEUE_WAIT_IN_NS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long TERMINATION_TIMEOUT_IN_NS = TimeUnit.SECONDS.toNanos(5);
+
+	private final int inputPort;
+	private final int bufferSize;
+	private final ITraceMetadataRewriter recordRewriter;
+	private final ThreadFactory threadFactory;
+
+	private final Queue<RecordBatch> batchQueue;
+	/** buffers of closed connections for reuse. */
+	private final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+	/** open connections, closed on termination. */
+	private final Set<SocketChannel> channels = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean allowNewConnection;
+	private volatile boolean active;
+	/** set while the stage sends the records of the connections which are closed on termination. */
+	private volatile boolean draining;
+
+	/**
+	 * Create a thread per connection tcp reader stage using virtual threads if available.
+	 *
+	 * @param inputPort
+	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
+	 * @param bufferSize
+	 *            capacity of the receiving buffer of each connection
+	 * @param recordRewriter
+	 *            rewriting records
+	 */
+	public ThreadPerConnectionTcpSourceStage(final int inputPort, final int bufferSize, final ITraceMetadataRewriter recordRewriter) {
+		this(inputPort, bufferSize, recordRewriter, ThreadPerConnectionTcpSourceStage.createConnectionThreadFactory());
+	}
+
+	/**
+	 * Create a thread per connection tcp reader stage.
+	 *
+	 * @param inputPort
+	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
+	 * @param bufferSize
+	 *            capacity of the receiving buffer of each connection
+	 * @param recordRewriter
+	 *            rewriting records
+	 * @param threadFactory
+	 *            factory for the connection threads
+	 */
+	public ThreadPerConnectionTcpSourceStage(final int inputPort, final int bufferSize, final ITraceMetadataRewriter recordRewriter,
+			final ThreadFactory threadFactory) {
+		this(inputPort, bufferSize, recordRewriter, threadFactory, QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Create a thread per connection tcp reader stage with the given capacity of the batch queue.
+	 *
+	 * @param inputPort
+	 *            used to accept <code>IMonitoringRecord</code>s and string registry entries.
+	 * @param bufferSize
+	 *            capacity of the receiving buffer of each connection
+	 * @param recordRewriter
+	 *            rewriting records
+	 * @param threadFactory
+	 *            factory for the connection threads
+	 * @param queueCapacity
+	 *            capacity of the batch queue shared by all connections
+	 */
+	/* default */ ThreadPerConnectionTcpSourceStage(final int inputPort, final int bufferSize, // NOPMD (package visible for tests)
+			final ITraceMetadataRewriter recordRewriter, final ThreadFactory threadFactory, final int queueCapacity) {
+		this.inputPort = inputPort;
+		this.bufferSize = bufferSize;
+		this.recordRewriter = recordRewriter;
+		this.threadFactory = threadFactory;
+		this.batchQueue = new MpscArrayQueue<>(queueCapacity);
+	}
+
+	/**
+	 * Create a factory for virtual threads, which are available since Java 21, or for platform daemon threads on earlier
+	 * versions. Reflection is used as Kieker is compiled for earlier versions.
+	 *
+	 * @return the thread factory
+	 */
+	public static ThreadFactory createConnectionThreadFactory() {
+		try {
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "kieker-tcp-connection-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (final ReflectiveOperationException e) {
+			return new DaemonThreadFactory();
+		}
+	}
+
+	@Override
+	protected void execute() {
+		try (ServerSocketChannel serverSocket = ServerSocketChannel.open(); Selector acceptSelector = Selector.open()) {
+			serverSocket.bind(new InetSocketAddress(this.inputPort));
+			serverSocket.configureBlocking(false);
+			serverSocket.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+			this.active = true;
+			this.allowNewConnection = true;
+
+			while (this.allowNewConnection && !this.shouldBeTerminated()) {
+				this.acceptConnections(serverSocket);
+				if (!this.sendReceivedRecords()) {
+					// nothing received, wait for new connections for a moment
+					acceptSelector.select(IDLE_TIMEOUT_IN_MS);
+					acceptSelector.selectedKeys().clear();
+				}
+			}
+			this.stopConnections();
+		} catch (final ClosedByInterruptException e) {
+			this.logger.info("External shutdown called");
+		} catch (final BindException e) {
+			this.logger.error("Cannot estabilsh listening port: Address {} is already in use.", this.inputPort);
+		} catch (final IOException e) {
+			this.logger.error("Cannot establish listening port", e);
+		} finally {
+			this.active = false;
+			this.draining = false;
+			this.workCompleted();
+		}
+	}
+
+	private void acceptConnections(final ServerSocketChannel serverSocket) throws IOException {
+		SocketChannel socketChannel = serverSocket.accept();
+		while (socketChannel != null) {
+			this.logger.debug("Connection from {}.", socketChannel.getRemoteAddress().toString());
+			// accepted channels are blocking
+			this.channels.add(socketChannel);
+			this.threadFactory.newThread(new ConnectionReader(socketChannel)).start();
+
+			socketChannel = serverSocket.accept();
+		}
+	}
+
+	/**
+	 * Close all connections, which ends their threads, and send the records which have been read before. Connection
+	 * threads waiting for queue space keep waiting while the queue is drained.
+	 */
+	private void stopConnections() throws IOException {
+		this.draining = true;
+		this.active = false;
+		for (final SocketChannel channel : this.channels) {
+			channel.close();
+		}
+		final long deadline = System.nanoTime() + TERMINATION_TIMEOUT_IN_NS;
+		while ((!this.channels.isEmpty() || !this.batchQueue.isEmpty()) && ((System.nanoTime() - deadline) < 0)) {
+			if (!this.sendReceivedRecords()) {
+				LockSupport.parkNanos(FULL_QUEUE_WAIT_IN_NS);
+			}
+		}
+	}
+
+	/**
+	 * Rewrite and send the records received by the connection threads.
+	 *
+	 * @return true if any records have been received
+	 */
+	private boolean sendReceivedRecords() throws IOException {
+		boolean received = false;
+		RecordBatch batch = this.batchQueue.poll();
+		while (batch != null) {
+			received = true;
+			final Connection connection = batch.getConnection();
+			final List<IMonitoringRecord> records = batch.getRecords();
+			for (int i = 0; i < records.size(); i++) {
+				final IMonitoringRecord record = records.get(i);
+				this.recordRewriter.rewrite(connection, record, record.getLoggingTimestamp(), this.outputPort);
+			}
+			batch = this.batchQueue.poll();
+		}
+		return received;
+	}
+
+	public void rejectNewConnection() {
+		this.allowNewConnection = false;
+	}
+
+	@Override
+	protected void onTerminating() {
+		this.rejectNewConnection();
+		super.onTerminating();
+	}
+
+	/**
+	 * Reads one connection with blocking reads until it is closed.
+	 */
+	private class ConnectionReader implements Runnable {
+
+		private final SocketChannel socketChannel;
+
+		public ConnectionReader(final SocketChannel socketChannel) {
+			this.socketChannel = socketChannel;
+		}
+
+		@Override
+		public void run() {
+			final ThreadPerConnectionTcpSourceStage stage = ThreadPerConnectionTcpSourceStage.this;
+			ByteBuffer buffer = stage.bufferPool.poll();
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect(stage.bufferSize);
+			}
+			final Connection connection = new Connection(this.socketChannel, buffer);
+			final ConnectionDecoder decoder = new ConnectionDecoder(stage.logger);
+
+			try {
+				int bytesRead = this.socketChannel.read(buffer);
+				while ((bytesRead >= 0) && !connection.isError()) {
+					final RecordBatch batch = new RecordBatch(connection);
+					decoder.decode(connection, batch);
+					this.publishBatch(batch);
+					if (!buffer.hasRemaining()) {
+						stage.logger.error("Entry of {} exceeds the buffer size. Closing connection.", this.socketChannel.getRemoteAddress());
+						break;
+					}
+					bytesRead = this.socketChannel.read(buffer);
+				}
+			} catch (final IOException e) {
+				if (stage.active) {
+					stage.logger.debug("IO error while reading from connection.", e);
+				}
+			} finally {
+				try {
+					this.socketChannel.close();
+				} catch (final IOException e) {
+					stage.logger.debug("Closing connection failed.", e);
+				}
+				buffer.clear();
+				stage.bufferPool.offer(buffer);
+				stage.channels.remove(this.socketChannel);
+			}
+		}
+
+		/**
+		 * Hand the records to the stage. Waits while the queue is full, which pushes back to the sender. The records are
+		 * only dropped when the stage does not drain the queue any more.
+		 */
+		private void publishBatch(final RecordBatch batch) {
+			final ThreadPerConnectionTcpSourceStage stage = ThreadPerConnectionTcpSourceStage.this;
+			if (!batch.getRecords().isEmpty()) {
+				while (!stage.batchQueue.offer(batch)) {
+					if (!stage.active && !stage.draining) {
+						stage.logger.warn("Source terminated, {} records are dropped.", batch.getRecords().size());
+						return;
+					}
+					LockSupport.parkNanos(FULL_QUEUE_WAIT_IN_NS);
+				}
+			}
+		}
+	}
+}
@@ -23,10 +23,12 @@ import java.util.List;
 
 import kieker.analysis.IProjectContext;
 import kieker.common.configuration.Configuration;
+import kieker.common.exception.RecordInstantiationException;
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.factory.CachedRecordFactoryCatalog;
 import kieker.common.record.factory.IRecordFactory;
 import kieker.common.record.io.BinaryValueDeserializer;
+import kieker.common.record.io.CompactValueDeserializer;
 import kieker.common.registry.reader.ReaderRegistry;
 import kieker.common.util.dataformat.FormatIdentifier;
 import kieker.common.util.dataformat.VariableLengthEncoding;
@@ -41,6 +43,9 @@ public class BinaryDeserializer extends AbstractContainerFormatDeserializer {
 	/** Format identifier. */
 	public static final int FORMAT_IDENTIFIER = FormatIdentifier.DEFAULT_BINARY_FORMAT.getIdentifierValue();
 
+	/** Format identifier of the compact encoding, which is detected automatically. */
+	public static final int COMPACT_FORMAT_IDENTIFIER = FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue();
+
 	/** Encoding to use for Strings. */
 	private static final String ENCODING_NAME = "UTF-8";
 
@@ -49,6 +54,9 @@ public class BinaryDeserializer extends AbstractContainerFormatDeserializer {
 
 	private final CachedRecordFactoryCatalog cachedRecordFactoryCatalog = CachedRecordFactoryCatalog.getInstance();
 
+	/** true while a chunk in the compact encoding is decoded. */
+	private boolean compactChunk;
+
 	/**
 	 * Creates a new record deserializer.
 	 *
@@ -61,9 +69,16 @@ public class BinaryDeserializer extends AbstractContainerFormatDeserializer {
 		super(configuration, projectContext);
 	}
 
+	@Override
+	public List<IMonitoringRecord> deserializeRecords(final ByteBuffer buffer, final int dataSize) {
+		// the format identifier follows the container identifier
+		this.compactChunk = (buffer.remaining() >= 8) && (buffer.getInt(buffer.position() + 4) == COMPACT_FORMAT_IDENTIFIER);
+		return super.deserializeRecords(buffer, dataSize);
+	}
+
 	@Override
 	protected int getFormatIdentifier() {
-		return FORMAT_IDENTIFIER;
+		return this.compactChunk ? COMPACT_FORMAT_IDENTIFIER : FORMAT_IDENTIFIER; // NOCS (inline conditional)
 	}
 
 	@Override
@@ -106,18 +121,27 @@ public class BinaryDeserializer extends AbstractContainerFormatDeserializer {
 		int currentOffset = buffer.position();
 
 		final CachedRecordFactoryCatalog recordFactoryCatalog = this.cachedRecordFactoryCatalog;
+		final CompactValueDeserializer compactDeserializer = CompactValueDeserializer.create(buffer, stringRegistry);
 
 		while (currentOffset < endOffset) {
-			final int recordTypeId = buffer.getInt();
-			final String recordTypeName = stringRegistry.get(recordTypeId);
-			final long loggingTimestamp = buffer.getLong();
-
-			final IRecordFactory<? extends IMonitoringRecord> recordFactory = recordFactoryCatalog.get(recordTypeName);
-			final IMonitoringRecord record = recordFactory
-					.create(BinaryValueDeserializer.create(buffer, stringRegistry));
-			record.setLoggingTimestamp(loggingTimestamp);
-
-			records.add(record);
+			if (this.compactChunk) {
+				try {
+					records.add(compactDeserializer.readEntry());
+				} catch (final RecordInstantiationException e) {
+					throw new InvalidFormatException("Invalid record data found at offset " + currentOffset + ".", e);
+				}
+			} else {
+				final int recordTypeId = buffer.getInt();
+				final String recordTypeName = stringRegistry.get(recordTypeId);
+				final long loggingTimestamp = buffer.getLong();
+
+				final IRecordFactory<? extends IMonitoringRecord> recordFactory = recordFactoryCatalog.get(recordTypeName);
+				final IMonitoringRecord record = recordFactory
+						.create(BinaryValueDeserializer.create(buffer, stringRegistry));
+				record.setLoggingTimestamp(loggingTimestamp);
+
+				records.add(record);
+			}
 
 			currentOffset = buffer.position();
 		}
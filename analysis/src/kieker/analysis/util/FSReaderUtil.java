@@ -16,8 +16,10 @@
 package kieker.analysis.util;
 
 import kieker.analysis.generic.depcompression.AbstractDecompressionFilter;
+import kieker.analysis.generic.depcompression.BlockDecompressionFilter;
 import kieker.analysis.generic.depcompression.DeflateDecompressionFilter;
 import kieker.analysis.generic.depcompression.GZipDecompressionFilter;
+import kieker.analysis.generic.depcompression.LZDecompressionFilter;
 import kieker.analysis.generic.depcompression.NoneDecompressionFilter;
 import kieker.analysis.generic.depcompression.XZDecompressionFilter;
 import kieker.analysis.generic.depcompression.ZipDecompressionFilter;
@@ -61,6 +63,10 @@ public final class FSReaderUtil {
 			return XZDecompressionFilter.class;
 		} else if (FSUtil.ZIP_FILE_EXTENSION.equals(extension)) {
 			return ZipDecompressionFilter.class;
+		} else if (FSUtil.BLOCK_FILE_EXTENSION.equals(extension)) {
+			return BlockDecompressionFilter.class;
+		} else if (FSUtil.LZ_FILE_EXTENSION.equals(extension)) {
+			return LZDecompressionFilter.class;
 		} else {
 			return NoneDecompressionFilter.class;
 		}
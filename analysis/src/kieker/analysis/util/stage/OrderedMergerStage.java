@@ -0,0 +1,149 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.util.stage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import teetime.framework.AbstractStage;
+import teetime.framework.InputPort;
+import teetime.framework.OutputPort;
+
+/**
+ * Merges its input ports in round robin order on a best-effort basis, i.e., the n-th element of each input port is
+ * sent before the n+1-th element of any input port as long as the ports do not drift apart by more than the capacity
+ * of the stage. Unlike a merger which skips empty ports, the order of the output then depends only on the order within
+ * each input port and not on the scheduling of the predecessor stages. Elements are buffered until it is their turn;
+ * ports which have no further elements at termination are skipped.
+ * <br>
+ * A port without elements holds back all other ports until it receives an element. To bound this delay and the
+ * memory used, the number of buffered elements is limited by the capacity. When it is exceeded, the stage skips ports
+ * without elements until the buffer is below its capacity again, and logs a warning once. From then on, the order
+ * depends on the scheduling, but elements of the same port always stay in order and no element is lost. The stage
+ * neither blocks its predecessors at the capacity nor fails, as predecessors which share a producer, e.g., shards of a
+ * partitioned stream, would deadlock.
+ *
+ * @param <T>
+ *            Type of elements
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class OrderedMergerStage<T> extends AbstractStage {
+
+	/** default maximal number of buffered elements. */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final List<InputPort<T>> inputPorts = new ArrayList<>();
+	private final List<Queue<T>> pendingElements = new ArrayList<>();
+	private final OutputPort<T> outputPort = this.createOutputPort();
+	private final int capacity;
+
+	private int nextPort;
+	private int numberOfPendingElements;
+	private boolean capacityExceeded;
+
+	/**
+	 * Create an ordered merger which buffers at most {@link #DEFAULT_CAPACITY} elements.
+	 */
+	public OrderedMergerStage() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create an ordered merger.
+	 *
+	 * @param capacity
+	 *            maximal number of buffered elements before ports without elements are skipped and the order depends
+	 *            on the scheduling
+	 */
+	public OrderedMergerStage(final int capacity) {
+		super();
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Add an input port. Elements of ports added earlier are sent first within each round.
+	 *
+	 * @return the new input port
+	 */
+	public InputPort<T> getNewInputPort() {
+		final InputPort<T> inputPort = this.createInputPort();
+		this.inputPorts.add(inputPort);
+		this.pendingElements.add(new ArrayDeque<T>());
+		return inputPort;
+	}
+
+	@Override
+	protected void execute() {
+		this.receiveElements();
+		Queue<T> pending = this.pendingElements.get(this.nextPort);
+		while (!pending.isEmpty() || (this.numberOfPendingElements > this.capacity)) {
+			if (pending.isEmpty()) {
+				if (!this.capacityExceeded) {
+					this.capacityExceeded = true;
+					this.logger.warn("More than {} elements are buffered, ports without elements are skipped and the merge order "
+							+ "depends on the scheduling.", this.capacity);
+				}
+			} else {
+				this.outputPort.send(pending.poll());
+				this.numberOfPendingElements--;
+			}
+			this.nextPort = (this.nextPort + 1) % this.pendingElements.size();
+			pending = this.pendingElements.get(this.nextPort);
+		}
+	}
+
+	private void receiveElements() {
+		for (int i = 0; i < this.inputPorts.size(); i++) {
+			final T element = this.inputPorts.get(i).receive();
+			if (element != null) {
+				this.pendingElements.get(i).add(element);
+				this.numberOfPendingElements++;
+			}
+		}
+	}
+
+	@Override
+	protected void onTerminating() {
+		for (int i = 0; i < this.inputPorts.size(); i++) {
+			final InputPort<T> inputPort = this.inputPorts.get(i);
+			for (T element = inputPort.receive(); element != null; element = inputPort.receive()) {
+				this.pendingElements.get(i).add(element);
+			}
+		}
+		boolean sent = true;
+		while (sent) {
+			sent = false;
+			for (int i = 0; i < this.pendingElements.size(); i++) {
+				final T element = this.pendingElements.get(this.nextPort).poll();
+				if (element != null) {
+					this.outputPort.send(element);
+					sent = true;
+				}
+				this.nextPort = (this.nextPort + 1) % this.pendingElements.size();
+			}
+		}
+		super.onTerminating();
+	}
+
+	public OutputPort<T> getOutputPort() {
+		return this.outputPort;
+	}
+}
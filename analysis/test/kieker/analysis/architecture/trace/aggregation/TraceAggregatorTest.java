@@ -0,0 +1,86 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.aggregation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.model.analysismodel.deployment.DeployedOperation;
+import kieker.model.analysismodel.deployment.DeploymentFactory;
+import kieker.model.analysismodel.trace.OperationCall;
+import kieker.model.analysismodel.trace.Trace;
+import kieker.model.analysismodel.trace.TraceFactory;
+
+/**
+ * Test the structural aggregation of the {@link TraceAggregator}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceAggregatorTest { // NOCS test do not need constructors
+
+	private final DeployedOperation outerOperation = DeploymentFactory.eINSTANCE.createDeployedOperation();
+	private final DeployedOperation innerOperation = DeploymentFactory.eINSTANCE.createDeployedOperation();
+
+	/** structurally equal traces are aggregated, traces with a different structure are not. */
+	@Test
+	public void testStructurallyEqualTracesAreAggregated() {
+		final TraceAggregator aggregator = new TraceAggregator(false);
+		final TraceEquivalence equivalence = new TraceEquivalence(false);
+
+		final Trace first = this.createTrace(1, this.innerOperation, null);
+		final Trace second = this.createTrace(2, this.innerOperation, "timeout");
+		Assert.assertEquals("structural hash", equivalence.hash(first), equivalence.hash(second));
+
+		final AggregatedTraceWrapper firstAggregation = aggregator.handleTrace(first);
+		final AggregatedTraceWrapper secondAggregation = aggregator.handleTrace(second);
+		final AggregatedTraceWrapper otherAggregation = aggregator.handleTrace(this.createTrace(3, this.outerOperation, null));
+
+		Assert.assertTrue("first trace", firstAggregation.isFirst());
+		Assert.assertFalse("equal trace", secondAggregation.isFirst());
+		Assert.assertSame("aggregated trace", firstAggregation.getAggregatedTrace(), secondAggregation.getAggregatedTrace());
+		Assert.assertTrue("different trace", otherAggregation.isFirst());
+	}
+
+	/** traces which differ only in their failed cause are only aggregated if failures are not considered. */
+	@Test
+	public void testConsiderFailed() {
+		final TraceAggregator aggregator = new TraceAggregator(true);
+
+		Assert.assertTrue("first trace", aggregator.handleTrace(this.createTrace(1, this.innerOperation, null)).isFirst());
+		Assert.assertTrue("failed trace", aggregator.handleTrace(this.createTrace(2, this.innerOperation, "timeout")).isFirst());
+		Assert.assertFalse("equal failed trace", aggregator.handleTrace(this.createTrace(3, this.innerOperation, "timeout")).isFirst());
+	}
+
+	private Trace createTrace(final long traceId, final DeployedOperation childOperation, final String failedCause) {
+		final TraceFactory factory = TraceFactory.eINSTANCE;
+		final OperationCall root = factory.createOperationCall();
+		root.setOperation(this.outerOperation);
+		final OperationCall child = factory.createOperationCall();
+		child.setOperation(childOperation);
+		if (failedCause != null) {
+			child.setFailed(true);
+			child.setFailedCause(failedCause);
+		}
+		root.getChildren().add(child);
+
+		final Trace trace = factory.createTrace();
+		trace.setTraceID(traceId);
+		trace.setRootOperationCall(root);
+		return trace;
+	}
+}
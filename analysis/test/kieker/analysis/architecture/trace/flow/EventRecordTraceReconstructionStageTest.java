@@ -15,6 +15,9 @@
  ***************************************************************************/
 package kieker.analysis.architecture.trace.flow;
 
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
@@ -28,6 +31,7 @@ import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
 
 import kieker.test.analysis.util.stage.BookstoreEventRecordFactory;
 
+import teetime.framework.InputPort;
 import teetime.framework.test.StageTester;
 
 /**
@@ -123,4 +127,208 @@ public class EventRecordTraceReconstructionStageTest { // NOCS test do not need
 		}
 	}
 
+	@Test
+	public void testTimeoutOfIncompleteTrace() {
+		final boolean repairEventBasedTraces = false;
+		final long maxTraceDuration = Long.MAX_VALUE;
+		final long maxTraceTimeout = 100;
+		final EventRecordTraceReconstructionStage stage = new EventRecordTraceReconstructionStage(TimeUnit.NANOSECONDS, repairEventBasedTraces,
+				maxTraceDuration, maxTraceTimeout);
+
+		final TraceEventRecords incompleteTrace = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(0, 1, "test-session", "test-host");
+		final TraceEventRecords laterTrace = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(10000, 2, "test-session", "test-host");
+
+		final AbstractTraceEvent[] incompleteEvents = incompleteTrace.getTraceEvents();
+		final AbstractTraceEvent[] laterEvents = laterTrace.getTraceEvents();
+
+		// the last event of the first trace is missing, the events of the second trace time it out
+		final IFlowRecord[] elements = new IFlowRecord[incompleteEvents.length + laterEvents.length + 1];
+		final AbstractTraceEvent[] resultEvents = new AbstractTraceEvent[incompleteEvents.length - 1];
+		int i = 0;
+		elements[i++] = incompleteTrace.getTraceMetadata();
+		for (int j = 0; j < (incompleteEvents.length - 1); j++) {
+			elements[i++] = incompleteEvents[j];
+			resultEvents[j] = incompleteEvents[j];
+		}
+		elements[i++] = laterTrace.getTraceMetadata();
+		for (final AbstractTraceEvent event : laterEvents) {
+			elements[i++] = event;
+		}
+
+		StageTester.test(stage).send(elements).to(stage.getTraceRecordsInputPort()).and().send(0L).to(stage.getTimestampsInputPort())
+				.start();
+
+		Assert.assertThat(stage.getInvalidTracesOutputPort(),
+				StageTester.produces(new TraceEventRecords(incompleteTrace.getTraceMetadata(), resultEvents)));
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(laterTrace));
+	}
+
+	/** the timeout index does not keep a finished trace in memory until its deadline. */
+	@Test
+	public void testFinishedTraceIsReleased() {
+		final ReleaseCheckingStage stage = new ReleaseCheckingStage();
+
+		final TraceEventRecords trace = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(0, 1, "test-session", "test-host");
+		final AbstractTraceEvent[] events = trace.getTraceEvents();
+		final IFlowRecord[] elements = new IFlowRecord[events.length + 1];
+		elements[0] = trace.getTraceMetadata();
+		System.arraycopy(events, 0, elements, 1, events.length);
+
+		StageTester.test(stage).send(elements).to(stage.getTraceRecordsInputPort()).and().send(0L).to(stage.getTimestampsInputPort()).start();
+
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(trace));
+		Assert.assertTrue("buffer of the finished trace is still reachable", stage.isBufferReleased());
+	}
+
+	/** events are stored by their order index, independent of the order in which they are received. */
+	@Test
+	public void testEventsInReverseOrder() {
+		final EventRecordTraceReconstructionStage stage = this.createStage(false);
+
+		final TraceEventRecords traceEvents = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(0, 1, "test-session", "test-host");
+		final AbstractTraceEvent[] events = traceEvents.getTraceEvents();
+		final IFlowRecord[] elements = new IFlowRecord[events.length + 1];
+		elements[0] = traceEvents.getTraceMetadata();
+		for (int i = 0; i < events.length; i++) {
+			elements[i + 1] = events[events.length - 1 - i];
+		}
+
+		StageTester.test(stage).send(elements).to(stage.getTraceRecordsInputPort()).start();
+
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(traceEvents));
+	}
+
+	/** a second event with the same order index is dropped and invalidates the trace. */
+	@Test
+	public void testDuplicateOrderIndex() {
+		final EventRecordTraceReconstructionStage stage = this.createStage(false);
+
+		final TraceMetadata metadata = new TraceMetadata(1, 0, "test-session", "test-host", -1, -1);
+		final AbstractTraceEvent outerBefore = new BeforeOperationEvent(1, 1, 0, "outer()", "TestClass");
+		final AbstractTraceEvent innerBefore = new BeforeOperationEvent(2, 1, 1, "inner()", "TestClass");
+		final AbstractTraceEvent duplicate = new BeforeOperationEvent(3, 1, 1, "inner()", "TestClass");
+		final AbstractTraceEvent innerAfter = new AfterOperationEvent(4, 1, 2, "inner()", "TestClass");
+		final AbstractTraceEvent outerAfter = new AfterOperationEvent(5, 1, 3, "outer()", "TestClass");
+
+		StageTester.test(stage).send(metadata, outerBefore, innerBefore, duplicate, innerAfter, outerAfter).to(stage.getTraceRecordsInputPort())
+				.start();
+
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.producesNothing());
+		Assert.assertThat(stage.getInvalidTracesOutputPort(),
+				StageTester.produces(new TraceEventRecords(metadata, new AbstractTraceEvent[] { outerBefore, innerBefore, innerAfter, outerAfter })));
+	}
+
+	/** events with negative or corrupt large order indices invalidate the trace, but are kept in order. */
+	@Test
+	public void testNegativeAndLargeOrderIndices() {
+		final EventRecordTraceReconstructionStage stage = this.createStage(false);
+
+		final TraceMetadata metadata = new TraceMetadata(1, 0, "test-session", "test-host", -1, -1);
+		final AbstractTraceEvent negative = new BeforeOperationEvent(1, 1, -1, "op()", "TestClass");
+		final AbstractTraceEvent before = new BeforeOperationEvent(2, 1, 0, "op()", "TestClass");
+		final AbstractTraceEvent large = new AfterOperationEvent(3, 1, (1 << 20) - 1, "op()", "TestClass");
+		final AbstractTraceEvent after = new AfterOperationEvent(4, 1, 1, "op()", "TestClass");
+
+		StageTester.test(stage).send(metadata, large, before, negative, after).to(stage.getTraceRecordsInputPort()).start();
+
+		Assert.assertThat(stage.getInvalidTracesOutputPort(),
+				StageTester.produces(new TraceEventRecords(metadata, new AbstractTraceEvent[] { negative, before, after, large })));
+	}
+
+	/** an event received ahead of the preceding events of its trace is placed by its order index. */
+	@Test
+	public void testEventAheadOfTrace() {
+		final EventRecordTraceReconstructionStage stage = this.createStage(false);
+
+		final int calls = 20;
+		final TraceMetadata metadata = new TraceMetadata(1, 0, "test-session", "test-host", -1, -1);
+		final AbstractTraceEvent[] events = new AbstractTraceEvent[2 * calls];
+		for (int i = 0; i < calls; i++) {
+			events[i] = new BeforeOperationEvent(i, 1, i, "op()", "TestClass");
+			events[(2 * calls) - 1 - i] = new AfterOperationEvent((2 * calls) - i, 1, (2 * calls) - 1 - i, "op()", "TestClass");
+		}
+		// the last event is received after the first two events
+		final IFlowRecord[] elements = new IFlowRecord[events.length + 1];
+		elements[0] = metadata;
+		elements[1] = events[0];
+		elements[2] = events[1];
+		elements[3] = events[events.length - 1];
+		for (int i = 2; i < (events.length - 1); i++) {
+			elements[i + 2] = events[i];
+		}
+
+		StageTester.test(stage).send(elements).to(stage.getTraceRecordsInputPort()).start();
+
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(new TraceEventRecords(metadata, events)));
+	}
+
+	/** in repair mode, a missing after event is added with the next order index. */
+	@Test
+	public void testRepairMissingAfterEvent() {
+		final EventRecordTraceReconstructionStage stage = this.createStage(true);
+
+		final TraceMetadata metadata = new TraceMetadata(1, 0, "test-session", "test-host", -1, -1);
+		final AbstractTraceEvent outerBefore = new BeforeOperationEvent(1, 1, 0, "outer()", "OuterClass");
+		final AbstractTraceEvent innerBefore = new BeforeOperationEvent(2, 1, 1, "inner()", "InnerClass");
+		final AbstractTraceEvent outerAfter = new AfterOperationEvent(4, 1, 2, "outer()", "OuterClass");
+
+		StageTester.test(stage).send(metadata, outerBefore, innerBefore, outerAfter).to(stage.getTraceRecordsInputPort()).start();
+
+		final AbstractTraceEvent[] repairedEvents = { outerBefore, innerBefore, new AfterOperationEvent(4, 1, 2, "inner()", "InnerClass"),
+			new AfterOperationEvent(4, 1, 3, "outer()", "OuterClass"), };
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(new TraceEventRecords(metadata, repairedEvents)));
+	}
+
+	private EventRecordTraceReconstructionStage createStage(final boolean repairEventBasedTraces) {
+		return new EventRecordTraceReconstructionStage(TimeUnit.NANOSECONDS, repairEventBasedTraces, Long.MAX_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Reconstruction stage with a trace timeout which checks on termination whether the buffer of the first trace is
+	 * still reachable. The timeout queue still contains the entry of that trace at this point.
+	 */
+	private static final class ReleaseCheckingStage extends AbstractEventRecordTraceReconstructionStage {
+
+		private static final int MAX_GC_RUNS = 100;
+
+		private final InputPort<IFlowRecord> traceRecordsInputPort = this.createInputPort(IFlowRecord.class);
+		private WeakReference<Object> bufferReference;
+		private boolean bufferReleased;
+
+		public ReleaseCheckingStage() {
+			super(TimeUnit.NANOSECONDS, false, Long.MAX_VALUE, 1000000L);
+		}
+
+		@Override
+		protected void execute() throws Exception {
+			super.execute();
+
+			final IFlowRecord traceRecord = this.traceRecordsInputPort.receive();
+			if (traceRecord != null) {
+				this.newFlowRecordEvent(traceRecord);
+				if ((traceRecord instanceof TraceMetadata) && (this.bufferReference == null)) {
+					final Field traces = AbstractEventRecordTraceReconstructionStage.class.getDeclaredField("traceId2trace");
+					traces.setAccessible(true);
+					this.bufferReference = new WeakReference<>(((Map<?, ?>) traces.get(this)).get(((TraceMetadata) traceRecord).getTraceId()));
+				}
+			}
+		}
+
+		@Override
+		protected void onTerminating() {
+			for (int i = 0; (i < MAX_GC_RUNS) && (this.bufferReference.get() != null); i++) {
+				System.gc(); // NOPMD (test for reachability)
+			}
+			this.bufferReleased = this.bufferReference.get() == null;
+			super.onTerminating();
+		}
+
+		public InputPort<IFlowRecord> getTraceRecordsInputPort() {
+			return this.traceRecordsInputPort;
+		}
+
+		public boolean isBufferReleased() {
+			return this.bufferReleased;
+		}
+	}
 }
@@ -0,0 +1,103 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.flow;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.flow.IFlowRecord;
+import kieker.common.record.flow.trace.AbstractTraceEvent;
+
+import kieker.test.analysis.util.stage.BookstoreEventRecordFactory;
+
+import teetime.framework.test.StageTester;
+
+/**
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+public class ShardedEventRecordTraceReconstructionStageTest { // NOCS test do not need constructors
+
+	private static final int SHARDS = 3;
+	private static final int TRACES = 24;
+
+	/** with deterministic order, the traces of the shards are merged in round robin order of the shards. */
+	@Test
+	public void testDeterministicOrder() {
+		final ShardedEventRecordTraceReconstructionStage stage = new ShardedEventRecordTraceReconstructionStage(TimeUnit.NANOSECONDS, false,
+				Long.MAX_VALUE, Long.MAX_VALUE, SHARDS, true);
+
+		final List<IFlowRecord> input = new ArrayList<>();
+		final List<List<TraceEventRecords>> shardTraces = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			shardTraces.add(new ArrayList<TraceEventRecords>());
+		}
+		for (long traceId = 0; traceId < TRACES; traceId++) {
+			final TraceEventRecords traceEvents = this.addTrace(input, traceId);
+			shardTraces.get(TraceIdPartitionStage.computePartition(traceId, SHARDS)).add(traceEvents);
+		}
+
+		final List<TraceEventRecords> expected = new ArrayList<>();
+		for (int round = 0; expected.size() < TRACES; round++) {
+			for (final List<TraceEventRecords> traces : shardTraces) {
+				if (round < traces.size()) {
+					expected.add(traces.get(round));
+				}
+			}
+		}
+
+		StageTester.test(stage).send(input.toArray(new IFlowRecord[input.size()])).to(stage.getTraceRecordsInputPort()).start();
+
+		Assert.assertThat(stage.getValidTracesOutputPort(), StageTester.produces(expected.toArray(new TraceEventRecords[expected.size()])));
+		Assert.assertThat(stage.getInvalidTracesOutputPort(), StageTester.producesNothing());
+	}
+
+	/** without deterministic order, all traces are reconstructed, but their order depends on the scheduling. */
+	@Test
+	public void testAllTracesReconstructed() {
+		final ShardedEventRecordTraceReconstructionStage stage = new ShardedEventRecordTraceReconstructionStage(TimeUnit.NANOSECONDS, false,
+				Long.MAX_VALUE, Long.MAX_VALUE, SHARDS, false);
+
+		final List<IFlowRecord> input = new ArrayList<>();
+		final List<TraceEventRecords> expected = new ArrayList<>();
+		for (long traceId = 0; traceId < TRACES; traceId++) {
+			expected.add(this.addTrace(input, traceId));
+		}
+		final List<TraceEventRecords> validTraces = new ArrayList<>();
+
+		StageTester.test(stage).send(input.toArray(new IFlowRecord[input.size()])).to(stage.getTraceRecordsInputPort()).and()
+				.receive(validTraces).from(stage.getValidTracesOutputPort())
+				.start();
+
+		Assert.assertEquals("number of traces", TRACES, validTraces.size());
+		Assert.assertEquals("traces", new HashSet<>(expected), new HashSet<>(validTraces));
+	}
+
+	private TraceEventRecords addTrace(final List<IFlowRecord> input, final long traceId) {
+		final TraceEventRecords traceEvents = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(traceId * 100, traceId, "test-session",
+				"test-host");
+		input.add(traceEvents.getTraceMetadata());
+		for (final AbstractTraceEvent event : traceEvents.getTraceEvents()) {
+			input.add(event);
+		}
+		return traceEvents;
+	}
+}
@@ -0,0 +1,70 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.flow.IFlowRecord;
+import kieker.common.record.flow.trace.AbstractTraceEvent;
+
+import kieker.test.analysis.util.stage.BookstoreEventRecordFactory;
+
+import teetime.framework.test.StageTester;
+
+/**
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+public class TraceIdPartitionStageTest { // NOCS test do not need constructors
+
+	private static final int PARTITIONS = 3;
+	private static final int TRACES = 24;
+
+	/** all records of a trace are sent to the same partition in their original order. */
+	@Test
+	public void testRecordsOfTraceInOnePartition() {
+		final TraceIdPartitionStage stage = new TraceIdPartitionStage(PARTITIONS);
+
+		final List<IFlowRecord> input = new ArrayList<>();
+		final List<List<IFlowRecord>> expected = new ArrayList<>();
+		for (int i = 0; i < PARTITIONS; i++) {
+			expected.add(new ArrayList<IFlowRecord>());
+		}
+		for (long traceId = 0; traceId < TRACES; traceId++) {
+			final TraceEventRecords traceEvents = BookstoreEventRecordFactory.validSyncTraceBeforeAfterEvents(traceId * 100, traceId, "test-session",
+					"test-host");
+			final List<IFlowRecord> partition = expected.get(TraceIdPartitionStage.computePartition(traceId, PARTITIONS));
+			input.add(traceEvents.getTraceMetadata());
+			partition.add(traceEvents.getTraceMetadata());
+			for (final AbstractTraceEvent event : traceEvents.getTraceEvents()) {
+				input.add(event);
+				partition.add(event);
+			}
+		}
+
+		StageTester.test(stage).send(input.toArray(new IFlowRecord[input.size()])).to(stage.getInputPort()).start();
+
+		for (int i = 0; i < PARTITIONS; i++) {
+			final List<IFlowRecord> partition = expected.get(i);
+			Assert.assertFalse("partition " + i + " is not used", partition.isEmpty());
+			Assert.assertThat(stage.getOutputPorts().get(i), StageTester.produces(partition.toArray(new IFlowRecord[partition.size()])));
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.architecture.trace.reconstruction;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.model.analysismodel.deployment.DeployedComponent;
+import kieker.model.analysismodel.deployment.DeployedOperation;
+import kieker.model.analysismodel.deployment.DeploymentContext;
+import kieker.model.analysismodel.deployment.DeploymentFactory;
+import kieker.model.analysismodel.deployment.DeploymentModel;
+import kieker.model.analysismodel.trace.Trace;
+
+/**
+ * Test the eviction of incomplete traces of the {@link TraceReconstructor}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceReconstructorTest { // NOCS test do not need constructors
+
+	private static final String HOSTNAME = "test-host";
+	private static final String CLASS_SIGNATURE = "kieker.Test";
+	private static final String OPERATION_SIGNATURE = "public void kieker.Test.operation()";
+
+	private DeploymentModel deploymentModel;
+
+	@Before
+	public void before() {
+		final DeploymentFactory factory = DeploymentFactory.eINSTANCE;
+		final DeployedOperation operation = factory.createDeployedOperation();
+		final DeployedComponent component = factory.createDeployedComponent();
+		component.getOperations().put(OPERATION_SIGNATURE, operation);
+		final DeploymentContext context = factory.createDeploymentContext();
+		context.getComponents().put(CLASS_SIGNATURE, component);
+		this.deploymentModel = factory.createDeploymentModel();
+		this.deploymentModel.getContexts().put(HOSTNAME, context);
+	}
+
+	/** the least recently active traces are evicted when too many traces are open. */
+	@Test
+	public void testEvictionByCapacity() {
+		final TraceReconstructor reconstructor = new TraceReconstructor(this.deploymentModel, ChronoUnit.NANOS, Long.MAX_VALUE, 2);
+		for (long traceId = 0; traceId < 3; traceId++) {
+			this.startTrace(reconstructor, traceId, traceId * 10);
+		}
+		// trace 0 becomes the most recently active trace
+		reconstructor.handleBeforeOperationEventRecord(this.createBeforeEvent(0, 1, 30));
+
+		final List<Trace> evictedTraces = reconstructor.evictTraces();
+		Assert.assertEquals("evicted traces", 1, evictedTraces.size());
+		Assert.assertEquals("evicted trace", 1L, evictedTraces.get(0).getTraceID());
+		Assert.assertEquals("open traces", 2, reconstructor.countOpenTraces());
+		Assert.assertEquals("evicted by capacity", 1L, reconstructor.countTracesEvictedByCapacity());
+	}
+
+	/** traces without events during the timeout are evicted, later events of them are dangling. */
+	@Test
+	public void testEvictionByTimeout() {
+		final TraceReconstructor reconstructor = new TraceReconstructor(this.deploymentModel, ChronoUnit.NANOS, 100, Integer.MAX_VALUE);
+		this.startTrace(reconstructor, 1, 0);
+		this.startTrace(reconstructor, 2, 50);
+		Assert.assertTrue("no timeout yet", reconstructor.evictTraces().isEmpty());
+
+		this.startTrace(reconstructor, 3, 120);
+		final List<Trace> evictedTraces = reconstructor.evictTraces();
+		Assert.assertEquals("evicted traces", 1, evictedTraces.size());
+		Assert.assertEquals("evicted trace", 1L, evictedTraces.get(0).getTraceID());
+
+		Assert.assertFalse("evicted trace", reconstructor.handleAfterOperationEventRecord(this.createAfterEvent(1, 1, 130)).isPresent());
+		Assert.assertTrue("completed trace", reconstructor.handleAfterOperationEventRecord(this.createAfterEvent(2, 1, 140)).isPresent());
+		Assert.assertEquals("evicted by timeout", 1L, reconstructor.countTracesEvictedByTimeout());
+		Assert.assertEquals("completed traces", 1L, reconstructor.countCompletedTraces());
+		Assert.assertEquals("dangling records", 1, reconstructor.countDanglingRecords());
+		Assert.assertEquals("open traces", 1, reconstructor.evictAllTraces().size());
+		Assert.assertEquals("open traces", 0, reconstructor.countOpenTraces());
+	}
+
+	/** evicted traces without operation events are not sent, their trace metadata record is dangling. */
+	@Test
+	public void testEvictionOfTraceWithoutEvents() {
+		final TraceReconstructor reconstructor = new TraceReconstructor(this.deploymentModel, ChronoUnit.NANOS, 100, Integer.MAX_VALUE);
+		reconstructor.handleTraceMetadataRecord(new TraceMetadata(1, 1, "test-session", HOSTNAME, -1, -1));
+		reconstructor.handleTraceMetadataRecord(new TraceMetadata(2, 1, "test-session", HOSTNAME, -1, -1));
+		this.startTrace(reconstructor, 3, 120);
+
+		Assert.assertTrue("no trace of trace metadata", reconstructor.evictTraces().isEmpty());
+		Assert.assertEquals("evicted by timeout", 2L, reconstructor.countTracesEvictedByTimeout());
+		Assert.assertEquals("dangling records", 2, reconstructor.countDanglingRecords());
+
+		reconstructor.handleTraceMetadataRecord(new TraceMetadata(4, 1, "test-session", HOSTNAME, -1, -1));
+		final List<Trace> openTraces = reconstructor.evictAllTraces();
+		Assert.assertEquals("open traces", 1, openTraces.size());
+		Assert.assertNotNull("root call", openTraces.get(0).getRootOperationCall());
+		Assert.assertEquals("dangling records", 3, reconstructor.countDanglingRecords());
+	}
+
+	private void startTrace(final TraceReconstructor reconstructor, final long traceId, final long timestamp) {
+		reconstructor.handleTraceMetadataRecord(new TraceMetadata(traceId, 1, "test-session", HOSTNAME, -1, -1));
+		reconstructor.handleBeforeOperationEventRecord(this.createBeforeEvent(traceId, 0, timestamp));
+	}
+
+	private BeforeOperationEvent createBeforeEvent(final long traceId, final int orderIndex, final long timestamp) {
+		return new BeforeOperationEvent(timestamp, traceId, orderIndex, OPERATION_SIGNATURE, CLASS_SIGNATURE);
+	}
+
+	private AfterOperationEvent createAfterEvent(final long traceId, final int orderIndex, final long timestamp) {
+		return new AfterOperationEvent(timestamp, traceId, orderIndex, OPERATION_SIGNATURE, CLASS_SIGNATURE);
+	}
+}
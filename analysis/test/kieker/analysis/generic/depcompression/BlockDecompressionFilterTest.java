@@ -0,0 +1,203 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.util.filesystem.BlockFileFormat;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+import kieker.monitoring.writer.compression.BlockCompressionFilter;
+
+import kieker.test.common.junit.AbstractKiekerTest;
+
+/**
+ * Round trip of the block compression filter of the writer and the block decompression filter.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BlockDecompressionFilterTest extends AbstractKiekerTest {
+
+	private static final int BLOCK_SIZE = 4096;
+	private static final int DATA_SIZE = (BLOCK_SIZE * 20) + 123;
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder(); // NOCS (rule must be public)
+
+	/**
+	 * Empty default constructor.
+	 */
+	public BlockDecompressionFilterTest() {
+		// empty default constructor
+	}
+
+	/** data written in many frames, including small frames caused by flushes, is restored in order. */
+	@Test
+	public void testRoundTrip() throws IOException {
+		final byte[] data = BlockDecompressionFilterTest.createData();
+		final byte[] compressed = this.compress(data, 1000);
+
+		final InputStream inputStream = new BlockDecompressionFilter().chainInputStream(new ByteArrayInputStream(compressed));
+		Assert.assertArrayEquals("data", data, BlockDecompressionFilterTest.readAll(inputStream));
+		Assert.assertTrue("compressed", compressed.length < data.length);
+	}
+
+	/** a reader can start at any frame found in the frame index. */
+	@Test
+	public void testSeekToFrame() throws IOException {
+		final byte[] data = BlockDecompressionFilterTest.createData();
+		final Path file = this.tmpFolder.getRoot().toPath().resolve("seek.blk");
+		Files.write(file, this.compress(data, 0));
+
+		try (FileChannel channel = FileChannel.open(file)) {
+			final BlockFrameIndex index = BlockFrameIndex.read(channel);
+			Assert.assertEquals("frames", (DATA_SIZE + BLOCK_SIZE - 1) / BLOCK_SIZE, index.getNumberOfFrames());
+
+			final long position = DATA_SIZE / 2;
+			final int frame = index.findFrame(position);
+			final long frameStart = index.getUncompressedOffset(frame);
+			Assert.assertTrue("frame contains position", (frameStart <= position) && (position < (frameStart + BLOCK_SIZE)));
+
+			final InputStream inputStream = new BlockDecompressionFilter().chainInputStream(channel, index, frame);
+			Assert.assertArrayEquals("data from frame", Arrays.copyOfRange(data, (int) frameStart, data.length),
+					BlockDecompressionFilterTest.readAll(inputStream));
+		}
+	}
+
+	/** a file which has not been closed is readable up to the last complete frame. */
+	@Test
+	public void testFileWithoutTrailer() throws IOException {
+		final byte[] data = BlockDecompressionFilterTest.createData();
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final OutputStream outputStream = this.createFilter().chainOutputStream(stream, Paths.get("crash.blk"));
+		outputStream.write(data, 0, BLOCK_SIZE * 3);
+		outputStream.flush();
+
+		final InputStream inputStream = new BlockDecompressionFilter().chainInputStream(new ByteArrayInputStream(stream.toByteArray()));
+		Assert.assertArrayEquals("complete frames", Arrays.copyOf(data, BLOCK_SIZE * 3), BlockDecompressionFilterTest.readAll(inputStream));
+	}
+
+	/** a file cut within a frame header is readable up to the last complete frame. */
+	@Test
+	public void testTruncatedFrameHeader() throws IOException {
+		final byte[] data = BlockDecompressionFilterTest.createData();
+		final byte[] compressed = this.compress(data, 0);
+		final Path file = this.tmpFolder.getRoot().toPath().resolve("truncated.blk");
+		Files.write(file, compressed);
+		final BlockFrameIndex index;
+		try (FileChannel channel = FileChannel.open(file)) {
+			index = BlockFrameIndex.read(channel);
+		}
+		final int truncatedFrame = 5;
+		final int length = (int) index.getFrameOffset(truncatedFrame) + 6; // uncompressed length and half of the compressed length
+
+		final InputStream inputStream = new BlockDecompressionFilter().chainInputStream(new ByteArrayInputStream(compressed, 0, length));
+		Assert.assertArrayEquals("complete frames", Arrays.copyOf(data, (int) index.getUncompressedOffset(truncatedFrame)),
+				BlockDecompressionFilterTest.readAll(inputStream));
+	}
+
+	/** a frame longer than the block size allows is rejected before its buffer is allocated. */
+	@Test(expected = IOException.class)
+	public void testInvalidFrameLength() throws IOException {
+		final byte[] compressed = this.compress(BlockDecompressionFilterTest.createData(), 0);
+		// compressed length of the first frame
+		ByteBuffer.wrap(compressed).putInt(BlockFileFormat.HEADER_SIZE + 4, Integer.MAX_VALUE);
+
+		BlockDecompressionFilterTest.readAll(new BlockDecompressionFilter().chainInputStream(new ByteArrayInputStream(compressed)));
+	}
+
+	/** the workers of a filter are shut down with its last stream and started again for the next stream. */
+	@Test
+	public void testFilterAfterClose() throws IOException {
+		final byte[] data = BlockDecompressionFilterTest.createData();
+		final BlockCompressionFilter filter = this.createFilter();
+		for (int file = 0; file < 2; file++) {
+			final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			final OutputStream outputStream = filter.chainOutputStream(stream, Paths.get("file-" + file + ".blk"));
+			outputStream.write(data);
+			outputStream.close();
+			outputStream.close(); // no effect
+
+			final InputStream inputStream = new BlockDecompressionFilter().chainInputStream(new ByteArrayInputStream(stream.toByteArray()));
+			Assert.assertArrayEquals("data", data, BlockDecompressionFilterTest.readAll(inputStream));
+		}
+	}
+
+	private BlockCompressionFilter createFilter() {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(BlockCompressionFilter.CONFIG_BLOCK_SIZE, BLOCK_SIZE);
+		configuration.setProperty(BlockCompressionFilter.CONFIG_WORKERS, 4);
+		return new BlockCompressionFilter(configuration);
+	}
+
+	/**
+	 * Compress the data with writes of the given size; 0 writes the data at once.
+	 */
+	private byte[] compress(final byte[] data, final int flushInterval) throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final OutputStream outputStream = this.createFilter().chainOutputStream(stream, Paths.get("test.blk"));
+		if (flushInterval == 0) {
+			outputStream.write(data);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				outputStream.write(data[i]);
+				if ((i % flushInterval) == 0) {
+					outputStream.flush();
+				}
+			}
+		}
+		outputStream.close();
+		return stream.toByteArray();
+	}
+
+	private static byte[] createData() {
+		final byte[] data = new byte[DATA_SIZE];
+		for (int i = 0; i < DATA_SIZE; i++) {
+			data[i] = (byte) ((i * 31) % 251 + (i / 1000));
+		}
+		return data;
+	}
+
+	private static byte[] readAll(final InputStream inputStream) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1000];
+		int size = inputStream.read(buffer);
+		while (size >= 0) {
+			result.write(buffer, 0, size);
+			size = inputStream.read(buffer);
+		}
+		inputStream.close();
+		return result.toByteArray();
+	}
+}
@@ -0,0 +1,160 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.analysis.generic.depcompression;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.configuration.Configuration;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+import kieker.monitoring.writer.compression.LZCompressionFilter;
+
+import kieker.test.common.junit.AbstractKiekerTest;
+
+/**
+ * Round trip of the LZ compression filter of the writer and the LZ decompression filter.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class LZDecompressionFilterTest extends AbstractKiekerTest {
+
+	private static final int BLOCK_SIZE = 4096;
+	private static final int DATA_SIZE = (BLOCK_SIZE * 20) + 123;
+
+	/**
+	 * Empty default constructor.
+	 */
+	public LZDecompressionFilterTest() {
+		// empty default constructor
+	}
+
+	/** repetitive data, written in frames of different sizes, is restored with and without dictionary. */
+	@Test
+	public void testRoundTrip() throws IOException {
+		final byte[] data = LZDecompressionFilterTest.createRecords();
+		for (final int dictionarySize : new int[] { 0, 1000, 32 * 1024 }) {
+			final byte[] compressed = LZDecompressionFilterTest.compress(data, dictionarySize, 1000);
+			Assert.assertArrayEquals("data", data, LZDecompressionFilterTest.decompress(compressed));
+			Assert.assertTrue("compressed", compressed.length < (data.length / 2));
+		}
+	}
+
+	/** the dictionary improves the compression of small frames. */
+	@Test
+	public void testDictionary() throws IOException {
+		final byte[] data = LZDecompressionFilterTest.createRecords();
+		final int withoutDictionary = LZDecompressionFilterTest.compress(data, 0, 100).length;
+		final int withDictionary = LZDecompressionFilterTest.compress(data, 8 * 1024, 100).length;
+		Assert.assertTrue("dictionary", withDictionary < withoutDictionary);
+	}
+
+	/** incompressible data is stored. */
+	@Test
+	public void testIncompressible() throws IOException {
+		final byte[] data = new byte[DATA_SIZE];
+		new Random(42).nextBytes(data);
+		final byte[] compressed = LZDecompressionFilterTest.compress(data, 1000, 0);
+		Assert.assertArrayEquals("data", data, LZDecompressionFilterTest.decompress(compressed));
+	}
+
+	/** a file which has not been closed is readable up to the last complete frame. */
+	@Test
+	public void testFileWithoutEndMarker() throws IOException {
+		final byte[] data = LZDecompressionFilterTest.createRecords();
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final OutputStream outputStream = LZDecompressionFilterTest.createFilter(1000).chainOutputStream(stream, Paths.get("crash.klz"));
+		outputStream.write(data, 0, BLOCK_SIZE * 3);
+		outputStream.flush();
+
+		Assert.assertArrayEquals("complete frames", Arrays.copyOf(data, BLOCK_SIZE * 3), LZDecompressionFilterTest.decompress(stream.toByteArray()));
+	}
+
+	private static LZCompressionFilter createFilter(final int dictionarySize) {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(LZCompressionFilter.CONFIG_BLOCK_SIZE, BLOCK_SIZE);
+		configuration.setProperty(LZCompressionFilter.CONFIG_DICTIONARY_SIZE, dictionarySize);
+		return new LZCompressionFilter(configuration);
+	}
+
+	/**
+	 * Compress the data and flush after the given number of bytes; 0 writes the data at once.
+	 */
+	private static byte[] compress(final byte[] data, final int dictionarySize, final int flushInterval) throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final OutputStream outputStream = LZDecompressionFilterTest.createFilter(dictionarySize).chainOutputStream(stream, Paths.get("test.klz"));
+		if (flushInterval == 0) {
+			outputStream.write(data);
+		} else {
+			for (int offset = 0; offset < data.length; offset += flushInterval) {
+				outputStream.write(data, offset, Math.min(flushInterval, data.length - offset));
+				outputStream.flush();
+			}
+		}
+		outputStream.close();
+		return stream.toByteArray();
+	}
+
+	private static byte[] decompress(final byte[] compressed) throws IOException {
+		final InputStream inputStream = new LZDecompressionFilter().chainInputStream(new ByteArrayInputStream(compressed));
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1000];
+		int size = inputStream.read(buffer);
+		while (size >= 0) {
+			result.write(buffer, 0, size);
+			size = inputStream.read(buffer);
+		}
+		inputStream.close();
+		return result.toByteArray();
+	}
+
+	/**
+	 * Create data resembling binary records: a class id, a string id, a timestamp, and a few counters.
+	 */
+	private static byte[] createRecords() {
+		final byte[] data = new byte[DATA_SIZE];
+		final Random random = new Random(7);
+		for (int i = 0; i < DATA_SIZE; i++) {
+			switch (i % 24) {
+			case 3:
+				data[i] = (byte) random.nextInt(4);
+				break;
+			case 7:
+				data[i] = (byte) random.nextInt(16);
+				break;
+			case 14:
+			case 15:
+				data[i] = (byte) (i / 24);
+				break;
+			default:
+				data[i] = (byte) (i % 24);
+				break;
+			}
+		}
+		return data;
+	}
+}
@@ -0,0 +1,145 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.filesystem.FSUtil;
+import kieker.monitoring.writer.compression.NoneCompressionFilter;
+import kieker.monitoring.writer.filesystem.MappedLogStreamHandler;
+
+import teetime.framework.test.StageTester;
+
+/**
+ * Test the {@link BinaryEventDeserializer} with log files which have not been closed properly.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BinaryEventDeserializerTest implements IRegistryListener<String> {
+
+	private static final int RECORDS = 100;
+	private static final String LOG_FILE_NAME = "kieker-1" + FSUtil.BINARY_FILE_EXTENSION;
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder(); // NOCS (rule must be public)
+
+	private final StringBuilder mapFileContent = new StringBuilder();
+	private final WriterRegistry writerRegistry = new WriterRegistry(this);
+
+	/** binary event deserializer test. */
+	public BinaryEventDeserializerTest() {
+		// nothing to be done here.
+	}
+
+	/** the log of a killed process is not truncated, the records are followed by the end marker and unwritten space. */
+	@Test
+	public void testLogOfKilledProcess() throws IOException {
+		final File directory = this.tmpFolder.newFolder();
+		final Path logFile = directory.toPath().resolve(LOG_FILE_NAME);
+		final MappedLogStreamHandler handler = this.writeRecords(logFile);
+		this.writeMapFile(directory);
+		Assert.assertTrue("not truncated", Files.size(logFile) > handler.getNumOfBytes());
+
+		this.assertRecords(directory, RECORDS);
+		handler.close();
+	}
+
+	/** a record which is cut off at the end of the log is skipped. */
+	@Test
+	public void testTruncatedLog() throws IOException {
+		final File directory = this.tmpFolder.newFolder();
+		final Path logFile = directory.toPath().resolve(LOG_FILE_NAME);
+		this.writeRecords(logFile).close();
+		this.writeMapFile(directory);
+		try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 5);
+		}
+
+		this.assertRecords(directory, RECORDS - 1);
+	}
+
+	/** unwritten space without an end marker ends the log. */
+	@Test
+	public void testZeroFilledTail() throws IOException {
+		final File directory = this.tmpFolder.newFolder();
+		final Path logFile = directory.toPath().resolve(LOG_FILE_NAME);
+		this.writeRecords(logFile).close();
+		this.writeMapFile(directory);
+		Files.write(logFile, new byte[4096], StandardOpenOption.APPEND);
+
+		this.assertRecords(directory, RECORDS);
+	}
+
+	private MappedLogStreamHandler writeRecords(final Path logFile) throws IOException {
+		final MappedLogStreamHandler handler = new MappedLogStreamHandler(false, 1024, StandardCharsets.UTF_8,
+				new NoneCompressionFilter(null), this.writerRegistry);
+		handler.setMaxBytesInFile(4096); // several segments
+		handler.initialize(logFile);
+		for (int i = 0; i < RECORDS; i++) {
+			final IMonitoringRecord record = this.createRecord(i);
+			handler.serialize(record, this.writerRegistry.getId(record.getClass().getName()));
+		}
+		return handler;
+	}
+
+	private void writeMapFile(final File directory) throws IOException {
+		Files.write(directory.toPath().resolve(FSUtil.MAP_FILENAME), this.mapFileContent.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private void assertRecords(final File directory, final int numOfRecords) {
+		final List<IMonitoringRecord> expectedRecords = new ArrayList<>();
+		for (int i = 0; i < numOfRecords; i++) {
+			expectedRecords.add(this.createRecord(i));
+		}
+
+		final DirectoryReaderStage stage = new DirectoryReaderStage(false, BinaryEventDeserializer.DEFAULT_BUFFER_SIZE);
+		StageTester.test(stage).send(directory).to(stage.getInputPort()).start();
+
+		Assert.assertThat(stage.getOutputPort(),
+				StageTester.produces(expectedRecords.toArray(new IMonitoringRecord[expectedRecords.size()])));
+	}
+
+	private IMonitoringRecord createRecord(final int index) {
+		final IMonitoringRecord record = new OperationExecutionRecord("op" + (index % 7), "session", index, 1000L + index, 2000L + index,
+				"localhost", index, 0);
+		record.setLoggingTimestamp(3000L + index);
+		return record;
+	}
+
+	@Override
+	public void onNewRegistryEntry(final String value, final int id) {
+		this.mapFileContent.append('$').append(id).append('=').append(value).append('\n');
+	}
+}
@@ -0,0 +1,60 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import kieker.analysis.generic.source.rewriter.ITraceMetadataRewriter;
+import kieker.common.record.IMonitoringRecord;
+
+import teetime.framework.OutputPort;
+
+/**
+ * Rewriter which blocks the stage at the first record until it is released, so that the queues of the stage fill up.
+ *
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+class BlockingRewriter implements ITraceMetadataRewriter {
+
+	private final CountDownLatch firstRecord = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	public BlockingRewriter() {
+		// nothing to initialize
+	}
+
+	@Override
+	public void rewrite(final Connection connection, final IMonitoringRecord record, final long loggingTimestamp,
+			final OutputPort<IMonitoringRecord> outputPort) throws IOException {
+		this.firstRecord.countDown();
+		try {
+			this.release.await();
+		} catch (final InterruptedException e) {
+			throw new IOException(e);
+		}
+		outputPort.send(record);
+	}
+
+	public void awaitFirstRecord() throws InterruptedException {
+		this.firstRecord.await();
+	}
+
+	public void release() {
+		this.release.countDown();
+	}
+}
@@ -0,0 +1,79 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.IMonitoringRecord;
+
+import teetime.framework.test.StageTester;
+
+/**
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+public class MultipleConnectionTcpSourceStageTest {
+
+	private static final int BUFFER_SIZE = 1024;
+	private static final int QUEUE_CAPACITY = 4;
+	private static final long STOP_DELAY_IN_MS = 50;
+
+	public MultipleConnectionTcpSourceStageTest() {
+		super();
+	}
+
+	@Test(timeout = 30000)
+	public void testStopWithFullQueueSendsAllReadRecords() throws IOException, InterruptedException {
+		final int port = RecordSender.findFreePort();
+		final BlockingRewriter rewriter = new BlockingRewriter();
+		final MultipleConnectionTcpSourceStage stage = new MultipleConnectionTcpSourceStage(port, BUFFER_SIZE, rewriter, 1,
+				QUEUE_CAPACITY);
+		final List<IMonitoringRecord> received = Collections.synchronizedList(new ArrayList<IMonitoringRecord>());
+		final Thread stageThread = new Thread(() -> StageTester.test(stage).and().receive(received).from(stage.getOutputPort()).start());
+		stageThread.start();
+
+		try (RecordSender sender = new RecordSender(port)) {
+			sender.send();
+			rewriter.awaitFirstRecord();
+			final Thread reader = MultipleConnectionTcpSourceStageTest.findThread("tcp-reader-" + port + "-0");
+			sender.sendUntilQueueIsFull(reader);
+
+			// stop the reader like the stage does, but before the stage drains the queue
+			stage.rejectNewConnection();
+			((ReaderThread) reader).terminate();
+			Thread.sleep(STOP_DELAY_IN_MS);
+			rewriter.release();
+			stageThread.join();
+
+			Assert.assertEquals("Records read before the stop are lost", sender.getSentRecords(), received.size());
+		}
+	}
+
+	private static Thread findThread(final String name) {
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (name.equals(thread.getName())) {
+				return thread;
+			}
+		}
+		throw new AssertionError("No thread " + name);
+	}
+}
@@ -0,0 +1,140 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.generic.source.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import kieker.common.record.misc.EmptyRecord;
+
+/**
+ * Sends empty records in the binary encoding to a TCP source stage, each record with a separate write.
+ *
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+class RecordSender implements AutoCloseable {
+
+	private static final int CONNECT_ATTEMPTS = 100;
+	private static final long CONNECT_RETRY_IN_MS = 100;
+	private static final int RECORD_CLASS_ID = 0;
+	private static final long SEND_INTERVAL_IN_MS = 50;
+	private static final int STATE_SAMPLES = 20;
+
+	private final SocketChannel channel;
+	private int sentRecords;
+
+	/**
+	 * Connect to the stage, waiting until it listens.
+	 *
+	 * @param port
+	 *            port of the stage
+	 * @throws IOException
+	 *             when the stage does not listen
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public RecordSender(final int port) throws IOException, InterruptedException {
+		@SuppressWarnings("PMD.AvoidUsingHardCodedIP")
+		final InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+		SocketChannel connectedChannel = null;
+		for (int i = 0; connectedChannel == null; i++) {
+			try {
+				connectedChannel = SocketChannel.open(address);
+			} catch (final IOException e) {
+				if (i >= CONNECT_ATTEMPTS) {
+					throw e;
+				}
+				Thread.sleep(CONNECT_RETRY_IN_MS);
+			}
+		}
+		this.channel = connectedChannel;
+	}
+
+	/**
+	 * Find a port no one listens on.
+	 *
+	 * @return the port
+	 * @throws IOException
+	 *             when no port is available
+	 */
+	public static int findFreePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	/**
+	 * Send one record, the first one together with the registry entry of its class.
+	 *
+	 * @throws IOException
+	 *             on write errors
+	 */
+	public void send() throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(1024);
+		if (this.sentRecords == 0) {
+			final byte[] className = EmptyRecord.class.getName().getBytes(StandardCharsets.UTF_8);
+			buffer.putInt(-1).putInt(RECORD_CLASS_ID).putInt(className.length).put(className);
+		}
+		buffer.putInt(RECORD_CLASS_ID).putLong(this.sentRecords);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+		this.sentRecords++;
+	}
+
+	/**
+	 * Send records until the thread reading them waits for queue space. A thread waiting for queue space parks
+	 * repeatedly, while a thread waiting for data is runnable.
+	 *
+	 * @param reader
+	 *            the thread reading the connection
+	 * @throws IOException
+	 *             on write errors
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public void sendUntilQueueIsFull(final Thread reader) throws IOException, InterruptedException {
+		while (!RecordSender.isWaiting(reader)) {
+			this.send();
+			Thread.sleep(SEND_INTERVAL_IN_MS);
+		}
+	}
+
+	private static boolean isWaiting(final Thread thread) throws InterruptedException {
+		for (int i = 0; i < STATE_SAMPLES; i++) {
+			if (thread.getState() == Thread.State.TIMED_WAITING) {
+				return true;
+			}
+			Thread.sleep(1);
+		}
+		return false;
+	}
+
+	public int getSentRecords() {
+		return this.sentRecords;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
@@ -0,0 +1,101 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.analysis.util.stage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import teetime.framework.InputPort;
+import teetime.framework.test.StageTester;
+
+/**
+ * @author Kieker Project
+ * @since 2.0.0
+ */
+public class OrderedMergerStageTest { // NOCS test do not need constructors
+
+	/** elements are merged round by round, ports without further elements are skipped at the end. */
+	@Test
+	public void testRoundRobinOrder() {
+		final OrderedMergerStage<String> stage = new OrderedMergerStage<>();
+		final InputPort<String> firstPort = stage.getNewInputPort();
+		final InputPort<String> secondPort = stage.getNewInputPort();
+		final InputPort<String> thirdPort = stage.getNewInputPort();
+
+		StageTester.test(stage).and()
+				.send("a0", "a1", "a2").to(firstPort).and()
+				.send("b0").to(secondPort).and()
+				.send("c0", "c1").to(thirdPort)
+				.start();
+
+		Assert.assertThat(stage.getOutputPort(), StageTester.produces("a0", "b0", "c0", "a1", "c1", "a2"));
+	}
+
+	/** when the capacity is exceeded, a port without elements does not hold back the other ports. */
+	@Test
+	public void testCapacityExceeded() {
+		final OrderedMergerStage<String> stage = new OrderedMergerStage<>(2);
+		final InputPort<String> firstPort = stage.getNewInputPort();
+		final InputPort<String> emptyPort = stage.getNewInputPort();
+
+		StageTester.test(stage).and()
+				.send("a0", "a1", "a2", "a3", "a4").to(firstPort).and()
+				.send(new String[0]).to(emptyPort)
+				.start();
+
+		Assert.assertThat(stage.getOutputPort(), StageTester.produces("a0", "a1", "a2", "a3", "a4"));
+	}
+
+	/**
+	 * beyond the capacity, the order depends on the scheduling, but the elements before the capacity is exceeded are
+	 * merged in round robin order, no element is lost, and the elements of each port stay in order.
+	 */
+	@Test
+	public void testOrderBeyondCapacity() {
+		final OrderedMergerStage<String> stage = new OrderedMergerStage<>(2);
+		final InputPort<String> firstPort = stage.getNewInputPort();
+		final InputPort<String> secondPort = stage.getNewInputPort();
+		final InputPort<String> emptyPort = stage.getNewInputPort();
+		final List<String> output = new ArrayList<>();
+
+		StageTester.test(stage).and()
+				.send("a0", "a1", "a2", "a3", "a4", "a5").to(firstPort).and()
+				.send("b0", "b1").to(secondPort).and()
+				.send(new String[0]).to(emptyPort).and()
+				.receive(output).from(stage.getOutputPort())
+				.start();
+
+		Assert.assertEquals("number of elements", 8, output.size());
+		Assert.assertEquals("first round", "a0", output.get(0));
+		Assert.assertEquals("first round", "b0", output.get(1));
+		OrderedMergerStageTest.assertPortOrder(output, "a", 6);
+		OrderedMergerStageTest.assertPortOrder(output, "b", 2);
+	}
+
+	private static void assertPortOrder(final List<String> output, final String port, final int numOfElements) {
+		int index = 0;
+		for (final String element : output) {
+			if (element.startsWith(port)) {
+				Assert.assertEquals("order of port " + port, port + index, element);
+				index++;
+			}
+		}
+		Assert.assertEquals("elements of port " + port, numOfElements, index);
+	}
+}
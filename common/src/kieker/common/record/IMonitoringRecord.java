@@ -34,7 +34,7 @@ import kieker.common.record.io.IValueSerializer;
  *
  * @since 1.2
  */
-public interface IMonitoringRecord extends Serializable, Comparable<IMonitoringRecord> {
+public interface IMonitoringRecord extends Serializable, Comparable<IMonitoringRecord>, IWriterQueueElement {
 
 	/**
 	 * Delivers the current timestamp of the record.
@@ -0,0 +1,222 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.common.record.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import kieker.common.exception.RecordInstantiationException;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.factory.CachedRecordFactoryCatalog;
+import kieker.common.record.factory.IRecordFactory;
+import kieker.common.registry.reader.ReaderRegistry;
+import kieker.common.util.dataformat.VariableLengthEncoding;
+
+/**
+ * Value deserializer for the compact binary encoding written by {@link CompactValueSerializer}. Like the serializer,
+ * the deserializer is stateful and must be used for one stream only.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompactValueDeserializer extends AbstractValueDeserializer implements IValueDeserializer {
+
+	private static final byte TRUE_VALUE = (byte) 1;
+
+	private final ByteBuffer buffer;
+	private final ReaderRegistry<String> stringRegistry;
+	private final CachedRecordFactoryCatalog recordFactories = CachedRecordFactoryCatalog.getInstance();
+
+	private long lastLoggingTimestamp;
+	private final long[] lastLongs = new long[CompactValueSerializer.DELTA_FIELDS];
+	private final int[] lastInts = new int[CompactValueSerializer.DELTA_FIELDS];
+	private int field;
+
+	/**
+	 * Create a compact value deserializer.
+	 *
+	 * @param buffer
+	 *            buffer containing the stream
+	 * @param stringRegistry
+	 *            the string registry used for the deserializer
+	 */
+	protected CompactValueDeserializer(final ByteBuffer buffer, final ReaderRegistry<String> stringRegistry) {
+		this.buffer = buffer;
+		this.stringRegistry = stringRegistry;
+	}
+
+	/**
+	 * Factory method to create a compact value deserializer.
+	 *
+	 * @param buffer
+	 *            buffer containing the stream
+	 * @param stringRegistry
+	 *            the string registry used for the deserializer
+	 * @return the value deserializer
+	 */
+	public static CompactValueDeserializer create(final ByteBuffer buffer, final ReaderRegistry<String> stringRegistry) {
+		return new CompactValueDeserializer(buffer, stringRegistry);
+	}
+
+	/**
+	 * Start a new stream, see {@link CompactValueSerializer#reset()}.
+	 */
+	public void reset() {
+		this.lastLoggingTimestamp = 0;
+		for (int i = 0; i < CompactValueSerializer.DELTA_FIELDS; i++) {
+			this.lastLongs[i] = 0;
+			this.lastInts[i] = 0;
+		}
+	}
+
+	/**
+	 * Check whether the buffer contains a complete entry at its position. The position is not changed.
+	 *
+	 * @return true when the next entry can be read
+	 */
+	public boolean hasEntry() {
+		final int limit = this.buffer.limit();
+		int position = this.buffer.position();
+		int size = 0;
+		int shiftAmount = 0;
+		while (position < limit) {
+			final byte currentByte = this.buffer.get(position++);
+			size |= (currentByte & 0x7F) << shiftAmount;
+			if (currentByte >= 0) {
+				return (limit - position) >= size;
+			}
+			shiftAmount += 7;
+		}
+		return false;
+	}
+
+	/**
+	 * Read the next entry, which must be complete, see {@link #hasEntry()}. String registry entries are added to the
+	 * registry.
+	 *
+	 * @return the record, or null if the entry was a string registry entry
+	 * @throws RecordInstantiationException
+	 *             when the record type is unknown or the record cannot be created; the entry is skipped in that case
+	 */
+	public IMonitoringRecord readEntry() throws RecordInstantiationException {
+		final int size = VariableLengthEncoding.decodeInt(this.buffer);
+		final int end = this.buffer.position() + size;
+		final int type = VariableLengthEncoding.decodeInt(this.buffer);
+
+		if (type == 0) {
+			final int id = VariableLengthEncoding.decodeInt(this.buffer);
+			final byte[] bytes = new byte[end - this.buffer.position()];
+			this.buffer.get(bytes);
+			this.stringRegistry.register(id, new String(bytes, StandardCharsets.UTF_8));
+			return null;
+		}
+
+		final long loggingTimestamp = this.lastLoggingTimestamp
+				+ VariableLengthEncoding.zigZagDecode(VariableLengthEncoding.decodeLong(this.buffer));
+		this.lastLoggingTimestamp = loggingTimestamp;
+
+		final String recordClassName = this.stringRegistry.get(type - 1);
+		final IRecordFactory<? extends IMonitoringRecord> recordFactory = (recordClassName == null) ? null // NOCS (inline conditional)
+				: this.recordFactories.get(recordClassName);
+		if (recordFactory == null) {
+			this.buffer.position(end);
+			throw new RecordInstantiationException("Missing record type for id %d (%s).", type - 1, recordClassName);
+		}
+
+		this.field = 0;
+		try {
+			final IMonitoringRecord record = recordFactory.create(this);
+			record.setLoggingTimestamp(loggingTimestamp);
+			if (this.buffer.position() != end) {
+				throw new RecordInstantiationException("Record %s does not match its encoded size.", recordClassName);
+			}
+			return record;
+		} finally {
+			this.buffer.position(end);
+		}
+	}
+
+	@Override
+	public boolean getBoolean() { // NOPMD
+		return (this.getByte() == CompactValueDeserializer.TRUE_VALUE);
+	}
+
+	@Override
+	public byte getByte() {
+		this.field++;
+		return this.buffer.get();
+	}
+
+	@Override
+	public char getChar() {
+		this.field++;
+		return (char) VariableLengthEncoding.decodeInt(this.buffer);
+	}
+
+	@Override
+	public short getShort() { // NOPMD
+		this.field++;
+		return (short) VariableLengthEncoding.zigZagDecode(VariableLengthEncoding.decodeInt(this.buffer));
+	}
+
+	@Override
+	public int getInt() {
+		int value = VariableLengthEncoding.zigZagDecode(VariableLengthEncoding.decodeInt(this.buffer));
+		if (this.field < CompactValueSerializer.DELTA_FIELDS) {
+			value += this.lastInts[this.field];
+			this.lastInts[this.field] = value;
+		}
+		this.field++;
+		return value;
+	}
+
+	@Override
+	public long getLong() {
+		long value = VariableLengthEncoding.zigZagDecode(VariableLengthEncoding.decodeLong(this.buffer));
+		if (this.field < CompactValueSerializer.DELTA_FIELDS) {
+			value += this.lastLongs[this.field];
+			this.lastLongs[this.field] = value;
+		}
+		this.field++;
+		return value;
+	}
+
+	@Override
+	public float getFloat() {
+		this.field++;
+		return this.buffer.getFloat();
+	}
+
+	@Override
+	public double getDouble() {
+		this.field++;
+		return this.buffer.getDouble();
+	}
+
+	@Override
+	public String getString() {
+		this.field++;
+		return this.stringRegistry.get(VariableLengthEncoding.decodeInt(this.buffer));
+	}
+
+	@Override
+	public <T extends Enum<T>> T getEnumeration(final Class<T> clazz) throws RecordInstantiationException {
+		this.field++;
+		return this.enumerationValueOf(clazz, VariableLengthEncoding.decodeInt(this.buffer));
+	}
+}
@@ -0,0 +1,286 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.common.record.io;
+
+import java.nio.ByteBuffer;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.registry.writer.IWriterRegistry;
+import kieker.common.util.dataformat.FormatIdentifier;
+import kieker.common.util.dataformat.VariableLengthEncoding;
+
+/**
+ * Value serializer for the compact binary encoding ({@link FormatIdentifier#COMPACT_BINARY_FORMAT}). Integer values are
+ * written as zigzag variable-length numbers. Int and long fields are delta coded against the value of the same field
+ * position in the previous record of the stream, hence correlated values like timestamps, trace ids and order indices
+ * of consecutive flow events usually take one to three bytes.
+ * <br>
+ * Each entry of the stream is framed by its variable-length size: <code>[size][payload]</code>. The payload of a record
+ * is <code>[classId + 1][loggingTimestamp delta][fields]</code>, the payload of a string registry entry is
+ * <code>[0][id][UTF-8 bytes]</code>. The framing allows readers to check for complete entries before decoding them.
+ * <br>
+ * The serializer is stateful and must be used for one stream only; {@link #reset()} starts a new stream.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompactValueSerializer implements IValueSerializer {
+
+	/** Number of field positions which are delta coded. */
+	public static final int DELTA_FIELDS = 16;
+
+	/** Maximal size of the frame size and the record header. */
+	private static final int MAX_HEADER_SIZE = 5 + 5 + 10;
+
+	private static final byte TRUE_VALUE = (byte) 1;
+	private static final byte FALSE_VALUE = (byte) 0;
+
+	private final IWriterRegistry<String> stringRegistry;
+
+	private ByteBuffer recordBuffer;
+
+	private long lastLoggingTimestamp;
+	private final long[] lastLongs = new long[DELTA_FIELDS];
+	private final int[] lastInts = new int[DELTA_FIELDS];
+	private int field;
+
+	/**
+	 * Create a compact value serializer.
+	 *
+	 * @param stringRegistry
+	 *            the string registry used for the serializer
+	 */
+	protected CompactValueSerializer(final IWriterRegistry<String> stringRegistry) {
+		this.stringRegistry = stringRegistry;
+		this.recordBuffer = ByteBuffer.allocate(1024);
+	}
+
+	/**
+	 * Factory method to create a compact value serializer.
+	 *
+	 * @param stringRegistry
+	 *            the string registry used for the serializer
+	 * @return the value serializer
+	 */
+	public static CompactValueSerializer create(final IWriterRegistry<String> stringRegistry) {
+		return new CompactValueSerializer(stringRegistry);
+	}
+
+	/**
+	 * Compute an upper bound of the encoded size of a record.
+	 *
+	 * @param recordSize
+	 *            size of the record in the default binary encoding, see {@link IMonitoringRecord#getSize()}
+	 * @return the maximal size of the encoded record including its frame
+	 */
+	public static int getMaxRecordSize(final int recordSize) {
+		// variable-length numbers take at most 1.5 times the size of short and char values
+		return MAX_HEADER_SIZE + (2 * recordSize);
+	}
+
+	/**
+	 * Start a new stream, i.e., the next record is not delta coded against previous records.
+	 */
+	public void reset() {
+		this.lastLoggingTimestamp = 0;
+		for (int i = 0; i < DELTA_FIELDS; i++) {
+			this.lastLongs[i] = 0;
+			this.lastInts[i] = 0;
+		}
+	}
+
+	/**
+	 * Encode a record and append it to the given buffer.
+	 *
+	 * @param classId
+	 *            registry id of the record class name
+	 * @param record
+	 *            the record
+	 * @param buffer
+	 *            target buffer, which must have at least {@link #getMaxRecordSize(int)} bytes remaining
+	 */
+	public void putRecord(final int classId, final IMonitoringRecord record, final ByteBuffer buffer) {
+		final int maxRecordSize = CompactValueSerializer.getMaxRecordSize(record.getSize());
+		if (this.recordBuffer.capacity() < maxRecordSize) {
+			this.recordBuffer = ByteBuffer.allocate(maxRecordSize);
+		}
+		this.beginRecord(classId, record.getLoggingTimestamp());
+		record.serialize(this);
+		this.endRecord(buffer);
+	}
+
+	/**
+	 * Start a record whose fields are written with the put methods and which is completed by
+	 * {@link #endRecord(ByteBuffer)}. Used to encode events which are not available as record objects.
+	 *
+	 * @param classId
+	 *            registry id of the record class name
+	 * @param loggingTimestamp
+	 *            logging timestamp of the record
+	 */
+	public void beginRecord(final int classId, final long loggingTimestamp) {
+		this.recordBuffer.clear();
+		this.field = 0;
+		VariableLengthEncoding.encodeInt(classId + 1, this.recordBuffer);
+		VariableLengthEncoding.encodeLong(VariableLengthEncoding.zigZagEncode(loggingTimestamp - this.lastLoggingTimestamp),
+				this.recordBuffer);
+		this.lastLoggingTimestamp = loggingTimestamp;
+	}
+
+	/**
+	 * Append the record started with {@link #beginRecord(int, long)} to the given buffer.
+	 *
+	 * @param buffer
+	 *            target buffer
+	 */
+	public void endRecord(final ByteBuffer buffer) {
+		this.recordBuffer.flip();
+		VariableLengthEncoding.encodeInt(this.recordBuffer.remaining(), buffer);
+		buffer.put(this.recordBuffer);
+	}
+
+	/**
+	 * Append a string registry entry to the given buffer. Used by streams which contain their string registry.
+	 *
+	 * @param id
+	 *            registry id
+	 * @param value
+	 *            registered string
+	 * @param buffer
+	 *            target buffer, which must have at least {@link #getMaxRegistryEntrySize(byte[])} bytes remaining
+	 */
+	public void putRegistryEntry(final int id, final byte[] value, final ByteBuffer buffer) {
+		final int size = 1 + CompactValueSerializer.getVariableLengthSize(id) + value.length;
+		VariableLengthEncoding.encodeInt(size, buffer);
+		buffer.put((byte) 0);
+		VariableLengthEncoding.encodeInt(id, buffer);
+		buffer.put(value);
+	}
+
+	/**
+	 * @param value
+	 *            UTF-8 bytes of a registered string
+	 * @return the maximal size of the encoded registry entry including its frame
+	 */
+	public static int getMaxRegistryEntrySize(final byte[] value) {
+		return 5 + 1 + 5 + value.length;
+	}
+
+	/**
+	 * Write a string as registry id which has already been looked up.
+	 *
+	 * @param stringId
+	 *            registry id of the string
+	 */
+	public void putStringId(final int stringId) {
+		this.field++;
+		VariableLengthEncoding.encodeInt(stringId, this.recordBuffer);
+	}
+
+	@Override
+	public void putBoolean(final boolean value) {
+		final byte data;
+
+		if (value) {
+			data = TRUE_VALUE;
+		} else {
+			data = FALSE_VALUE;
+		}
+
+		this.putByte(data);
+	}
+
+	@Override
+	public void putByte(final byte value) {
+		this.field++;
+		this.recordBuffer.put(value);
+	}
+
+	@Override
+	public void putChar(final char value) {
+		this.field++;
+		VariableLengthEncoding.encodeInt(value, this.recordBuffer);
+	}
+
+	@Override
+	public void putShort(final short value) { // NOPMD
+		this.field++;
+		VariableLengthEncoding.encodeInt(VariableLengthEncoding.zigZagEncode(value), this.recordBuffer);
+	}
+
+	@Override
+	public void putInt(final int value) {
+		int encodedValue = value;
+		if (this.field < DELTA_FIELDS) {
+			encodedValue = value - this.lastInts[this.field];
+			this.lastInts[this.field] = value;
+		}
+		this.field++;
+		VariableLengthEncoding.encodeInt(VariableLengthEncoding.zigZagEncode(encodedValue), this.recordBuffer);
+	}
+
+	@Override
+	public void putLong(final long value) {
+		long encodedValue = value;
+		if (this.field < DELTA_FIELDS) {
+			encodedValue = value - this.lastLongs[this.field];
+			this.lastLongs[this.field] = value;
+		}
+		this.field++;
+		VariableLengthEncoding.encodeLong(VariableLengthEncoding.zigZagEncode(encodedValue), this.recordBuffer);
+	}
+
+	@Override
+	public void putFloat(final float value) {
+		this.field++;
+		this.recordBuffer.putFloat(value);
+	}
+
+	@Override
+	public void putDouble(final double value) {
+		this.field++;
+		this.recordBuffer.putDouble(value);
+	}
+
+	@Override
+	public <T extends Enum<T>> void putEnumeration(final T value) {
+		this.field++;
+		VariableLengthEncoding.encodeInt(value.ordinal(), this.recordBuffer);
+	}
+
+	@Override
+	public void putBytes(final byte[] value) {
+		this.field++;
+		this.recordBuffer.put(value);
+	}
+
+	@Override
+	public void putString(final String value) {
+		this.putStringId(this.stringRegistry.getId(value));
+	}
+
+	private static int getVariableLengthSize(final int value) {
+		int size = 1;
+		int remainingData = value >>> 7;
+		while (remainingData != 0) {
+			size++;
+			remainingData = remainingData >>> 7;
+		}
+		return size;
+	}
+}
@@ -26,7 +26,9 @@ public enum FormatIdentifier {
 	/** Identifier for the container format. Reads "KIKA" in ASCII encoding. */
 	CONTAINER_FORMAT(0x4B494B41),
 	/** Identifier for the default binary encoding. Reads "DFLT" in ASCII encoding. */
-	DEFAULT_BINARY_FORMAT(0x44464C54);
+	DEFAULT_BINARY_FORMAT(0x44464C54),
+	/** Identifier for the compact binary encoding with variable-length and delta coded values. Reads "CMPT" in ASCII encoding. */
+	COMPACT_BINARY_FORMAT(0x434D5054);
 
 	private final int identifierValue;
 
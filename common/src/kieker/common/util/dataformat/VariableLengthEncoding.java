@@ -94,4 +94,96 @@ public final class VariableLengthEncoding {
 
 		return value;
 	}
+
+	/**
+	 * Encodes a given long value using the variable-length encoding of {@link #encodeInt(int, ByteBuffer)}.
+	 *
+	 * @param value
+	 *            The value to encode
+	 * @param buffer
+	 *            The buffer to write the data to
+	 */
+	public static void encodeLong(final long value, final ByteBuffer buffer) {
+		long remainingData = value;
+
+		while ((remainingData & ~0x7FL) != 0) {
+			buffer.put((byte) ((remainingData & 0x7F) | 0x80));
+			remainingData = remainingData >>> 7;
+		}
+		buffer.put((byte) remainingData);
+	}
+
+	/**
+	 * Decodes a variable-length long value stored at the current position
+	 * in the byte buffer.
+	 *
+	 * @param buffer
+	 *            The buffer to decode the data from
+	 * @return The decoded long value
+	 */
+	public static long decodeLong(final ByteBuffer buffer) {
+		final int startPosition = buffer.position();
+		long value = 0;
+		int shiftAmount = 0;
+
+		while (true) {
+			final byte currentByte = buffer.get();
+			value |= (long) (currentByte & 0x7F) << shiftAmount;
+			// Non-terminal bytes have their msb set and are thus negative
+			if (currentByte >= 0) {
+				break;
+			}
+			shiftAmount += 7;
+			if (shiftAmount > 63) {
+				throw new IllegalArgumentException("Unterminated variable-length long found at position " + startPosition);
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * Maps a signed value to an unsigned value, such that values with a small magnitude
+	 * have a short variable-length encoding (0, -1, 1, -2, ... become 0, 1, 2, 3, ...).
+	 *
+	 * @param value
+	 *            The signed value
+	 * @return The zigzag encoded value
+	 */
+	public static int zigZagEncode(final int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Reverts {@link #zigZagEncode(int)}.
+	 *
+	 * @param value
+	 *            The zigzag encoded value
+	 * @return The signed value
+	 */
+	public static int zigZagDecode(final int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Maps a signed long value to an unsigned value, see {@link #zigZagEncode(int)}.
+	 *
+	 * @param value
+	 *            The signed value
+	 * @return The zigzag encoded value
+	 */
+	public static long zigZagEncode(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Reverts {@link #zigZagEncode(long)}.
+	 *
+	 * @param value
+	 *            The zigzag encoded value
+	 * @return The signed value
+	 */
+	public static long zigZagDecode(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
 }
@@ -0,0 +1,82 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.common.util.filesystem;
+
+/**
+ * Constants of the block compressed container format, which consists of independently compressed frames. Frames can be
+ * compressed and decompressed in parallel, and readers can seek to frame boundaries with the frame index.
+ * <br>
+ * Layout, all numbers in big endian:
+ * <ul>
+ * <li>header: <code>[int magic][byte version][byte codec][int blockSize]</code></li>
+ * <li>frames: <code>[int uncompressedLength][int compressedLength][compressedLength bytes]</code>, the uncompressed
+ * length of a frame is at most the block size, which is at most {@link #MAX_BLOCK_SIZE}</li>
+ * <li>end of frames: <code>[int -1]</code></li>
+ * <li>frame index: <code>[long frameOffset][long uncompressedOffset]</code> for each frame</li>
+ * <li>trailer: <code>[long indexOffset][int numberOfFrames][int indexMagic]</code></li>
+ * </ul>
+ * The frame offset is the position of the frame header in the file, the uncompressed offset is the position of the
+ * first byte of the frame in the uncompressed data. A file without trailer, e.g., after a crash, can still be read
+ * sequentially up to the last complete frame.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class BlockFileFormat { // NOCS NOPMD (constants interface)
+
+	/** Magic number at the beginning of a file: "KBLK". */
+	public static final int MAGIC = 0x4b424c4b;
+	/** Magic number at the end of a file: "KIDX". */
+	public static final int INDEX_MAGIC = 0x4b494458;
+	/** Version of the format. */
+	public static final byte VERSION = 1;
+
+	/** Frames are compressed with deflate in zlib format. */
+	public static final byte CODEC_DEFLATE = 0;
+
+	/** Size of the file header. */
+	public static final int HEADER_SIZE = 4 + 1 + 1 + 4;
+	/** Size of a frame header. */
+	public static final int FRAME_HEADER_SIZE = 4 + 4;
+	/** Uncompressed length marking the end of the frames. */
+	public static final int END_OF_FRAMES = -1;
+	/** Size of an entry of the frame index. */
+	public static final int INDEX_ENTRY_SIZE = 8 + 8;
+	/** Size of the trailer. */
+	public static final int TRAILER_SIZE = 8 + 4 + 4;
+
+	/** Default number of uncompressed bytes in a frame. */
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+	/** Maximal number of uncompressed bytes in a frame, which bounds the memory readers allocate for a frame. */
+	public static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+	private BlockFileFormat() {
+		// private default constructor
+	}
+
+	/**
+	 * Maximal compressed length of a frame, as deflate expands incompressible data slightly.
+	 *
+	 * @param blockSize
+	 *            block size of the file
+	 * @return the maximal compressed length
+	 */
+	public static int getMaxCompressedLength(final int blockSize) {
+		return blockSize + (blockSize >> 8) + 64;
+	}
+}
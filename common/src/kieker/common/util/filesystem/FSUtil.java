@@ -45,6 +45,10 @@ public final class FSUtil { // NOCS NOPMD (constants interface)
 	public static final String GZIP_FILE_EXTENSION = ".gz";
 	/** The extension of Kieker's xz record files. */
 	public static final String XZ_FILE_EXTENSION = ".xz";
+	/** The extension of Kieker's block compressed record files, see {@link BlockFileFormat}. */
+	public static final String BLOCK_FILE_EXTENSION = ".blk";
+	/** The extension of Kieker's fast LZ compressed record files, see {@link LZFileFormat}. */
+	public static final String LZ_FILE_EXTENSION = ".klz";
 	/** The extension of Kieker's binary record files. */
 	public static final String BINARY_FILE_EXTENSION = ".bin";
 	/** The extension of Kieker's mapping files. */
@@ -0,0 +1,285 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.common.util.filesystem;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 codec in pure Java using the sequence encoding of the LZ4 block format. Matches are found with a single
+ * hash table lookup, which favors speed over compression ratio.
+ * <br>
+ * The source of a compression and the target of a decompression start with an optional dictionary, i.e., the data
+ * <code>[0, dictionaryLength)</code> can be referred to by matches, but is not encoded itself. As offsets have 16 bit,
+ * only the last {@link #MAX_OFFSET} bytes before a position can be referred to.
+ * <br>
+ * Instances are not thread-safe, as they reuse their hash tables.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class LZCodec {
+
+	/** Maximal distance of a match. */
+	public static final int MAX_OFFSET = 0xFFFF;
+
+	private static final int MIN_MATCH = 4;
+	/** the last bytes of a frame are always literals, which allows the decoder to detect the end. */
+	private static final int LAST_LITERALS = 5;
+	/** no match starts within the last bytes. */
+	private static final int MATCH_FIND_LIMIT = 12;
+	private static final int RUN_MASK = 0x0F;
+	private static final int HASH_LOG = 14;
+
+	private final int[] hashTable = new int[1 << HASH_LOG];
+	private final int[] dictionaryTable = new int[1 << HASH_LOG];
+
+	/**
+	 * Create a codec without dictionary.
+	 */
+	public LZCodec() {
+		Arrays.fill(this.dictionaryTable, -1);
+	}
+
+	/**
+	 * Compute the maximal size of the compressed data.
+	 *
+	 * @param length
+	 *            length of the uncompressed data
+	 * @return the maximal compressed length
+	 */
+	public static int maxCompressedLength(final int length) {
+		return length + (length / 255) + 16;
+	}
+
+	/**
+	 * Index the dictionary for the following compressions. Must be called whenever the dictionary changes.
+	 *
+	 * @param source
+	 *            array starting with the dictionary
+	 * @param dictionaryLength
+	 *            length of the dictionary
+	 */
+	public void setDictionary(final byte[] source, final int dictionaryLength) {
+		Arrays.fill(this.dictionaryTable, -1);
+		for (int position = Math.max(0, dictionaryLength - MAX_OFFSET); (position + MIN_MATCH) <= dictionaryLength; position++) {
+			this.dictionaryTable[LZCodec.hash(source, position)] = position;
+		}
+	}
+
+	/**
+	 * Compress data which follows the dictionary set with {@link #setDictionary(byte[], int)}.
+	 *
+	 * @param source
+	 *            array containing the dictionary at <code>[0, dictionaryLength)</code> and the data after it
+	 * @param dictionaryLength
+	 *            length of the dictionary
+	 * @param length
+	 *            length of the data
+	 * @param target
+	 *            array for the compressed data, must have at least {@link #maxCompressedLength(int)} bytes after
+	 *            the offset
+	 * @param targetOffset
+	 *            start of the compressed data in the target
+	 * @return length of the compressed data
+	 */
+	public int compress(final byte[] source, final int dictionaryLength, final int length, final byte[] target, final int targetOffset) {
+		System.arraycopy(this.dictionaryTable, 0, this.hashTable, 0, this.hashTable.length);
+
+		final int end = dictionaryLength + length;
+		final int matchLimit = end - LAST_LITERALS;
+		final int searchLimit = end - MATCH_FIND_LIMIT;
+		int anchor = dictionaryLength;
+		int position = dictionaryLength;
+		int output = targetOffset;
+
+		while (position < searchLimit) {
+			final int hash = LZCodec.hash(source, position);
+			int reference = this.hashTable[hash];
+			this.hashTable[hash] = position;
+			if ((reference >= 0) && ((position - reference) <= MAX_OFFSET)
+					&& (LZCodec.readInt(source, reference) == LZCodec.readInt(source, position))) {
+				int matchLength = MIN_MATCH;
+				while (((position + matchLength) < matchLimit) && (source[reference + matchLength] == source[position + matchLength])) {
+					matchLength++;
+				}
+				while ((position > anchor) && (reference > 0) && (source[position - 1] == source[reference - 1])) {
+					position--;
+					reference--;
+					matchLength++;
+				}
+				output = LZCodec.writeSequence(source, anchor, position - anchor, position - reference, matchLength, target, output);
+				position += matchLength;
+				anchor = position;
+				this.hashTable[LZCodec.hash(source, position - 2)] = position - 2;
+			} else {
+				position++;
+			}
+		}
+
+		return LZCodec.writeLastLiterals(source, anchor, end - anchor, target, output) - targetOffset;
+	}
+
+	/**
+	 * Decompress data which follows a dictionary.
+	 *
+	 * @param source
+	 *            compressed data
+	 * @param sourceOffset
+	 *            start of the compressed data
+	 * @param sourceLength
+	 *            length of the compressed data
+	 * @param target
+	 *            array containing the dictionary at <code>[0, dictionaryLength)</code>, which receives the data after
+	 *            the dictionary
+	 * @param dictionaryLength
+	 *            length of the dictionary
+	 * @param length
+	 *            length of the uncompressed data
+	 * @throws IOException
+	 *             when the compressed data is corrupt
+	 */
+	public static void decompress(final byte[] source, final int sourceOffset, final int sourceLength, final byte[] target,
+			final int dictionaryLength, final int length) throws IOException {
+		final int sourceEnd = sourceOffset + sourceLength;
+		final int end = dictionaryLength + length;
+		int input = sourceOffset;
+		int output = dictionaryLength;
+
+		while (true) {
+			LZCodec.checkInput(input + 1, sourceEnd);
+			final int token = source[input++] & 0xFF;
+
+			int literalLength = token >>> 4;
+			if (literalLength == RUN_MASK) {
+				int value;
+				do {
+					LZCodec.checkInput(input + 1, sourceEnd);
+					value = source[input++] & 0xFF;
+					literalLength += value;
+				} while (value == 0xFF);
+			}
+			LZCodec.checkInput(input + literalLength, sourceEnd);
+			LZCodec.checkOutput(output + literalLength, end);
+			System.arraycopy(source, input, target, output, literalLength);
+			input += literalLength;
+			output += literalLength;
+
+			if (output == end) {
+				break;
+			}
+
+			LZCodec.checkInput(input + 2, sourceEnd);
+			final int offset = (source[input] & 0xFF) | ((source[input + 1] & 0xFF) << 8);
+			input += 2;
+			int matchLength = token & RUN_MASK;
+			if (matchLength == RUN_MASK) {
+				int value;
+				do {
+					LZCodec.checkInput(input + 1, sourceEnd);
+					value = source[input++] & 0xFF;
+					matchLength += value;
+				} while (value == 0xFF);
+			}
+			matchLength += MIN_MATCH;
+
+			final int reference = output - offset;
+			if ((offset == 0) || (reference < 0)) {
+				throw new IOException("Corrupt compressed data: invalid match offset " + offset + ".");
+			}
+			LZCodec.checkOutput(output + matchLength, end);
+			if (offset >= matchLength) {
+				System.arraycopy(target, reference, target, output, matchLength);
+			} else { // overlapping match repeats the last bytes
+				for (int i = 0; i < matchLength; i++) {
+					target[output + i] = target[reference + i];
+				}
+			}
+			output += matchLength;
+		}
+
+		if (input != sourceEnd) {
+			throw new IOException("Corrupt compressed data: trailing bytes.");
+		}
+	}
+
+	private static int writeSequence(final byte[] source, final int literalStart, final int literalLength, final int offset,
+			final int matchLength, final byte[] target, final int targetOffset) {
+		int output = targetOffset;
+		final int tokenPosition = output++;
+		final int literalToken = Math.min(literalLength, RUN_MASK);
+		final int matchToken = Math.min(matchLength - MIN_MATCH, RUN_MASK);
+		target[tokenPosition] = (byte) ((literalToken << 4) | matchToken);
+
+		output = LZCodec.writeLength(literalLength - RUN_MASK, target, output);
+		System.arraycopy(source, literalStart, target, output, literalLength);
+		output += literalLength;
+
+		target[output++] = (byte) offset;
+		target[output++] = (byte) (offset >>> 8);
+
+		return LZCodec.writeLength(matchLength - MIN_MATCH - RUN_MASK, target, output);
+	}
+
+	private static int writeLastLiterals(final byte[] source, final int literalStart, final int literalLength, final byte[] target,
+			final int targetOffset) {
+		int output = targetOffset;
+		target[output++] = (byte) (Math.min(literalLength, RUN_MASK) << 4);
+		output = LZCodec.writeLength(literalLength - RUN_MASK, target, output);
+		System.arraycopy(source, literalStart, target, output, literalLength);
+		return output + literalLength;
+	}
+
+	/**
+	 * Write the remainder of a length, which did not fit into the token.
+	 */
+	private static int writeLength(final int remainder, final byte[] target, final int targetOffset) {
+		if (remainder < 0) {
+			return targetOffset;
+		}
+		int output = targetOffset;
+		int value = remainder;
+		while (value >= 0xFF) {
+			target[output++] = (byte) 0xFF;
+			value -= 0xFF;
+		}
+		target[output++] = (byte) value;
+		return output;
+	}
+
+	private static void checkInput(final int position, final int sourceEnd) throws IOException {
+		if (position > sourceEnd) {
+			throw new IOException("Corrupt compressed data: unexpected end of input.");
+		}
+	}
+
+	private static void checkOutput(final int position, final int end) throws IOException {
+		if (position > end) {
+			throw new IOException("Corrupt compressed data: output exceeds the declared length.");
+		}
+	}
+
+	private static int readInt(final byte[] source, final int position) {
+		return (source[position] & 0xFF) | ((source[position + 1] & 0xFF) << 8) | ((source[position + 2] & 0xFF) << 16)
+				| ((source[position + 3] & 0xFF) << 24);
+	}
+
+	private static int hash(final byte[] source, final int position) {
+		return (LZCodec.readInt(source, position) * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
@@ -0,0 +1,64 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.common.util.filesystem;
+
+/**
+ * Constants of the container format of the fast {@link LZCodec}. The data is split into frames, which are compressed
+ * with the codec. The first bytes of the data up to the dictionary size form a dictionary; every frame can refer to the
+ * dictionary, so frames after the dictionary only depend on the dictionary and not on each other.
+ * <br>
+ * Layout, all numbers in big endian:
+ * <ul>
+ * <li>header: <code>[int magic][byte version][int blockSize][int dictionarySize]</code></li>
+ * <li>frames: <code>[byte type][int uncompressedLength][int storedLength][storedLength bytes]</code>, the
+ * uncompressed length of a frame is at most the block size</li>
+ * <li>end of frames: <code>[byte -1]</code></li>
+ * </ul>
+ * A file without end marker, e.g., after a crash, can still be read up to the last complete frame.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class LZFileFormat { // NOCS NOPMD (constants interface)
+
+	/** Magic number at the beginning of a file: "KLZF". */
+	public static final int MAGIC = 0x4b4c5a46;
+	/** Version of the format. */
+	public static final byte VERSION = 1;
+
+	/** Frame contains the uncompressed data, used when the data is not compressible. */
+	public static final byte FRAME_STORED = 0;
+	/** Frame is compressed with the {@link LZCodec}. */
+	public static final byte FRAME_COMPRESSED = 1;
+	/** Type marking the end of the frames. */
+	public static final byte END_OF_FRAMES = -1;
+
+	/** Size of the file header. */
+	public static final int HEADER_SIZE = 4 + 1 + 4 + 4;
+	/** Size of a frame header. */
+	public static final int FRAME_HEADER_SIZE = 1 + 4 + 4;
+
+	/** Default number of uncompressed bytes in a frame. */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	/** Default size of the dictionary. */
+	public static final int DEFAULT_DICTIONARY_SIZE = 32 * 1024;
+
+	private LZFileFormat() {
+		// private default constructor
+	}
+}
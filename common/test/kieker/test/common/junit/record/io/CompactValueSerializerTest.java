@@ -0,0 +1,149 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.test.common.junit.record.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.exception.RecordInstantiationException;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.CompactValueDeserializer;
+import kieker.common.record.io.CompactValueSerializer;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.reader.ReaderRegistry;
+import kieker.common.registry.writer.WriterRegistry;
+
+import kieker.test.common.junit.AbstractKiekerTest;
+
+/**
+ * Test the compact value serializer and deserializer.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompactValueSerializerTest extends AbstractKiekerTest { // NOCS NOPMD test, no constructor needed
+
+	private static final String OPERATION = "public void kieker.Test.operation()";
+	private static final String CLASS = "kieker.Test";
+
+	/** records and the registry entries of a stream are restored. */
+	@Test
+	public void testRoundTrip() throws RecordInstantiationException {
+		final ByteBuffer buffer = ByteBuffer.allocate(100000);
+		final List<IMonitoringRecord> records = CompactValueSerializerTest.createRecords(200);
+		this.serialize(records, buffer);
+		buffer.flip();
+
+		final List<IMonitoringRecord> result = new ArrayList<>();
+		final CompactValueDeserializer deserializer = CompactValueDeserializer.create(buffer, new ReaderRegistry<String>());
+		while (deserializer.hasEntry()) {
+			final IMonitoringRecord record = deserializer.readEntry();
+			if (record != null) {
+				result.add(record);
+			}
+		}
+
+		Assert.assertEquals("records", records, result);
+		for (int i = 0; i < records.size(); i++) {
+			Assert.assertEquals("logging timestamp", records.get(i).getLoggingTimestamp(), result.get(i).getLoggingTimestamp());
+		}
+		Assert.assertFalse("remaining bytes", buffer.hasRemaining());
+	}
+
+	/** an incomplete entry is not read. */
+	@Test
+	public void testIncompleteEntry() throws RecordInstantiationException {
+		final ByteBuffer buffer = ByteBuffer.allocate(100000);
+		this.serialize(CompactValueSerializerTest.createRecords(2), buffer);
+		buffer.flip();
+		buffer.limit(buffer.limit() - 1);
+
+		final CompactValueDeserializer deserializer = CompactValueDeserializer.create(buffer, new ReaderRegistry<String>());
+		int entries = 0;
+		while (deserializer.hasEntry()) {
+			deserializer.readEntry();
+			entries++;
+		}
+		// three registry entries, the first record, and the registry entry of the second record type
+		Assert.assertEquals("complete entries", 5, entries);
+		Assert.assertTrue("incomplete entry remains", buffer.hasRemaining());
+	}
+
+	/** flow events take a fraction of the size of the default binary encoding. */
+	@Test
+	public void testSize() {
+		final ByteBuffer buffer = ByteBuffer.allocate(100000);
+		final List<IMonitoringRecord> records = CompactValueSerializerTest.createRecords(1000);
+		final WriterRegistry registry = new WriterRegistry(new IRegistryListener<String>() {
+			@Override
+			public void onNewRegistryEntry(final String value, final int id) {
+				// strings are not part of the size comparison
+			}
+		});
+		final CompactValueSerializer serializer = CompactValueSerializer.create(registry);
+		int binarySize = 0;
+		for (final IMonitoringRecord record : records) {
+			serializer.putRecord(registry.getId(record.getClass().getName()), record, buffer);
+			binarySize += 4 + 8 + record.getSize();
+		}
+		Assert.assertTrue("compact size " + buffer.position() + " binary size " + binarySize, (buffer.position() * 3) < binarySize);
+	}
+
+	private void serialize(final List<IMonitoringRecord> records, final ByteBuffer buffer) {
+		final CompactValueSerializer[] serializer = new CompactValueSerializer[1];
+		// registry entries are written before the record which uses them, as the record is staged by the serializer
+		final WriterRegistry registry = new WriterRegistry(new IRegistryListener<String>() {
+			@Override
+			public void onNewRegistryEntry(final String value, final int id) {
+				serializer[0].putRegistryEntry(id, value.getBytes(StandardCharsets.UTF_8), buffer);
+			}
+		});
+		serializer[0] = CompactValueSerializer.create(registry);
+		for (final IMonitoringRecord record : records) {
+			serializer[0].putRecord(registry.getId(record.getClass().getName()), record, buffer);
+		}
+	}
+
+	private static List<IMonitoringRecord> createRecords(final int count) {
+		final List<IMonitoringRecord> records = new ArrayList<>();
+		long time = 1521828677048314440L;
+		for (int i = 0; i < count; i++) {
+			final long traceId = 4711 + (i / 10);
+			final IMonitoringRecord record;
+			if ((i % 50) == 49) {
+				record = new OperationExecutionRecord(OPERATION, "session", traceId, time - 1000, time, "host", i, -1);
+			} else if ((i % 2) == 0) {
+				record = new BeforeOperationEvent(time, traceId, i % 10, OPERATION, CLASS);
+			} else {
+				record = new AfterOperationEvent(time, traceId, i % 10, OPERATION, CLASS);
+			}
+			record.setLoggingTimestamp(time + 17);
+			records.add(record);
+			time += 1234 + (i % 7);
+		}
+		return records;
+	}
+}
@@ -0,0 +1,159 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kieker.common.configuration.Configuration;
+import kieker.monitoring.core.configuration.ConfigurationConstants;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+
+/**
+ * Measures the cost of {@link ProbeController#isProbeActivated(String)} for cached signatures, with and without
+ * concurrent pattern changes via {@link ProbeController#activateProbe(String)} and
+ * {@link ProbeController#deactivateProbe(String)}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class ProbeControllerBenchmark {
+
+	private static final int NUM_CLASSES = 64;
+	private static final int NUM_BASE_PATTERNS = 32;
+	/** The pattern list is reset after this number of changes to keep its length bounded. */
+	private static final int CHANGES_PER_RESET = 64;
+
+	private ProbeController controller;
+	private String[] signatures;
+	private List<String> basePatterns;
+
+	private int readIndex;
+	private int changeCount;
+
+	/** Create the benchmark. */
+	public ProbeControllerBenchmark() {
+		// nothing to be done here
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		final File configFile = File.createTempFile("kieker-adaptive-monitoring", ".conf");
+		configFile.deleteOnExit();
+
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(ConfigurationConstants.ADAPTIVE_MONITORING_ENABLED, true);
+		configuration.setProperty(ConfigurationConstants.ADAPTIVE_MONITORING_CONFIG_FILE, configFile.getAbsolutePath());
+		configuration.setProperty(ConfigurationConstants.ADAPTIVE_MONITORING_CONFIG_FILE_UPDATE, false);
+		configuration.setProperty(ConfigurationConstants.ADAPTIVE_MONITORING_CONFIG_FILE_READ_INTERVALL, 0);
+		configuration.setProperty(ConfigurationConstants.ADAPTIVE_MONITORING_MAX_CACHE_SIZE, -1);
+		this.controller = new ProbeController(configuration);
+
+		this.signatures = new String[NUM_CLASSES];
+		for (int i = 0; i < NUM_CLASSES; i++) {
+			this.signatures[i] = "public void example.package" + (i % 8) + ".Class" + i + ".operation(int)";
+		}
+		this.basePatterns = new ArrayList<>(NUM_BASE_PATTERNS);
+		for (int i = 0; i < NUM_BASE_PATTERNS; i++) {
+			this.basePatterns.add("+ public void example.package" + (i % 8) + ".Class" + i + ".*(..)");
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void resetPatterns() {
+		this.controller.setProbePatternList(this.basePatterns, false);
+		for (final String signature : this.signatures) {
+			this.controller.isProbeActivated(signature);
+		}
+	}
+
+	/**
+	 * Only reads, i.e., all lookups hit the signature cache.
+	 *
+	 * @return activation state
+	 */
+	@Benchmark
+	@Group("readOnly")
+	@GroupThreads(4)
+	public boolean isProbeActivatedReadOnly() {
+		return this.controller.isProbeActivated(this.nextSignature());
+	}
+
+	/**
+	 * Reads while another thread continuously activates and deactivates probes.
+	 *
+	 * @return activation state
+	 */
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(3)
+	public boolean isProbeActivatedUnderChurn() {
+		return this.controller.isProbeActivated(this.nextSignature());
+	}
+
+	/**
+	 * Pattern changes concurrent to {@link #isProbeActivatedUnderChurn()}.
+	 *
+	 * @return true on success
+	 */
+	@Benchmark
+	@Group("churn")
+	@GroupThreads(1)
+	public boolean activateProbeChurn() {
+		final int count = this.changeCount++;
+		if ((count % CHANGES_PER_RESET) == 0) {
+			this.controller.setProbePatternList(this.basePatterns, false);
+			return true;
+		}
+		final String pattern = "public void example.package" + (count % 8) + ".Class" + (count % NUM_CLASSES) + ".operation(int)";
+		if ((count & 1) == 0) {
+			return this.controller.activateProbe(pattern);
+		} else {
+			return this.controller.deactivateProbe(pattern);
+		}
+	}
+
+	private String nextSignature() {
+		// racy index updates between reader threads are irrelevant; any signature is fine
+		final int index = this.readIndex++ & (NUM_CLASSES - 1);
+		return this.signatures[index];
+	}
+}
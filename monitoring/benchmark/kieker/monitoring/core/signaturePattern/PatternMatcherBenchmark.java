@@ -0,0 +1,119 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.signaturePattern;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the evaluation of a signature against a large pattern list by the {@link PatternMatcher} with the
+ * sequential evaluation of all patterns, i.e., the cost of a signature cache miss in the probe controller.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PatternMatcherBenchmark {
+
+	private static final int NUM_PACKAGES = 16;
+	private static final int NUM_SIGNATURES = 256;
+
+	@Param({ "50", "500" })
+	private int numPatterns;
+
+	private List<PatternEntry> patternEntries;
+	private PatternMatcher matcher;
+	private String[] signatures;
+	private int index;
+
+	/** Create the benchmark. */
+	public PatternMatcherBenchmark() {
+		// nothing to be done here
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws InvalidPatternException {
+		this.patternEntries = new ArrayList<>(this.numPatterns);
+		this.patternEntries.add(new PatternEntry("* org..*.*(..)", false));
+		for (int i = 1; i < this.numPatterns; i++) {
+			final String pattern = "public * org.example.package" + (i % NUM_PACKAGES) + ".Class" + i + ".get*(..)";
+			this.patternEntries.add(new PatternEntry(pattern, (i & 1) == 0));
+		}
+		this.matcher = new PatternMatcher(this.patternEntries);
+
+		this.signatures = new String[NUM_SIGNATURES];
+		for (int i = 0; i < NUM_SIGNATURES; i++) {
+			this.signatures[i] = "public java.lang.String org.example.package" + (i % NUM_PACKAGES) + ".Class" + i + ".getName(int)";
+		}
+	}
+
+	/**
+	 * @return activation state determined by the {@link PatternMatcher}
+	 */
+	@Benchmark
+	public boolean patternMatcher() {
+		return this.matcher.isActivated(this.nextSignature());
+	}
+
+	/**
+	 * @return activation state determined by evaluating all patterns from the last to the first
+	 */
+	@Benchmark
+	public boolean sequential() {
+		final String signature = this.nextSignature();
+		for (int i = this.patternEntries.size() - 1; i >= 0; i--) {
+			final PatternEntry patternEntry = this.patternEntries.get(i);
+			if (patternEntry.getPattern().matcher(signature).matches()) {
+				return patternEntry.isActivated();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the matcher for the complete pattern list, i.e., the startup cost
+	 */
+	@Benchmark
+	public PatternMatcher build() {
+		return new PatternMatcher(this.patternEntries);
+	}
+
+	private String nextSignature() {
+		final int current = this.index++ & (NUM_SIGNATURES - 1);
+		return this.signatures[current];
+	}
+}
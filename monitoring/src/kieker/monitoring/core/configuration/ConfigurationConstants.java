@@ -93,6 +93,17 @@ public final class ConfigurationConstants {
 	public static final String ADAPTIVE_MONITORING_BOUNDED_CACHE_BEHAVIOUR = ConfigurationConstants.PREFIX
 			+ "adaptiveMonitoring.boundedCacheBehaviour";
 
+	// Trace Sampling Controller
+	public static final String TRACE_SAMPLING_MODE = ConfigurationConstants.PREFIX + "traceSampling.mode";
+	public static final String TRACE_SAMPLING_RATE = ConfigurationConstants.PREFIX + "traceSampling.rate";
+	public static final String TRACE_SAMPLING_RECORDS_PER_SECOND = ConfigurationConstants.PREFIX
+			+ "traceSampling.recordsPerSecond";
+	public static final String TRACE_SAMPLING_QUEUE_FEEDBACK = ConfigurationConstants.PREFIX + "traceSampling.queueFeedback";
+	public static final String TRACE_SAMPLING_QUEUE_LOW_WATERMARK = ConfigurationConstants.PREFIX
+			+ "traceSampling.queueLowWatermark";
+	public static final String TRACE_SAMPLING_QUEUE_HIGH_WATERMARK = ConfigurationConstants.PREFIX
+			+ "traceSampling.queueHighWatermark";
+
 	/**
 	 * Factory class. Avoid instantiation.
 	 */
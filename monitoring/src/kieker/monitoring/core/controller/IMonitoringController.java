@@ -27,6 +27,7 @@ public interface IMonitoringController extends
 		ISamplingController,
 		IStateController,
 		ITimeSourceController,
+		ITraceSamplingController,
 		IWriterController {
 
 	/**
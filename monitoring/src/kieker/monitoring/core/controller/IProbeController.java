@@ -61,6 +61,17 @@ public interface IProbeController {
 	 */
 	boolean isProbeActivated(final String signature);
 
+	/**
+	 * Returns the activation version of the probes. The version is incremented whenever probes are activated or
+	 * deactivated, i.e., whenever the result of {@link #isProbeActivated(String)} may change. Probes can use the
+	 * version to cache activation states.
+	 *
+	 * @return the current activation version
+	 *
+	 * @since 2.0.0
+	 */
+	long getProbeActivationVersion();
+
 	/**
 	 * Overwrites the current list of patterns with a new pattern list.
 	 *
@@ -0,0 +1,52 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.controller;
+
+/**
+ * Decides which traces are recorded by the probes in order to limit the monitoring overhead under load.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public interface ITraceSamplingController {
+
+	/**
+	 * Decides whether a new trace is recorded. The decision is made once per trace when it is registered,
+	 * see {@link kieker.monitoring.core.registry.TraceRegistry#registerSampledTrace()}. Probes do not create any
+	 * records for traces which are not sampled.
+	 *
+	 * @return true if the trace is recorded
+	 *
+	 * @since 2.0.0
+	 */
+	boolean sampleTrace();
+
+	/**
+	 * @return the number of traces which have been sampled; 0 if trace sampling is disabled
+	 *
+	 * @since 2.0.0
+	 */
+	long getNumberOfSampledTraces();
+
+	/**
+	 * @return the number of traces which have not been sampled
+	 *
+	 * @since 2.0.0
+	 */
+	long getNumberOfUnsampledTraces();
+}
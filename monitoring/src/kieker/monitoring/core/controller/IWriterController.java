@@ -18,6 +18,7 @@ package kieker.monitoring.core.controller;
 
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.registry.IMonitoringRecordReceiver;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * The methods must not throw any exceptions but indicate problems via its
@@ -46,6 +47,18 @@ public interface IWriterController extends IMonitoringRecordReceiver {
 	@Override
 	boolean newMonitoringRecord(IMonitoringRecord record);
 
+	/**
+	 * Called for each chunk of events encoded by a probe to write it out like the corresponding records. The chunk is
+	 * released for reuse after it has been written or if it is dropped, e.g., because monitoring is disabled.
+	 *
+	 * @param chunk
+	 *            the encoded events
+	 * @return true on success; false in case of an error.
+	 *
+	 * @since 2.0.0
+	 */
+	boolean newEncodedEventChunk(EncodedEventChunk chunk);
+
 	/**
 	 * Waits for the termination of the monitoring controller. The termination must be previously triggered by {@link MonitoringController#terminateMonitoring()}.
 	 *
@@ -61,4 +74,12 @@ public interface IWriterController extends IMonitoringRecordReceiver {
 	 */
 	void waitForTermination(long timeoutInMs) throws InterruptedException;
 
+	/**
+	 * Publishes the records staged by the calling thread to the writer queue. This is a no-op
+	 * unless thread-local staging of records is enabled.
+	 *
+	 * @since 2.0.0
+	 */
+	void flushThreadLocalRecords();
+
 }
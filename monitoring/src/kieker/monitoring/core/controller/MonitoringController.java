@@ -32,6 +32,8 @@ import kieker.monitoring.core.configuration.ConfigurationFactory;
 import kieker.monitoring.core.sampler.ISampler;
 import kieker.monitoring.core.sampler.ScheduledSamplerJob;
 import kieker.monitoring.timer.ITimeSource;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.OperationEventEncoder;
 
 /**
  * @author Jan Waller
@@ -56,6 +58,7 @@ public final class MonitoringController extends AbstractController implements IM
 	private final WriterController writerController;
 	private final TimeSourceController timeSourceController;
 	private final ProbeController probeController;
+	private final TraceSamplingController traceSamplingController;
 	/**
 	 * Whether or not the {@link IMonitoringRecord#setLoggingTimestamp(long)} is
 	 * automatically set.
@@ -73,6 +76,7 @@ public final class MonitoringController extends AbstractController implements IM
 		this.stateController.setStateListener(this);
 		this.timeSourceController = new TimeSourceController(configuration);
 		this.probeController = new ProbeController(configuration);
+		this.traceSamplingController = new TraceSamplingController(configuration);
 		this.autoSetLoggingTimestamp = configuration.getBooleanProperty(ConfigurationConstants.AUTO_SET_LOGGINGTSTAMP);
 	}
 
@@ -128,6 +132,10 @@ public final class MonitoringController extends AbstractController implements IM
 		if (monitoringController.probeController.isTerminated()) {
 			monitoringController.terminate();
 		}
+		monitoringController.traceSamplingController.setMonitoringController(monitoringController);
+		if (monitoringController.traceSamplingController.isTerminated()) {
+			monitoringController.terminate();
+		}
 		monitoringController.setMonitoringController(monitoringController);
 		if (monitoringController.isTerminated()) {
 			return monitoringController;
@@ -198,6 +206,7 @@ public final class MonitoringController extends AbstractController implements IM
 	protected void cleanup() {
 		MonitoringController.LOGGER.info("Shutting down Monitoring Controller ({})", this.getName());
 		// this.saveMetadataAsRecord();
+		this.traceSamplingController.terminate();
 		this.probeController.terminate();
 		this.timeSourceController.terminate();
 		this.writerController.terminate();
@@ -213,6 +222,7 @@ public final class MonitoringController extends AbstractController implements IM
 				.append(MonitoringController.getVersion()).append(") ").append(this.stateController.toString())
 				.append(this.jmxController.toString()).append(this.timeSourceController.toString())
 				.append(this.probeController.toString()).append(this.writerController.toString())
+				.append(this.traceSamplingController.toString())
 				.append("\n\tAutomatic assignment of logging timestamps: '").append(this.autoSetLoggingTimestamp)
 				.append("'\n").append(this.samplingController.toString());
 		return sb.toString();
@@ -242,12 +252,19 @@ public final class MonitoringController extends AbstractController implements IM
 		return this.samplingController;
 	}
 
+	// default
+	WriterController getWriterController() { // NOPMD (package-private)
+		return this.writerController;
+	}
+
 	// DELEGATE TO OTHER CONTROLLERS
 	// #############################
 
 	@Override
 	public boolean terminateMonitoring() {
 		MonitoringController.LOGGER.info("Terminating monitoring...");
+		// events encoded by probes are not accepted any more after the termination
+		OperationEventEncoder.INSTANCE.flushAll(this);
 		return this.stateController.terminateMonitoring();
 	}
 
@@ -317,11 +334,28 @@ public final class MonitoringController extends AbstractController implements IM
 		return this.writerController.newMonitoringRecord(record);
 	}
 
+	@Override
+	public boolean newEncodedEventChunk(final EncodedEventChunk chunk) {
+		if (!this.isMonitoringEnabled()) { // enabled and not terminated
+			chunk.release();
+			return false;
+		}
+		if (this.autoSetLoggingTimestamp) {
+			chunk.enableAutoLoggingTimestamp();
+		}
+		return this.writerController.newEncodedEventChunk(chunk);
+	}
+
 	@Override
 	public void waitForTermination(final long timeoutInMs) throws InterruptedException {
 		this.writerController.waitForTermination(timeoutInMs);
 	}
 
+	@Override
+	public void flushThreadLocalRecords() {
+		this.writerController.flushThreadLocalRecords();
+	}
+
 	@Override
 	public ScheduledSamplerJob schedulePeriodicSampler(final ISampler sampler, final long initialDelay,
 			final long period, final TimeUnit timeUnit) {
@@ -358,6 +392,11 @@ public final class MonitoringController extends AbstractController implements IM
 		return this.probeController.isProbeActivated(signature);
 	}
 
+	@Override
+	public long getProbeActivationVersion() {
+		return this.probeController.getProbeActivationVersion();
+	}
+
 	@Override
 	public void setProbePatternList(final List<String> patternList) {
 		this.probeController.setProbePatternList(patternList);
@@ -398,6 +437,21 @@ public final class MonitoringController extends AbstractController implements IM
 		this.probeController.removePatternParameterValue(pattern, name, value);
 	}
 
+	@Override
+	public boolean sampleTrace() {
+		return this.traceSamplingController.sampleTrace();
+	}
+
+	@Override
+	public long getNumberOfSampledTraces() {
+		return this.traceSamplingController.getNumberOfSampledTraces();
+	}
+
+	@Override
+	public long getNumberOfUnsampledTraces() {
+		return this.traceSamplingController.getNumberOfUnsampledTraces();
+	}
+
 	// GET SINGLETON INSTANCE
 	// #############################
 	public static IMonitoringController getInstance() {
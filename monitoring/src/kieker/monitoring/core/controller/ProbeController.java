@@ -31,17 +31,17 @@ import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -53,6 +53,7 @@ import kieker.common.util.map.BoundedConcurrentHashMap.BoundedCacheBehaviour;
 import kieker.monitoring.core.configuration.ConfigurationConstants;
 import kieker.monitoring.core.signaturePattern.InvalidPatternException;
 import kieker.monitoring.core.signaturePattern.PatternEntry;
+import kieker.monitoring.core.signaturePattern.PatternMatcher;
 import kieker.monitoring.core.signaturePattern.PatternParser;
 
 /**
@@ -74,8 +75,13 @@ public class ProbeController extends AbstractController implements IProbeControl
 	private final ConfigFileReader configFileReader;
 
 	private final ConcurrentMap<String, Boolean> signatureCache;
-	private final List<PatternEntry> patterns = new ArrayList<>(); // only accessed synchronized
-	private final Map<String, Map<String, List<String>>> patternListParameters = new ConcurrentHashMap<>();
+	/** immutable matcher of the pattern list; replaced on every change (copy-on-write). */
+	private volatile PatternMatcher patternMatcher = PatternMatcher.empty();
+	/** serializes pattern list changes; readers never acquire this lock. */
+	private final Object patternUpdateLock = new Object();
+	private final ConcurrentMap<String, Map<String, List<String>>> patternListParameters = new ConcurrentHashMap<>();
+	/** incremented on every change of the pattern list. */
+	private final AtomicLong activationVersion = new AtomicLong();
 
 	/**
 	 * Creates a new instance of this class using the given configuration to
@@ -229,6 +235,14 @@ public class ProbeController extends AbstractController implements IProbeControl
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getProbeActivationVersion() {
+		return this.activationVersion.get();
+	}
+
 	/**
 	 * Sets the list of probe patterns.
 	 *
@@ -244,12 +258,21 @@ public class ProbeController extends AbstractController implements IProbeControl
 			return;
 		}
 
-		synchronized (this) {
-			this.patterns.clear();
-			this.signatureCache.clear();
-			for (final String pattern : strPatternList) {
-				this.addToPatternEntryList(pattern);
+		// compile the patterns before acquiring the lock
+		final List<PatternEntry> newPatterns = new ArrayList<>(strPatternList.size());
+		for (final String pattern : strPatternList) {
+			this.addToPatternEntryList(newPatterns, pattern);
+		}
+
+		final PatternMatcher newPatternMatcher = new PatternMatcher(newPatterns);
+
+		synchronized (this.patternUpdateLock) {
+			this.patternMatcher = newPatternMatcher;
+			// every cached signature may be affected; re-evaluate them here instead of letting all probes miss the cache
+			for (final Map.Entry<String, Boolean> entry : this.signatureCache.entrySet()) {
+				this.signatureCache.replace(entry.getKey(), newPatternMatcher.isActivated(entry.getKey()));
 			}
+			this.activationVersion.incrementAndGet();
 			if (updateConfig && this.configFileUpdate) {
 				this.updatePatternFile();
 			}
@@ -257,7 +280,7 @@ public class ProbeController extends AbstractController implements IProbeControl
 
 	}
 
-	private void addToPatternEntryList(final String pattern) {
+	private void addToPatternEntryList(final List<PatternEntry> patternList, final String pattern) {
 		if (pattern.length() == 0) {
 			// ignore empty lines
 			return;
@@ -265,10 +288,10 @@ public class ProbeController extends AbstractController implements IProbeControl
 		try {
 			switch (pattern.charAt(0)) {
 			case '+':
-				this.patterns.add(new PatternEntry(pattern.substring(1).trim(), true));
+				patternList.add(new PatternEntry(pattern.substring(1).trim(), true));
 				break;
 			case '-':
-				this.patterns.add(new PatternEntry(pattern.substring(1).trim(), false));
+				patternList.add(new PatternEntry(pattern.substring(1).trim(), false));
 				break;
 			case '#':
 				// ignore comment
@@ -300,19 +323,18 @@ public class ProbeController extends AbstractController implements IProbeControl
 			ProbeController.LOGGER.warn("Adapative Monitoring is disabled!");
 			return new ArrayList<>(0);
 		}
-		synchronized (this) {
-			final List<String> currentPatterns = new ArrayList<>(this.patterns.size());
-			for (final PatternEntry entry : this.patterns) {
-				final String strPattern;
-				if (entry.isActivated()) {
-					strPattern = '+' + entry.getStrPattern();
-				} else {
-					strPattern = '-' + entry.getStrPattern();
-				}
-				currentPatterns.add(strPattern);
+		final List<PatternEntry> patternList = this.patternMatcher.getPatternEntries();
+		final List<String> currentPatterns = new ArrayList<>(patternList.size());
+		for (final PatternEntry entry : patternList) {
+			final String strPattern;
+			if (entry.isActivated()) {
+				strPattern = '+' + entry.getStrPattern();
+			} else {
+				strPattern = '-' + entry.getStrPattern();
 			}
-			return currentPatterns;
+			currentPatterns.add(strPattern);
 		}
+		return currentPatterns;
 	}
 
 	/**
@@ -320,10 +342,7 @@ public class ProbeController extends AbstractController implements IProbeControl
 	 */
 	@Override
 	public Map<String, List<String>> getAllPatternParameters(final String pattern) {
-		synchronized (this) {
-			return this.patternListParameters.get(pattern);
-		}
-
+		return this.patternListParameters.get(pattern);
 	}
 
 	/**
@@ -331,11 +350,9 @@ public class ProbeController extends AbstractController implements IProbeControl
 	 */
 	@Override
 	public void deletePatternParameter(final String pattern, final String name) {
-		synchronized (this) {
-			final Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
-			if (parameters != null) {
-				parameters.remove(name);
-			}
+		final Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
+		if (parameters != null) {
+			parameters.remove(name);
 		}
 	}
 
@@ -344,9 +361,7 @@ public class ProbeController extends AbstractController implements IProbeControl
 	 */
 	@Override
 	public void clearPatternParameters(final String pattern) {
-		synchronized (this) {
-			this.patternListParameters.remove(pattern);
-		}
+		this.patternListParameters.remove(pattern);
 	}
 
 	/**
@@ -354,68 +369,64 @@ public class ProbeController extends AbstractController implements IProbeControl
 	 */
 	@Override
 	public void addPatternParameter(final String pattern, final String name, final List<String> values) {
-		synchronized (this) {
-			Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
-			if (parameters == null) {
-				parameters = new HashMap<>();
-				this.patternListParameters.put(pattern, parameters);
-			}
-			parameters.put(name, values);
-		}
+		this.getOrCreatePatternParameters(pattern).put(name, new CopyOnWriteArrayList<>(values));
 	}
 
 	@Override
 	public void addPatternParameterValue(final String pattern, final String name, final String value) {
-		synchronized (this) {
-			Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
-			if (parameters == null) {
-				parameters = new HashMap<>();
-				this.patternListParameters.put(pattern, parameters);
-				final List<String> values = new ArrayList<>();
-				values.add(value);
-				parameters.put(name, values);
-			} else {
-				parameters.get(name).add(value);
+		final Map<String, List<String>> parameters = this.getOrCreatePatternParameters(pattern);
+		List<String> values = parameters.get(name);
+		if (values == null) {
+			final List<String> newValues = new CopyOnWriteArrayList<>();
+			values = parameters.putIfAbsent(name, newValues);
+			if (values == null) {
+				values = newValues;
 			}
 		}
+		values.add(value);
 	}
 
 	@Override
 	public void removePatternParameterValue(final String pattern, final String name, final String value) {
-		synchronized (this) {
-			final Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
-			if (parameters != null) {
-				final List<String> values = parameters.get(name);
-				if (values != null) {
-					values.remove(value);
-				}
+		final Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
+		if (parameters != null) {
+			final List<String> values = parameters.get(name);
+			if (values != null) {
+				values.remove(value);
 			}
 		}
 	}
 
+	private Map<String, List<String>> getOrCreatePatternParameters(final String pattern) {
+		final Map<String, List<String>> parameters = this.patternListParameters.get(pattern);
+		if (parameters != null) {
+			return parameters;
+		}
+		final ConcurrentMap<String, List<String>> newParameters = new ConcurrentHashMap<>();
+		final Map<String, List<String>> existingParameters = this.patternListParameters.putIfAbsent(pattern, newParameters);
+		if (existingParameters != null) {
+			return existingParameters;
+		}
+		return newParameters;
+	}
+
 	/**
 	 * This method tests if the given signature matches a pattern and completes
-	 * accordingly the signatureCache map.
+	 * accordingly the signatureCache map. It does not acquire a lock; if the
+	 * pattern list changes concurrently, the cache entry is discarded.
 	 *
 	 * @param signature
 	 *            The signature to match.
 	 */
 	private boolean matchesPattern(final String signature) {
-		synchronized (this) {
-			final ListIterator<PatternEntry> patternListIterator = this.patterns.listIterator(this.patterns.size());
-			while (patternListIterator.hasPrevious()) {
-				final PatternEntry patternEntry = patternListIterator.previous();
-				if (patternEntry.getPattern().matcher(signature).matches()) {
-					final boolean value = patternEntry.isActivated();
-					this.signatureCache.put(signature, value);
-					return value;
-				}
-			}
+		final PatternMatcher matcher = this.patternMatcher;
+		final boolean value = matcher.isActivated(signature);
+		this.signatureCache.put(signature, value);
+		if (matcher != this.patternMatcher) { // NOPMD (compare references by == not by equals())
+			// the updater may have missed our entry while re-evaluating the cache
+			this.signatureCache.remove(signature);
 		}
-		// Do not forget to remember this default value
-		this.signatureCache.put(signature, true);
-
-		return true; // if nothing matches, the default is true!
+		return value;
 	}
 
 	private boolean addPattern(final String strPattern, final boolean activated) {
@@ -423,17 +434,22 @@ public class ProbeController extends AbstractController implements IProbeControl
 			ProbeController.LOGGER.warn("Adapative Monitoring is disabled!");
 			return false;
 		}
-		synchronized (this) {
-			// we must always clear the cache!
-			this.signatureCache.clear();
-			final Pattern pattern;
-			try {
-				pattern = PatternParser.parseToPattern(strPattern);
-			} catch (final InvalidPatternException ex) {
-				ProbeController.LOGGER.error("'{}' is not a valid pattern.", strPattern, ex);
-				return false;
+		final Pattern pattern;
+		try {
+			pattern = PatternParser.parseToPattern(strPattern);
+		} catch (final InvalidPatternException ex) {
+			ProbeController.LOGGER.error("'{}' is not a valid pattern.", strPattern, ex);
+			return false;
+		}
+		synchronized (this.patternUpdateLock) {
+			this.patternMatcher = this.patternMatcher.append(new PatternEntry(strPattern, pattern, activated));
+			// the new pattern is the last one, hence it determines the result of all signatures it matches; others are unaffected
+			for (final String signature : this.signatureCache.keySet()) {
+				if (pattern.matcher(signature).matches()) {
+					this.signatureCache.replace(signature, activated);
+				}
 			}
-			this.patterns.add(new PatternEntry(strPattern, pattern, activated));
+			this.activationVersion.incrementAndGet();
 			if (this.configFileUpdate) {
 				this.updatePatternFile();
 			}
@@ -441,7 +457,7 @@ public class ProbeController extends AbstractController implements IProbeControl
 		return true;
 	}
 
-	private void updatePatternFile() { // only called within synchronized
+	private void updatePatternFile() { // only called while holding the pattern update lock
 		PrintWriter pw = null;
 		try {
 			pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
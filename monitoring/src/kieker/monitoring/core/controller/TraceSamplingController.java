@@ -0,0 +1,232 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.controller;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.configuration.Configuration;
+import kieker.monitoring.core.configuration.ConfigurationConstants;
+
+/**
+ * Decides once per trace whether it is recorded. Three mechanisms can be combined:
+ * <ul>
+ * <li>{@link TraceSamplingMode#FIXED_RATE}: a trace is recorded with a fixed probability.</li>
+ * <li>{@link TraceSamplingMode#TOKEN_BUCKET}: a trace is recorded if the bucket holds enough tokens for the estimated
+ * number of records of a trace. The bucket is refilled with the configured number of records per second.</li>
+ * <li>queue feedback: the probability is reduced linearly between the low and the high watermark of the fill level of
+ * the writer queue.</li>
+ * </ul>
+ * The probability, the bucket, and the estimated number of records per trace are updated by the first trace
+ * registered after the update interval, i.e., no additional thread is required.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class TraceSamplingController extends AbstractController implements ITraceSamplingController {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TraceSamplingController.class);
+
+	private static final long UPDATE_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(10);
+	/** weight of the last interval in the estimated number of records per trace. */
+	private static final double ESTIMATE_WEIGHT = 0.2;
+
+	private final TraceSamplingMode mode;
+	private final double rate;
+	private final long recordsPerSecond;
+	private final boolean queueFeedback;
+	private final double queueLowWatermark;
+	private final double queueHighWatermark;
+	/** false if every trace is recorded. */
+	private final boolean enabled;
+
+	private final LongAdder sampledTraces = new LongAdder();
+	private final LongAdder unsampledTraces = new LongAdder();
+
+	/** time of the last update; the thread which advances it performs the update. */
+	private final AtomicLong lastUpdate = new AtomicLong(System.nanoTime());
+	/** current sampling probability. */
+	private volatile double probability;
+
+	/** available records in token bucket mode. */
+	private final AtomicLong tokens = new AtomicLong();
+	/** estimated number of records per trace; only modified by the updating thread. */
+	private volatile long recordsPerTrace = 1;
+	private double estimatedRecordsPerTrace = 1.0;
+	private double fractionalTokens;
+	private long lastNumberOfRecords;
+	private long lastNumberOfSampledTraces;
+
+	/**
+	 * Creates a new instance of this class using the given configuration to initialize the class.
+	 *
+	 * @param configuration
+	 *            The configuration used to initialize this controller.
+	 */
+	protected TraceSamplingController(final Configuration configuration) {
+		super(configuration);
+		this.mode = configuration.getEnumProperty(ConfigurationConstants.TRACE_SAMPLING_MODE, TraceSamplingMode.class, TraceSamplingMode.NONE);
+		this.rate = Math.min(1.0, Math.max(0.0, configuration.getDoubleProperty(ConfigurationConstants.TRACE_SAMPLING_RATE, 1.0)));
+		this.recordsPerSecond = Math.max(1L, configuration.getLongProperty(ConfigurationConstants.TRACE_SAMPLING_RECORDS_PER_SECOND, 100000L));
+		this.queueFeedback = configuration.getBooleanProperty(ConfigurationConstants.TRACE_SAMPLING_QUEUE_FEEDBACK);
+		this.queueLowWatermark = configuration.getDoubleProperty(ConfigurationConstants.TRACE_SAMPLING_QUEUE_LOW_WATERMARK, 0.5);
+		final double highWatermark = configuration.getDoubleProperty(ConfigurationConstants.TRACE_SAMPLING_QUEUE_HIGH_WATERMARK, 0.9);
+		if (highWatermark <= this.queueLowWatermark) {
+			LOGGER.warn("High watermark {} of the trace sampling must be greater than the low watermark {}; using 1.0",
+					highWatermark, this.queueLowWatermark);
+			this.queueHighWatermark = Math.max(1.0, this.queueLowWatermark + Double.MIN_NORMAL);
+		} else {
+			this.queueHighWatermark = highWatermark;
+		}
+		this.enabled = (this.mode != TraceSamplingMode.NONE) || this.queueFeedback;
+		this.probability = (this.mode == TraceSamplingMode.FIXED_RATE) ? this.rate : 1.0; // NOCS (inline conditional)
+		this.tokens.set(this.recordsPerSecond);
+	}
+
+	@Override
+	protected void init() {
+		// do nothing
+	}
+
+	@Override
+	protected void cleanup() {
+		LOGGER.debug("Shutting down Trace Sampling Controller");
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(128).append("TraceSamplingController: ");
+		if (this.enabled) {
+			sb.append("\n\tMode: ").append(this.mode);
+			if (this.mode == TraceSamplingMode.FIXED_RATE) {
+				sb.append("\n\tRate: ").append(this.rate);
+			} else if (this.mode == TraceSamplingMode.TOKEN_BUCKET) {
+				sb.append("\n\tRecords per second: ").append(this.recordsPerSecond);
+			}
+			if (this.queueFeedback) {
+				sb.append("\n\tQueue feedback: ").append(this.queueLowWatermark).append(" - ").append(this.queueHighWatermark);
+			}
+		} else {
+			sb.append("All traces are recorded");
+		}
+		return sb.append('\n').toString();
+	}
+
+	@Override
+	public boolean sampleTrace() {
+		if (!this.enabled) {
+			return true;
+		}
+		final long now = System.nanoTime();
+		final long last = this.lastUpdate.get();
+		if (((now - last) >= UPDATE_INTERVAL_NS) && this.lastUpdate.compareAndSet(last, now)) {
+			this.update(now - last);
+		}
+
+		final double currentProbability = this.probability;
+		boolean sampled = (currentProbability >= 1.0) || (ThreadLocalRandom.current().nextDouble() < currentProbability);
+		if (sampled && (this.mode == TraceSamplingMode.TOKEN_BUCKET)) {
+			final long cost = this.recordsPerTrace;
+			sampled = (this.tokens.get() >= cost) && (this.tokens.addAndGet(-cost) >= 0);
+		}
+		if (sampled) {
+			this.sampledTraces.increment();
+		} else {
+			this.unsampledTraces.increment();
+		}
+		return sampled;
+	}
+
+	/**
+	 * Updates the probability, the bucket, and the estimate. Only called by the thread which advanced the last update.
+	 */
+	private void update(final long elapsedNs) {
+		double newProbability = (this.mode == TraceSamplingMode.FIXED_RATE) ? this.rate : 1.0; // NOCS (inline conditional)
+		final WriterController writerController = this.getWriterController();
+		if (this.queueFeedback && (writerController != null)) {
+			newProbability *= this.computePressureFactor(writerController.getQueueFillLevel());
+		}
+		this.probability = newProbability;
+
+		if ((this.mode == TraceSamplingMode.TOKEN_BUCKET) && (writerController != null)) {
+			this.updateEstimate(writerController.getNumberOfRecords());
+			final double refill = ((this.recordsPerSecond * (double) elapsedNs) / TimeUnit.SECONDS.toNanos(1)) + this.fractionalTokens;
+			final long wholeTokens = (long) refill;
+			this.fractionalTokens = refill - wholeTokens;
+			// at most one second of records, i.e., idle periods do not allow bursts; concurrent consumers are not lost
+			long current;
+			long available;
+			do {
+				current = this.tokens.get();
+				available = Math.min(this.recordsPerSecond, current + wholeTokens);
+			} while ((available > current) && !this.tokens.compareAndSet(current, available));
+		}
+	}
+
+	/**
+	 * @return 1 below the low watermark, 0 above the high watermark, and decreasing linearly in between
+	 */
+	double computePressureFactor(final double fillLevel) { // NOPMD (package-private for tests)
+		if (fillLevel <= this.queueLowWatermark) {
+			return 1.0;
+		} else if (fillLevel >= this.queueHighWatermark) {
+			return 0.0;
+		} else {
+			return (this.queueHighWatermark - fillLevel) / (this.queueHighWatermark - this.queueLowWatermark);
+		}
+	}
+
+	private void updateEstimate(final long numberOfRecords) {
+		final long numberOfSampledTraces = this.sampledTraces.sum();
+		final long traces = numberOfSampledTraces - this.lastNumberOfSampledTraces;
+		if (traces > 0) {
+			final double lastRecordsPerTrace = (double) (numberOfRecords - this.lastNumberOfRecords) / traces;
+			this.estimatedRecordsPerTrace = (ESTIMATE_WEIGHT * lastRecordsPerTrace) + ((1.0 - ESTIMATE_WEIGHT) * this.estimatedRecordsPerTrace);
+			this.recordsPerTrace = Math.max(1L, Math.round(this.estimatedRecordsPerTrace));
+		}
+		this.lastNumberOfRecords = numberOfRecords;
+		this.lastNumberOfSampledTraces = numberOfSampledTraces;
+	}
+
+	private WriterController getWriterController() {
+		final MonitoringController controller = this.monitoringController;
+		return (controller == null) ? null : controller.getWriterController(); // NOCS (inline conditional)
+	}
+
+	/**
+	 * @return true if the records created by the probes must be counted, i.e., in token bucket mode
+	 */
+	static boolean isRecordCountingRequired(final Configuration configuration) { // NOPMD (package-private)
+		return configuration.getEnumProperty(ConfigurationConstants.TRACE_SAMPLING_MODE, TraceSamplingMode.class,
+				TraceSamplingMode.NONE) == TraceSamplingMode.TOKEN_BUCKET;
+	}
+
+	@Override
+	public long getNumberOfSampledTraces() {
+		return this.sampledTraces.sum();
+	}
+
+	@Override
+	public long getNumberOfUnsampledTraces() {
+		return this.unsampledTraces.sum();
+	}
+}
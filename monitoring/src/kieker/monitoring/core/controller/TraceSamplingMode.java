@@ -0,0 +1,33 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.controller;
+
+/**
+ * Modes of the {@link TraceSamplingController}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public enum TraceSamplingMode {
+	/** all traces are recorded, unless the queue feedback is enabled. */
+	NONE,
+	/** traces are recorded with a fixed probability. */
+	FIXED_RATE,
+	/** traces are recorded as long as the number of records per second stays below a limit. */
+	TOKEN_BUCKET
+}
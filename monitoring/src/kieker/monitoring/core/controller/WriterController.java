@@ -21,24 +21,30 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import kieker.common.configuration.Configuration;
 import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.IWriterQueueElement;
 import kieker.monitoring.core.configuration.ConfigurationConstants;
 import kieker.monitoring.queue.BlockingQueueDecorator;
+import kieker.monitoring.queue.MpscRingBuffer;
+import kieker.monitoring.queue.behavior.BackoffOnFailedInsertBehavior;
 import kieker.monitoring.queue.behavior.BlockOnFailedInsertBehavior;
 import kieker.monitoring.queue.behavior.BypassQueueBehavior;
 import kieker.monitoring.queue.behavior.CountOnFailedInsertBehavior;
 import kieker.monitoring.queue.behavior.DoNotInsertBehavior;
 import kieker.monitoring.queue.behavior.InsertBehavior;
 import kieker.monitoring.queue.behavior.TerminateOnFailedInsertBehavior;
+import kieker.monitoring.queue.behavior.ThreadLocalStagingInsertBehavior;
 import kieker.monitoring.queue.putstrategy.PutStrategy;
 import kieker.monitoring.queue.takestrategy.TakeStrategy;
 import kieker.monitoring.writer.AbstractMonitoringWriter;
 import kieker.monitoring.writer.MonitoringWriterThread;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * @author Andre van Hoorn, Matthias Rohr, Jan Waller, Robert von Massow
@@ -61,6 +67,17 @@ public final class WriterController extends AbstractController implements IWrite
 	/** The fully qualified name of the queue to be used for the records. */
 	public static final String RECORD_QUEUE_FQN = "RecordQueueFQN";
 
+	/** The name of the configuration determining the maximal number of records handed to the writer at once. */
+	public static final String WRITER_BATCH_SIZE = "WriterBatchSize";
+
+	/**
+	 * The name of the configuration determining the number of records each application thread stages before
+	 * publishing them to the queue; 0 disables thread-local staging.
+	 */
+	public static final String THREAD_LOCAL_BUFFER_SIZE = "ThreadLocalBufferSize";
+	/** The name of the configuration determining the maximal time in ms a record is staged by an idle thread. */
+	public static final String THREAD_LOCAL_BUFFER_FLUSH_INTERVAL = "ThreadLocalBufferFlushInterval";
+
 	/** The fully qualified name of the put strategy */
 	public static final String QUEUE_PUT_STRATEGY = "QueuePutStrategy";
 
@@ -77,21 +94,21 @@ public final class WriterController extends AbstractController implements IWrite
 	private final int queueCapacity;
 	/**
 	 * the synchronized, blocking queue used for the communication between the
-	 * monitored application's threads and the writer thread.
+	 * monitored application's threads and the writer thread. It contains records and chunks of encoded events.
 	 */
-	private final BlockingQueue<IMonitoringRecord> writerQueue;
+	private final BlockingQueue<IWriterQueueElement> writerQueue;
 
 	private MonitoringWriterThread monitoringWriterThread; // NOPMD (so far, cannot be made final due to the
 															// MonitoringController)
 
-	private InsertBehavior<IMonitoringRecord> insertBehavior; // NOPMD (so far, cannot be made final due to the
+	private InsertBehavior<IWriterQueueElement> insertBehavior; // NOPMD (so far, cannot be made final due to the
 																// MonitoringController)
 
-	// private Disruptor<IMonitoringRecordEvent> disruptor;
+	/** staging insert behavior; null if thread-local staging is disabled. */
+	private ThreadLocalStagingInsertBehavior<IWriterQueueElement> stagingInsertBehavior;
 
-	// private RingBuffer<IMonitoringRecordEvent> ringBuffer;
-
-	// private int numInsertedRecords;
+	/** number of records passed to the writer; null unless required by the trace sampling. */
+	private final LongAdder numberOfRecords;
 
 	/**
 	 * Creates a new instance of this class using the given parameters.
@@ -102,14 +119,28 @@ public final class WriterController extends AbstractController implements IWrite
 	public WriterController(final Configuration configuration) {
 		super(configuration);
 		this.logMetadataRecord = configuration.getBooleanProperty(ConfigurationConstants.META_DATA);
+		this.numberOfRecords = TraceSamplingController.isRecordCountingRequired(configuration) ? new LongAdder() : null; // NOCS
 
 		this.queueCapacity = configuration.getIntProperty(WriterController.PREFIX + WriterController.RECORD_QUEUE_SIZE);
 		final String queueFqn = configuration
 				.getStringProperty(WriterController.PREFIX + WriterController.RECORD_QUEUE_FQN);
 
-		final Queue<IMonitoringRecord> queue = this.newQueue(queueFqn, this.queueCapacity);
+		int recordQueueInsertBehavior = configuration
+				.getIntProperty(WriterController.PREFIX + WriterController.RECORD_QUEUE_INSERT_BEHAVIOR);
+		if ((recordQueueInsertBehavior < 0) || (recordQueueInsertBehavior > 5)) {
+			WriterController.LOGGER.warn("Unknown value '{}' for {}{}; using default value 0",
+					recordQueueInsertBehavior, WriterController.PREFIX, WriterController.RECORD_QUEUE_INSERT_BEHAVIOR);
+			recordQueueInsertBehavior = 0;
+		}
+
+		Queue<IWriterQueueElement> queue = this.newQueue(queueFqn, this.queueCapacity);
+		if ((recordQueueInsertBehavior == 4) && !(queue instanceof MpscRingBuffer)) {
+			WriterController.LOGGER.info("Insert behavior 4 requires the ring buffer; using {} instead of {}",
+					MpscRingBuffer.class.getName(), queueFqn);
+			queue = new MpscRingBuffer<>(this.queueCapacity);
+		}
 		if (queue instanceof BlockingQueue) {
-			this.writerQueue = (BlockingQueue<IMonitoringRecord>) queue;
+			this.writerQueue = (BlockingQueue<IWriterQueueElement>) queue;
 		} else {
 			final String takeStrategyFqn = configuration.getStringProperty(PREFIX + QUEUE_TAKE_STRATEGY,
 					"kieker.monitoring.queue.takestrategy.SCBlockingTakeStrategy");
@@ -129,15 +160,9 @@ public final class WriterController extends AbstractController implements IWrite
 			// throw new IllegalStateException("monitoringWriter may not be null");
 		}
 
-		this.monitoringWriterThread = new MonitoringWriterThread(this.monitoringWriter, this.writerQueue);
-
-		int recordQueueInsertBehavior = configuration
-				.getIntProperty(WriterController.PREFIX + WriterController.RECORD_QUEUE_INSERT_BEHAVIOR);
-		if ((recordQueueInsertBehavior < 0) || (recordQueueInsertBehavior > 5)) {
-			WriterController.LOGGER.warn("Unknown value '{}' for {}{}; using default value 0",
-					recordQueueInsertBehavior, WriterController.PREFIX, WriterController.RECORD_QUEUE_INSERT_BEHAVIOR);
-			recordQueueInsertBehavior = 0;
-		}
+		final int writerBatchSize = configuration.getIntProperty(WriterController.PREFIX + WriterController.WRITER_BATCH_SIZE,
+				MonitoringWriterThread.DEFAULT_BATCH_SIZE);
+		this.monitoringWriterThread = new MonitoringWriterThread(this.monitoringWriter, this.writerQueue, writerBatchSize);
 
 		switch (recordQueueInsertBehavior) {
 		case 1:
@@ -150,13 +175,7 @@ public final class WriterController extends AbstractController implements IWrite
 			this.insertBehavior = new DoNotInsertBehavior<>();
 			break;
 		case 4:
-			// try {
-			// this.initDisruptor(configuration);
-			// } catch (final IOException e) {
-			// throw new IllegalStateException(e);
-			// }
-			// this.insertBehavior = new
-			// DisruptorInsertBehavior<IMonitoringRecord>(this.ringBuffer);
+			this.insertBehavior = new BackoffOnFailedInsertBehavior<>(this.writerQueue);
 			break;
 		case 5:
 			this.insertBehavior = new BypassQueueBehavior(this.monitoringWriter);
@@ -165,39 +184,27 @@ public final class WriterController extends AbstractController implements IWrite
 			this.insertBehavior = new TerminateOnFailedInsertBehavior<>(this.writerQueue);
 			break;
 		}
-	}
 
-	// private void initDisruptor(final Configuration configuration) throws
-	// IOException {
-	// final EventFactory<IMonitoringRecordEvent> eventFactory = new
-	// NewRecordEventFactory();
-	// final int bufferSize = 1024;
-	// final ThreadFactory threadFactory = new ThreadFactory() {
-	// @Override
-	// public Thread newThread(final Runnable r) {
-	// final Thread thread = new Thread(r);
-	// thread.setDaemon(true);
-	// return thread;
-	// }
-	// };
-	//
-	// this.disruptor = new Disruptor<IMonitoringRecordEvent>(eventFactory,
-	// bufferSize, threadFactory);
-	//
-	// final SharedConnection connection = new SharedConnection(configuration);
-	// final EventHandler<? super IMonitoringRecordEvent> handler1 = new
-	// DisruptorTcpWriter(configuration, connection);
-	// // allowing more than one consumes breaks the assumptions that the records
-	// are sent in order of occurrence
-	// // final EventHandler<? super IMonitoringRecordEvent> handler2 = new
-	// DisruptorTcpWriter(configuration,
-	// connection);
-	//
-	// this.disruptor.handleEventsWith(handler1);
-	// this.disruptor.start();
-	//
-	// this.ringBuffer = this.disruptor.getRingBuffer();
-	// }
+		final int threadLocalBufferSize = configuration.getIntProperty(WriterController.PREFIX + WriterController.THREAD_LOCAL_BUFFER_SIZE, 0);
+		if (threadLocalBufferSize > 0) {
+			if ((recordQueueInsertBehavior == 3) || (recordQueueInsertBehavior == 5)) {
+				WriterController.LOGGER.warn("Thread-local staging is not supported for insert behavior {}; ignoring {}{}",
+						recordQueueInsertBehavior, WriterController.PREFIX, WriterController.THREAD_LOCAL_BUFFER_SIZE);
+			} else {
+				final long flushIntervalMs = configuration.getLongProperty(
+						WriterController.PREFIX + WriterController.THREAD_LOCAL_BUFFER_FLUSH_INTERVAL, 100);
+				this.stagingInsertBehavior = new ThreadLocalStagingInsertBehavior<>(this.writerQueue, this.insertBehavior,
+						threadLocalBufferSize, flushIntervalMs, new Runnable() {
+							@Override
+							public void run() {
+								WriterController.LOGGER.error("Error writing the monitoring data. Will terminate monitoring!");
+								WriterController.this.terminate();
+							}
+						});
+				this.insertBehavior = this.stagingInsertBehavior;
+			}
+		}
+	}
 
 	private TakeStrategy newTakeStrategy(final String strategyName) {
 		try {
@@ -233,7 +240,7 @@ public final class WriterController extends AbstractController implements IWrite
 	 *         parameter of type <code>int</code>.
 	 */
 	@SuppressWarnings("unchecked")
-	private Queue<IMonitoringRecord> newQueue(final String queueFqn, final int capacity) {
+	private Queue<IWriterQueueElement> newQueue(final String queueFqn, final int capacity) {
 		try {
 			final Class<?> clazz = Class.forName(queueFqn);
 			@SuppressWarnings("rawtypes")
@@ -266,14 +273,17 @@ public final class WriterController extends AbstractController implements IWrite
 	protected void cleanup() {
 		WriterController.LOGGER.debug("Shutting down Writer Controller");
 
+		if (this.stagingInsertBehavior != null) {
+			// staged records must be inserted before the end-of-monitoring record
+			if (!this.stagingInsertBehavior.terminate()) {
+				WriterController.LOGGER.error("Error writing the staged monitoring data.");
+			}
+		}
+
 		if (this.monitoringWriterThread != null) {
 			this.monitoringWriterThread.terminate();
 		}
 
-		// if (this.disruptor != null) {
-		// this.disruptor.shutdown();
-		// }
-
 		// LOG.info("block durations: {}" + this.insertBehavior.toString());
 		// System.out.println("block durations: " + this.insertBehavior.toString());
 	}
@@ -296,6 +306,9 @@ public final class WriterController extends AbstractController implements IWrite
 
 	@Override
 	public boolean newMonitoringRecord(final IMonitoringRecord record) {
+		if (this.numberOfRecords != null) {
+			this.numberOfRecords.increment();
+		}
 		final boolean recordSent = this.insertBehavior.insert(record);
 		if (!recordSent) {
 			WriterController.LOGGER.error("Error writing the monitoring data. Will terminate monitoring!");
@@ -305,6 +318,29 @@ public final class WriterController extends AbstractController implements IWrite
 		return recordSent;
 	}
 
+	@Override
+	public boolean newEncodedEventChunk(final EncodedEventChunk chunk) {
+		if (this.numberOfRecords != null) {
+			this.numberOfRecords.add(chunk.size());
+		}
+		// the insert behavior releases the chunk if it is not inserted into the writer queue
+		final boolean chunkSent = this.insertBehavior.insert(chunk);
+		if (!chunkSent) {
+			WriterController.LOGGER.error("Error writing the monitoring data. Will terminate monitoring!");
+			this.terminate();
+		}
+
+		return chunkSent;
+	}
+
+	@Override
+	public void flushThreadLocalRecords() {
+		if ((this.stagingInsertBehavior != null) && !this.stagingInsertBehavior.flush()) {
+			WriterController.LOGGER.error("Error writing the monitoring data. Will terminate monitoring!");
+			this.terminate();
+		}
+	}
+
 	@Override
 	public void waitForTermination(final long timeoutInMs) throws InterruptedException {
 		if (this.monitoringWriterThread != null) {
@@ -312,6 +348,22 @@ public final class WriterController extends AbstractController implements IWrite
 		}
 	}
 
+	/**
+	 * @return the number of records passed to the writer, if counting is required by the trace sampling; otherwise 0
+	 */
+	// default
+	long getNumberOfRecords() { // NOPMD (package-private)
+		return (this.numberOfRecords == null) ? 0 : this.numberOfRecords.sum(); // NOCS (inline conditional)
+	}
+
+	/**
+	 * @return the fraction of the capacity of the queue which is occupied
+	 */
+	// default
+	double getQueueFillLevel() { // NOPMD (package-private)
+		return (double) this.writerQueue.size() / this.queueCapacity;
+	}
+
 	/**
 	 * Used in tests only.
 	 */
@@ -41,10 +41,6 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	// far. Of course, negative values may occur (as a result of an overflow) -- this does not hurt!
 	private final AtomicLong lastThreadId = new AtomicLong(MonitoringController.getInstance().isDebug() ? 0 // NOCS
 			: (long) new Random().nextInt(65536) << (Long.SIZE - 16 - 1));
-	private final transient ThreadLocal<Long> threadLocalTraceId = new ThreadLocal<>();
-	private final transient ThreadLocal<Integer> threadLocalEoi = new ThreadLocal<>();
-	private final transient ThreadLocal<Integer> threadLocalEss = new ThreadLocal<>();
-
 	static {
 		LOGGER.info("First threadId will be {}", INSTANCE.lastThreadId.get());
 	}
@@ -80,7 +76,7 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 */
 	public final long getAndStoreUniqueThreadLocalTraceId() {
 		final long id = this.getUniqueTraceId();
-		this.threadLocalTraceId.set(id);
+		this.storeThreadLocalTraceId(id);
 		return id;
 	}
 
@@ -91,7 +87,9 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 *            The trace ID to store in a thread-local way.
 	 */
 	public final void storeThreadLocalTraceId(final long traceId) {
-		this.threadLocalTraceId.set(traceId);
+		final ThreadContext context = ThreadContext.get();
+		context.traceId = traceId;
+		context.traceIdRegistered = true;
 	}
 
 	/**
@@ -100,18 +98,18 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 * @return the traceid. -1 if no curTraceId has been registered for this thread.
 	 */
 	public final long recallThreadLocalTraceId() {
-		final Long traceIdObj = this.threadLocalTraceId.get();
-		if (traceIdObj == null) {
+		final ThreadContext context = ThreadContext.get();
+		if (!context.traceIdRegistered) {
 			return -1;
 		}
-		return traceIdObj;
+		return context.traceId;
 	}
 
 	/**
 	 * This method unsets a previously registered traceid.
 	 */
 	public final void unsetThreadLocalTraceId() {
-		this.threadLocalTraceId.remove();
+		ThreadContext.get().traceIdRegistered = false;
 	}
 
 	/**
@@ -121,7 +119,9 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 *            The execution order index to register.
 	 */
 	public final void storeThreadLocalEOI(final int eoi) {
-		this.threadLocalEoi.set(eoi);
+		final ThreadContext context = ThreadContext.get();
+		context.eoi = eoi;
+		context.eoiRegistered = true;
 	}
 
 	/**
@@ -130,14 +130,12 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 * @return Increments the thread local execution order index and returns it.
 	 */
 	public final int incrementAndRecallThreadLocalEOI() {
-		final Integer curEoi = this.threadLocalEoi.get();
-		if (curEoi == null) {
+		final ThreadContext context = ThreadContext.get();
+		if (!context.eoiRegistered) {
 			LOGGER.error("eoi has not been registered before");
 			return -1;
 		}
-		final int newEoi = curEoi + 1;
-		this.threadLocalEoi.set(newEoi);
-		return newEoi;
+		return ++context.eoi;
 	}
 
 	/**
@@ -146,19 +144,19 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 * @return the sessionid. -1 if no curEoi registered.
 	 */
 	public final int recallThreadLocalEOI() {
-		final Integer curEoi = this.threadLocalEoi.get();
-		if (curEoi == null) {
+		final ThreadContext context = ThreadContext.get();
+		if (!context.eoiRegistered) {
 			LOGGER.error("eoi has not been registered before");
 			return -1;
 		}
-		return curEoi;
+		return context.eoi;
 	}
 
 	/**
 	 * This method unsets a previously registered traceid.
 	 */
 	public final void unsetThreadLocalEOI() {
-		this.threadLocalEoi.remove();
+		ThreadContext.get().eoiRegistered = false;
 	}
 
 	/**
@@ -169,7 +167,9 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 *            The execution stack size to store.
 	 */
 	public final void storeThreadLocalESS(final int ess) {
-		this.threadLocalEss.set(ess);
+		final ThreadContext context = ThreadContext.get();
+		context.ess = ess;
+		context.essRegistered = true;
 	}
 
 	/**
@@ -178,13 +178,12 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 * @return The current execution stack size, before the incrementation.
 	 */
 	public final int recallAndIncrementThreadLocalESS() {
-		final Integer curEss = this.threadLocalEss.get();
-		if (curEss == null) {
+		final ThreadContext context = ThreadContext.get();
+		if (!context.essRegistered) {
 			LOGGER.error("ess has not been registered before");
 			return -1;
 		}
-		this.threadLocalEss.set(curEss + 1);
-		return curEss;
+		return context.ess++;
 	}
 
 	/**
@@ -193,18 +192,18 @@ public enum ControlFlowRegistry { // Singleton (Effective Java #3)
 	 * @return the sessionid. -1 if no curEss registered.
 	 */
 	public final int recallThreadLocalESS() {
-		final Integer ess = this.threadLocalEss.get();
-		if (ess == null) {
+		final ThreadContext context = ThreadContext.get();
+		if (!context.essRegistered) {
 			LOGGER.error("ess has not been registered before");
 			return -1;
 		}
-		return ess;
+		return context.ess;
 	}
 
 	/**
 	 * This method unsets a previously registered curEss.
 	 */
 	public final void unsetThreadLocalESS() {
-		this.threadLocalEss.remove();
+		ThreadContext.get().essRegistered = false;
 	}
 }
@@ -0,0 +1,123 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.registry;
+
+import java.util.Arrays;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+
+/**
+ * Monitoring state of a single thread, shared by the {@link ControlFlowRegistry} and the {@link TraceRegistry}: the
+ * control flow values of the operation execution probes, and the current trace, the array based stack of enclosing
+ * traces, and the split points of the flow probes. Hence, a probe looks up one thread-local object only, and values
+ * are stored in primitive fields without boxing. Values are only valid while they are registered.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+final class ThreadContext {
+
+	private static final int INITIAL_DEPTH = 4;
+
+	private static final ThreadLocal<ThreadContext> CONTEXT = new ThreadLocal<ThreadContext>() {
+		@Override
+		protected ThreadContext initialValue() {
+			return new ThreadContext();
+		}
+	};
+
+	// control flow of the ControlFlowRegistry
+
+	long traceId; // NOPMD (package-private)
+	boolean traceIdRegistered; // NOPMD (package-private)
+	int eoi; // NOPMD (package-private)
+	boolean eoiRegistered; // NOPMD (package-private)
+	int ess; // NOPMD (package-private)
+	boolean essRegistered; // NOPMD (package-private)
+
+	// traces of the TraceRegistry
+
+	/** the current trace; null if new trace. */
+	TraceMetadata current; // NOPMD (package-private)
+	/** number of enclosing traces. */
+	int depth; // NOPMD (package-private)
+	/** number of nested registrations of an unsampled trace; 0 if no unsampled trace is active. */
+	int unsampledDepth; // NOPMD (package-private)
+
+	/** split point for the next trace of this thread; only valid while registered. */
+	long splitTraceId; // NOPMD (package-private)
+	int splitOrderId; // NOPMD (package-private)
+	boolean splitPointRegistered; // NOPMD (package-private)
+
+	private TraceMetadata[] enclosingTraces = new TraceMetadata[INITIAL_DEPTH];
+	/** array based stack of split points replaced by tasks; an unregistered split point is saved with order id -1. */
+	private long[] savedSplitTraceIds = new long[INITIAL_DEPTH];
+	private int[] savedSplitOrderIds = new int[INITIAL_DEPTH];
+	private int savedSplitPoints;
+
+	private ThreadContext() {
+		// nothing registered yet
+	}
+
+	/**
+	 * @return the context of the current thread
+	 */
+	static ThreadContext get() { // NOPMD (package-private)
+		return CONTEXT.get();
+	}
+
+	void push(final TraceMetadata trace) { // NOPMD (package-private)
+		if (this.depth == this.enclosingTraces.length) {
+			this.enclosingTraces = Arrays.copyOf(this.enclosingTraces, this.depth * 2);
+		}
+		this.enclosingTraces[this.depth++] = trace;
+	}
+
+	TraceMetadata pop() { // NOPMD (package-private)
+		final TraceMetadata trace = this.enclosingTraces[--this.depth];
+		this.enclosingTraces[this.depth] = null; // do not retain finished traces
+		return trace;
+	}
+
+	void setSplitPoint(final long traceId, final int orderId) { // NOPMD (package-private)
+		this.splitTraceId = traceId;
+		this.splitOrderId = orderId;
+		this.splitPointRegistered = true;
+	}
+
+	void saveSplitPoint() { // NOPMD (package-private)
+		if (this.savedSplitPoints == this.savedSplitTraceIds.length) {
+			this.savedSplitTraceIds = Arrays.copyOf(this.savedSplitTraceIds, this.savedSplitPoints * 2);
+			this.savedSplitOrderIds = Arrays.copyOf(this.savedSplitOrderIds, this.savedSplitPoints * 2);
+		}
+		this.savedSplitTraceIds[this.savedSplitPoints] = this.splitTraceId;
+		this.savedSplitOrderIds[this.savedSplitPoints] = this.splitPointRegistered ? this.splitOrderId : -1; // NOCS
+		this.savedSplitPoints++;
+	}
+
+	void restoreSplitPoint() { // NOPMD (package-private)
+		if (this.savedSplitPoints == 0) { // unbalanced restore
+			this.splitPointRegistered = false;
+			return;
+		}
+		this.savedSplitPoints--;
+		this.splitTraceId = this.savedSplitTraceIds[this.savedSplitPoints];
+		this.splitOrderId = this.savedSplitOrderIds[this.savedSplitPoints];
+		this.splitPointRegistered = this.splitOrderId != -1;
+	}
+}
@@ -16,9 +16,12 @@
 
 package kieker.monitoring.core.registry;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.security.SecureRandom;
-import java.util.Stack;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
@@ -26,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import kieker.common.record.flow.trace.ApplicationTraceMetadata;
 import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.monitoring.core.controller.IMonitoringController;
 import kieker.monitoring.core.controller.MonitoringController;
 
 /**
@@ -44,14 +48,13 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 	/** the hostname is final after the instantiation of the monitoring controller. */
 	private final String hostname = MonitoringController.getInstance().getHostname();
 
-	/** the current trace; null if new trace. */
-	private final ThreadLocal<TraceMetadata> traceStorage = new ThreadLocal<>();
+	/** used to publish thread-local staged records on trace end. */
+	private final IMonitoringController monitoringController = MonitoringController.getInstance();
 
-	/** used to store the stack of enclosing traces; null if no sub trace created yet. */
-	private final ThreadLocal<Stack<TraceMetadata>> enclosingTraceStack = new ThreadLocal<>();
-
-	/** store the parent Trace. */
-	private final WeakHashMap<Thread, TracePoint> parentTrace = new WeakHashMap<>();
+	/** store the parent Trace; the threads are weakly referenced. */
+	private final ConcurrentMap<ThreadKey, TracePoint> parentTrace = new ConcurrentHashMap<>();
+	/** receives the keys of terminated threads. */
+	private final ReferenceQueue<Thread> terminatedThreads = new ReferenceQueue<>();
 
 	private final long getNewId() {
 		return this.unique | this.nextTraceId.getAndIncrement();
@@ -64,7 +67,7 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 	 *         Trace object or null
 	 */
 	public final TraceMetadata getTrace() {
-		return this.traceStorage.get();
+		return ThreadContext.get().current;
 	}
 
 	/**
@@ -74,26 +77,69 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 	 *         Trace object
 	 */
 	public final ApplicationTraceMetadata registerTrace() {
-		final TraceMetadata enclosingTrace = this.getTrace();
-		if (enclosingTrace != null) { // we create a subtrace
-			Stack<TraceMetadata> localTraceStack = this.enclosingTraceStack.get();
-			if (localTraceStack == null) {
-				localTraceStack = new Stack<>();
-				this.enclosingTraceStack.set(localTraceStack);
+		final ThreadContext context = ThreadContext.get();
+		final Thread thread = Thread.currentThread();
+		this.lookupSplitPoint(context, thread);
+		return this.registerTrace(context, thread);
+	}
+
+	/**
+	 * This creates a new unique Trace object and registers it, if the trace is sampled by the monitoring controller,
+	 * see {@link IMonitoringController#sampleTrace()}. The decision is made for outermost traces only; sub traces
+	 * of a sampled trace and traces continuing a split point are always sampled, sub traces of an unsampled trace are
+	 * never sampled. Each call must be matched by a call of {@link #unregisterTrace()}, whether the trace is sampled
+	 * or not.
+	 *
+	 * @return
+	 *         Trace object or null if the trace is not sampled, i.e., the probe must not create any records
+	 *
+	 * @since 2.0.0
+	 */
+	public final ApplicationTraceMetadata registerSampledTrace() {
+		final ThreadContext context = ThreadContext.get();
+		if (context.current == null) {
+			if (context.unsampledDepth > 0) { // inside of an unsampled trace
+				context.unsampledDepth++;
+				return null;
+			}
+			final Thread thread = Thread.currentThread();
+			this.lookupSplitPoint(context, thread);
+			if (!context.splitPointRegistered && !this.monitoringController.sampleTrace()) {
+				context.unsampledDepth = 1;
+				return null;
 			}
-			localTraceStack.push(enclosingTrace);
+			return this.registerTrace(context, thread);
+		}
+		return this.registerTrace(context, Thread.currentThread());
+	}
+
+	/**
+	 * Looks for a split point registered by the thread which started this thread.
+	 */
+	private void lookupSplitPoint(final ThreadContext context, final Thread thread) {
+		if (!context.splitPointRegistered) {
+			final TracePoint tp = this.getAndRemoveParentTraceId(thread);
+			if (tp != null) {
+				context.setSplitPoint(tp.traceId, tp.orderId);
+			}
+		}
+	}
+
+	private ApplicationTraceMetadata registerTrace(final ThreadContext context, final Thread thread) {
+		final TraceMetadata enclosingTrace = context.current;
+		if (enclosingTrace != null) { // we create a subtrace
+			context.push(enclosingTrace);
 		}
-		final Thread thread = Thread.currentThread();
-		final TracePoint tp = this.getAndRemoveParentTraceId(thread);
 		final long traceId = this.getNewId();
 		final long parentTraceId;
 		final int parentOrderId;
-		if (tp != null) { // we have a known split point
-			if ((enclosingTrace != null) && (enclosingTrace.getTraceId() != tp.traceId)) {
-				LOGGER.error("Enclosing trace does not match split point. Found: {} expected: {}", enclosingTrace.getTraceId(), enclosingTrace.getTraceId());
+		if (context.splitPointRegistered) { // we have a known split point
+			context.splitPointRegistered = false;
+			if ((enclosingTrace != null) && (enclosingTrace.getTraceId() != context.splitTraceId)) {
+				LOGGER.error("Enclosing trace does not match split point. Found: {} expected: {}", enclosingTrace.getTraceId(), context.splitTraceId);
 			}
-			parentTraceId = tp.traceId;
-			parentOrderId = tp.orderId;
+			parentTraceId = context.splitTraceId;
+			parentOrderId = context.splitOrderId;
 		} else if (enclosingTrace != null) { // we create a sub trace without a known split point
 			parentTraceId = enclosingTrace.getTraceId();
 			parentOrderId = -1; // we could instead get the last orderId ... But this would make it harder to distinguish from known split points
@@ -105,7 +151,7 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 		final String applicationName = MonitoringController.getInstance().getApplicationName();
 		final ApplicationTraceMetadata trace = new ApplicationTraceMetadata(traceId, thread.getId(), sessionId, this.hostname, parentTraceId, parentOrderId,
 				applicationName);
-		this.traceStorage.set(trace);
+		context.current = trace;
 		return trace;
 	}
 
@@ -113,25 +159,25 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 	 * Unregisters the current Trace object.
 	 *
 	 * Future calls of getTrace() will either return null or the enclosing trace object.
+	 * If the outermost trace is unregistered, records staged by this thread are published to the writer.
 	 */
 	public final void unregisterTrace() {
-		final Stack<TraceMetadata> localTraceStack = this.enclosingTraceStack.get();
-		if (localTraceStack != null) { // we might have an enclosing trace and and are able to restore it
-			if (!localTraceStack.isEmpty()) { // we actually found something
-				this.traceStorage.set(localTraceStack.pop());
-			} else {
-				this.enclosingTraceStack.remove();
-				this.traceStorage.remove();
-			}
+		final ThreadContext context = ThreadContext.get();
+		if ((context.current == null) && (context.unsampledDepth > 0)) { // leaving a level of an unsampled trace
+			context.unsampledDepth--;
+		} else if (context.depth > 0) { // we have an enclosing trace and are able to restore it
+			context.current = context.pop();
 		} else {
-			this.traceStorage.remove();
+			context.current = null;
+			this.monitoringController.flushThreadLocalRecords();
 		}
 	}
 
 	private final TracePoint getAndRemoveParentTraceId(final Thread t) {
-		synchronized (this) {
-			return this.parentTrace.remove(t);
+		if (this.parentTrace.isEmpty()) { // common case, avoids creating a lookup key
+			return null;
 		}
+		return this.parentTrace.remove(new ThreadKey(t, null));
 	}
 
 	/**
@@ -146,8 +192,78 @@ public enum TraceRegistry { // Singleton (Effective Java #3)
 	 *            the parent order id
 	 */
 	public final void setParentTraceId(final Thread t, final long traceId, final int orderId) {
-		synchronized (this) {
-			this.parentTrace.put(t, new TracePoint(traceId, orderId));
+		this.expungeTerminatedThreads();
+		this.parentTrace.put(new ThreadKey(t, this.terminatedThreads), new TracePoint(traceId, orderId));
+	}
+
+	/**
+	 * Sets the parent for the next trace created by the current thread. In contrast to
+	 * {@link #setParentTraceId(Thread, long, int)}, the split point is stored in the context of the current thread.
+	 * This method should be used by tasks which are submitted to executors and restore the context of the submitting
+	 * thread before their execution. A split point which has not been used yet, e.g., of a task executing this task
+	 * synchronously, is saved and restored by {@link #restoreThreadLocalParentTraceId()} at the end of the task.
+	 *
+	 * @param traceId
+	 *            the parent trace id
+	 * @param orderId
+	 *            the parent order id
+	 */
+	public final void setThreadLocalParentTraceId(final long traceId, final int orderId) {
+		final ThreadContext context = ThreadContext.get();
+		context.saveSplitPoint();
+		context.setSplitPoint(traceId, orderId);
+	}
+
+	/**
+	 * Restores the split point of the current thread which was replaced by the last call of
+	 * {@link #setThreadLocalParentTraceId(long, int)}. Hence, an unused split point of a task does not affect
+	 * later tasks of a pooled thread, while an unused split point of an enclosing task is kept.
+	 */
+	public final void restoreThreadLocalParentTraceId() {
+		ThreadContext.get().restoreSplitPoint();
+	}
+
+	/**
+	 * Removes the split points of threads which have been garbage collected before creating a trace.
+	 */
+	private void expungeTerminatedThreads() {
+		Reference<? extends Thread> reference = this.terminatedThreads.poll();
+		while (reference != null) {
+			this.parentTrace.remove(reference);
+			reference = this.terminatedThreads.poll();
+		}
+	}
+
+	/**
+	 * Weak reference to a thread which is used as key of the split points. Keys are equal if they refer to the same thread.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class ThreadKey extends WeakReference<Thread> {
+		private final int hash;
+
+		public ThreadKey(final Thread thread, final ReferenceQueue<Thread> queue) {
+			super(thread, queue);
+			this.hash = System.identityHashCode(thread);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ThreadKey)) {
+				return false;
+			}
+			final Thread thread = this.get();
+			return (thread != null) && (thread == ((ThreadKey) obj).get()); // NOPMD (compare threads by ==)
 		}
 	}
 
@@ -0,0 +1,245 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.signaturePattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable matcher for an ordered list of include and exclude patterns. The last matching pattern determines
+ * whether a signature is activated. If no pattern matches, the signature is activated.
+ * <br>
+ * Instead of evaluating every pattern for every signature, the patterns are organized in a trie on the literal
+ * package and class name segments they start with, e.g., {@code org.example} for {@code * org.example.*.get*(..)}.
+ * For a signature, only the patterns along the path of its package and class name segments are candidates, and
+ * their regular expressions are evaluated from the last to the first pattern until one matches. Patterns without
+ * such a literal prefix, i.e., regular expression patterns and patterns starting with a wildcard, are candidates
+ * for all signatures.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class PatternMatcher {
+
+	private static final int[] NO_PATTERNS = new int[0];
+
+	private final List<PatternEntry> patternEntries;
+	private final Node root;
+
+	/**
+	 * Create a matcher for the given patterns.
+	 *
+	 * @param patternEntries
+	 *            patterns in the order of their evaluation, i.e., later patterns override earlier ones
+	 */
+	public PatternMatcher(final List<PatternEntry> patternEntries) {
+		this.patternEntries = Collections.unmodifiableList(new ArrayList<>(patternEntries));
+		this.root = new Node();
+		for (int i = 0; i < this.patternEntries.size(); i++) {
+			Node node = this.root;
+			for (final String segment : PatternMatcher.getLiteralPrefix(this.patternEntries.get(i).getStrPattern())) {
+				node = node.getOrCreateChild(segment);
+			}
+			node.addPattern(i);
+		}
+		this.root.seal();
+	}
+
+	/**
+	 * @return an empty matcher which activates all signatures
+	 */
+	public static PatternMatcher empty() {
+		return new PatternMatcher(Collections.<PatternEntry>emptyList());
+	}
+
+	/**
+	 * @return the patterns of this matcher in the order of their evaluation
+	 */
+	public List<PatternEntry> getPatternEntries() {
+		return this.patternEntries;
+	}
+
+	/**
+	 * Create a new matcher with an additional pattern, which overrides all existing patterns.
+	 *
+	 * @param patternEntry
+	 *            the new pattern
+	 * @return the new matcher
+	 */
+	public PatternMatcher append(final PatternEntry patternEntry) {
+		final List<PatternEntry> newPatternEntries = new ArrayList<>(this.patternEntries.size() + 1);
+		newPatternEntries.addAll(this.patternEntries);
+		newPatternEntries.add(patternEntry);
+		return new PatternMatcher(newPatternEntries);
+	}
+
+	/**
+	 * Evaluates the patterns for the given signature. The last matching pattern determines the result.
+	 * If nothing matches, the default is true!
+	 *
+	 * @param signature
+	 *            the signature
+	 * @return true if the signature is activated
+	 */
+	public boolean isActivated(final String signature) {
+		final int[][] candidates = this.collectCandidates(signature);
+		// merge the candidate lists in descending order; each list is sorted in ascending order
+		final int[] positions = new int[candidates.length];
+		for (int i = 0; i < candidates.length; i++) {
+			positions[i] = candidates[i].length - 1;
+		}
+		while (true) {
+			int list = -1;
+			int index = -1;
+			for (int i = 0; i < candidates.length; i++) {
+				if ((positions[i] >= 0) && (candidates[i][positions[i]] > index)) {
+					index = candidates[i][positions[i]];
+					list = i;
+				}
+			}
+			if (list == -1) {
+				return true;
+			}
+			positions[list]--;
+			final PatternEntry patternEntry = this.patternEntries.get(index);
+			if (patternEntry.getPattern().matcher(signature).matches()) {
+				return patternEntry.isActivated();
+			}
+		}
+	}
+
+	/**
+	 * Collects the pattern lists of all nodes along the package and class name segments of the signature.
+	 */
+	private int[][] collectCandidates(final String signature) {
+		final List<int[]> candidates = new ArrayList<>();
+		candidates.add(this.root.patterns);
+
+		final int parenthesis = signature.indexOf('(');
+		if (parenthesis > 0) {
+			int start = parenthesis;
+			while ((start > 0) && !Character.isWhitespace(signature.charAt(start - 1))) {
+				start--;
+			}
+			// the last segment before the parenthesis is the operation name
+			final int end = signature.lastIndexOf('.', parenthesis);
+			Node node = this.root;
+			while ((node != null) && (start < end)) {
+				int separator = signature.indexOf('.', start);
+				if (separator > end) {
+					separator = end;
+				}
+				node = node.getChild(signature.substring(start, separator));
+				if (node != null) {
+					candidates.add(node.patterns);
+				}
+				start = separator + 1;
+			}
+		}
+
+		return candidates.toArray(new int[candidates.size()][]);
+	}
+
+	/**
+	 * Determines the literal package and class name segments a pattern starts with. Signatures matched by the pattern
+	 * must start with these segments, i.e., the result is empty for patterns without such a prefix.
+	 *
+	 * @param strPattern
+	 *            a valid pattern
+	 * @return list of literal segments
+	 */
+	static List<String> getLiteralPrefix(final String strPattern) { // NOPMD package for test
+		final String trimPattern = strPattern.trim();
+		if ((trimPattern.length() == 0) || (trimPattern.charAt(0) == SignatureFactory.PATTERN_PREFIX)) {
+			return Collections.emptyList();
+		}
+		final int parenthesis = trimPattern.indexOf('(');
+		if (parenthesis == -1) { // e.g., "*"
+			return Collections.emptyList();
+		}
+		final String[] tokens = trimPattern.substring(0, parenthesis).trim().split("\\s+");
+		final String fqName = tokens[tokens.length - 1];
+		final int index = fqName.lastIndexOf('.');
+		if (index == -1) {
+			return Collections.emptyList();
+		}
+
+		final List<String> prefix = new ArrayList<>();
+		for (final String segment : fqName.substring(0, index).split("\\.", -1)) {
+			if ((segment.length() == 0) || (segment.indexOf('*') != -1) || (segment.indexOf('[') != -1)) {
+				// wildcards, i.e., "..", "*", and array types end the literal prefix
+				break;
+			}
+			prefix.add(segment);
+		}
+		return prefix;
+	}
+
+	/**
+	 * Node of the segment trie.
+	 */
+	private static final class Node {
+		private Map<String, Node> children = new HashMap<>(); // NOPMD (no concurrent access after sealing)
+		private List<Integer> patternList = new ArrayList<>();
+		private int[] patterns = NO_PATTERNS;
+
+		public Node() {
+			// empty node
+		}
+
+		public Node getOrCreateChild(final String segment) {
+			Node child = this.children.get(segment);
+			if (child == null) {
+				child = new Node();
+				this.children.put(segment, child);
+			}
+			return child;
+		}
+
+		public Node getChild(final String segment) {
+			return this.children.get(segment);
+		}
+
+		public void addPattern(final int index) {
+			this.patternList.add(index);
+		}
+
+		/**
+		 * Converts the pattern lists of this node and its descendants into arrays.
+		 */
+		public void seal() {
+			if (!this.patternList.isEmpty()) {
+				this.patterns = new int[this.patternList.size()];
+				for (int i = 0; i < this.patterns.length; i++) {
+					this.patterns[i] = this.patternList.get(i);
+				}
+			}
+			this.patternList = null;
+			if (this.children.isEmpty()) {
+				this.children = Collections.emptyMap();
+			} else {
+				for (final Node child : this.children.values()) {
+					child.seal();
+				}
+			}
+		}
+	}
+}
@@ -20,12 +20,14 @@ import java.lang.reflect.Modifier;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.ConstructorSignature;
 import org.aspectj.lang.reflect.MethodSignature;
 
+import kieker.monitoring.core.registry.TraceRegistry;
 import kieker.monitoring.probe.IMonitoringProbe;
 
 /**
@@ -36,7 +38,7 @@ import kieker.monitoring.probe.IMonitoringProbe;
 @Aspect
 public abstract class AbstractAspectJProbe implements IMonitoringProbe { // NOPMD
 
-	private final ConcurrentMap<Signature, String> signatureCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Signature, SignatureDescriptor> signatureCache = new ConcurrentHashMap<>();
 
 	// Pointcuts should not be final!
 
@@ -65,6 +67,26 @@ public abstract class AbstractAspectJProbe implements IMonitoringProbe { // NOPM
 	@Pointcut("!getter() && !setter()")
 	public void noGetterAndSetter() {} // NOPMD (Aspect)
 
+	/**
+	 * Executes the join point inside of a trace which is not sampled, i.e., without creating any records, and
+	 * unregisters the trace afterwards.
+	 *
+	 * @param thisJoinPoint
+	 *            the join point
+	 * @return the result of the join point
+	 * @throws Throwable
+	 *             any exception of the join point
+	 *
+	 * @since 2.0.0
+	 */
+	protected static Object proceedUnsampledTrace(final ProceedingJoinPoint thisJoinPoint) throws Throwable { // NOCS (Throwable)
+		try {
+			return thisJoinPoint.proceed();
+		} finally {
+			TraceRegistry.INSTANCE.unregisterTrace();
+		}
+	}
+
 	/**
 	 * Better handling of AspectJ Signature.toLongString (especially with constructors).
 	 *
@@ -73,58 +95,81 @@ public abstract class AbstractAspectJProbe implements IMonitoringProbe { // NOPM
 	 * @return LongString representation of the signature
 	 */
 	protected String signatureToLongString(final Signature sig) {
-		String signatureString = this.signatureCache.get(sig);
-		if (null != signatureString) {
-			return signatureString;
-		} else {
-			if (sig instanceof MethodSignature) {
-				final MethodSignature signature = (MethodSignature) sig;
-				final StringBuilder sb = new StringBuilder(256);
-				// modifiers
-				final String modString = Modifier.toString(signature.getModifiers());
-				sb.append(modString);
-				if (modString.length() > 0) {
-					sb.append(' ');
-				}
-				// return
-				this.addType(sb, signature.getReturnType());
-				sb.append(' ')
-						.append(signature.getDeclaringTypeName()) // component
-						.append('.')
-						.append(signature.getName()) // name
-						.append('(');
-				// parameters
-
-				this.addTypeList(sb, signature.getParameterTypes());
-				sb.append(')');
-				// throws
-				// this.addTypeList(sb, signature.getExceptionTypes());
-				signatureString = sb.toString();
-			} else if (sig instanceof ConstructorSignature) {
-				final ConstructorSignature signature = (ConstructorSignature) sig;
-				final StringBuilder sb = new StringBuilder(256);
-				// modifiers
-				final String modString = Modifier.toString(signature.getModifiers());
-				sb.append(modString);
-				if (modString.length() > 0) {
-					sb.append(' ');
-				}
-				// component
-				sb.append(signature.getDeclaringTypeName())
-						.append('.')
-						.append(signature.getName())// name
-						.append('(');
-				// parameters
-				this.addTypeList(sb, signature.getParameterTypes());
-				sb.append(')');
-				// throws
-				// this.addTypeList(sb, signature.getExceptionTypes());
-				signatureString = sb.toString();
-			} else {
-				signatureString = sig.toLongString();
+		return this.getSignatureDescriptor(sig).getSignature();
+	}
+
+	/**
+	 * Returns the descriptor of the given signature. The descriptor is created on the first execution of a join point
+	 * and reused afterwards. AspectJ uses one signature object per join point, hence the lookup hashes object identities only.
+	 *
+	 * @param sig
+	 *            an AspectJ Signature
+	 * @return the descriptor of the signature
+	 *
+	 * @since 2.0.0
+	 */
+	protected SignatureDescriptor getSignatureDescriptor(final Signature sig) {
+		final SignatureDescriptor descriptor = this.signatureCache.get(sig);
+		if (null != descriptor) {
+			return descriptor;
+		}
+		final SignatureDescriptor newDescriptor = new SignatureDescriptor(this.createLongString(sig), sig.getDeclaringType(),
+				sig.getDeclaringTypeName());
+		final SignatureDescriptor existingDescriptor = this.signatureCache.putIfAbsent(sig, newDescriptor);
+		if (null != existingDescriptor) {
+			return existingDescriptor;
+		}
+		return newDescriptor;
+	}
+
+	private String createLongString(final Signature sig) {
+		final String signatureString;
+		if (sig instanceof MethodSignature) {
+			final MethodSignature signature = (MethodSignature) sig;
+			final StringBuilder sb = new StringBuilder(256);
+			// modifiers
+			final String modString = Modifier.toString(signature.getModifiers());
+			sb.append(modString);
+			if (modString.length() > 0) {
+				sb.append(' ');
 			}
+			// return
+			this.addType(sb, signature.getReturnType());
+			sb.append(' ')
+					.append(signature.getDeclaringTypeName()) // component
+					.append('.')
+					.append(signature.getName()) // name
+					.append('(');
+			// parameters
+
+			this.addTypeList(sb, signature.getParameterTypes());
+			sb.append(')');
+			// throws
+			// this.addTypeList(sb, signature.getExceptionTypes());
+			signatureString = sb.toString();
+		} else if (sig instanceof ConstructorSignature) {
+			final ConstructorSignature signature = (ConstructorSignature) sig;
+			final StringBuilder sb = new StringBuilder(256);
+			// modifiers
+			final String modString = Modifier.toString(signature.getModifiers());
+			sb.append(modString);
+			if (modString.length() > 0) {
+				sb.append(' ');
+			}
+			// component
+			sb.append(signature.getDeclaringTypeName())
+					.append('.')
+					.append(signature.getName())// name
+					.append('(');
+			// parameters
+			this.addTypeList(sb, signature.getParameterTypes());
+			sb.append(')');
+			// throws
+			// this.addTypeList(sb, signature.getExceptionTypes());
+			signatureString = sb.toString();
+		} else {
+			signatureString = sig.toLongString();
 		}
-		this.signatureCache.putIfAbsent(sig, signatureString);
 		return signatureString;
 	}
 
@@ -0,0 +1,116 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.aspectj;
+
+import kieker.monitoring.core.controller.IProbeController;
+import kieker.monitoring.writer.encoding.StringInterner;
+
+/**
+ * Describes the signature of a join point. The descriptor is created once per join point signature and holds
+ * the long string representation of the signature, its interned ids and the last known activation state of the probe.
+ * <br>
+ * The activation state is tagged with the activation version of the probe controller. It is only re-evaluated
+ * if probes have been activated or deactivated in the meantime. Hence, the hot path of a probe neither builds nor
+ * hashes signature strings.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class SignatureDescriptor {
+
+	/** activation version shifted left by one bit; the lowest bit is the activation state. Initially no version matches. */
+	private static final long UNKNOWN_ACTIVATION_STATE = -1L;
+
+	private final String signature;
+	private final int signatureId;
+	private final Class<?> declaringType;
+	private final String declaringTypeName;
+	private final int declaringTypeId;
+
+	private volatile long activationState = UNKNOWN_ACTIVATION_STATE;
+
+	/**
+	 * Create a new descriptor.
+	 *
+	 * @param signature
+	 *            long string representation of the signature
+	 * @param declaringType
+	 *            declaring type of the signature, may be null
+	 * @param declaringTypeName
+	 *            name of the declaring type of the signature
+	 */
+	public SignatureDescriptor(final String signature, final Class<?> declaringType, final String declaringTypeName) {
+		final StringInterner interner = StringInterner.INSTANCE;
+		this.signature = signature;
+		this.signatureId = interner.intern(signature);
+		this.declaringType = declaringType;
+		this.declaringTypeName = declaringTypeName;
+		this.declaringTypeId = interner.intern(declaringTypeName);
+	}
+
+	public String getSignature() {
+		return this.signature;
+	}
+
+	/**
+	 * @return the {@link StringInterner} id of the signature
+	 */
+	public int getSignatureId() {
+		return this.signatureId;
+	}
+
+	public Class<?> getDeclaringType() {
+		return this.declaringType;
+	}
+
+	public String getDeclaringTypeName() {
+		return this.declaringTypeName;
+	}
+
+	/**
+	 * @return the {@link StringInterner} id of the declaring type name
+	 */
+	public int getDeclaringTypeId() {
+		return this.declaringTypeId;
+	}
+
+	/**
+	 * Tests if the probe of this signature is active. The probe controller is only queried if the activation
+	 * version has changed since the last query.
+	 *
+	 * @param probeController
+	 *            the probe controller
+	 * @return true if the probe with this signature is active
+	 */
+	public boolean isProbeActivated(final IProbeController probeController) {
+		// read the version before evaluating the patterns; a concurrent change leads to a re-evaluation on the next call
+		final long version = probeController.getProbeActivationVersion();
+		final long state = this.activationState;
+		if ((state >>> 1) == version) {
+			return (state & 1L) != 0;
+		}
+		final boolean activated = probeController.isProbeActivated(this.signature);
+		this.activationState = (version << 1) | (activated ? 1L : 0L); // NOCS (inline conditional)
+		return activated;
+	}
+
+	@Override
+	public String toString() {
+		return this.signature;
+	}
+}
@@ -0,0 +1,166 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.aspectj.flow.concurrency;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.monitoring.probe.aspectj.AbstractAspectJProbe;
+import kieker.monitoring.probe.manual.TraceContextPropagation;
+
+/**
+ * Propagates the trace of the calling thread to asynchronous {@link java.util.concurrent.CompletableFuture} tasks,
+ * i.e., to {@code supplyAsync}, {@code runAsync}, and all {@code *Async} stages. The executors used by these methods,
+ * e.g., the common fork join pool, are called within the JDK and are therefore not covered by the {@link ExecutorAspect}.
+ * <br>
+ * Stages which are executed synchronously run in the thread which completes the preceding stage and are not split.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@Aspect
+public class CompletableFutureAspect extends AbstractAspectJProbe {
+	private static final IMonitoringController CTRLINST = MonitoringController.getInstance();
+
+	private static final String SIGNATURE = "public static java.util.concurrent.CompletableFuture "
+			+ "java.util.concurrent.CompletableFuture.supplyAsync(java.util.function.Supplier)";
+
+	/**
+	 * Default constructor.
+	 */
+	public CompletableFutureAspect() {
+		// empty default constructor
+	}
+
+	@Around("call(* java.util.concurrent.CompletableFuture.supplyAsync(java.util.function.Supplier, ..)) "
+			+ "&& args(task, ..) && notWithinKieker()")
+	public Object supplyAsync(final ProceedingJoinPoint thisJoinPoint, final Supplier<?> task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapSupplier(task) });
+	}
+
+	@Around("(call(* java.util.concurrent.CompletableFuture.runAsync(java.lang.Runnable, ..)) "
+			+ "|| call(* java.util.concurrent.CompletionStage+.*Async(java.lang.Runnable, ..))) "
+			+ "&& args(task, ..) && notWithinKieker()")
+	public Object runAsync(final ProceedingJoinPoint thisJoinPoint, final Runnable task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapRunnable(task) });
+	}
+
+	// stages with the task as first parameter, e.g., thenApplyAsync, thenAcceptAsync, handleAsync, whenCompleteAsync
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.function.Function, ..)) && args(task, ..) && notWithinKieker()")
+	public Object functionAsync(final ProceedingJoinPoint thisJoinPoint, final Function<?, ?> task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapFunction(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.function.Consumer, ..)) && args(task, ..) && notWithinKieker()")
+	public Object consumerAsync(final ProceedingJoinPoint thisJoinPoint, final Consumer<?> task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapConsumer(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.function.BiFunction, ..)) && args(task, ..) && notWithinKieker()")
+	public Object biFunctionAsync(final ProceedingJoinPoint thisJoinPoint, final BiFunction<?, ?, ?> task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapBiFunction(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.function.BiConsumer, ..)) && args(task, ..) && notWithinKieker()")
+	public Object biConsumerAsync(final ProceedingJoinPoint thisJoinPoint, final BiConsumer<?, ?> task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapBiConsumer(task) });
+	}
+
+	// stages combining two stages with the task as second parameter, e.g., thenCombineAsync, applyToEitherAsync
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.concurrent.CompletionStage, java.lang.Runnable, ..)) "
+			+ "&& args(other, task, ..) && notWithinKieker()")
+	public Object runAfterAsync(final ProceedingJoinPoint thisJoinPoint, final Object other, final Runnable task) throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { other, TraceContextPropagation.wrapRunnable(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.concurrent.CompletionStage, java.util.function.Function, ..)) "
+			+ "&& args(other, task, ..) && notWithinKieker()")
+	public Object applyToEitherAsync(final ProceedingJoinPoint thisJoinPoint, final Object other, final Function<?, ?> task)
+			throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { other, TraceContextPropagation.wrapFunction(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.concurrent.CompletionStage, java.util.function.Consumer, ..)) "
+			+ "&& args(other, task, ..) && notWithinKieker()")
+	public Object acceptEitherAsync(final ProceedingJoinPoint thisJoinPoint, final Object other, final Consumer<?> task)
+			throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { other, TraceContextPropagation.wrapConsumer(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.concurrent.CompletionStage, java.util.function.BiFunction, ..)) "
+			+ "&& args(other, task, ..) && notWithinKieker()")
+	public Object combineAsync(final ProceedingJoinPoint thisJoinPoint, final Object other, final BiFunction<?, ?, ?> task)
+			throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { other, TraceContextPropagation.wrapBiFunction(task) });
+	}
+
+	@Around("call(* java.util.concurrent.CompletionStage+.*Async(java.util.concurrent.CompletionStage, java.util.function.BiConsumer, ..)) "
+			+ "&& args(other, task, ..) && notWithinKieker()")
+	public Object acceptBothAsync(final ProceedingJoinPoint thisJoinPoint, final Object other, final BiConsumer<?, ?> task)
+			throws Throwable { // NOCS (Throwable)
+		if (!CompletableFutureAspect.isActive()) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { other, TraceContextPropagation.wrapBiConsumer(task) });
+	}
+
+	private static boolean isActive() {
+		return CTRLINST.isMonitoringEnabled() && CTRLINST.isProbeActivated(SIGNATURE);
+	}
+}
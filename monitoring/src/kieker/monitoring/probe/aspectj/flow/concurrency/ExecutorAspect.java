@@ -0,0 +1,85 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.aspectj.flow.concurrency;
+
+import java.util.concurrent.Callable;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.monitoring.probe.aspectj.AbstractAspectJProbe;
+import kieker.monitoring.probe.manual.TraceContextPropagation;
+
+/**
+ * Propagates the trace of the submitting thread to tasks submitted to executors and to tasks started as virtual
+ * threads. In contrast to the {@link ThreadingAspect}, the split point travels with the task, i.e., it also works
+ * for pooled threads and does not require a lookup on trace creation.
+ * <br>
+ * The virtual thread pointcut only matches on JDK 21 or later. Threads created unstarted and started later are
+ * covered by the {@link ThreadingAspect}. Threads started by a <code>Thread.Builder</code> are not covered, as a
+ * pointcut naming this type cannot be resolved when the aspect is woven on earlier JDKs.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@Aspect
+public class ExecutorAspect extends AbstractAspectJProbe {
+	private static final IMonitoringController CTRLINST = MonitoringController.getInstance();
+
+	private static final String EXECUTOR_SIGNATURE = "public void java.util.concurrent.Executor.execute(java.lang.Runnable)";
+	private static final String VIRTUAL_THREAD_SIGNATURE = "public static java.lang.Thread java.lang.Thread.startVirtualThread(java.lang.Runnable)";
+
+	/**
+	 * Default constructor.
+	 */
+	public ExecutorAspect() {
+		// empty default constructor
+	}
+
+	@Around("(call(void java.util.concurrent.Executor+.execute(java.lang.Runnable)) "
+			+ "|| call(* java.util.concurrent.ExecutorService+.submit(java.lang.Runnable, ..)) "
+			+ "|| call(* java.util.concurrent.ScheduledExecutorService+.schedule*(java.lang.Runnable, ..))) "
+			+ "&& args(task, ..) && notWithinKieker()")
+	public Object submitRunnable(final ProceedingJoinPoint thisJoinPoint, final Runnable task) throws Throwable { // NOCS (Throwable)
+		if (!CTRLINST.isMonitoringEnabled() || !CTRLINST.isProbeActivated(EXECUTOR_SIGNATURE)) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapRunnable(task) });
+	}
+
+	@Around("(call(* java.util.concurrent.ExecutorService+.submit(java.util.concurrent.Callable)) "
+			+ "|| call(* java.util.concurrent.ScheduledExecutorService+.schedule(java.util.concurrent.Callable, ..))) "
+			+ "&& args(task, ..) && notWithinKieker()")
+	public Object submitCallable(final ProceedingJoinPoint thisJoinPoint, final Callable<?> task) throws Throwable { // NOCS (Throwable)
+		if (!CTRLINST.isMonitoringEnabled() || !CTRLINST.isProbeActivated(EXECUTOR_SIGNATURE)) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapCallable(task) });
+	}
+
+	@Around("call(java.lang.Thread java.lang.Thread.startVirtualThread(java.lang.Runnable)) && args(task) && notWithinKieker()")
+	public Object startVirtualThread(final ProceedingJoinPoint thisJoinPoint, final Runnable task) throws Throwable { // NOCS (Throwable)
+		if (!CTRLINST.isMonitoringEnabled() || !CTRLINST.isProbeActivated(VIRTUAL_THREAD_SIGNATURE)) {
+			return thisJoinPoint.proceed();
+		}
+		return thisJoinPoint.proceed(new Object[] { TraceContextPropagation.wrapRunnable(task) });
+	}
+}
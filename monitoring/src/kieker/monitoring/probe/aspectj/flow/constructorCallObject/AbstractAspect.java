@@ -78,7 +78,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -131,7 +134,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
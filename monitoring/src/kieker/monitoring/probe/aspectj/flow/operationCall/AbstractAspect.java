@@ -63,7 +63,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -100,7 +103,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -140,7 +146,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -178,7 +187,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -62,7 +62,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -102,7 +105,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -143,7 +149,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -183,7 +192,10 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
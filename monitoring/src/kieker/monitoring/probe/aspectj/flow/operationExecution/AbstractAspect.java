@@ -17,7 +17,6 @@
 package kieker.monitoring.probe.aspectj.flow.operationExecution;
 
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
@@ -30,6 +29,7 @@ import kieker.monitoring.core.controller.IMonitoringController;
 import kieker.monitoring.core.controller.MonitoringController;
 import kieker.monitoring.core.registry.TraceRegistry;
 import kieker.monitoring.probe.aspectj.AbstractAspectJProbe;
+import kieker.monitoring.probe.aspectj.SignatureDescriptor;
 import kieker.monitoring.timer.ITimeSource;
 
 /**
@@ -55,15 +55,19 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		if (!CTRLINST.isMonitoringEnabled()) {
 			return thisJoinPoint.proceed();
 		}
-		final String operationSignature = this.signatureToLongString(thisJoinPoint.getSignature());
-		if (!CTRLINST.isProbeActivated(operationSignature)) {
+		final SignatureDescriptor descriptor = this.getSignatureDescriptor(thisJoinPoint.getSignature());
+		if (!descriptor.isProbeActivated(CTRLINST)) {
 			return thisJoinPoint.proceed();
 		}
+		final String operationSignature = descriptor.getSignature();
 		// common fields
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
@@ -93,20 +97,23 @@ public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
 		if (!CTRLINST.isMonitoringEnabled()) {
 			return thisJoinPoint.proceed();
 		}
-		final Signature sig = thisJoinPoint.getSignature();
-		final String operationSignature = this.signatureToLongString(sig);
-		if (!CTRLINST.isProbeActivated(operationSignature)) {
+		final SignatureDescriptor descriptor = this.getSignatureDescriptor(thisJoinPoint.getSignature());
+		if (!descriptor.isProbeActivated(CTRLINST)) {
 			return thisJoinPoint.proceed();
 		}
+		final String operationSignature = descriptor.getSignature();
 		// common fields
 		TraceMetadata trace = TRACEREGISTRY.getTrace();
 		final boolean newTrace = trace == null;
 		if (newTrace) {
-			trace = TRACEREGISTRY.registerTrace();
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
 			CTRLINST.newMonitoringRecord(trace);
 		}
 		final long traceId = trace.getTraceId();
-		final String clazz = sig.getDeclaringTypeName();
+		final String clazz = descriptor.getDeclaringTypeName();
 		// measure before execution
 		CTRLINST.newMonitoringRecord(new BeforeOperationEvent(TIME.getTime(), traceId, trace.getNextOrderId(), operationSignature, clazz));
 		// execution of the called method
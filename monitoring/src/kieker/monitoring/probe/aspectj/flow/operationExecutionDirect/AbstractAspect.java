@@ -0,0 +1,133 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.aspectj.flow.operationExecutionDirect;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.common.record.flow.trace.operation.AfterOperationFailedEvent;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.monitoring.core.registry.TraceRegistry;
+import kieker.monitoring.probe.aspectj.AbstractAspectJProbe;
+import kieker.monitoring.probe.aspectj.SignatureDescriptor;
+import kieker.monitoring.timer.ITimeSource;
+import kieker.monitoring.writer.encoding.OperationEventEncoder;
+import kieker.monitoring.writer.encoding.StringInterner;
+
+/**
+ * Variant of the {@link kieker.monitoring.probe.aspectj.flow.operationExecution.AbstractAspect} which does not create
+ * record objects for before and after operation events. Instead, the events are encoded by the {@link OperationEventEncoder}
+ * and handed to the writer in chunks. The chunks of a thread are flushed at the end of each trace and before records
+ * which are not encoded, i.e., trace metadata and after operation failed events. Events of idle threads and of traces
+ * which are still running are flushed periodically and when the monitoring is terminated.
+ * <br>
+ * The written records are identical to those of the
+ * {@link kieker.monitoring.probe.aspectj.flow.operationExecution.AbstractAspect}, except that the logging timestamp
+ * equals the event timestamp.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+@Aspect
+public abstract class AbstractAspect extends AbstractAspectJProbe { // NOPMD
+	private static final IMonitoringController CTRLINST = MonitoringController.getInstance();
+	private static final ITimeSource TIME = CTRLINST.getTimeSource();
+	private static final TraceRegistry TRACEREGISTRY = TraceRegistry.INSTANCE;
+	private static final OperationEventEncoder ENCODER = OperationEventEncoder.INSTANCE;
+	private static final StringInterner INTERNER = StringInterner.INSTANCE;
+
+	/**
+	 * The pointcut for the monitored operations. Inheriting classes should extend the pointcut in order to find the correct executions of the methods (e.g. all
+	 * methods or only methods with specific annotations).
+	 */
+	@Pointcut
+	public abstract void monitoredOperation();
+
+	@Around("monitoredOperation() && this(thisObject) && notWithinKieker()")
+	public Object operation(final Object thisObject, final ProceedingJoinPoint thisJoinPoint) throws Throwable { // NOCS (Throwable)
+		if (!CTRLINST.isMonitoringEnabled()) {
+			return thisJoinPoint.proceed();
+		}
+		final SignatureDescriptor descriptor = this.getSignatureDescriptor(thisJoinPoint.getSignature());
+		if (!descriptor.isProbeActivated(CTRLINST)) {
+			return thisJoinPoint.proceed();
+		}
+		final Class<?> clazz = thisObject.getClass();
+		if (clazz == descriptor.getDeclaringType()) { // NOPMD (compare classes by ==)
+			return this.proceed(thisJoinPoint, descriptor, descriptor.getDeclaringTypeName(), descriptor.getDeclaringTypeId());
+		} else {
+			final String className = clazz.getName();
+			return this.proceed(thisJoinPoint, descriptor, className, INTERNER.intern(className));
+		}
+	}
+
+	@Around("monitoredOperation() && !this(java.lang.Object) && notWithinKieker()")
+	public Object staticOperation(final ProceedingJoinPoint thisJoinPoint) throws Throwable { // NOCS (Throwable)
+		if (!CTRLINST.isMonitoringEnabled()) {
+			return thisJoinPoint.proceed();
+		}
+		final SignatureDescriptor descriptor = this.getSignatureDescriptor(thisJoinPoint.getSignature());
+		if (!descriptor.isProbeActivated(CTRLINST)) {
+			return thisJoinPoint.proceed();
+		}
+		return this.proceed(thisJoinPoint, descriptor, descriptor.getDeclaringTypeName(), descriptor.getDeclaringTypeId());
+	}
+
+	private Object proceed(final ProceedingJoinPoint thisJoinPoint, final SignatureDescriptor descriptor, final String clazz,
+			final int clazzId) throws Throwable { // NOCS (Throwable)
+		// common fields
+		TraceMetadata trace = TRACEREGISTRY.getTrace();
+		final boolean newTrace = trace == null;
+		if (newTrace) {
+			trace = TRACEREGISTRY.registerSampledTrace();
+			if (trace == null) { // the trace is not sampled
+				return AbstractAspectJProbe.proceedUnsampledTrace(thisJoinPoint);
+			}
+			CTRLINST.newMonitoringRecord(trace);
+		}
+		final long traceId = trace.getTraceId();
+		final int operationSignatureId = descriptor.getSignatureId();
+		// measure before execution
+		ENCODER.encodeBeforeOperationEvent(CTRLINST, TIME.getTime(), traceId, trace.getNextOrderId(), operationSignatureId, clazzId);
+		// execution of the called method
+		final Object retval;
+		try {
+			retval = thisJoinPoint.proceed();
+		} catch (final Throwable th) { // NOPMD NOCS (catch throw might ok here)
+			// measure after failed execution; failed events are not encoded, hence preceding events must be flushed
+			ENCODER.flush(CTRLINST);
+			CTRLINST.newMonitoringRecord(new AfterOperationFailedEvent(TIME.getTime(), traceId, trace.getNextOrderId(),
+					descriptor.getSignature(), clazz, th.toString()));
+			throw th;
+		} finally {
+			if (newTrace) { // close the trace
+				TRACEREGISTRY.unregisterTrace();
+			}
+		}
+		// measure after successful execution
+		ENCODER.encodeAfterOperationEvent(CTRLINST, TIME.getTime(), traceId, trace.getNextOrderId(), operationSignatureId, clazzId);
+		if (newTrace) {
+			ENCODER.flush(CTRLINST);
+		}
+		return retval;
+	}
+}
@@ -0,0 +1,315 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.manual;
+
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.common.record.flow.trace.concurrency.SplitEvent;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.monitoring.core.registry.TraceRegistry;
+import kieker.monitoring.probe.IMonitoringProbe;
+import kieker.monitoring.timer.ITimeSource;
+
+/**
+ * Convenience class which propagates the trace of the current thread to tasks executed by other threads, e.g.,
+ * by executors, completable futures, or virtual threads.
+ * <br>
+ * If the current thread is inside of a trace, the wrap methods log a {@link SplitEvent} and return a task which
+ * registers the split point as parent of the next trace created by the executing thread. The split point is kept in
+ * the trace context of the executing thread, i.e., no map of threads is involved. If the current thread is not inside
+ * of a trace, the task is returned unchanged.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class TraceContextPropagation implements IMonitoringProbe {
+	private static final IMonitoringController CTRLINST = MonitoringController.getInstance();
+	private static final ITimeSource TIME = CTRLINST.getTimeSource();
+	private static final TraceRegistry TRACEREGISTRY = TraceRegistry.INSTANCE;
+
+	private TraceContextPropagation() {}
+
+	public static Runnable wrapRunnable(final Runnable task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedRunnable(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <V> Callable<V> wrapCallable(final Callable<V> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedCallable<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <T> Supplier<T> wrapSupplier(final Supplier<T> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedSupplier<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <T, R> Function<T, R> wrapFunction(final Function<T, R> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedFunction<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <T> Consumer<T> wrapConsumer(final Consumer<T> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedConsumer<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <T, U, R> BiFunction<T, U, R> wrapBiFunction(final BiFunction<T, U, R> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedBiFunction<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	public static <T, U> BiConsumer<T, U> wrapBiConsumer(final BiConsumer<T, U> task) {
+		final TraceMetadata trace = TRACEREGISTRY.getTrace();
+		if ((trace == null) || (task instanceof AbstractTracedTask) || !CTRLINST.isMonitoringEnabled()) {
+			return task;
+		}
+		return new TracedBiConsumer<>(task, trace.getTraceId(), TraceContextPropagation.split(trace));
+	}
+
+	/**
+	 * Logs the split event and returns its order id.
+	 */
+	private static int split(final TraceMetadata trace) {
+		final int orderId = trace.getNextOrderId();
+		CTRLINST.newMonitoringRecord(new SplitEvent(TIME.getTime(), trace.getTraceId(), orderId));
+		return orderId;
+	}
+
+	/**
+	 * Common base of the wrapped tasks; holds the split point of the submitting thread.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private abstract static class AbstractTracedTask {
+		private final long traceId;
+		private final int orderId;
+
+		protected AbstractTracedTask(final long traceId, final int orderId) {
+			this.traceId = traceId;
+			this.orderId = orderId;
+		}
+
+		protected final void enter() {
+			TRACEREGISTRY.setThreadLocalParentTraceId(this.traceId, this.orderId);
+		}
+
+		/**
+		 * The split point must not affect later tasks of a pooled thread if the task did not create a trace. A split
+		 * point of a task which executes this task synchronously is restored.
+		 */
+		protected final void exit() {
+			TRACEREGISTRY.restoreThreadLocalParentTraceId();
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedRunnable extends AbstractTracedTask implements Runnable {
+		private final Runnable task;
+
+		public TracedRunnable(final Runnable task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			this.enter();
+			try {
+				this.task.run();
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedCallable<V> extends AbstractTracedTask implements Callable<V> {
+		private final Callable<V> task;
+
+		public TracedCallable(final Callable<V> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public V call() throws Exception { // NOPMD NOCS (Exception declared by Callable)
+			this.enter();
+			try {
+				return this.task.call();
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedSupplier<T> extends AbstractTracedTask implements Supplier<T> {
+		private final Supplier<T> task;
+
+		public TracedSupplier(final Supplier<T> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public T get() {
+			this.enter();
+			try {
+				return this.task.get();
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedFunction<T, R> extends AbstractTracedTask implements Function<T, R> {
+		private final Function<T, R> task;
+
+		public TracedFunction(final Function<T, R> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public R apply(final T value) {
+			this.enter();
+			try {
+				return this.task.apply(value);
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedConsumer<T> extends AbstractTracedTask implements Consumer<T> {
+		private final Consumer<T> task;
+
+		public TracedConsumer(final Consumer<T> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public void accept(final T value) {
+			this.enter();
+			try {
+				this.task.accept(value);
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedBiFunction<T, U, R> extends AbstractTracedTask implements BiFunction<T, U, R> {
+		private final BiFunction<T, U, R> task;
+
+		public TracedBiFunction(final BiFunction<T, U, R> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public R apply(final T first, final U second) {
+			this.enter();
+			try {
+				return this.task.apply(first, second);
+			} finally {
+				this.exit();
+			}
+		}
+	}
+
+	/**
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class TracedBiConsumer<T, U> extends AbstractTracedTask implements BiConsumer<T, U> {
+		private final BiConsumer<T, U> task;
+
+		public TracedBiConsumer(final BiConsumer<T, U> task, final long traceId, final int orderId) {
+			super(traceId, orderId);
+			this.task = task;
+		}
+
+		@Override
+		public void accept(final T first, final U second) {
+			this.enter();
+			try {
+				this.task.accept(first, second);
+			} finally {
+				this.exit();
+			}
+		}
+	}
+}
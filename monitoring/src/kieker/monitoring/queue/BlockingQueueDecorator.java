@@ -63,6 +63,34 @@ public class BlockingQueueDecorator<E> extends AbstractQueue<E> implements Block
 		return offered;
 	}
 
+	/**
+	 * Inserts as many of the first <code>length</code> elements of the given array as possible. The take strategy is signaled
+	 * once for all inserted elements. If the decorated queue is a {@link MpscRingBuffer}, all elements are inserted as one block.
+	 *
+	 * @param elements
+	 *            the elements to insert
+	 * @param length
+	 *            number of elements to insert
+	 * @return the number of inserted elements; the elements at positions from the returned value to <code>length</code> have not
+	 *         been inserted
+	 *
+	 * @since 2.0.0
+	 */
+	public int offerAll(final E[] elements, final int length) {
+		int count = 0;
+		if ((this.q instanceof MpscRingBuffer) && ((MpscRingBuffer<E>) this.q).offerAll(elements, length)) {
+			count = length;
+		} else {
+			while ((count < length) && this.q.offer(elements[count])) {
+				count++;
+			}
+		}
+		if (count > 0) {
+			this.takeStrategy.signal();
+		}
+		return count;
+	}
+
 	@Override
 	public E take() throws InterruptedException {
 		return this.takeStrategy.waitPoll(this); // internally calls "poll()"
@@ -89,29 +117,35 @@ public class BlockingQueueDecorator<E> extends AbstractQueue<E> implements Block
 
 	@Override
 	public int remainingCapacity() {
+		if (this.q instanceof MpscRingBuffer) {
+			return ((MpscRingBuffer<E>) this.q).remainingCapacity();
+		}
 		throw new UnsupportedOperationException();
 	}
 
 	@Override
 	public int drainTo(final Collection<? super E> c) {
-		int count = 0;
-		E e = this.poll();
-		while (e != null) {
-			c.add(e);
-			count++;
-			e = this.poll();
-		}
-		return count;
+		return this.drainTo(c, Integer.MAX_VALUE);
 	}
 
 	@Override
 	public int drainTo(final Collection<? super E> c, final int maxElements) {
-		int count = 0;
-		E e = this.poll();
-		while ((e != null) && (count < maxElements)) {
-			c.add(e);
-			count++;
-			e = this.poll();
+		int count;
+		if (this.q instanceof MpscRingBuffer) {
+			count = ((MpscRingBuffer<E>) this.q).drainTo(c, maxElements);
+		} else {
+			count = 0;
+			while (count < maxElements) {
+				final E e = this.q.poll();
+				if (e == null) {
+					break;
+				}
+				c.add(e);
+				count++;
+			}
+		}
+		if (count > 0) {
+			this.putStrategy.signal(); // signal once per batch instead of once per element
 		}
 		return count;
 	}
@@ -0,0 +1,362 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.queue;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free multi-producer single-consumer ring buffer with preallocated slots.
+ * Each slot carries a sequence number which tells producers whether the slot is free and
+ * the consumer whether the slot has been published. Producers claim slots by a CAS on the
+ * producer index only; the single consumer never performs a CAS.
+ * <br>
+ * The queue is intended to be used as {@code RecordQueueFQN} of the {@code WriterController}.
+ * As it is not a {@link java.util.concurrent.BlockingQueue}, the writer controller wraps it in a
+ * {@link BlockingQueueDecorator} which applies the configured put and take (wait) strategies.
+ * <br>
+ * <i>IMPORTANT: {@link #poll()}, {@link #peek()} and the drain methods must only be called by a single consumer thread.</i>
+ *
+ * @param <E>
+ *            the type of the elements in this queue
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class MpscRingBuffer<E> extends AbstractQueue<E> {
+
+	private final int capacity;
+	private final int mask;
+	private final Object[] slots;
+	/** sequence of each slot; equals the producer index if the slot is free and producer index + 1 if it is published. */
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong producerIndex = new AtomicLong();
+	private final AtomicLong consumerIndex = new AtomicLong();
+
+	/**
+	 * Create a new ring buffer.
+	 *
+	 * @param requestedCapacity
+	 *            the minimal capacity of the buffer; the actual capacity is rounded up to the next power of two
+	 */
+	public MpscRingBuffer(final int requestedCapacity) {
+		if (requestedCapacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive, but was " + requestedCapacity);
+		}
+		this.capacity = MpscRingBuffer.roundToPowerOfTwo(requestedCapacity);
+		this.mask = this.capacity - 1;
+		this.slots = new Object[this.capacity];
+		this.sequences = new AtomicLongArray(this.capacity);
+		for (int i = 0; i < this.capacity; i++) {
+			this.sequences.lazySet(i, i);
+		}
+	}
+
+	private static int roundToPowerOfTwo(final int value) {
+		final int highestBit = Integer.highestOneBit(value);
+		if (highestBit == value) {
+			return value;
+		}
+		if (highestBit == (1 << 30)) {
+			throw new IllegalArgumentException("The capacity is too large: " + value);
+		}
+		return highestBit << 1;
+	}
+
+	@Override
+	public boolean offer(final E element) {
+		if (element == null) {
+			throw new NullPointerException("The ring buffer does not accept null elements.");
+		}
+
+		long index;
+		int slot;
+		while (true) {
+			index = this.producerIndex.get();
+			slot = (int) index & this.mask;
+			final long difference = this.sequences.get(slot) - index;
+			if (difference == 0) {
+				if (this.producerIndex.compareAndSet(index, index + 1)) {
+					break;
+				}
+			} else if (difference < 0) {
+				return false; // the consumer has not yet released this slot, i.e., the buffer is full
+			}
+			// else another producer claimed this slot in the meantime; retry with the new producer index
+		}
+
+		this.slots[slot] = element;
+		this.sequences.lazySet(slot, index + 1); // publish (ordered store after the element store)
+		return true;
+	}
+
+	/**
+	 * Inserts the first <code>length</code> elements of the given array as one contiguous block. The slots for the whole
+	 * block are claimed by a single CAS, so the elements of one producer are not interleaved with those of other producers.
+	 *
+	 * @param elements
+	 *            the elements to insert, must not contain <code>null</code> in the first <code>length</code> positions
+	 * @param length
+	 *            number of elements to insert
+	 * @return <code>true</code> if all elements have been inserted, <code>false</code> if the buffer has not enough free slots, in
+	 *         which case no element has been inserted
+	 */
+	public boolean offerAll(final E[] elements, final int length) {
+		if (length <= 0) {
+			return true;
+		}
+		if (length > this.capacity) {
+			return false;
+		}
+
+		long index;
+		while (true) {
+			index = this.producerIndex.get();
+			// the consumer releases slots in order; hence, if the last slot of the block is free, all others are free as well
+			final long lastIndex = (index + length) - 1;
+			final long difference = this.sequences.get((int) lastIndex & this.mask) - lastIndex;
+			if (difference == 0) {
+				if (this.producerIndex.compareAndSet(index, index + length)) {
+					break;
+				}
+			} else if (difference < 0) {
+				return false;
+			}
+		}
+
+		for (int i = 0; i < length; i++) {
+			final int slot = (int) (index + i) & this.mask;
+			this.slots[slot] = elements[i];
+			this.sequences.lazySet(slot, index + i + 1);
+		}
+		return true;
+	}
+
+	@Override
+	public E poll() {
+		final long index = this.consumerIndex.get();
+		final E element = this.consume(index);
+		if (element != null) {
+			this.consumerIndex.lazySet(index + 1);
+		}
+		return element;
+	}
+
+	/**
+	 * Removes the element at the given consumer index if it has been published already.
+	 * Does not advance the consumer index.
+	 */
+	@SuppressWarnings("unchecked")
+	private E consume(final long index) {
+		final int slot = (int) index & this.mask;
+		if (this.sequences.get(slot) != (index + 1)) {
+			return null; // empty or the claiming producer has not yet published its element
+		}
+		final E element = (E) this.slots[slot];
+		this.slots[slot] = null;
+		this.sequences.lazySet(slot, index + this.capacity); // release the slot for the next round
+		return element;
+	}
+
+	/**
+	 * Moves up to <code>maxElements</code> published elements into the given collection.
+	 * The consumer index is advanced once per batch instead of once per element.
+	 *
+	 * @param collection
+	 *            the collection to add the elements to
+	 * @param maxElements
+	 *            the maximal number of elements to move
+	 * @return the number of moved elements
+	 */
+	public int drainTo(final Collection<? super E> collection, final int maxElements) {
+		final long startIndex = this.consumerIndex.get();
+		int count = 0;
+		while (count < maxElements) {
+			final E element = this.consume(startIndex + count);
+			if (element == null) {
+				break;
+			}
+			collection.add(element);
+			count++;
+		}
+		if (count > 0) {
+			this.consumerIndex.lazySet(startIndex + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Moves up to <code>array.length</code> published elements into the given array starting at position 0.
+	 *
+	 * @param array
+	 *            the array to fill
+	 * @return the number of moved elements
+	 */
+	public int drainTo(final E[] array) {
+		final long startIndex = this.consumerIndex.get();
+		int count = 0;
+		while (count < array.length) {
+			final E element = this.consume(startIndex + count);
+			if (element == null) {
+				break;
+			}
+			array[count] = element;
+			count++;
+		}
+		if (count > 0) {
+			this.consumerIndex.lazySet(startIndex + count);
+		}
+		return count;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public E peek() {
+		final long index = this.consumerIndex.get();
+		final int slot = (int) index & this.mask;
+		if (this.sequences.get(slot) != (index + 1)) {
+			return null;
+		}
+		return (E) this.slots[slot];
+	}
+
+	@Override
+	public int size() {
+		// read the consumer index before and after the producer index to get a consistent snapshot
+		long after = this.consumerIndex.get();
+		while (true) {
+			final long before = after;
+			final long producer = this.producerIndex.get();
+			after = this.consumerIndex.get();
+			if (before == after) {
+				final long size = producer - after;
+				if (size > this.capacity) {
+					return this.capacity;
+				}
+				return (int) size;
+			}
+		}
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.consumerIndex.get() == this.producerIndex.get();
+	}
+
+	public int capacity() {
+		return this.capacity;
+	}
+
+	public int remainingCapacity() {
+		return this.capacity - this.size();
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the published elements, from the oldest to the newest one. The iterator
+	 * never throws a {@link java.util.ConcurrentModificationException}; elements which are consumed or published during
+	 * the iteration may or may not be returned. The iterator does not support {@link Iterator#remove()}; hence,
+	 * {@link #remove(Object)} fails with an {@link UnsupportedOperationException} for a contained element.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new WeaklyConsistentIterator(this.consumerIndex.get());
+	}
+
+	/**
+	 * Reads the element at the given index without consuming it.
+	 *
+	 * @return the element or <code>null</code> if the slot is not published or has been consumed in the meantime
+	 */
+	@SuppressWarnings("unchecked")
+	private E read(final long index) {
+		final int slot = (int) index & this.mask;
+		if (this.sequences.get(slot) != (index + 1)) {
+			return null;
+		}
+		final E element = (E) this.slots[slot];
+		// the consumer may have released the slot and a producer may have reused it while reading the element
+		if (this.sequences.get(slot) != (index + 1)) {
+			return null;
+		}
+		return element;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getName() + "[capacity=" + this.capacity + ", size=" + this.size() + "]";
+	}
+
+	/**
+	 * Iterates from the consumer index at creation time up to the current producer index. Elements which have
+	 * been consumed in the meantime are skipped.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private class WeaklyConsistentIterator implements Iterator<E> {
+
+		private long index;
+		private E nextElement;
+
+		public WeaklyConsistentIterator(final long startIndex) {
+			this.index = startIndex;
+			this.nextElement = this.advance();
+		}
+
+		private E advance() {
+			while (true) {
+				final long consumer = MpscRingBuffer.this.consumerIndex.get();
+				if (this.index < consumer) {
+					this.index = consumer; // skip consumed elements
+				}
+				if (this.index >= MpscRingBuffer.this.producerIndex.get()) {
+					return null;
+				}
+				final E element = MpscRingBuffer.this.read(this.index);
+				if (element != null) {
+					this.index++;
+					return element;
+				}
+				if (MpscRingBuffer.this.consumerIndex.get() <= this.index) {
+					return null; // claimed, but not yet published; do not wait for the producer
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.nextElement != null;
+		}
+
+		@Override
+		public E next() {
+			final E element = this.nextElement;
+			if (element == null) {
+				throw new NoSuchElementException();
+			}
+			this.nextElement = this.advance();
+			return element;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.queue.behavior;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+
+/**
+ * Insert behavior for the ring buffer (insert behavior 4). If the queue is full, the producer waits
+ * with a progressive backoff (busy spin, then yield, then short parks) until a slot becomes available.
+ * In contrast to {@link BlockOnFailedInsertBehavior}, this behavior does not depend on a put strategy and
+ * is therefore safe for any number of producers.
+ *
+ * @param <E>
+ *            the type of the element which should be inserted into the queue.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BackoffOnFailedInsertBehavior<E> implements InsertBehavior<E> {
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = SPIN_TRIES + 100;
+	private static final long MAX_PARK_NANOS = 1_000_000L;
+
+	private final Queue<E> queue;
+	private final AtomicLong numBackoffs = new AtomicLong();
+
+	/**
+	 * @param queue
+	 *            the queue to use this insert behavior; usually a decorated {@link kieker.monitoring.queue.MpscRingBuffer}
+	 */
+	public BackoffOnFailedInsertBehavior(final Queue<E> queue) {
+		this.queue = queue;
+	}
+
+	@Override
+	public boolean insert(final E element) {
+		if (this.queue.offer(element)) {
+			return true;
+		}
+
+		this.numBackoffs.incrementAndGet();
+		int tries = 0;
+		long parkNanos = 1;
+		while (!this.queue.offer(element)) {
+			if (tries < SPIN_TRIES) {
+				tries++;
+			} else if (tries < YIELD_TRIES) {
+				tries++;
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(parkNanos);
+				if (Thread.currentThread().isInterrupted()) {
+					EncodedEventChunk.releaseIfChunk(element);
+					return false;
+				}
+				parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+			}
+		}
+		return true;
+	}
+
+	public long getNumBackoffs() {
+		return this.numBackoffs.get();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(64)
+				.append(this.getClass())
+				.append("\n\t\t")
+				.append("numBackoffs: ")
+				.append(this.getNumBackoffs());
+		return builder.toString();
+	}
+}
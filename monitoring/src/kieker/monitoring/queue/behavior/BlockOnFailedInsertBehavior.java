@@ -21,6 +21,8 @@ import java.util.concurrent.BlockingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+
 /**
  * @author Christian Wulf
  *
@@ -64,6 +66,7 @@ public class BlockOnFailedInsertBehavior<E> implements InsertBehavior<E> {
 			LOGGER.warn("Interrupted when adding new monitoring record to queue.", e);
 		}
 		LOGGER.error("Failed to add new monitoring record to queue (maximum number of attempts reached).");
+		EncodedEventChunk.releaseIfChunk(element);
 		return false;
 	}
 
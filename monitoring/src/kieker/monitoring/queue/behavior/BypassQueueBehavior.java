@@ -16,7 +16,9 @@
 package kieker.monitoring.queue.behavior;
 
 import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.IWriterQueueElement;
 import kieker.monitoring.writer.AbstractMonitoringWriter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * Insert behavior that bypasses the writer controller's queue and thus calls the writer synchronously. This
@@ -26,7 +28,7 @@ import kieker.monitoring.writer.AbstractMonitoringWriter;
  * @author Holger Knoche
  * @since 1.13
  */
-public class BypassQueueBehavior implements InsertBehavior<IMonitoringRecord> {
+public class BypassQueueBehavior implements InsertBehavior<IWriterQueueElement> {
 
 	private final AbstractMonitoringWriter writer;
 
@@ -35,8 +37,17 @@ public class BypassQueueBehavior implements InsertBehavior<IMonitoringRecord> {
 	}
 
 	@Override
-	public boolean insert(final IMonitoringRecord element) {
-		this.writer.writeMonitoringRecord(element);
+	public boolean insert(final IWriterQueueElement element) {
+		if (element instanceof EncodedEventChunk) {
+			final EncodedEventChunk chunk = (EncodedEventChunk) element;
+			try {
+				this.writer.writeEncodedEvents(chunk);
+			} finally {
+				chunk.release();
+			}
+		} else {
+			this.writer.writeMonitoringRecord((IMonitoringRecord) element);
+		}
 		return true;
 	}
 
@@ -22,6 +22,8 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+
 /**
  * @author "Christian Wulf"
  *
@@ -45,6 +47,7 @@ public class CountOnFailedInsertBehavior<E> implements InsertBehavior<E> {
 	public boolean insert(final E element) {
 		final boolean offered = this.queue.offer(element);
 		if (!offered) {
+			EncodedEventChunk.releaseIfChunk(element);
 			final long tmpMissedRecords = this.numFailedInserts.incrementAndGet();
 			if (CountOnFailedInsertBehavior.LOGGER.isWarnEnabled() && ((tmpMissedRecords % 1024) == 1)) {
 				// warn upon the first failed element and upon all 1024th one
@@ -16,6 +16,8 @@
 
 package kieker.monitoring.queue.behavior;
 
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+
 /**
  *
  * @author Christian Wulf (chw)
@@ -34,6 +36,7 @@ public class DoNotInsertBehavior<E> implements InsertBehavior<E> {
 	@Override
 	public boolean insert(final E element) {
 		// absorb each element
+		EncodedEventChunk.releaseIfChunk(element);
 		return true;
 	}
 
@@ -21,6 +21,8 @@ import java.util.concurrent.BlockingQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+
 /**
  * @author "Christian Wulf"
  *
@@ -43,6 +45,7 @@ public class TerminateOnFailedInsertBehavior<E> implements InsertBehavior<E> {
 	public boolean insert(final E element) {
 		final boolean offered = this.queue.offer(element);
 		if (!offered) {
+			EncodedEventChunk.releaseIfChunk(element);
 			LOGGER.error(
 					"Failed to add new monitoring record to queue. Queue is full. Either increase 'QueueSize' or change 'QueueFullBehavior' for the configured writer."); // NOCS
 			return false;
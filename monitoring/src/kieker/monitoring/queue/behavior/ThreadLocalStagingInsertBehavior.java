@@ -0,0 +1,294 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.queue.behavior;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import kieker.common.util.thread.DaemonThreadFactory;
+import kieker.monitoring.queue.BlockingQueueDecorator;
+
+/**
+ * Insert behavior which stages the elements of each application thread in a small thread-local buffer
+ * and publishes whole chunks to the writer queue. Hence, the shared queue is touched once per chunk
+ * instead of once per element. If the writer queue is a decorated {@link kieker.monitoring.queue.MpscRingBuffer},
+ * a chunk is inserted with a single CAS.
+ * <br>
+ * A chunk is published when it is full, when {@link #flush()} is called by the owning thread (e.g., on trace end),
+ * and by a periodic flush task for threads which have not published their staged elements for some time.
+ * Elements which cannot be inserted into the queue are passed to the delegate insert behavior, which
+ * determines the behavior on a full queue. The staged elements are only locked while they are staged or taken
+ * from the buffer, but not while they are inserted, hence, an application thread never waits for the flush task
+ * unless it publishes itself. A failed insert of the flush task is reported to a failure handler, as the owning
+ * thread cannot see it.
+ * <br>
+ * Please note that elements of different threads are no longer inserted in order of their creation.
+ *
+ * @param <E>
+ *            the type of the element which should be inserted into the queue.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ThreadLocalStagingInsertBehavior<E> implements InsertBehavior<E> {
+
+	private final Queue<E> queue;
+	private final InsertBehavior<E> delegate;
+	private final int bufferSize;
+	private final long flushIntervalNs;
+	private final Runnable failedInsertHandler;
+
+	/** all buffers including those of terminated threads which still have staged elements. */
+	private final Queue<StagingBuffer<E>> buffers = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<StagingBuffer<E>> threadLocalBuffer = new ThreadLocal<StagingBuffer<E>>() {
+		@Override
+		protected StagingBuffer<E> initialValue() {
+			final StagingBuffer<E> buffer = new StagingBuffer<>(Thread.currentThread(),
+					ThreadLocalStagingInsertBehavior.this.bufferSize);
+			ThreadLocalStagingInsertBehavior.this.buffers.add(buffer);
+			return buffer;
+		}
+	};
+
+	private final ScheduledExecutorService flushExecutor;
+
+	/**
+	 * Create a new staging insert behavior.
+	 *
+	 * @param queue
+	 *            the writer queue
+	 * @param delegate
+	 *            the insert behavior for elements which do not fit into the queue when their chunk is published
+	 * @param bufferSize
+	 *            the number of elements staged per thread
+	 * @param flushIntervalMs
+	 *            the maximal time in milliseconds an element is staged by an idle thread
+	 * @param failedInsertHandler
+	 *            called when the delegate fails to insert elements published by the flush task
+	 */
+	public ThreadLocalStagingInsertBehavior(final Queue<E> queue, final InsertBehavior<E> delegate, final int bufferSize,
+			final long flushIntervalMs, final Runnable failedInsertHandler) {
+		this.queue = queue;
+		this.delegate = delegate;
+		this.bufferSize = bufferSize;
+		this.flushIntervalNs = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+		this.failedInsertHandler = failedInsertHandler;
+
+		this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+		this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				ThreadLocalStagingInsertBehavior.this.flushIdleBuffers();
+			}
+		}, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public boolean insert(final E element) {
+		final StagingBuffer<E> buffer = this.threadLocalBuffer.get();
+		final boolean publish;
+		synchronized (buffer) { // only contended while the flush task takes the elements of this buffer
+			if (buffer.count == 0) {
+				buffer.firstStagedTimestamp = System.nanoTime();
+			}
+			buffer.elements[buffer.count++] = element;
+			publish = (buffer.count == buffer.elements.length) || buffer.publishNextElement;
+			if (publish) {
+				buffer.publishNextElement = false;
+			}
+		}
+		if (publish) {
+			return this.publishOwnBuffer(buffer);
+		}
+		return true;
+	}
+
+	/**
+	 * Publishes the elements staged by the calling thread. Furthermore, the next element staged by this thread
+	 * is published immediately. This allows probes to flush on trace end, even if they create their last record
+	 * after the trace has been closed.
+	 *
+	 * @return <code>true</code> if all elements have been inserted into the queue, otherwise <code>false</code>
+	 */
+	public boolean flush() {
+		final StagingBuffer<E> buffer = this.threadLocalBuffer.get();
+		synchronized (buffer) {
+			buffer.publishNextElement = true;
+		}
+		return this.publishOwnBuffer(buffer);
+	}
+
+	/**
+	 * Publishes the staged elements of all threads and stops the periodic flush task.
+	 * Must be called before the end-of-monitoring element is inserted into the queue.
+	 *
+	 * @return <code>true</code> if all elements have been inserted into the queue, otherwise <code>false</code>
+	 */
+	public boolean terminate() {
+		this.flushExecutor.shutdown();
+		boolean success = true;
+		for (final StagingBuffer<E> buffer : this.buffers) {
+			buffer.publishLock.lock();
+			try {
+				success &= this.publishStagedElements(buffer);
+			} finally {
+				buffer.publishLock.unlock();
+			}
+		}
+		this.buffers.clear();
+		return success;
+	}
+
+	private void flushIdleBuffers() {
+		final long now = System.nanoTime();
+		final Iterator<StagingBuffer<E>> iterator = this.buffers.iterator();
+		while (iterator.hasNext()) {
+			final StagingBuffer<E> buffer = iterator.next();
+			if (buffer.publishLock.tryLock()) { // otherwise, the owning thread is publishing right now
+				try {
+					if (!this.publishIdleElements(buffer, now)) {
+						this.failedInsertHandler.run();
+					}
+					final Thread owner = buffer.owner.get();
+					if ((owner == null) || !owner.isAlive()) {
+						synchronized (buffer) {
+							if (buffer.count == 0) {
+								iterator.remove(); // the owning thread has terminated
+							}
+						}
+					}
+				} finally {
+					buffer.publishLock.unlock();
+				}
+			}
+		}
+	}
+
+	private boolean publishIdleElements(final StagingBuffer<E> buffer, final long now) {
+		synchronized (buffer) {
+			if ((buffer.count == 0) || ((now - buffer.firstStagedTimestamp) < this.flushIntervalNs)) {
+				return true;
+			}
+		}
+		return this.publishStagedElements(buffer);
+	}
+
+	/**
+	 * Publishes the buffer of the calling thread. As only the owning thread stages elements, the staged elements
+	 * are inserted without holding the lock of the buffer.
+	 */
+	private boolean publishOwnBuffer(final StagingBuffer<E> buffer) {
+		buffer.publishLock.lock();
+		try {
+			final int count;
+			synchronized (buffer) {
+				count = buffer.count;
+			}
+			final boolean success = this.publish(buffer.elements, count);
+			synchronized (buffer) {
+				ThreadLocalStagingInsertBehavior.release(buffer.elements, count);
+				buffer.count = 0;
+			}
+			return success;
+		} finally {
+			buffer.publishLock.unlock();
+		}
+	}
+
+	/**
+	 * Takes the staged elements of a buffer of another thread and inserts them after releasing the lock of the
+	 * buffer, hence, the owning thread can continue staging. Must be called while holding the publish lock.
+	 */
+	private boolean publishStagedElements(final StagingBuffer<E> buffer) {
+		final E[] elements;
+		synchronized (buffer) {
+			if (buffer.count == 0) {
+				return true;
+			}
+			elements = Arrays.copyOf(buffer.elements, buffer.count);
+			ThreadLocalStagingInsertBehavior.release(buffer.elements, buffer.count);
+			buffer.count = 0;
+		}
+		return this.publish(elements, elements.length);
+	}
+
+	private boolean publish(final E[] elements, final int count) {
+		if (count == 0) {
+			return true;
+		}
+
+		int inserted = 0;
+		if (this.queue instanceof BlockingQueueDecorator) {
+			inserted = ((BlockingQueueDecorator<E>) this.queue).offerAll(elements, count);
+		}
+
+		boolean success = true;
+		for (int i = inserted; i < count; i++) {
+			success &= this.delegate.insert(elements[i]);
+		}
+		return success;
+	}
+
+	private static <E> void release(final E[] elements, final int count) {
+		for (int i = 0; i < count; i++) {
+			elements[i] = null; // NOPMD (release references for the garbage collector)
+		}
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder(128)
+				.append(this.getClass())
+				.append("\n\t\t")
+				.append("bufferSize: ")
+				.append(this.bufferSize)
+				.append("\n\t\t")
+				.append("delegate: ")
+				.append(this.delegate.toString());
+		return builder.toString();
+	}
+
+	/**
+	 * Staging buffer of a single thread.
+	 *
+	 * @param <E>
+	 *            the type of the staged elements
+	 */
+	private static final class StagingBuffer<E> {
+		private final WeakReference<Thread> owner;
+		/** held while staged elements are inserted into the queue, keeps the order of the chunks of a thread. */
+		private final ReentrantLock publishLock = new ReentrantLock();
+		private final E[] elements;
+		private int count;
+		private long firstStagedTimestamp;
+		private boolean publishNextElement;
+
+		@SuppressWarnings("unchecked")
+		public StagingBuffer(final Thread owner, final int size) {
+			this.owner = new WeakReference<>(owner);
+			this.elements = (E[]) new Object[size];
+		}
+	}
+}
@@ -16,10 +16,12 @@
 
 package kieker.monitoring.writer;
 
+import java.util.List;
 import java.util.Set;
 
 import kieker.common.configuration.Configuration;
 import kieker.common.record.IMonitoringRecord;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * @author Christian Wulf
@@ -47,6 +49,62 @@ public abstract class AbstractMonitoringWriter {
 	 */
 	public abstract void writeMonitoringRecord(IMonitoringRecord record);
 
+	/**
+	 * This event fires when the {@link MonitoringWriterThread} has drained a batch of records from the writer queue.
+	 * The default implementation delegates to {@link #writeMonitoringRecord(IMonitoringRecord)} for each record.
+	 * Writers may override this method to perform buffer checks and registry lookups once per batch.
+	 *
+	 * @param records
+	 *            the records in order of their insertion into the writer queue; the list is reused after this call
+	 *
+	 * @since 2.0.0
+	 */
+	public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		for (final IMonitoringRecord record : records) {
+			this.writeMonitoringRecord(record);
+		}
+	}
+
+	/**
+	 * This event fires when the {@link MonitoringWriterThread} has received a chunk of events encoded by a probe.
+	 * The default implementation creates a record object for each event and delegates to
+	 * {@link #writeMonitoringRecord(IMonitoringRecord)}. Writers may override this method to serialize the events
+	 * without creating record objects.
+	 *
+	 * @param chunk
+	 *            the encoded events; the chunk is released for reuse after this call
+	 *
+	 * @since 2.0.0
+	 */
+	public void writeEncodedEvents(final EncodedEventChunk chunk) {
+		for (int i = 0; i < chunk.size(); i++) {
+			this.writeMonitoringRecord(chunk.createRecord(i));
+		}
+	}
+
+	/**
+	 * Returns the time the writer queue must be empty before the {@link MonitoringWriterThread} fires
+	 * {@link #onIdle()}. The default value 0 disables this event.
+	 *
+	 * @return the idle timeout in milliseconds
+	 *
+	 * @since 2.0.0
+	 */
+	public long getIdleTimeoutInMs() {
+		return 0;
+	}
+
+	/**
+	 * This event fires when the writer queue has been empty for {@link #getIdleTimeoutInMs()} milliseconds, and again
+	 * after each further timeout. Writers may override this method for work which must not wait for the next record,
+	 * e.g., reconnecting. The default implementation does nothing.
+	 *
+	 * @since 2.0.0
+	 */
+	public void onIdle() { // NOPMD (empty default implementation)
+		// nothing to do by default
+	}
+
 	/**
 	 * This event fires when Kieker has been notified to terminate.
 	 * It is executed by the {@link MonitoringWriterThread} just after finishing the writer queue.
@@ -16,13 +16,17 @@
 
 package kieker.monitoring.writer;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.misc.EmptyRecord;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * @author Christian Wulf
@@ -33,14 +37,37 @@ public class MonitoringWriterThread extends Thread {
 
 	public static final IMonitoringRecord END_OF_MONITORING_RECORD = new EmptyRecord();
 
+	/** Default maximal number of records handed to the writer at once, i.e., batching is disabled by default. */
+	public static final int DEFAULT_BATCH_SIZE = 1;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(MonitoringWriterThread.class);
 
-	private final BlockingQueue<IMonitoringRecord> writerQueue;
+	/** contains records and chunks of encoded events. */
+	private final BlockingQueue<? super IMonitoringRecord> writerQueue;
 	private final AbstractMonitoringWriter writer;
+	private final int batchSize;
+	private long idleTimeoutInMs;
 
 	// private int numWrittenRecords;
 
-	public MonitoringWriterThread(final AbstractMonitoringWriter writer, final BlockingQueue<IMonitoringRecord> writerQueue) {
+	public MonitoringWriterThread(final AbstractMonitoringWriter writer, final BlockingQueue<? super IMonitoringRecord> writerQueue) {
+		this(writer, writerQueue, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a writer thread which hands batches of records to the writer.
+	 *
+	 * @param writer
+	 *            the writer
+	 * @param writerQueue
+	 *            the queue to read records and chunks of encoded events from
+	 * @param batchSize
+	 *            maximal number of records drained from the queue at once; a value of 1 disables batching
+	 *
+	 * @since 2.0.0
+	 */
+	public MonitoringWriterThread(final AbstractMonitoringWriter writer, final BlockingQueue<? super IMonitoringRecord> writerQueue,
+			final int batchSize) {
 		if (writer == null) {
 			throw new NullPointerException("The given writer may not be null.");
 		}
@@ -49,6 +76,7 @@ public class MonitoringWriterThread extends Thread {
 		}
 		this.writer = writer;
 		this.writerQueue = writerQueue;
+		this.batchSize = Math.max(1, batchSize);
 		// All Kieker threads must be daemon threads. Otherwise the monitored application can never terminate.
 		this.setDaemon(true);
 	}
@@ -58,12 +86,21 @@ public class MonitoringWriterThread extends Thread {
 		LOGGER.debug("{} is running.", this.getClass().getName());
 
 		this.writer.onStarting();
+		this.idleTimeoutInMs = this.writer.getIdleTimeoutInMs();
 
 		try {
-			IMonitoringRecord record = this.writerQueue.take();
-			while (record != END_OF_MONITORING_RECORD) { // NOPMD (compare references by == not by equals())
-				this.writer.writeMonitoringRecord(record);
-				record = this.writerQueue.take();
+			if (this.batchSize > 1) {
+				this.writeBatches();
+			} else {
+				Object element = this.take();
+				while (element != END_OF_MONITORING_RECORD) { // NOPMD (compare references by == not by equals())
+					if (element instanceof EncodedEventChunk) {
+						this.writeEncodedEvents((EncodedEventChunk) element);
+					} else {
+						this.writer.writeMonitoringRecord((IMonitoringRecord) element);
+					}
+					element = this.take();
+				}
 			}
 		} catch (final InterruptedException e) {
 			LOGGER.debug("{} was interrupted.", this.getClass().getName(), e);
@@ -75,6 +112,86 @@ public class MonitoringWriterThread extends Thread {
 		LOGGER.debug("{} has finished.", this.getClass().getName());
 	}
 
+	/**
+	 * Blocks only if the queue is empty. Otherwise, all available records up to the batch size are drained
+	 * at once and handed to the writer in a single call.
+	 */
+	private void writeBatches() throws InterruptedException {
+		final List<Object> batch = new ArrayList<>(this.batchSize);
+		final List<IMonitoringRecord> records = new ArrayList<>(this.batchSize);
+		while (true) {
+			batch.add(this.take());
+			this.writerQueue.drainTo(batch, this.batchSize - 1);
+
+			final int endIndex = MonitoringWriterThread.indexOfEndOfMonitoring(batch);
+			if (endIndex >= 0) {
+				this.writeBatch(batch.subList(0, endIndex), records);
+				for (final Object element : batch.subList(endIndex + 1, batch.size())) {
+					EncodedEventChunk.releaseIfChunk(element);
+				}
+				return;
+			}
+
+			this.writeBatch(batch, records);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Hands the records of a batch to the writer. Chunks of encoded events split the batch, so that the order
+	 * of records and events is preserved.
+	 */
+	private void writeBatch(final List<Object> batch, final List<IMonitoringRecord> records) {
+		for (final Object element : batch) {
+			if (element instanceof EncodedEventChunk) {
+				if (!records.isEmpty()) {
+					this.writer.writeMonitoringRecords(records);
+					records.clear();
+				}
+				this.writeEncodedEvents((EncodedEventChunk) element);
+			} else {
+				records.add((IMonitoringRecord) element);
+			}
+		}
+		if (!records.isEmpty()) {
+			this.writer.writeMonitoringRecords(records);
+			records.clear();
+		}
+	}
+
+	/**
+	 * Blocks until the queue contains an element. If the writer has an idle timeout, it is notified each time the
+	 * queue stays empty for this time.
+	 */
+	private Object take() throws InterruptedException {
+		if (this.idleTimeoutInMs <= 0) {
+			return this.writerQueue.take();
+		}
+		Object element = this.writerQueue.poll(this.idleTimeoutInMs, TimeUnit.MILLISECONDS);
+		while (element == null) {
+			this.writer.onIdle();
+			element = this.writerQueue.poll(this.idleTimeoutInMs, TimeUnit.MILLISECONDS);
+		}
+		return element;
+	}
+
+	private void writeEncodedEvents(final EncodedEventChunk chunk) {
+		try {
+			this.writer.writeEncodedEvents(chunk);
+		} finally {
+			chunk.release();
+		}
+	}
+
+	private static int indexOfEndOfMonitoring(final List<Object> batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			if (batch.get(i) == END_OF_MONITORING_RECORD) { // NOPMD (compare references by == not by equals())
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Initiates the termination of this thread.
 	 */
@@ -19,6 +19,7 @@ package kieker.monitoring.writer;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.slf4j.Logger;
@@ -54,6 +55,48 @@ public final class WriterUtil {
 		return bytesWritten;
 	}
 
+	/**
+	 * Writes the given buffers to the channel with gathering writes, i.e., usually with one system call, in the order
+	 * of the array.
+	 *
+	 * @param buffers
+	 *            the buffers, which are cleared afterwards
+	 * @param offset
+	 *            index of the first buffer to write
+	 * @param length
+	 *            number of buffers to write
+	 * @param gatheringChannel
+	 *            the channel
+	 * @param logger
+	 *            logger for write errors
+	 * @return the number of bytes written from the buffers to the channel
+	 *
+	 * @since 2.0.0
+	 */
+	public static long flushBuffers(final ByteBuffer[] buffers, final int offset, final int length, final GatheringByteChannel gatheringChannel,
+			final Logger logger) {
+		long bytesWritten = 0;
+		long bytesToWrite = 0;
+
+		for (int i = offset; i < (offset + length); i++) {
+			buffers[i].flip();
+			bytesToWrite += buffers[i].remaining();
+		}
+		try {
+			while (bytesWritten < bytesToWrite) {
+				bytesWritten += gatheringChannel.write(buffers, offset, length);
+			}
+			for (int i = offset; i < (offset + length); i++) {
+				buffers[i].clear();
+			}
+		} catch (final IOException e) {
+			logger.error("Caught exception while writing to the channel.", e);
+			WriterUtil.close(gatheringChannel, logger);
+		}
+
+		return bytesWritten;
+	}
+
 	public static void close(final Closeable closeable, final Logger logger) {
 		try {
 			closeable.close();
@@ -27,6 +27,10 @@ import kieker.monitoring.writer.serializer.IMonitoringRecordSerializer;
 /**
  * Writer task to write records collected by the collector.
  * Used within {@link ChunkingCollector}.
+ * <p/>
+ * The chunk size is adapted before each run: it is doubled up to the maximal chunk size while the queue holds more
+ * than two chunks or callers have been blocked by a full queue, and it is halved down to the configured chunk size when
+ * the queue does not fill a chunk or writing a chunk takes longer than the deferred write delay.
  *
  * @author Holger Knoche
  *
@@ -41,10 +45,18 @@ class ChunkWriterTask implements Runnable {
 
 	private final IRawDataWriter writer;
 
-	private final int outputChunkSize;
+	private final int minChunkSize;
+
+	private final int maxChunkSize;
+
+	private volatile int outputChunkSize;
 
 	private final long deferredWriteDelayNs;
 
+	private long lastChunkWriteTimeNs;
+
+	private long lastNumberOfBlockedInserts;
+
 	private volatile long nextWriteTime;
 
 	private final ChunkingCollector collector;
@@ -55,7 +67,9 @@ class ChunkWriterTask implements Runnable {
 	 * @param collector
 	 *            collector for chunks
 	 * @param outputChunkSize
-	 *            size of the chunks
+	 *            initial and minimal size of the chunks
+	 * @param maxChunkSize
+	 *            maximal size of the chunks
 	 * @param deferredWriteDelayMs
 	 *            write delay??
 	 * @param outputBufferSize
@@ -65,12 +79,15 @@ class ChunkWriterTask implements Runnable {
 	 * @param writer
 	 *            data writer
 	 */
-	public ChunkWriterTask(final ChunkingCollector collector, final int outputChunkSize, final int deferredWriteDelayMs, final int outputBufferSize,
+	public ChunkWriterTask(final ChunkingCollector collector, final int outputChunkSize, final int maxChunkSize, final int deferredWriteDelayMs,
+			final int outputBufferSize,
 			final IMonitoringRecordSerializer serializer,
 			final IRawDataWriter writer) {
 		this.collector = collector;
 		this.serializer = serializer;
 		this.writer = writer;
+		this.minChunkSize = outputChunkSize;
+		this.maxChunkSize = maxChunkSize;
 		this.outputChunkSize = outputChunkSize;
 		this.deferredWriteDelayNs = deferredWriteDelayMs * 1000000L;
 		this.buffer = ByteBuffer.allocate(outputBufferSize);
@@ -82,7 +99,7 @@ class ChunkWriterTask implements Runnable {
 	public void run() {
 		final Queue<IMonitoringRecord> queue = this.collector.getRecordQueue();
 		int numberOfPendingRecords = queue.size();
-		final int chunkSize = this.outputChunkSize;
+		final int chunkSize = this.adaptChunkSize(numberOfPendingRecords);
 
 		// Write records if at least one chunk can be filled completely
 		if (numberOfPendingRecords >= chunkSize) {
@@ -107,6 +124,34 @@ class ChunkWriterTask implements Runnable {
 		}
 	}
 
+	/**
+	 * Adapts the chunk size to the queue depth, the blocked inserts since the last run, and the write time of the
+	 * last chunk.
+	 *
+	 * @return the new chunk size
+	 */
+	private int adaptChunkSize(final int numberOfPendingRecords) {
+		final long numberOfBlockedInserts = this.collector.getNumberOfBlockedInserts();
+		final boolean blocked = numberOfBlockedInserts != this.lastNumberOfBlockedInserts;
+		this.lastNumberOfBlockedInserts = numberOfBlockedInserts;
+
+		int chunkSize = this.outputChunkSize;
+		if (this.lastChunkWriteTimeNs > this.deferredWriteDelayNs) {
+			// larger chunks would delay records longer than the deferred write delay
+			chunkSize = Math.max(this.minChunkSize, chunkSize / 2);
+		} else if (blocked || (numberOfPendingRecords >= (2 * chunkSize))) {
+			chunkSize = Math.min(this.maxChunkSize, chunkSize * 2);
+		} else if (numberOfPendingRecords < chunkSize) {
+			chunkSize = Math.max(this.minChunkSize, chunkSize / 2);
+		}
+		this.outputChunkSize = chunkSize;
+		return chunkSize;
+	}
+
+	public int getChunkSize() {
+		return this.outputChunkSize;
+	}
+
 	public void initialize() {
 		this.writer.onInitialization();
 		this.serializer.onInitialization();
@@ -146,14 +191,17 @@ class ChunkWriterTask implements Runnable {
 			// Due to checks at the call sites, writeChunk is only called with a chunk size
 			// not smaller than the queue's length to avoid poll() returning null values.
 			final IMonitoringRecord record = queue.poll();
+			this.collector.onRecordDequeued(record);
 			chunk.add(record);
 		}
 
 		// Serialize and write the data
+		final long startTime = System.nanoTime();
 		final ByteBuffer outputBuffer = this.buffer;
 		outputBuffer.rewind();
 		final int bytesWritten = this.serializer.serializeRecords(chunk, outputBuffer);
 		this.writer.writeData(outputBuffer, 0, bytesWritten);
+		this.lastChunkWriteTimeNs = System.nanoTime() - startTime;
 	}
 
 	private void updateNextWriteTime() {
@@ -17,11 +17,17 @@ package kieker.monitoring.writer.collector;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +50,14 @@ import kieker.monitoring.writer.serializer.IMonitoringRecordSerializer;
  * <b>Configuration hints:</b> The collector has several configuration parameters which depend
  * on one another. In particular, the queue size should be chosen large enough so that the queue
  * does not fill up in a single task run interval. In addition, the output buffer needs to be
- * large enough to hold a completely serialized chunk, and therefore depends on the chunk size.
+ * large enough to hold a completely serialized chunk, and therefore depends on the maximal chunk size.
+ * <p/>
+ * The queue is bounded by the number of records and by the size of the queued records in bytes. When the queue is
+ * full, the collector requests an immediate write and blocks the caller for at most the configured maximal block
+ * time before it drops the record. Blocking the monitoring writer thread lets the writer queue of the
+ * {@link kieker.monitoring.core.controller.WriterController} fill up, hence, its configured insert behavior applies
+ * to bursts instead of silent record loss. The writer task adapts the chunk size between the configured chunk size and
+ * the maximal chunk size to the queue depth and the time required to write a chunk.
  *
  * @author Holger Knoche
  *
@@ -72,6 +85,18 @@ public class ChunkingCollector extends AbstractMonitoringWriter {
 	// Default run task run interval (in milliseconds)
 	private static final int DEFAULT_TASK_RUN_INTERVAL = 20;
 
+	// Default size of the queued records (in bytes)
+	private static final long DEFAULT_QUEUE_CAPACITY_IN_BYTES = 4L * 1024 * 1024;
+
+	// Default maximal chunk size (in records)
+	private static final int DEFAULT_MAX_CHUNK_SIZE = 256;
+
+	// Default maximal time to block a caller on a full queue (in milliseconds)
+	private static final int DEFAULT_MAX_BLOCK_TIME = 100;
+
+	// Time to wait between attempts to insert into a full queue (in nanoseconds)
+	private static final long BLOCK_WAIT_TIME_NS = 100000L;
+
 	private static final String PREFIX = ChunkingCollector.class.getName() + ".";
 
 	/** The name of the configuration property for the serializer class name. */
@@ -98,16 +123,33 @@ public class ChunkingCollector extends AbstractMonitoringWriter {
 	/** The type of queue to use. */
 	public static final String CONFIG_QUEUE_TYPE = PREFIX + "queueType"; // NOCS (afterPREFIX)
 
+	/** The name of the configuration property for the maximal size of the queued records in bytes. */
+	public static final String CONFIG_QUEUE_CAPACITY_IN_BYTES = PREFIX + "queueCapacityInBytes"; // NOCS (afterPREFIX)
+
+	/** The name of the configuration property for the maximal chunk size. */
+	public static final String CONFIG_MAX_CHUNK_SIZE = PREFIX + "maxChunkSize"; // NOCS (afterPREFIX)
+
+	/** The name of the configuration property for the maximal time a caller is blocked on a full queue. */
+	public static final String CONFIG_MAX_BLOCK_TIME = PREFIX + "maxBlockTime"; // NOCS (afterPREFIX)
+
 	/** The time unit for the writer task interval. */
 	private static final TimeUnit TASK_RUN_INTERVAL_TIME_UNIT = TimeUnit.MILLISECONDS;
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ChunkingCollector.class);
 
 	private final Queue<IMonitoringRecord> recordQueue;
+	private final long queueCapacityInBytes;
+	private final AtomicLong queuedBytes = new AtomicLong();
+	private final long maxBlockTimeNs;
 
 	private final ScheduledExecutorService scheduledExecutor;
 	private final int taskRunInterval;
 	private final ChunkWriterTask writerTask;
+	private final Runnable drainTask;
+	private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+	private final LongAdder numberOfBlockedInserts = new LongAdder();
+	private final LongAdder numberOfDroppedRecords = new LongAdder();
 
 	/**
 	 * Create a chunking collector.
@@ -122,6 +164,8 @@ public class ChunkingCollector extends AbstractMonitoringWriter {
 		final int queueSize = configuration.getIntProperty(CONFIG_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
 		final String queueType = configuration.getStringProperty(CONFIG_QUEUE_TYPE, "");
 		this.taskRunInterval = configuration.getIntProperty(CONFIG_TASK_RUN_INTERVAL, DEFAULT_TASK_RUN_INTERVAL);
+		this.queueCapacityInBytes = configuration.getLongProperty(CONFIG_QUEUE_CAPACITY_IN_BYTES, DEFAULT_QUEUE_CAPACITY_IN_BYTES);
+		this.maxBlockTimeNs = TimeUnit.MILLISECONDS.toNanos(Math.max(0, configuration.getIntProperty(CONFIG_MAX_BLOCK_TIME, DEFAULT_MAX_BLOCK_TIME)));
 
 		this.recordQueue = this.createQueue(queueType, queueSize);
 		this.scheduledExecutor = Executors.newScheduledThreadPool(NUMBER_OF_WORKERS, new DaemonThreadFactory());
@@ -136,9 +180,17 @@ public class ChunkingCollector extends AbstractMonitoringWriter {
 		// Instantiate the writer task
 		final int deferredWriteDelayMs = configuration.getIntProperty(CONFIG_DEFERRED_WRITE_DELAY, DEFAULT_DEFERRED_WRITE_DELAY);
 		final int chunkSize = configuration.getIntProperty(CONFIG_CHUNK_SIZE, DEFAULT_CHUNK_SIZE);
+		final int maxChunkSize = Math.max(chunkSize, configuration.getIntProperty(CONFIG_MAX_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE));
 		final int outputBufferSize = configuration.getIntProperty(CONFIG_OUTPUT_BUFFER_SIZE, DEFAULT_OUTPUT_BUFFER_SIZE);
 
-		this.writerTask = new ChunkWriterTask(this, chunkSize, deferredWriteDelayMs, outputBufferSize, serializer, writer);
+		this.writerTask = new ChunkWriterTask(this, chunkSize, maxChunkSize, deferredWriteDelayMs, outputBufferSize, serializer, writer);
+		this.drainTask = new Runnable() {
+			@Override
+			public void run() {
+				ChunkingCollector.this.drainRequested.set(false);
+				ChunkingCollector.this.writerTask.run();
+			}
+		};
 	}
 
 	@SuppressWarnings("unchecked")
@@ -183,28 +235,153 @@ public class ChunkingCollector extends AbstractMonitoringWriter {
 		}
 
 		this.writerTask.terminate();
+
+		final long droppedRecords = this.numberOfDroppedRecords.sum();
+		if (droppedRecords > 0) {
+			LOGGER.warn("Dropped {} monitoring records in total; the caller was blocked by a full queue {} times.", droppedRecords,
+					this.numberOfBlockedInserts.sum());
+		}
 	}
 
 	private boolean enqueueRecord(final IMonitoringRecord record) {
-		for (int tryNumber = 0; tryNumber < 10; tryNumber++) { // try up to 10 times to enqueue a record
-			final boolean recordEnqueued = this.recordQueue.offer(record);
+		if (this.offerRecord(record, true)) {
+			return true;
+		}
 
-			if (recordEnqueued) {
-				return true;
+		LOGGER.error("Failed to add new monitoring record to queue (queue full for {} ms).", TimeUnit.NANOSECONDS.toMillis(this.maxBlockTimeNs));
+		return false;
+	}
+
+	/**
+	 * Enqueues a record. If the queue is full, an immediate write of the queued records is requested and the caller
+	 * waits for free space for at most the maximal block time.
+	 *
+	 * @param record
+	 *            record to enqueue
+	 * @param block
+	 *            if false, the record is dropped without waiting
+	 * @return true if the record has been enqueued
+	 */
+	private boolean offerRecord(final IMonitoringRecord record, final boolean block) {
+		final int size = record.getSize();
+		if (this.tryEnqueue(record, size)) {
+			return true;
+		}
+
+		this.numberOfBlockedInserts.increment();
+		this.requestDrain();
+		if (block) {
+			final long deadline = System.nanoTime() + this.maxBlockTimeNs;
+			while ((System.nanoTime() - deadline) < 0) {
+				LockSupport.parkNanos(BLOCK_WAIT_TIME_NS);
+				if (this.tryEnqueue(record, size)) {
+					return true;
+				}
 			}
 		}
 
-		LOGGER.error("Failed to add new monitoring record to queue (maximum number of attempts reached).");
+		this.numberOfDroppedRecords.increment();
+		return false;
+	}
+
+	private boolean tryEnqueue(final IMonitoringRecord record, final int size) {
+		final long bytes = this.queuedBytes.addAndGet(size);
+		// a record larger than the capacity is accepted by an empty queue
+		if ((bytes > this.queueCapacityInBytes) && (bytes > size)) {
+			this.queuedBytes.addAndGet(-size);
+			return false;
+		}
+		if (this.recordQueue.offer(record)) {
+			return true;
+		}
+		this.queuedBytes.addAndGet(-size);
 		return false;
 	}
 
+	/**
+	 * Runs the writer task once in addition to its regular runs, unless such a run is already pending.
+	 */
+	private void requestDrain() {
+		if (this.drainRequested.compareAndSet(false, true)) {
+			try {
+				this.scheduledExecutor.execute(this.drainTask);
+			} catch (final RejectedExecutionException e) {
+				// the collector is terminating and writes the remaining records itself
+				this.drainRequested.set(false);
+			}
+		}
+	}
+
 	@Override
 	public void writeMonitoringRecord(final IMonitoringRecord record) {
 		this.enqueueRecord(record);
 	}
 
+	/**
+	 * Enqueues a batch of records. Failed inserts are reported once per batch instead of once per record, and
+	 * after the first dropped record, the remaining records of the batch are dropped without blocking again.
+	 */
+	@Override
+	public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		int numberOfDroppedRecords = 0;
+		for (final IMonitoringRecord record : records) {
+			if (!this.offerRecord(record, numberOfDroppedRecords == 0)) {
+				numberOfDroppedRecords++;
+			}
+		}
+
+		if (numberOfDroppedRecords > 0) {
+			LOGGER.error("Failed to add {} of {} monitoring records to queue (queue full for {} ms).", numberOfDroppedRecords,
+					records.size(), TimeUnit.NANOSECONDS.toMillis(this.maxBlockTimeNs));
+		}
+	}
+
 	public Queue<IMonitoringRecord> getRecordQueue() {
 		return this.recordQueue;
 	}
 
+	/**
+	 * Called by the writer task for each record taken from the queue.
+	 *
+	 * @param record
+	 *            the dequeued record
+	 */
+	void onRecordDequeued(final IMonitoringRecord record) { // NOPMD (package-private)
+		this.queuedBytes.addAndGet(-record.getSize());
+	}
+
+	/**
+	 * @return the size of the queued records in bytes
+	 */
+	public long getQueuedBytes() {
+		return this.queuedBytes.get();
+	}
+
+	/**
+	 * @return the number of inserts which found the queue full, including those which succeeded after waiting
+	 */
+	public long getNumberOfBlockedInserts() {
+		return this.numberOfBlockedInserts.sum();
+	}
+
+	/**
+	 * @return the number of records dropped because the queue has been full for the maximal block time
+	 */
+	public long getNumberOfDroppedRecords() {
+		return this.numberOfDroppedRecords.sum();
+	}
+
+	/**
+	 * @return the current number of records written in one chunk
+	 */
+	public int getChunkSize() {
+		return this.writerTask.getChunkSize();
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "\n\tBlocked inserts: " + this.getNumberOfBlockedInserts() + "\n\tDropped records: "
+				+ this.getNumberOfDroppedRecords() + "\n\tChunk size: " + this.getChunkSize();
+	}
+
 }
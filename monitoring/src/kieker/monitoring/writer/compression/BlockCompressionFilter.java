@@ -0,0 +1,147 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.util.filesystem.BlockFileFormat;
+import kieker.common.util.filesystem.FSUtil;
+
+/**
+ * Block compression filter for the writer pool. The data is split into blocks, which are compressed independently by a
+ * pool of workers and written as frames of the {@link BlockFileFormat}. Hence, the writer thread does not compress
+ * and the files can be decompressed in parallel.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BlockCompressionFilter implements ICompressionFilter {
+
+	public static final String PREFIX = BlockCompressionFilter.class.getName() + ".";
+	/** The name of the configuration determining the number of uncompressed bytes per frame. */
+	public static final String CONFIG_BLOCK_SIZE = PREFIX + "blockSize";
+	/** The name of the configuration determining the number of compression workers; 0 for the number of processors. */
+	public static final String CONFIG_WORKERS = PREFIX + "workers";
+	/** The name of the configuration determining the deflate compression level (1-9). */
+	public static final String CONFIG_LEVEL = PREFIX + "level";
+
+	private final int blockSize;
+	private final int workers;
+	private final int level;
+	/** created for the first open stream and shut down when the last open stream is closed. */
+	private ExecutorService executor;
+	private int openStreams;
+
+	/**
+	 * Initialize block compression with parameter to adhere Kieker configuration system.
+	 *
+	 * @param configuration
+	 *            Kieker configuration object
+	 */
+	public BlockCompressionFilter(final Configuration configuration) {
+		this.blockSize = Math.min(BlockFileFormat.MAX_BLOCK_SIZE,
+				Math.max(1024, configuration.getIntProperty(CONFIG_BLOCK_SIZE, BlockFileFormat.DEFAULT_BLOCK_SIZE)));
+		final int configuredWorkers = configuration.getIntProperty(CONFIG_WORKERS, 0);
+		this.workers = (configuredWorkers > 0) ? configuredWorkers : Runtime.getRuntime().availableProcessors(); // NOCS (inline conditional)
+		final int configuredLevel = configuration.getIntProperty(CONFIG_LEVEL, Deflater.BEST_SPEED);
+		this.level = ((configuredLevel >= Deflater.BEST_SPEED) && (configuredLevel <= Deflater.BEST_COMPRESSION)) ? configuredLevel // NOCS
+				: Deflater.BEST_SPEED;
+	}
+
+	@Override
+	public synchronized OutputStream chainOutputStream(final OutputStream outputStream, final Path fileName) throws IOException {
+		if (this.executor == null) {
+			this.executor = Executors.newFixedThreadPool(this.workers, new DaemonThreadFactory());
+		}
+		final OutputStream stream = new ReleasingOutputStream(outputStream, this.blockSize, this.level, this.executor, 2 * this.workers);
+		this.openStreams++;
+		return stream;
+	}
+
+	private synchronized void releaseStream() {
+		this.openStreams--;
+		if (this.openStreams == 0) {
+			// all blocks of the closed streams have been compressed
+			this.executor.shutdown();
+			this.executor = null;
+		}
+	}
+
+	@Override
+	public String getExtension() {
+		return FSUtil.BLOCK_FILE_EXTENSION;
+	}
+
+	/**
+	 * Block compression stream which releases the workers of the filter when it is closed.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private final class ReleasingOutputStream extends BlockCompressionOutputStream {
+		private boolean released;
+
+		public ReleasingOutputStream(final OutputStream outputStream, final int blockSize, final int level, final ExecutorService executor,
+				final int maxPendingFrames) throws IOException {
+			super(outputStream, blockSize, level, executor, maxPendingFrames);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				if (!this.released) {
+					this.released = true;
+					BlockCompressionFilter.this.releaseStream();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates daemon threads, so that the workers of streams which are not closed do not keep the JVM alive.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		public DaemonThreadFactory() {
+			// empty default constructor
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "kieker-block-compression-" + this.threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.compression;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import kieker.common.util.filesystem.BlockFileFormat;
+
+/**
+ * Output stream which writes the {@link BlockFileFormat}. Full blocks are compressed by the workers of an executor and
+ * the frames are written in the order of the blocks by the thread using the stream. The number of blocks in
+ * compression is limited; if the limit is reached, the writing thread waits for the oldest block.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class BlockCompressionOutputStream extends OutputStream {
+
+	private final DataOutputStream outputStream;
+	private final int blockSize;
+	private final int level;
+	private final ExecutorService executor;
+	private final int maxPendingFrames;
+
+	/** frames in compression in the order of their blocks. */
+	private final Queue<Future<Frame>> pendingFrames = new ArrayDeque<>();
+	/** blocks which have been compressed and can be reused. */
+	private final Queue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+
+	private byte[] block;
+	private int blockPosition;
+
+	/** position of the next frame in the file. */
+	private long frameOffset = BlockFileFormat.HEADER_SIZE;
+	private long uncompressedOffset;
+	/** frame index, pairs of frame offset and uncompressed offset. */
+	private long[] index = new long[32];
+	private int numberOfFrames;
+
+	private boolean closed;
+
+	/**
+	 * Create a block compression stream and write the file header.
+	 *
+	 * @param outputStream
+	 *            stream of the file
+	 * @param blockSize
+	 *            uncompressed size of a frame
+	 * @param level
+	 *            deflate compression level
+	 * @param executor
+	 *            executor used to compress the blocks
+	 * @param maxPendingFrames
+	 *            maximal number of blocks in compression
+	 *
+	 * @throws IOException
+	 *             when the header cannot be written
+	 */
+	public BlockCompressionOutputStream(final OutputStream outputStream, final int blockSize, final int level,
+			final ExecutorService executor, final int maxPendingFrames) throws IOException {
+		this.outputStream = new DataOutputStream(outputStream);
+		this.blockSize = blockSize;
+		this.level = level;
+		this.executor = executor;
+		this.maxPendingFrames = Math.max(1, maxPendingFrames);
+		this.block = new byte[blockSize];
+
+		this.outputStream.writeInt(BlockFileFormat.MAGIC);
+		this.outputStream.writeByte(BlockFileFormat.VERSION);
+		this.outputStream.writeByte(BlockFileFormat.CODEC_DEFLATE);
+		this.outputStream.writeInt(blockSize);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (this.blockPosition == this.blockSize) {
+			this.submitBlock();
+		}
+		this.block[this.blockPosition++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+		int position = offset;
+		int remaining = length;
+		while (remaining > 0) {
+			if (this.blockPosition == this.blockSize) {
+				this.submitBlock();
+			}
+			final int size = Math.min(remaining, this.blockSize - this.blockPosition);
+			System.arraycopy(bytes, position, this.block, this.blockPosition, size);
+			this.blockPosition += size;
+			position += size;
+			remaining -= size;
+		}
+	}
+
+	/**
+	 * Compresses the current partial block and writes all frames. Frequent flushes result in small frames.
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.submitBlock();
+		while (!this.pendingFrames.isEmpty()) {
+			this.writeFrame(this.pendingFrames.poll());
+		}
+		this.outputStream.flush();
+	}
+
+	/**
+	 * Writes all frames, the frame index, and the trailer.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.flush();
+			this.outputStream.writeInt(BlockFileFormat.END_OF_FRAMES);
+			final long indexOffset = this.frameOffset + 4;
+			for (int i = 0; i < (this.numberOfFrames * 2); i++) {
+				this.outputStream.writeLong(this.index[i]);
+			}
+			this.outputStream.writeLong(indexOffset);
+			this.outputStream.writeInt(this.numberOfFrames);
+			this.outputStream.writeInt(BlockFileFormat.INDEX_MAGIC);
+		} finally {
+			this.outputStream.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		if (this.blockPosition == 0) {
+			return;
+		}
+		// write completed frames and wait for the oldest frame if too many blocks are in compression
+		while (!this.pendingFrames.isEmpty() && (this.pendingFrames.peek().isDone() || (this.pendingFrames.size() >= this.maxPendingFrames))) {
+			this.writeFrame(this.pendingFrames.poll());
+		}
+		this.pendingFrames.add(this.executor.submit(new CompressionTask(this.block, this.blockPosition)));
+
+		final byte[] freeBlock = this.freeBlocks.poll();
+		this.block = (freeBlock != null) ? freeBlock : new byte[this.blockSize]; // NOCS (inline conditional)
+		this.blockPosition = 0;
+	}
+
+	private void writeFrame(final Future<Frame> future) throws IOException {
+		final Frame frame;
+		try {
+			frame = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for compression.");
+		} catch (final ExecutionException e) {
+			throw new IOException("Compression of a block failed.", e.getCause());
+		}
+		if (this.numberOfFrames * 2 == this.index.length) {
+			this.index = Arrays.copyOf(this.index, this.index.length * 2);
+		}
+		this.index[this.numberOfFrames * 2] = this.frameOffset;
+		this.index[(this.numberOfFrames * 2) + 1] = this.uncompressedOffset;
+		this.numberOfFrames++;
+
+		this.outputStream.writeInt(frame.uncompressedLength);
+		this.outputStream.writeInt(frame.compressedLength);
+		this.outputStream.write(frame.data, 0, frame.compressedLength);
+
+		this.frameOffset += BlockFileFormat.FRAME_HEADER_SIZE + frame.compressedLength;
+		this.uncompressedOffset += frame.uncompressedLength;
+	}
+
+	/**
+	 * A compressed block.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class Frame {
+		final byte[] data; // NOPMD (package for outer class)
+		final int compressedLength; // NOPMD (package for outer class)
+		final int uncompressedLength; // NOPMD (package for outer class)
+
+		public Frame(final byte[] data, final int compressedLength, final int uncompressedLength) {
+			this.data = data;
+			this.compressedLength = compressedLength;
+			this.uncompressedLength = uncompressedLength;
+		}
+	}
+
+	/**
+	 * Compresses one block and returns the block for reuse.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private final class CompressionTask implements Callable<Frame> {
+		private final byte[] uncompressed;
+		private final int length;
+
+		public CompressionTask(final byte[] uncompressed, final int length) {
+			this.uncompressed = uncompressed;
+			this.length = length;
+		}
+
+		@Override
+		public Frame call() {
+			final Deflater deflater = new Deflater(BlockCompressionOutputStream.this.level);
+			try {
+				deflater.setInput(this.uncompressed, 0, this.length);
+				deflater.finish();
+				// deflate may expand incompressible data slightly
+				byte[] compressed = new byte[BlockFileFormat.getMaxCompressedLength(this.length)];
+				int compressedLength = 0;
+				while (!deflater.finished()) {
+					if (compressedLength == compressed.length) {
+						compressed = Arrays.copyOf(compressed, compressed.length * 2);
+					}
+					compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+				}
+				return new Frame(compressed, compressedLength, this.length);
+			} finally {
+				deflater.end();
+				BlockCompressionOutputStream.this.freeBlocks.add(this.uncompressed);
+			}
+		}
+	}
+}
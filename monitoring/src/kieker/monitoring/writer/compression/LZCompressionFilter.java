@@ -0,0 +1,70 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.util.filesystem.FSUtil;
+import kieker.common.util.filesystem.LZCodec;
+import kieker.common.util.filesystem.LZFileFormat;
+
+/**
+ * Fast LZ compression filter for the writer pool, see {@link LZCodec}. It is implemented in pure Java and fast enough
+ * to compress on the writer thread. As Kieker records are repetitive, the beginning of each log file is used as a
+ * dictionary for the remaining frames.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class LZCompressionFilter implements ICompressionFilter {
+
+	public static final String PREFIX = LZCompressionFilter.class.getName() + ".";
+	/** The name of the configuration determining the number of uncompressed bytes per frame. */
+	public static final String CONFIG_BLOCK_SIZE = PREFIX + "blockSize";
+	/** The name of the configuration determining the size of the dictionary; 0 disables the dictionary. */
+	public static final String CONFIG_DICTIONARY_SIZE = PREFIX + "dictionarySize";
+
+	private final int blockSize;
+	private final int dictionarySize;
+
+	/**
+	 * Initialize LZ compression with parameter to adhere Kieker configuration system.
+	 *
+	 * @param configuration
+	 *            Kieker configuration object
+	 */
+	public LZCompressionFilter(final Configuration configuration) {
+		this.blockSize = Math.max(1024, configuration.getIntProperty(CONFIG_BLOCK_SIZE, LZFileFormat.DEFAULT_BLOCK_SIZE));
+		// matches cannot reach further back than the maximal offset of the codec
+		this.dictionarySize = Math.min(LZCodec.MAX_OFFSET,
+				Math.max(0, configuration.getIntProperty(CONFIG_DICTIONARY_SIZE, LZFileFormat.DEFAULT_DICTIONARY_SIZE)));
+	}
+
+	@Override
+	public OutputStream chainOutputStream(final OutputStream outputStream, final Path fileName) throws IOException {
+		return new LZCompressionOutputStream(outputStream, this.blockSize, this.dictionarySize);
+	}
+
+	@Override
+	public String getExtension() {
+		return FSUtil.LZ_FILE_EXTENSION;
+	}
+}
@@ -0,0 +1,151 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.compression;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import kieker.common.util.filesystem.LZCodec;
+import kieker.common.util.filesystem.LZFileFormat;
+
+/**
+ * Output stream which writes the {@link LZFileFormat}. The first bytes written to the stream are kept as dictionary;
+ * all frames are compressed with the dictionary in front of them.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class LZCompressionOutputStream extends OutputStream {
+
+	private final DataOutputStream outputStream;
+	private final int blockSize;
+	private final int dictionarySize;
+	private final LZCodec codec = new LZCodec();
+
+	/** dictionary at <code>[0, dictionaryLength)</code> followed by the current block. */
+	private final byte[] window;
+	private int dictionaryLength;
+	private int blockPosition;
+
+	private final byte[] compressed;
+
+	private boolean closed;
+
+	/**
+	 * Create a compression stream and write the file header.
+	 *
+	 * @param outputStream
+	 *            stream of the file
+	 * @param blockSize
+	 *            uncompressed size of a frame
+	 * @param dictionarySize
+	 *            number of bytes at the beginning of the data used as dictionary, 0 for no dictionary
+	 *
+	 * @throws IOException
+	 *             when the header cannot be written
+	 */
+	public LZCompressionOutputStream(final OutputStream outputStream, final int blockSize, final int dictionarySize)
+			throws IOException {
+		this.outputStream = new DataOutputStream(outputStream);
+		this.blockSize = blockSize;
+		this.dictionarySize = dictionarySize;
+		this.window = new byte[dictionarySize + blockSize];
+		this.compressed = new byte[LZCodec.maxCompressedLength(blockSize)];
+
+		this.outputStream.writeInt(LZFileFormat.MAGIC);
+		this.outputStream.writeByte(LZFileFormat.VERSION);
+		this.outputStream.writeInt(blockSize);
+		this.outputStream.writeInt(dictionarySize);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (this.blockPosition == this.blockSize) {
+			this.writeFrame();
+		}
+		this.window[this.dictionaryLength + this.blockPosition++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+		int position = offset;
+		int remaining = length;
+		while (remaining > 0) {
+			if (this.blockPosition == this.blockSize) {
+				this.writeFrame();
+			}
+			final int size = Math.min(remaining, this.blockSize - this.blockPosition);
+			System.arraycopy(bytes, position, this.window, this.dictionaryLength + this.blockPosition, size);
+			this.blockPosition += size;
+			position += size;
+			remaining -= size;
+		}
+	}
+
+	/**
+	 * Writes the current partial block as frame. Frequent flushes result in small frames.
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.writeFrame();
+		this.outputStream.flush();
+	}
+
+	/**
+	 * Writes the last frame and the end marker.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.writeFrame();
+			this.outputStream.writeByte(LZFileFormat.END_OF_FRAMES);
+		} finally {
+			this.outputStream.close();
+		}
+	}
+
+	private void writeFrame() throws IOException {
+		if (this.blockPosition == 0) {
+			return;
+		}
+		final int compressedLength = this.codec.compress(this.window, this.dictionaryLength, this.blockPosition, this.compressed, 0);
+		if (compressedLength < this.blockPosition) {
+			this.outputStream.writeByte(LZFileFormat.FRAME_COMPRESSED);
+			this.outputStream.writeInt(this.blockPosition);
+			this.outputStream.writeInt(compressedLength);
+			this.outputStream.write(this.compressed, 0, compressedLength);
+		} else {
+			this.outputStream.writeByte(LZFileFormat.FRAME_STORED);
+			this.outputStream.writeInt(this.blockPosition);
+			this.outputStream.writeInt(this.blockPosition);
+			this.outputStream.write(this.window, this.dictionaryLength, this.blockPosition);
+		}
+
+		// the beginning of the data becomes the dictionary, as it is already in place
+		if (this.dictionaryLength < this.dictionarySize) {
+			this.dictionaryLength += Math.min(this.dictionarySize - this.dictionaryLength, this.blockPosition);
+			this.codec.setDictionary(this.window, this.dictionaryLength);
+		}
+		this.blockPosition = 0;
+	}
+}
@@ -21,10 +21,12 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.IWriterQueueElement;
 import kieker.common.record.controlflow.OperationExecutionRecord;
 import kieker.monitoring.writer.MonitoringWriterThread;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
-public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
+public class DumpQueue implements BlockingQueue<IWriterQueueElement> { // NOPMD
 
 	private boolean active;
 	private final IMonitoringRecord dummyObject = new OperationExecutionRecord("test", "test", 0L, 0L, 0L, "test", 0, 0);
@@ -38,22 +40,22 @@ public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
 	}
 
 	@Override
-	public IMonitoringRecord remove() {
+	public IWriterQueueElement remove() {
 		return null;
 	}
 
 	@Override
-	public IMonitoringRecord poll() {
+	public IWriterQueueElement poll() {
 		return null;
 	}
 
 	@Override
-	public IMonitoringRecord element() {
+	public IWriterQueueElement element() {
 		return null;
 	}
 
 	@Override
-	public IMonitoringRecord peek() {
+	public IWriterQueueElement peek() {
 		return null;
 	}
 
@@ -68,7 +70,7 @@ public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
 	}
 
 	@Override
-	public Iterator<IMonitoringRecord> iterator() {
+	public Iterator<IWriterQueueElement> iterator() {
 		return null;
 	}
 
@@ -88,7 +90,7 @@ public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
 	}
 
 	@Override
-	public boolean addAll(final Collection<? extends IMonitoringRecord> c) {
+	public boolean addAll(final Collection<? extends IWriterQueueElement> c) {
 		return false;
 	}
 
@@ -108,35 +110,37 @@ public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
 	}
 
 	@Override
-	public boolean add(final IMonitoringRecord e) {
+	public boolean add(final IWriterQueueElement e) {
 		return false;
 	}
 
 	@Override
-	public boolean offer(final IMonitoringRecord e) {
+	public boolean offer(final IWriterQueueElement e) {
 		return false;
 	}
 
 	@Override
-	public void put(final IMonitoringRecord e) throws InterruptedException {
+	public void put(final IWriterQueueElement e) throws InterruptedException {
 		if (e == MonitoringWriterThread.END_OF_MONITORING_RECORD) {
 			this.active = false;
+		} else {
+			EncodedEventChunk.releaseIfChunk(e);
 		}
 	}
 
 	@Override
-	public boolean offer(final IMonitoringRecord e, final long timeout, final TimeUnit unit)
+	public boolean offer(final IWriterQueueElement e, final long timeout, final TimeUnit unit)
 			throws InterruptedException {
 		return false;
 	}
 
 	@Override
-	public IMonitoringRecord take() throws InterruptedException {
+	public IWriterQueueElement take() throws InterruptedException {
 		return this.active ? this.dummyObject : MonitoringWriterThread.END_OF_MONITORING_RECORD; // NOCS
 	}
 
 	@Override
-	public IMonitoringRecord poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+	public IWriterQueueElement poll(final long timeout, final TimeUnit unit) throws InterruptedException {
 		return null;
 	}
 
@@ -156,12 +160,12 @@ public class DumpQueue implements BlockingQueue<IMonitoringRecord> { // NOPMD
 	}
 
 	@Override
-	public int drainTo(final Collection<? super IMonitoringRecord> c) {
+	public int drainTo(final Collection<? super IWriterQueueElement> c) {
 		return 0;
 	}
 
 	@Override
-	public int drainTo(final Collection<? super IMonitoringRecord> c, final int maxElements) {
+	public int drainTo(final Collection<? super IWriterQueueElement> c, final int maxElements) {
 		return 0;
 	}
 }
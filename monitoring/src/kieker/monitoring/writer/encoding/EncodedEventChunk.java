@@ -0,0 +1,210 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.IWriterQueueElement;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+
+/**
+ * A reusable chunk of operation events which have been encoded by a probe into preallocated off-heap slots
+ * instead of being created as record objects. Strings are stored as {@link StringInterner} ids.
+ * <br>
+ * The chunk is passed to {@link kieker.monitoring.core.controller.IWriterController#newEncodedEventChunk(EncodedEventChunk)}
+ * and shares the writer queue with the records. The {@link kieker.monitoring.writer.MonitoringWriterThread} hands it to
+ * {@link kieker.monitoring.writer.AbstractMonitoringWriter#writeEncodedEvents(EncodedEventChunk)} and afterwards
+ * releases it, so that the probe can reuse it. Every other party which accepts the chunk without handing it to the
+ * writer, e.g., an insert behavior dropping elements of a full queue, must release it with {@link #releaseIfChunk(Object)}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public final class EncodedEventChunk implements IWriterQueueElement {
+
+	/** Event type of a {@link BeforeOperationEvent}. */
+	public static final byte BEFORE_OPERATION_EVENT = 1;
+	/** Event type of an {@link AfterOperationEvent}. */
+	public static final byte AFTER_OPERATION_EVENT = 2;
+
+	private static final int SLOT_SIZE = 40;
+	private static final int TYPE_OFFSET = 0;
+	private static final int TIMESTAMP_OFFSET = 8;
+	private static final int TRACE_ID_OFFSET = 16;
+	private static final int ORDER_INDEX_OFFSET = 24;
+	private static final int OPERATION_SIGNATURE_OFFSET = 28;
+	private static final int CLASS_SIGNATURE_OFFSET = 32;
+
+	private final ByteBuffer slots;
+	private final int capacity;
+	private int count;
+	/** true if the monitoring controller assigns logging timestamps; the event timestamp is used in this case. */
+	private boolean autoLoggingTimestamp;
+	/** true while the chunk is owned by the writer. */
+	private volatile boolean published;
+
+	/**
+	 * Create a new chunk.
+	 *
+	 * @param capacity
+	 *            number of events the chunk can hold
+	 */
+	public EncodedEventChunk(final int capacity) {
+		this.capacity = capacity;
+		this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Encode an event.
+	 *
+	 * @param type
+	 *            the event type, either {@link #BEFORE_OPERATION_EVENT} or {@link #AFTER_OPERATION_EVENT}
+	 * @param timestamp
+	 *            event timestamp
+	 * @param traceId
+	 *            trace id
+	 * @param orderIndex
+	 *            order index
+	 * @param operationSignatureId
+	 *            interned id of the operation signature
+	 * @param classSignatureId
+	 *            interned id of the class signature
+	 * @return <code>true</code> if the chunk is full after adding this event
+	 */
+	public boolean add(final byte type, final long timestamp, final long traceId, final int orderIndex, final int operationSignatureId,
+			final int classSignatureId) {
+		final int offset = this.count * SLOT_SIZE;
+		this.slots.put(offset + TYPE_OFFSET, type);
+		this.slots.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+		this.slots.putLong(offset + TRACE_ID_OFFSET, traceId);
+		this.slots.putInt(offset + ORDER_INDEX_OFFSET, orderIndex);
+		this.slots.putInt(offset + OPERATION_SIGNATURE_OFFSET, operationSignatureId);
+		this.slots.putInt(offset + CLASS_SIGNATURE_OFFSET, classSignatureId);
+		this.count++;
+		return this.count == this.capacity;
+	}
+
+	public int size() {
+		return this.count;
+	}
+
+	public byte getType(final int index) {
+		return this.slots.get((index * SLOT_SIZE) + TYPE_OFFSET);
+	}
+
+	public long getTimestamp(final int index) {
+		return this.slots.getLong((index * SLOT_SIZE) + TIMESTAMP_OFFSET);
+	}
+
+	public long getTraceId(final int index) {
+		return this.slots.getLong((index * SLOT_SIZE) + TRACE_ID_OFFSET);
+	}
+
+	public int getOrderIndex(final int index) {
+		return this.slots.getInt((index * SLOT_SIZE) + ORDER_INDEX_OFFSET);
+	}
+
+	public int getOperationSignatureId(final int index) {
+		return this.slots.getInt((index * SLOT_SIZE) + OPERATION_SIGNATURE_OFFSET);
+	}
+
+	public int getClassSignatureId(final int index) {
+		return this.slots.getInt((index * SLOT_SIZE) + CLASS_SIGNATURE_OFFSET);
+	}
+
+	/**
+	 * @param index
+	 *            event index
+	 * @return the logging timestamp a record object of this event would have had
+	 */
+	public long getEventLoggingTimestamp(final int index) {
+		return this.autoLoggingTimestamp ? this.getTimestamp(index) : -1; // NOCS (inline conditional)
+	}
+
+	/**
+	 * Create the record object of an event. Used by writers which cannot handle encoded events directly.
+	 *
+	 * @param index
+	 *            event index
+	 * @return the record
+	 */
+	public IMonitoringRecord createRecord(final int index) {
+		final StringInterner interner = StringInterner.INSTANCE;
+		final String operationSignature = interner.get(this.getOperationSignatureId(index));
+		final String classSignature = interner.get(this.getClassSignatureId(index));
+		final IMonitoringRecord record;
+		if (this.getType(index) == BEFORE_OPERATION_EVENT) {
+			record = new BeforeOperationEvent(this.getTimestamp(index), this.getTraceId(index), this.getOrderIndex(index),
+					operationSignature, classSignature);
+		} else {
+			record = new AfterOperationEvent(this.getTimestamp(index), this.getTraceId(index), this.getOrderIndex(index),
+					operationSignature, classSignature);
+		}
+		record.setLoggingTimestamp(this.getEventLoggingTimestamp(index));
+		return record;
+	}
+
+	/**
+	 * Marks the chunk as handed over to the writer.
+	 */
+	public void markPublished() {
+		this.published = true;
+	}
+
+	public boolean isPublished() {
+		return this.published;
+	}
+
+	/**
+	 * Called by the writer side after all events have been written. Afterwards, the probe may reuse the chunk.
+	 */
+	public void release() {
+		this.count = 0;
+		this.autoLoggingTimestamp = false;
+		this.published = false;
+	}
+
+	/**
+	 * Releases the given element of the writer queue if it is a chunk. Called by all parties which drop elements
+	 * instead of handing them to the writer.
+	 *
+	 * @param element
+	 *            a record or a chunk
+	 */
+	public static void releaseIfChunk(final Object element) {
+		if (element instanceof EncodedEventChunk) {
+			((EncodedEventChunk) element).release();
+		}
+	}
+
+	/**
+	 * Called by the monitoring controller if it automatically assigns logging timestamps. In this case, each
+	 * event uses its own timestamp as logging timestamp.
+	 */
+	public void enableAutoLoggingTimestamp() {
+		this.autoLoggingTimestamp = true;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "[size=" + this.count + "]";
+	}
+}
@@ -0,0 +1,147 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.CompactValueSerializer;
+import kieker.common.registry.writer.IWriterRegistry;
+
+/**
+ * Serializes encoded events of an {@link EncodedEventChunk} into a byte buffer. The produced bytes are identical to
+ * the binary serialization of the corresponding {@link BeforeOperationEvent} or {@link AfterOperationEvent} record
+ * including the class id and logging timestamp header, i.e.,
+ * <code>[int classId][long loggingTimestamp][long timestamp][long traceId][int orderIndex][int operationSignature][int classSignature]</code>.
+ * <br>
+ * Interned string ids are translated into ids of the writer registry. The translation is cached, so strings are
+ * looked up in the registry only once. Strings are registered in the same order as by the binary value serializer.
+ * Hence, the registry entries are identical as well.
+ * <br>
+ * Each writer must use its own serializer, as the serializer is not thread-safe.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class EncodedEventSerializer {
+
+	/** Number of bytes of a serialized event including class id and logging timestamp. */
+	public static final int ENCODED_RECORD_SIZE = 4 + 8 + BeforeOperationEvent.SIZE;
+	/** Maximal size of an event in the compact binary encoding. */
+	public static final int COMPACT_ENCODED_RECORD_SIZE = CompactValueSerializer.getMaxRecordSize(BeforeOperationEvent.SIZE);
+
+	private static final int MISSING_ID = -1;
+
+	private final IWriterRegistry<String> writerRegistry;
+	/** maps interned string ids to writer registry ids. */
+	private int[] registryIds = new int[0];
+	private int beforeOperationEventClassId = MISSING_ID;
+	private int afterOperationEventClassId = MISSING_ID;
+
+	/**
+	 * Create a new serializer.
+	 *
+	 * @param writerRegistry
+	 *            registry of the writer
+	 */
+	public EncodedEventSerializer(final IWriterRegistry<String> writerRegistry) {
+		this.writerRegistry = writerRegistry;
+	}
+
+	/**
+	 * Serialize one event of a chunk. The buffer must provide at least {@link #ENCODED_RECORD_SIZE} bytes.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @param index
+	 *            index of the event in the chunk
+	 * @param buffer
+	 *            the buffer to write to
+	 */
+	public void serialize(final EncodedEventChunk chunk, final int index, final ByteBuffer buffer) {
+		// look up the ids in the order used by the record serialization to obtain identical registry entries
+		final int classId = this.getClassId(chunk.getType(index));
+		final int operationSignatureId = this.getRegistryId(chunk.getOperationSignatureId(index));
+		final int classSignatureId = this.getRegistryId(chunk.getClassSignatureId(index));
+
+		buffer.putInt(classId);
+		buffer.putLong(chunk.getEventLoggingTimestamp(index));
+		buffer.putLong(chunk.getTimestamp(index));
+		buffer.putLong(chunk.getTraceId(index));
+		buffer.putInt(chunk.getOrderIndex(index));
+		buffer.putInt(operationSignatureId);
+		buffer.putInt(classSignatureId);
+	}
+
+	/**
+	 * Serialize one event of a chunk in the compact binary encoding. The buffer must provide at least
+	 * {@link #COMPACT_ENCODED_RECORD_SIZE} bytes.
+	 *
+	 * @param chunk
+	 *            the chunk
+	 * @param index
+	 *            index of the event in the chunk
+	 * @param serializer
+	 *            the compact serializer of the stream
+	 * @param buffer
+	 *            the buffer to write to
+	 */
+	public void serialize(final EncodedEventChunk chunk, final int index, final CompactValueSerializer serializer, final ByteBuffer buffer) {
+		final int classId = this.getClassId(chunk.getType(index));
+		final int operationSignatureId = this.getRegistryId(chunk.getOperationSignatureId(index));
+		final int classSignatureId = this.getRegistryId(chunk.getClassSignatureId(index));
+
+		serializer.beginRecord(classId, chunk.getEventLoggingTimestamp(index));
+		serializer.putLong(chunk.getTimestamp(index));
+		serializer.putLong(chunk.getTraceId(index));
+		serializer.putInt(chunk.getOrderIndex(index));
+		serializer.putStringId(operationSignatureId);
+		serializer.putStringId(classSignatureId);
+		serializer.endRecord(buffer);
+	}
+
+	private int getClassId(final byte type) {
+		if (type == EncodedEventChunk.BEFORE_OPERATION_EVENT) {
+			if (this.beforeOperationEventClassId == MISSING_ID) {
+				this.beforeOperationEventClassId = this.writerRegistry.getId(BeforeOperationEvent.class.getName());
+			}
+			return this.beforeOperationEventClassId;
+		} else {
+			if (this.afterOperationEventClassId == MISSING_ID) {
+				this.afterOperationEventClassId = this.writerRegistry.getId(AfterOperationEvent.class.getName());
+			}
+			return this.afterOperationEventClassId;
+		}
+	}
+
+	private int getRegistryId(final int internedId) {
+		if (internedId >= this.registryIds.length) {
+			final int oldLength = this.registryIds.length;
+			this.registryIds = Arrays.copyOf(this.registryIds, Math.max(internedId + 1, oldLength * 2));
+			Arrays.fill(this.registryIds, oldLength, this.registryIds.length, MISSING_ID);
+		}
+		int registryId = this.registryIds[internedId];
+		if (registryId == MISSING_ID) {
+			registryId = this.writerRegistry.getId(StringInterner.INSTANCE.get(internedId));
+			this.registryIds[internedId] = registryId;
+		}
+		return registryId;
+	}
+}
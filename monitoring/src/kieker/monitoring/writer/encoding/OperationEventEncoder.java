@@ -0,0 +1,273 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import kieker.common.util.thread.DaemonThreadFactory;
+import kieker.monitoring.core.controller.IMonitoringController;
+
+/**
+ * Encodes operation events of probes into thread-local {@link EncodedEventChunk}s instead of creating record objects.
+ * A chunk is handed to the monitoring controller when it is full, when the probe calls {@link #flush(IMonitoringController)},
+ * e.g., at the end of a trace, by a periodic flush task if the thread has not published its events for
+ * {@link #FLUSH_INTERVAL_MS}, and by {@link #flushAll(IMonitoringController)} when monitoring is terminated. Each
+ * thread alternates between two chunks, so that in the steady state no objects are allocated: while the writer
+ * processes one chunk, the probe fills the other.
+ * <br>
+ * All other records of the thread must be passed to the monitoring controller only after flushing the encoder.
+ * Otherwise, they overtake the encoded events.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public enum OperationEventEncoder { // Singleton (Effective Java #3)
+	/** The singleton instance. */
+	INSTANCE;
+
+	/** Number of events per chunk. */
+	public static final int CHUNK_SIZE = 64;
+	/** Maximal time in milliseconds the encoded events of an idle thread are held back. */
+	public static final long FLUSH_INTERVAL_MS = 100;
+
+	private static final long FLUSH_INTERVAL_NS = TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+
+	/** states of all threads including terminated threads which still have encoded events. */
+	private final Queue<EncoderState> states = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<EncoderState> state = new ThreadLocal<EncoderState>() {
+		@Override
+		protected EncoderState initialValue() {
+			return OperationEventEncoder.this.register(new EncoderState(Thread.currentThread()));
+		}
+	};
+
+	/** started with the first encoder state. */
+	private ScheduledExecutorService flushExecutor;
+
+	/**
+	 * Encode a before operation event.
+	 *
+	 * @param controller
+	 *            the monitoring controller which receives full chunks
+	 * @param timestamp
+	 *            event timestamp
+	 * @param traceId
+	 *            trace id
+	 * @param orderIndex
+	 *            order index
+	 * @param operationSignatureId
+	 *            {@link StringInterner} id of the operation signature
+	 * @param classSignatureId
+	 *            {@link StringInterner} id of the class signature
+	 */
+	public void encodeBeforeOperationEvent(final IMonitoringController controller, final long timestamp, final long traceId,
+			final int orderIndex, final int operationSignatureId, final int classSignatureId) {
+		this.encode(controller, EncodedEventChunk.BEFORE_OPERATION_EVENT, timestamp, traceId, orderIndex, operationSignatureId,
+				classSignatureId);
+	}
+
+	/**
+	 * Encode an after operation event.
+	 *
+	 * @param controller
+	 *            the monitoring controller which receives full chunks
+	 * @param timestamp
+	 *            event timestamp
+	 * @param traceId
+	 *            trace id
+	 * @param orderIndex
+	 *            order index
+	 * @param operationSignatureId
+	 *            {@link StringInterner} id of the operation signature
+	 * @param classSignatureId
+	 *            {@link StringInterner} id of the class signature
+	 */
+	public void encodeAfterOperationEvent(final IMonitoringController controller, final long timestamp, final long traceId,
+			final int orderIndex, final int operationSignatureId, final int classSignatureId) {
+		this.encode(controller, EncodedEventChunk.AFTER_OPERATION_EVENT, timestamp, traceId, orderIndex, operationSignatureId,
+				classSignatureId);
+	}
+
+	private void encode(final IMonitoringController controller, final byte type, final long timestamp, final long traceId,
+			final int orderIndex, final int operationSignatureId, final int classSignatureId) {
+		final EncoderState encoderState = this.state.get();
+		final boolean full;
+		synchronized (encoderState) { // only contended while the flush task takes the chunk of this thread
+			if (encoderState.current.size() == 0) {
+				encoderState.firstEncodedTimestamp = System.nanoTime();
+			}
+			encoderState.controller = controller;
+			full = encoderState.current.add(type, timestamp, traceId, orderIndex, operationSignatureId, classSignatureId);
+		}
+		if (full) {
+			encoderState.publishLock.lock();
+			try {
+				encoderState.publish(controller);
+			} finally {
+				encoderState.publishLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Hand the events encoded by the calling thread to the monitoring controller.
+	 *
+	 * @param controller
+	 *            the monitoring controller
+	 */
+	public void flush(final IMonitoringController controller) {
+		final EncoderState encoderState = this.state.get();
+		encoderState.publishLock.lock();
+		try {
+			encoderState.publish(controller);
+		} finally {
+			encoderState.publishLock.unlock();
+		}
+	}
+
+	/**
+	 * Hand the events encoded by all threads for the given monitoring controller to the controller. Must be called
+	 * before the controller stops accepting records.
+	 *
+	 * @param controller
+	 *            the monitoring controller
+	 */
+	public void flushAll(final IMonitoringController controller) {
+		for (final EncoderState encoderState : this.states) {
+			encoderState.publishLock.lock();
+			try {
+				if (encoderState.getController() == controller) { // NOPMD (compare references by ==)
+					encoderState.publish(controller);
+				}
+			} finally {
+				encoderState.publishLock.unlock();
+			}
+		}
+	}
+
+	private synchronized EncoderState register(final EncoderState encoderState) {
+		this.states.add(encoderState);
+		if (this.flushExecutor == null) {
+			this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+			this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					OperationEventEncoder.this.flushIdleStates();
+				}
+			}, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+		return encoderState;
+	}
+
+	/**
+	 * Publishes the events of threads which have not published their events for the flush interval, e.g., threads
+	 * which wait within a long-running trace.
+	 */
+	void flushIdleStates() { // NOPMD (package visible for the flush task)
+		final long now = System.nanoTime();
+		final Iterator<EncoderState> iterator = this.states.iterator();
+		while (iterator.hasNext()) {
+			final EncoderState encoderState = iterator.next();
+			if (encoderState.publishLock.tryLock()) { // otherwise, the owning thread is publishing right now
+				try {
+					final IMonitoringController controller = encoderState.getIdleController(now);
+					if (controller != null) {
+						encoderState.publish(controller);
+					}
+					final Thread owner = encoderState.owner.get();
+					if (((owner == null) || !owner.isAlive()) && encoderState.isEmpty()) {
+						iterator.remove(); // the owning thread has terminated
+					}
+				} finally {
+					encoderState.publishLock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Chunks of a single thread. Events are only added by the owning thread while holding the monitor of the state.
+	 * Chunks are taken and handed to the controller while holding the publish lock, which keeps the order of the
+	 * chunks of a thread.
+	 */
+	private static final class EncoderState {
+		/** held while a chunk is taken and handed to the controller. */
+		final ReentrantLock publishLock = new ReentrantLock(); // NOPMD (package for outer class)
+		final WeakReference<Thread> owner; // NOPMD (package for outer class)
+
+		EncodedEventChunk current = new EncodedEventChunk(CHUNK_SIZE); // NOPMD (package for outer class)
+		/** timestamp in ns of the first event in the current chunk. */
+		long firstEncodedTimestamp; // NOPMD (package for outer class)
+		/** controller which receives the current chunk. */
+		IMonitoringController controller; // NOPMD (package for outer class)
+
+		private EncodedEventChunk spare = new EncodedEventChunk(CHUNK_SIZE);
+
+		public EncoderState(final Thread owner) {
+			this.owner = new WeakReference<>(owner);
+		}
+
+		public synchronized IMonitoringController getController() {
+			return this.controller;
+		}
+
+		public synchronized boolean isEmpty() {
+			return this.current.size() == 0;
+		}
+
+		/**
+		 * @return the controller of the current chunk if its first event has been encoded before the flush interval,
+		 *         otherwise null
+		 */
+		public synchronized IMonitoringController getIdleController(final long now) {
+			if ((this.current.size() == 0) || ((now - this.firstEncodedTimestamp) < FLUSH_INTERVAL_NS)) {
+				return null;
+			}
+			return this.controller;
+		}
+
+		/**
+		 * Hands the current chunk to the controller, if it contains events. Must be called while holding the publish lock.
+		 */
+		public void publish(final IMonitoringController receivingController) {
+			final EncodedEventChunk chunk;
+			synchronized (this) {
+				chunk = this.current;
+				if (chunk.size() == 0) {
+					return;
+				}
+				chunk.markPublished();
+				if (this.spare.isPublished()) {
+					// the writer has not written the spare chunk yet; leave it to the writer and the garbage collector
+					this.spare = new EncodedEventChunk(CHUNK_SIZE);
+				}
+				this.current = this.spare;
+				this.spare = chunk;
+			}
+			// the chunk is released by the writer or by whoever drops it
+			receivingController.newEncodedEventChunk(chunk);
+		}
+	}
+}
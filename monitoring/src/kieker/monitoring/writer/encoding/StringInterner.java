@@ -0,0 +1,86 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process-wide, thread-safe string interner which assigns a dense integer id to each string.
+ * Probes use these ids to encode strings in {@link EncodedEventChunk}s. Writers translate them
+ * into the ids of their own (not thread-safe) writer registry.
+ * <br>
+ * Ids are never reused and a string keeps its id for the lifetime of the JVM.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public enum StringInterner { // Singleton (Effective Java #3)
+	/** The singleton instance. */
+	INSTANCE;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private volatile String[] values = new String[INITIAL_CAPACITY]; // NOPMD (volatile array is replaced on growth)
+	private int nextId;
+
+	/**
+	 * Returns the id of the given string and assigns a new id if the string is not known yet.
+	 *
+	 * @param value
+	 *            the string, must not be null
+	 * @return the id of the string
+	 */
+	public int intern(final String value) {
+		final Integer id = this.ids.get(value);
+		if (id != null) {
+			return id;
+		}
+		return this.register(value);
+	}
+
+	private synchronized int register(final String value) {
+		final Integer existingId = this.ids.get(value);
+		if (existingId != null) {
+			return existingId;
+		}
+
+		final int id = this.nextId++;
+		String[] localValues = this.values;
+		if (id >= localValues.length) {
+			localValues = Arrays.copyOf(localValues, localValues.length * 2);
+		}
+		localValues[id] = value;
+		this.values = localValues; // publish the value before its id
+		this.ids.put(value, id);
+		return id;
+	}
+
+	/**
+	 * Returns the string for the given id.
+	 *
+	 * @param id
+	 *            an id previously returned by {@link #intern(String)}
+	 * @return the string
+	 */
+	public String get(final int id) {
+		return this.values[id];
+	}
+}
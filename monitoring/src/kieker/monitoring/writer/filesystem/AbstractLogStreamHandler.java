@@ -20,12 +20,16 @@ import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
+import kieker.common.configuration.Configuration;
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.io.IValueSerializer;
 import kieker.common.registry.writer.WriterRegistry;
 import kieker.monitoring.writer.compression.ICompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * Abstract class for log stream handler. As log stream handler share a lot of functionality,
@@ -91,6 +95,62 @@ public abstract class AbstractLogStreamHandler {
 		this.numOfEntries = 0;
 	}
 
+	/**
+	 * Initialize a new stream for the given log file. The default implementation creates the file and passes its
+	 * output stream to {@link #initialize(OutputStream, Path)}. Handlers which access the file directly override
+	 * this method.
+	 *
+	 * @param outputFile
+	 *            the log file, which must not exist
+	 *
+	 * @throws IOException
+	 *             when the creation of the file or the channel fails
+	 *
+	 * @since 2.0.0
+	 */
+	public void initialize(final Path outputFile) throws IOException {
+		this.initialize(Files.newOutputStream(outputFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+				outputFile.getFileName());
+	}
+
+	/**
+	 * Reads handler specific settings from the configuration of the writer. This is called once after the creation of
+	 * the handler and before its first initialization. The default implementation has no settings.
+	 *
+	 * @param configuration
+	 *            Kieker configuration object
+	 *
+	 * @since 2.0.0
+	 */
+	public void configure(final Configuration configuration) { // NOPMD (empty default implementation)
+		// most handlers have no additional settings
+	}
+
+	/**
+	 * Informs the handler about the number of bytes after which the writer switches to a new log file. A log file
+	 * may exceed this size by one record. The default implementation ignores the size.
+	 *
+	 * @param maxBytesInFile
+	 *            maximal number of bytes in a log file
+	 *
+	 * @since 2.0.0
+	 */
+	public void setMaxBytesInFile(final long maxBytesInFile) { // NOPMD (empty default implementation)
+		// most handlers do not depend on the file size
+	}
+
+	/**
+	 * Tells whether the handler writes into the stream passed to {@link #initialize(OutputStream, Path)}. Only such
+	 * handlers can be combined with a compression filter. The default implementation returns true.
+	 *
+	 * @return true if the handler supports streams
+	 *
+	 * @since 2.0.0
+	 */
+	public boolean supportsStreams() {
+		return true;
+	}
+
 	/**
 	 * Return the number of written entries.
 	 *
@@ -147,4 +207,22 @@ public abstract class AbstractLogStreamHandler {
 	 */
 	public abstract void serialize(IMonitoringRecord record, int id) throws IOException;
 
+	/**
+	 * Serialize an event encoded by a probe. The default implementation creates the record object of the event.
+	 *
+	 * @param chunk
+	 *            the chunk containing the event
+	 * @param index
+	 *            index of the event in the chunk
+	 *
+	 * @throws IOException
+	 *             on io errors, e.g., write errors
+	 *
+	 * @since 2.0.0
+	 */
+	public void serializeEncodedEvent(final EncodedEventChunk chunk, final int index) throws IOException {
+		final IMonitoringRecord record = chunk.createRecord(index);
+		this.serialize(record, this.writerRegistry.getId(record.getClass().getName()));
+	}
+
 }
@@ -0,0 +1,440 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.filesystem;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.filesystem.FSUtil;
+import kieker.monitoring.writer.compression.ICompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
+
+/**
+ * Binary log stream handler which decouples the serialization from the disk. The writer thread serializes into one
+ * buffer while a dedicated I/O thread writes the previous buffers to the log file. The writer thread only waits
+ * for the disk if all buffers are in use; this time is reported as stall time.
+ * <br>
+ * The handler writes the binary format of the {@link BinaryLogStreamHandler}. Written data is forced to the disk
+ * according to the {@link FsyncPolicy}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class AsyncBinaryLogStreamHandler extends AbstractLogStreamHandler {
+
+	public static final String PREFIX = AsyncBinaryLogStreamHandler.class.getName() + ".";
+	/** The name of the configuration determining the number of buffers; at least two. */
+	public static final String CONFIG_BUFFERS = PREFIX + "buffers";
+	/** The name of the configuration determining the {@link FsyncPolicy}. */
+	public static final String CONFIG_FSYNC = PREFIX + "fsync";
+	/** The name of the configuration determining the fsync interval in milliseconds. */
+	public static final String CONFIG_FSYNC_INTERVAL = PREFIX + "fsyncInterval";
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncBinaryLogStreamHandler.class);
+
+	private static final int MIN_BUFFERS = 2;
+	private static final long DEFAULT_FSYNC_INTERVAL = 1000;
+
+	private final int bufferSize;
+	private final EncodedEventSerializer encodedEventSerializer;
+
+	private int numberOfBuffers = MIN_BUFFERS;
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.NEVER;
+	private long fsyncIntervalNs = TimeUnit.MILLISECONDS.toNanos(DEFAULT_FSYNC_INTERVAL);
+
+	private BlockingQueue<IoBuffer> freeBuffers;
+	private BlockingQueue<IoBuffer> fullBuffers;
+	/** buffer used by the writer thread; null if no log file is open. */
+	private IoBuffer current;
+	/** I/O thread of the open log file; null if no log file is open. */
+	private IoThread ioThread;
+	/** whether the failure of the I/O thread has been reported to the writer thread. */
+	private boolean failureReported;
+
+	private final AtomicLong stallTime = new AtomicLong();
+	private final AtomicLong numOfStalls = new AtomicLong();
+	private final AtomicLong writeTime = new AtomicLong();
+	private final AtomicLong syncTime = new AtomicLong();
+	private final AtomicLong numOfSyncs = new AtomicLong();
+
+	/**
+	 * Create an asynchronous binary log stream handler.
+	 *
+	 * @param flushLogFile
+	 *            flush the log stream after every written buffer
+	 * @param bufferSize
+	 *            size of each buffer
+	 * @param charset
+	 *            charset, presently not used in binary serialization
+	 * @param compressionFilter
+	 *            compression filter
+	 * @param writerRegistry
+	 *            writer registry.
+	 */
+	public AsyncBinaryLogStreamHandler(final Boolean flushLogFile, final Integer bufferSize, final Charset charset, // NOPMD charset not used in binary
+			final ICompressionFilter compressionFilter, final WriterRegistry writerRegistry) {
+		super(flushLogFile, bufferSize, charset, compressionFilter, writerRegistry);
+		this.bufferSize = bufferSize;
+		this.encodedEventSerializer = new EncodedEventSerializer(writerRegistry);
+		this.extension = FSUtil.BINARY_FILE_EXTENSION;
+	}
+
+	@Override
+	public void configure(final Configuration configuration) {
+		this.numberOfBuffers = Math.max(MIN_BUFFERS, configuration.getIntProperty(CONFIG_BUFFERS, MIN_BUFFERS));
+		this.fsyncPolicy = configuration.getEnumProperty(CONFIG_FSYNC, FsyncPolicy.class, FsyncPolicy.NEVER);
+		this.fsyncIntervalNs = TimeUnit.MILLISECONDS.toNanos(configuration.getLongProperty(CONFIG_FSYNC_INTERVAL, DEFAULT_FSYNC_INTERVAL));
+	}
+
+	/**
+	 * Opens the log file as file channel, which allows to force written data to the disk.
+	 */
+	@Override
+	public void initialize(final Path outputFile) throws IOException {
+		final FileChannel fileChannel = FileChannel.open(outputFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		if (this.compressionFilter.getExtension() == null) { // no compression, write directly to the file
+			this.serializedStream = null;
+			this.outputChannel = fileChannel;
+		} else {
+			this.serializedStream = this.compressionFilter.chainOutputStream(Channels.newOutputStream(fileChannel), outputFile.getFileName());
+			this.outputChannel = Channels.newChannel(this.serializedStream);
+		}
+		this.start(fileChannel);
+	}
+
+	/**
+	 * Initialize with a stream; data cannot be forced to the disk in this case.
+	 */
+	@Override
+	public void initialize(final OutputStream serializedOutputStream, final Path fileName) throws IOException {
+		super.initialize(serializedOutputStream, fileName);
+		this.start(null);
+	}
+
+	private void start(final FileChannel fileChannel) {
+		if (this.freeBuffers == null) {
+			this.freeBuffers = new ArrayBlockingQueue<>(this.numberOfBuffers);
+			this.fullBuffers = new ArrayBlockingQueue<>(this.numberOfBuffers + 1); // buffers and end of stream
+			for (int i = 0; i < this.numberOfBuffers; i++) {
+				final ByteBuffer buffer = ByteBuffer.allocateDirect(this.bufferSize);
+				this.freeBuffers.add(new IoBuffer(buffer, BinaryValueSerializer.create(buffer, this.writerRegistry)));
+			}
+		}
+		this.numOfEntries = 0;
+		this.numOfBytes = 0;
+		this.failureReported = false;
+		this.current = this.freeBuffers.remove(); // all buffers are free before a file is started
+		this.serializer = this.current.serializer;
+		this.ioThread = new IoThread(fileChannel);
+		this.ioThread.start();
+	}
+
+	@Override
+	public void serialize(final IMonitoringRecord record, final int id) throws IOException {
+		this.requestBufferSpace(4 + 8 + record.getSize());
+
+		final ByteBuffer buffer = this.current.buffer;
+		buffer.putInt(id);
+		buffer.putLong(record.getLoggingTimestamp());
+
+		record.serialize(this.serializer);
+		this.numOfEntries++;
+	}
+
+	@Override
+	public void serializeEncodedEvent(final EncodedEventChunk chunk, final int index) throws IOException {
+		this.requestBufferSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE);
+
+		this.encodedEventSerializer.serialize(chunk, index, this.current.buffer);
+		this.numOfEntries++;
+	}
+
+	/**
+	 * Hands the last buffer to the I/O thread and waits until all buffers are written and the file is closed.
+	 * A failure of the I/O thread has already been logged by the I/O thread; it does not prevent opening the
+	 * next log file. Closing a handler without an open log file has no effect.
+	 */
+	@Override
+	public void close() throws IOException {
+		final IoThread closedIoThread = this.ioThread;
+		if (closedIoThread == null) {
+			return;
+		}
+		this.submit(this.current);
+		this.current = null;
+		this.serializer = null;
+		this.ioThread = null;
+		this.fullBuffers.add(IoBuffer.END_OF_STREAM);
+		try {
+			closedIoThread.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while closing the log file.");
+		}
+		LOGGER.debug("Log file closed. Stalls: {} ({} ms), write time: {} ms, syncs: {} ({} ms)", this.getNumOfStalls(),
+				TimeUnit.NANOSECONDS.toMillis(this.getStallTime()), TimeUnit.NANOSECONDS.toMillis(this.getWriteTime()),
+				this.getNumOfSyncs(), TimeUnit.NANOSECONDS.toMillis(this.getSyncTime()));
+		if (closedIoThread.failure != null) {
+			LOGGER.warn("Closed an incomplete log file after a write failure.");
+		}
+	}
+
+	/**
+	 * Request space in the buffer, if necessary hand the buffer to the I/O thread and continue with a free buffer.
+	 * After a failure of the I/O thread, the buffers of the current log file are discarded; the failure is reported
+	 * once.
+	 *
+	 * @param bufferSpace
+	 *            requested size
+	 * @throws IOException
+	 *             if no log file is open, if writing a previous buffer failed or the writer thread has been interrupted
+	 */
+	private void requestBufferSpace(final int bufferSpace) throws IOException {
+		if (this.current == null) {
+			throw new IOException("No log file is open.");
+		}
+		if (bufferSpace > this.current.buffer.remaining()) {
+			this.submit(this.current);
+			this.current = this.takeFreeBuffer();
+			this.serializer = this.current.serializer;
+			final IOException failure = this.ioThread.failure;
+			if ((failure != null) && !this.failureReported) {
+				this.failureReported = true;
+				throw new IOException("Writing to the log file failed, further records of this file are discarded.", failure);
+			}
+		}
+	}
+
+	private void submit(final IoBuffer ioBuffer) {
+		ioBuffer.buffer.flip();
+		this.numOfBytes += ioBuffer.buffer.limit();
+		this.fullBuffers.add(ioBuffer); // never blocks, the queue can take all buffers
+	}
+
+	private IoBuffer takeFreeBuffer() throws InterruptedIOException {
+		final IoBuffer ioBuffer = this.freeBuffers.poll();
+		if (ioBuffer != null) {
+			return ioBuffer;
+		}
+		final long start = System.nanoTime();
+		try {
+			return this.freeBuffers.take();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free buffer.");
+		} finally {
+			this.stallTime.addAndGet(System.nanoTime() - start);
+			this.numOfStalls.incrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the time in ns the writer thread waited for a free buffer
+	 */
+	public long getStallTime() {
+		return this.stallTime.get();
+	}
+
+	/**
+	 * @return the number of times the writer thread waited for a free buffer
+	 */
+	public long getNumOfStalls() {
+		return this.numOfStalls.get();
+	}
+
+	/**
+	 * @return the time in ns the I/O thread spent writing buffers
+	 */
+	public long getWriteTime() {
+		return this.writeTime.get();
+	}
+
+	/**
+	 * @return the time in ns the I/O thread spent forcing data to the disk
+	 */
+	public long getSyncTime() {
+		return this.syncTime.get();
+	}
+
+	/**
+	 * @return the number of times data has been forced to the disk
+	 */
+	public long getNumOfSyncs() {
+		return this.numOfSyncs.get();
+	}
+
+	/**
+	 * A buffer and its serializer.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private static final class IoBuffer {
+		/** marks the end of the log file. */
+		static final IoBuffer END_OF_STREAM = new IoBuffer(ByteBuffer.allocate(0), null); // NOPMD (package for outer class)
+
+		final ByteBuffer buffer; // NOPMD (package for outer class)
+		final BinaryValueSerializer serializer; // NOPMD (package for outer class)
+
+		public IoBuffer(final ByteBuffer buffer, final BinaryValueSerializer serializer) {
+			this.buffer = buffer;
+			this.serializer = serializer;
+		}
+	}
+
+	/**
+	 * Writes the buffers of one log file and closes the file at the end of the stream.
+	 *
+	 * @author Kieker Project
+	 *
+	 * @since 2.0.0
+	 */
+	private final class IoThread extends Thread {
+		/** the first failure; later buffers are discarded. */
+		volatile IOException failure; // NOPMD (package for outer class)
+
+		/** null if data cannot be forced to the disk. */
+		private final FileChannel fileChannel;
+		private boolean unsynced;
+		private long lastSync = System.nanoTime();
+
+		public IoThread(final FileChannel fileChannel) {
+			super("kieker-log-io");
+			this.setDaemon(true);
+			this.fileChannel = fileChannel;
+		}
+
+		@Override
+		public void run() {
+			final AsyncBinaryLogStreamHandler handler = AsyncBinaryLogStreamHandler.this;
+			try {
+				IoBuffer ioBuffer = this.nextBuffer();
+				while (ioBuffer != IoBuffer.END_OF_STREAM) { // NOPMD (compare references by ==)
+					if (ioBuffer != null) {
+						if (this.failure == null) {
+							this.write(ioBuffer.buffer);
+						}
+						ioBuffer.buffer.clear();
+						handler.freeBuffers.add(ioBuffer);
+					}
+					if ((handler.fsyncPolicy == FsyncPolicy.BUFFER)
+							|| ((handler.fsyncPolicy == FsyncPolicy.INTERVAL) && ((System.nanoTime() - this.lastSync) >= handler.fsyncIntervalNs))) {
+						this.sync();
+					}
+					ioBuffer = this.nextBuffer();
+				}
+				if (handler.fsyncPolicy != FsyncPolicy.NEVER) {
+					this.sync();
+				}
+			} catch (final InterruptedException e) {
+				LOGGER.warn("I/O thread interrupted, the log file may be incomplete.");
+			} finally {
+				this.closeFile();
+			}
+		}
+
+		private IoBuffer nextBuffer() throws InterruptedException {
+			final AsyncBinaryLogStreamHandler handler = AsyncBinaryLogStreamHandler.this;
+			if ((handler.fsyncPolicy == FsyncPolicy.INTERVAL) && this.unsynced) {
+				return handler.fullBuffers.poll(handler.fsyncIntervalNs, TimeUnit.NANOSECONDS);
+			} else {
+				return handler.fullBuffers.take();
+			}
+		}
+
+		private void write(final ByteBuffer buffer) {
+			final AsyncBinaryLogStreamHandler handler = AsyncBinaryLogStreamHandler.this;
+			final long start = System.nanoTime();
+			try {
+				while (buffer.hasRemaining()) {
+					handler.outputChannel.write(buffer);
+				}
+				if (handler.flushLogFile && (handler.serializedStream != null)) {
+					handler.serializedStream.flush();
+				}
+				this.unsynced = true;
+			} catch (final IOException e) {
+				LOGGER.error("Caught exception while writing to the channel.", e);
+				this.failure = e;
+			} finally {
+				handler.writeTime.addAndGet(System.nanoTime() - start);
+			}
+		}
+
+		private void sync() {
+			final AsyncBinaryLogStreamHandler handler = AsyncBinaryLogStreamHandler.this;
+			if (!this.unsynced || (this.fileChannel == null) || (this.failure != null)) {
+				return;
+			}
+			final long start = System.nanoTime();
+			try {
+				if (handler.serializedStream != null) {
+					handler.serializedStream.flush();
+				}
+				this.fileChannel.force(false);
+				this.unsynced = false;
+				handler.numOfSyncs.incrementAndGet();
+			} catch (final IOException e) {
+				LOGGER.error("Caught exception while forcing the log file to the disk.", e);
+				this.failure = e;
+			} finally {
+				this.lastSync = System.nanoTime();
+				handler.syncTime.addAndGet(this.lastSync - start);
+			}
+		}
+
+		private void closeFile() {
+			final AsyncBinaryLogStreamHandler handler = AsyncBinaryLogStreamHandler.this;
+			try {
+				if (handler.serializedStream != null) {
+					handler.outputChannel.close();
+					handler.serializedStream.close();
+				}
+				if (this.fileChannel != null) {
+					this.fileChannel.close();
+				}
+			} catch (final IOException e) {
+				LOGGER.error("Caught exception while closing the log file.", e);
+				if (this.failure == null) {
+					this.failure = e;
+				}
+			}
+		}
+	}
+}
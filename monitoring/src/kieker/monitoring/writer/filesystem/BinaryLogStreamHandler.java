@@ -28,6 +28,8 @@ import kieker.common.registry.writer.WriterRegistry;
 import kieker.common.util.filesystem.FSUtil;
 import kieker.monitoring.writer.WriterUtil;
 import kieker.monitoring.writer.compression.ICompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
 
 /**
  * Binary log stream handler.
@@ -42,6 +44,7 @@ public class BinaryLogStreamHandler extends AbstractLogStreamHandler {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BinaryLogStreamHandler.class);
 
 	private final ByteBuffer buffer;
+	private final EncodedEventSerializer encodedEventSerializer;
 
 	/**
 	 * Create a binary log stream handler.
@@ -62,6 +65,7 @@ public class BinaryLogStreamHandler extends AbstractLogStreamHandler {
 		super(flushLogFile, bufferSize, charset, compressionFilter, writerRegistry);
 		this.buffer = ByteBuffer.allocateDirect(bufferSize);
 		this.serializer = BinaryValueSerializer.create(this.buffer, writerRegistry);
+		this.encodedEventSerializer = new EncodedEventSerializer(writerRegistry);
 		this.extension = FSUtil.BINARY_FILE_EXTENSION;
 	}
 
@@ -76,6 +80,14 @@ public class BinaryLogStreamHandler extends AbstractLogStreamHandler {
 		this.numOfEntries++;
 	}
 
+	@Override
+	public void serializeEncodedEvent(final EncodedEventChunk chunk, final int index) throws IOException {
+		this.requestBufferSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE);
+
+		this.encodedEventSerializer.serialize(chunk, index, this.buffer);
+		this.numOfEntries++;
+	}
+
 	@Override
 	public void close() throws IOException {
 		this.buffer.flip();
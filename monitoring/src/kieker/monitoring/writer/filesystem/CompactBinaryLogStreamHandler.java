@@ -0,0 +1,131 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.filesystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.CompactValueSerializer;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.dataformat.FormatIdentifier;
+import kieker.common.util.filesystem.FSUtil;
+import kieker.monitoring.writer.WriterUtil;
+import kieker.monitoring.writer.compression.ICompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
+
+/**
+ * Binary log stream handler using the compact encoding of {@link CompactValueSerializer}. Each log file starts with
+ * {@link FormatIdentifier#COMPACT_BINARY_FORMAT}, which allows readers to distinguish it from the default binary
+ * encoding, and the delta coding starts anew in every file.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompactBinaryLogStreamHandler extends AbstractLogStreamHandler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CompactBinaryLogStreamHandler.class);
+
+	private final ByteBuffer buffer;
+	private final CompactValueSerializer compactSerializer;
+	private final EncodedEventSerializer encodedEventSerializer;
+
+	/**
+	 * Create a compact binary log stream handler.
+	 *
+	 * @param flushLogFile
+	 *            flush log file
+	 * @param bufferSize
+	 *            buffer size
+	 * @param charset
+	 *            charset, presently not used in binary serialization
+	 * @param compressionFilter
+	 *            compression filter
+	 * @param writerRegistry
+	 *            writer registry
+	 */
+	public CompactBinaryLogStreamHandler(final Boolean flushLogFile, final Integer bufferSize, final Charset charset, // NOPMD charset not used in binary
+			final ICompressionFilter compressionFilter, final WriterRegistry writerRegistry) {
+		super(flushLogFile, bufferSize, charset, compressionFilter, writerRegistry);
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.compactSerializer = CompactValueSerializer.create(writerRegistry);
+		this.serializer = this.compactSerializer;
+		this.encodedEventSerializer = new EncodedEventSerializer(writerRegistry);
+		this.extension = FSUtil.BINARY_FILE_EXTENSION;
+	}
+
+	@Override
+	public void initialize(final OutputStream serializedOutputStream, final Path fileName) throws IOException {
+		super.initialize(serializedOutputStream, fileName);
+		this.compactSerializer.reset();
+		this.buffer.putInt(FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue());
+	}
+
+	@Override
+	public void serialize(final IMonitoringRecord record, final int id) throws IOException {
+		this.requestBufferSpace(CompactValueSerializer.getMaxRecordSize(record.getSize()));
+
+		this.compactSerializer.putRecord(id, record, this.buffer);
+		this.numOfEntries++;
+	}
+
+	@Override
+	public void serializeEncodedEvent(final EncodedEventChunk chunk, final int index) throws IOException {
+		this.requestBufferSpace(EncodedEventSerializer.COMPACT_ENCODED_RECORD_SIZE);
+
+		this.encodedEventSerializer.serialize(chunk, index, this.compactSerializer, this.buffer);
+		this.numOfEntries++;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.writeBuffer();
+		this.serializedStream.flush();
+		super.close();
+	}
+
+	private void requestBufferSpace(final int bufferSpace) throws IOException {
+		if (bufferSpace > this.buffer.remaining()) {
+			this.writeBuffer();
+
+			if (this.flushLogFile) {
+				this.serializedStream.flush();
+			}
+		}
+	}
+
+	private void writeBuffer() {
+		this.buffer.flip();
+		try {
+			while (this.buffer.hasRemaining()) {
+				this.numOfBytes += this.outputChannel.write(this.buffer);
+			}
+			this.buffer.clear();
+		} catch (final IOException e) {
+			LOGGER.error("Caught exception while writing to the channel.", e);
+			WriterUtil.close(this.outputChannel, LOGGER);
+		}
+	}
+}
@@ -20,7 +20,7 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +34,7 @@ import kieker.common.util.filesystem.FSUtil;
 import kieker.monitoring.writer.AbstractMonitoringWriter;
 import kieker.monitoring.writer.compression.ICompressionFilter;
 import kieker.monitoring.writer.compression.NoneCompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
 
 /**
  * Generic file writer which can be used to write any type of serialization.
@@ -174,6 +175,10 @@ public class FileWriter extends AbstractMonitoringWriter implements IRegistryLis
 		this.logStreamHandler = InstantiationFactory.getInstance(configuration).create(AbstractLogStreamHandler.class,
 				logHandlerClassName, logHandlerSignature, flushLogFile, bufferSize, charset, compressionFilter,
 				this.writerRegistry);
+		if (!this.logStreamHandler.supportsStreams() && !(compressionFilter instanceof NoneCompressionFilter)) {
+			throw new IllegalArgumentException("The log stream handler " + logHandlerClassName + " does not support the compression filter "
+					+ compressionFilterClassName + ".");
+		}
 
 		/** get log file handler. */
 		final String logFilePoolHandlerClassName = configuration
@@ -183,11 +188,10 @@ public class FileWriter extends AbstractMonitoringWriter implements IRegistryLis
 				logFilePoolHandlerClassName, logFilePoolHandlerSignature, logFolder,
 				this.logStreamHandler.getFileExtension(), maxAmountOfFiles);
 
-		final Path outputFile = this.logFilePoolHandler.requestFile();
+		this.logStreamHandler.configure(configuration);
+		this.logStreamHandler.setMaxBytesInFile(this.maxBytesInFile);
 
-		this.logStreamHandler.initialize(
-				Files.newOutputStream(outputFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
-				outputFile.getFileName());
+		this.logStreamHandler.initialize(this.logFilePoolHandler.requestFile());
 	}
 
 	@Override
@@ -218,15 +222,55 @@ public class FileWriter extends AbstractMonitoringWriter implements IRegistryLis
 		}
 	}
 
+	/**
+	 * Writes a batch of records. The registry id of a record type is looked up once for each run of records
+	 * of the same type instead of once per record.
+	 */
+	@Override
+	public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		Class<?> lastRecordClass = null;
+		int lastRecordClassId = -1;
+		for (final IMonitoringRecord record : records) {
+			if ((this.logStreamHandler.getNumOfEntries() >= this.maxEntriesInFile)
+					|| (this.logStreamHandler.getNumOfBytes() >= this.maxBytesInFile)) {
+				this.createNewLogFile();
+			}
+
+			final Class<?> recordClass = record.getClass();
+			if (recordClass != lastRecordClass) { // NOPMD (compare references by == not by equals())
+				lastRecordClassId = this.writerRegistry.getId(recordClass.getName());
+				lastRecordClass = recordClass;
+			}
+
+			try {
+				this.logStreamHandler.serialize(record, lastRecordClassId);
+			} catch (final IOException e) {
+				FileWriter.LOGGER.error("Serializing of a record failed.", e);
+			}
+		}
+	}
+
+	@Override
+	public void writeEncodedEvents(final EncodedEventChunk chunk) {
+		for (int i = 0; i < chunk.size(); i++) {
+			if ((this.logStreamHandler.getNumOfEntries() >= this.maxEntriesInFile)
+					|| (this.logStreamHandler.getNumOfBytes() >= this.maxBytesInFile)) {
+				this.createNewLogFile();
+			}
+
+			try {
+				this.logStreamHandler.serializeEncodedEvent(chunk, i);
+			} catch (final IOException e) {
+				FileWriter.LOGGER.error("Serializing of a record failed.", e);
+			}
+		}
+	}
+
 	private void createNewLogFile() {
 		try {
 			// request new file.
 			this.logStreamHandler.close();
-			final Path outputFile = this.logFilePoolHandler.requestFile();
-
-			this.logStreamHandler.initialize(
-					Files.newOutputStream(outputFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
-					outputFile.getFileName());
+			this.logStreamHandler.initialize(this.logFilePoolHandler.requestFile());
 		} catch (final IOException ex) {
 			FileWriter.LOGGER.error("Switching files in logger failed.", ex);
 		}
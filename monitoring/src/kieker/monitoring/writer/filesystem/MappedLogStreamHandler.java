@@ -0,0 +1,290 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.filesystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.filesystem.FSUtil;
+import kieker.monitoring.writer.compression.ICompressionFilter;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
+
+/**
+ * Binary log stream handler which serializes records directly into memory mapped segments of the log file. In
+ * contrast to the {@link BinaryLogStreamHandler}, records are not copied into a channel and no system call is
+ * required per buffer.
+ * <br>
+ * Segments are mapped with the maximal log size plus the buffer size, i.e., a log file usually consists of one
+ * segment. Without a maximal log size, segments of {@link #DEFAULT_SEGMENT_SIZE} bytes are mapped one after another.
+ * On close, the file is truncated to the size of the written records. Completed segments are unmapped at once, i.e.,
+ * only one segment is mapped at a time. Before a segment is mapped, the file is extended to the end of the segment by
+ * writing zeros, so that a full disk is reported by an exception instead of a bus error when the segment is accessed.
+ * <br>
+ * Each record is followed by an end marker (type id -1), and the type id of a record is written after its content.
+ * Therefore, after a crash of the process, the file contains all completed records followed by the end marker, which
+ * stops the readers. The content reaches the disk via the page cache of the operating system; with flush enabled,
+ * segments are forced to the disk when they are completed.
+ * <br>
+ * The handler writes the binary format of the {@link BinaryLogStreamHandler}. Compression is not supported, the
+ * {@link FileWriter} rejects this handler in combination with a compression filter.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class MappedLogStreamHandler extends AbstractLogStreamHandler {
+
+	/** size of the mapped segments, if the maximal log size is not limited. */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/** type id written after the last record. */
+	private static final int END_MARKER = -1;
+	private static final int TYPE_ID_SIZE = 4;
+	/** size of the writes which allocate the space of a segment. */
+	private static final int ALLOCATION_CHUNK_SIZE = 64 * 1024;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MappedLogStreamHandler.class);
+
+	/** maximal size of a single record, same as for the buffer of the {@link BinaryLogStreamHandler}. */
+	private final int maxRecordSize;
+	private final EncodedEventSerializer encodedEventSerializer;
+	/** encoded events are staged, as the serializer writes the type id first. */
+	private final ByteBuffer encodedEventBuffer = ByteBuffer.allocate(EncodedEventSerializer.ENCODED_RECORD_SIZE);
+	private final ByteBuffer allocationBuffer = ByteBuffer.allocateDirect(ALLOCATION_CHUNK_SIZE);
+
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	private FileChannel fileChannel;
+	private MappedByteBuffer segment;
+	/** position of the current segment in the file. */
+	private long segmentOffset;
+
+	/**
+	 * Create a mapped log stream handler.
+	 *
+	 * @param flushLogFile
+	 *            force completed segments to the disk
+	 * @param bufferSize
+	 *            maximal size of a single record
+	 * @param charset
+	 *            charset, presently not used in binary serialization
+	 * @param compressionFilter
+	 *            compression filter, must be the none compression filter
+	 * @param writerRegistry
+	 *            writer registry.
+	 */
+	public MappedLogStreamHandler(final Boolean flushLogFile, final Integer bufferSize, final Charset charset, // NOPMD charset not used in binary
+			final ICompressionFilter compressionFilter, final WriterRegistry writerRegistry) {
+		super(flushLogFile, bufferSize, charset, compressionFilter, writerRegistry);
+		this.maxRecordSize = bufferSize;
+		this.encodedEventSerializer = new EncodedEventSerializer(writerRegistry);
+		this.extension = FSUtil.BINARY_FILE_EXTENSION;
+	}
+
+	@Override
+	public boolean supportsStreams() {
+		return false;
+	}
+
+	@Override
+	public void setMaxBytesInFile(final long maxBytesInFile) {
+		final long size = maxBytesInFile + this.maxRecordSize + TYPE_ID_SIZE;
+		this.segmentSize = (size > Integer.MAX_VALUE) ? DEFAULT_SEGMENT_SIZE : (int) size; // NOCS (inline conditional)
+	}
+
+	@Override
+	public void initialize(final Path outputFile) throws IOException {
+		this.fileChannel = FileChannel.open(outputFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		this.segmentOffset = 0;
+		this.numOfEntries = 0;
+		this.numOfBytes = 0;
+		this.mapSegment(0);
+	}
+
+	/**
+	 * Not supported, as records are written into the mapped file. The {@link FileWriter} only uses
+	 * {@link #initialize(Path)} for handlers which do not support streams.
+	 */
+	@Override
+	public void initialize(final OutputStream serializedOutputStream, final Path fileName) throws IOException {
+		throw new UnsupportedOperationException(MappedLogStreamHandler.class.getSimpleName() + " requires a file, not a stream.");
+	}
+
+	@Override
+	public String getFileExtension() {
+		return this.extension;
+	}
+
+	@Override
+	public void serialize(final IMonitoringRecord record, final int id) throws IOException {
+		this.requestSegmentSpace(TYPE_ID_SIZE + 8 + record.getSize() + TYPE_ID_SIZE);
+
+		final int start = this.segment.position();
+		this.segment.position(start + TYPE_ID_SIZE);
+		this.segment.putLong(record.getLoggingTimestamp());
+		record.serialize(this.serializer);
+
+		this.commit(start, id);
+	}
+
+	@Override
+	public void serializeEncodedEvent(final EncodedEventChunk chunk, final int index) throws IOException {
+		this.requestSegmentSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE + TYPE_ID_SIZE);
+
+		this.encodedEventBuffer.clear();
+		this.encodedEventSerializer.serialize(chunk, index, this.encodedEventBuffer);
+		final int id = this.encodedEventBuffer.getInt(0);
+		this.encodedEventBuffer.position(TYPE_ID_SIZE);
+
+		final int start = this.segment.position();
+		this.segment.position(start + TYPE_ID_SIZE);
+		this.segment.put(this.encodedEventBuffer);
+
+		this.commit(start, id);
+	}
+
+	/**
+	 * Completes a record after its content has been written: the end marker is moved behind the record by writing the
+	 * marker first and the type id of the record last.
+	 */
+	private void commit(final int start, final int id) {
+		final int end = this.segment.position();
+		this.segment.putInt(end, END_MARKER);
+		this.segment.putInt(start, id);
+
+		this.numOfBytes += end - start;
+		this.numOfEntries++;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.fileChannel == null) { // not initialized or already closed
+			return;
+		}
+		long length = this.segmentOffset;
+		if (this.segment != null) { // null if the first segment could not be mapped
+			length += this.segment.position();
+			if (this.flushLogFile) {
+				this.segment.force();
+			}
+			MappedLogStreamHandler.unmap(this.segment);
+			this.segment = null;
+		}
+		this.serializer = null;
+		try {
+			this.fileChannel.truncate(length);
+		} catch (final IOException e) {
+			// e.g., on platforms which do not allow to truncate mapped files; readers stop at the end marker
+			LOGGER.warn("Cannot truncate log file to {} bytes.", length, e);
+		} finally {
+			this.fileChannel.close();
+			this.fileChannel = null;
+		}
+	}
+
+	/**
+	 * Request space in the current segment, if necessary map the next segment starting at the end marker.
+	 *
+	 * @param space
+	 *            requested size including the end marker
+	 * @throws IOException
+	 *             if the next segment cannot be mapped
+	 */
+	private void requestSegmentSpace(final int space) throws IOException {
+		if (space > this.segment.remaining()) {
+			if (this.flushLogFile) {
+				this.segment.force();
+			}
+			final MappedByteBuffer completedSegment = this.segment;
+			this.mapSegment(this.segmentOffset + this.segment.position());
+			MappedLogStreamHandler.unmap(completedSegment);
+		}
+	}
+
+	/**
+	 * Map the segment starting at the given offset. If the segment cannot be mapped, the current segment is kept.
+	 */
+	private void mapSegment(final long offset) throws IOException {
+		this.allocate(offset + this.segmentSize);
+		final MappedByteBuffer nextSegment = this.fileChannel.map(MapMode.READ_WRITE, offset, this.segmentSize);
+		nextSegment.putInt(0, END_MARKER);
+		this.segment = nextSegment;
+		this.segmentOffset = offset;
+		this.serializer = BinaryValueSerializer.create(this.segment, this.writerRegistry);
+	}
+
+	/**
+	 * Extend the file to the given size by writing zeros. Mapping alone would create a sparse file, whose blocks are
+	 * allocated when the mapped pages are written, i.e., a full disk would crash the JVM with a bus error.
+	 */
+	private void allocate(final long size) throws IOException {
+		long position = this.fileChannel.size();
+		while (position < size) {
+			this.allocationBuffer.clear();
+			this.allocationBuffer.limit((int) Math.min(ALLOCATION_CHUNK_SIZE, size - position));
+			position += this.fileChannel.write(this.allocationBuffer, position);
+		}
+	}
+
+	/**
+	 * Releases the mapping of a segment immediately, instead of waiting for the garbage collector. Otherwise, rotated log
+	 * files of the maximal log size remain mapped until their buffers are collected. The segment must not be accessed
+	 * afterwards. If the running JVM does not allow to release mappings, the mapping is left to the garbage collector.
+	 *
+	 * @param segment
+	 *            the segment to be unmapped
+	 */
+	private static void unmap(final MappedByteBuffer segment) {
+		try {
+			try {
+				// Java 9 and later
+				final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				final Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+				unsafeField.setAccessible(true); // NOPMD (the cleaner is not public API)
+				final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				invokeCleaner.invoke(unsafeField.get(null), segment);
+			} catch (final NoSuchMethodException e) {
+				// Java 8
+				final Method cleanerMethod = segment.getClass().getMethod("cleaner");
+				cleanerMethod.setAccessible(true); // NOPMD (the cleaner is not public API)
+				final Object cleaner = cleanerMethod.invoke(segment);
+				if (cleaner != null) {
+					cleaner.getClass().getMethod("clean").invoke(cleaner);
+				}
+			}
+		} catch (final ReflectiveOperationException | RuntimeException e) { // NOPMD (any failure leaves the mapping to the GC)
+			LOGGER.debug("Cannot unmap segment, the mapping is released by the garbage collector.", e);
+		}
+	}
+}
@@ -79,7 +79,18 @@ public class BinarySerializer extends AbstractContainerFormatSerializer {
 		return (recordDataSize + stringDataSize) + 4;
 	}
 
-	private int encodeRecords(final Collection<IMonitoringRecord> records, final ByteBuffer buffer, final IWriterRegistry<String> writerRegistry) {
+	/**
+	 * Write the records to the buffer and collect their strings in the registry.
+	 *
+	 * @param records
+	 *            The records to write
+	 * @param buffer
+	 *            The buffer to write to
+	 * @param writerRegistry
+	 *            The string registry of the chunk
+	 * @return The size of the written data in bytes
+	 */
+	protected int encodeRecords(final Collection<IMonitoringRecord> records, final ByteBuffer buffer, final IWriterRegistry<String> writerRegistry) {
 		final int offsetBefore = buffer.position();
 
 		for (final IMonitoringRecord record : records) {
@@ -0,0 +1,71 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.serializer;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.CompactValueSerializer;
+import kieker.common.registry.writer.IWriterRegistry;
+import kieker.common.util.dataformat.FormatIdentifier;
+
+/**
+ * Serializer for the compact Kieker binary record format, see {@link CompactValueSerializer}. The chunk layout is the
+ * same as of the {@link BinarySerializer}, i.e., the records are followed by the string table of the chunk. The delta
+ * coding starts anew in every chunk, so chunks can be decoded independently.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompactBinarySerializer extends BinarySerializer {
+
+	/** Format identifier. */
+	public static final int FORMAT_IDENTIFIER = FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue();
+
+	/**
+	 * Creates a new serializer using the given configuration.
+	 *
+	 * @param configuration
+	 *            The configuration to use
+	 */
+	public CompactBinarySerializer(final Configuration configuration) {
+		super(configuration);
+	}
+
+	@Override
+	protected int getFormatIdentifier() {
+		return FORMAT_IDENTIFIER;
+	}
+
+	@Override
+	protected int encodeRecords(final Collection<IMonitoringRecord> records, final ByteBuffer buffer, final IWriterRegistry<String> writerRegistry) {
+		final int offsetBefore = buffer.position();
+		final CompactValueSerializer serializer = CompactValueSerializer.create(writerRegistry);
+
+		for (final IMonitoringRecord record : records) {
+			final int typeNameId = writerRegistry.getId(record.getClass().getName());
+			serializer.putRecord(typeNameId, record, buffer);
+		}
+
+		final int offsetAfter = buffer.position();
+		return (offsetAfter - offsetBefore);
+	}
+
+}
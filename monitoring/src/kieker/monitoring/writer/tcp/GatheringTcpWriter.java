@@ -0,0 +1,262 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.record.io.IValueSerializer;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.thread.DaemonThreadFactory;
+import kieker.monitoring.writer.AbstractMonitoringWriter;
+import kieker.monitoring.writer.WriterUtil;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
+
+/**
+ * Monitoring writer which sends records via TCP to a given host:port in the format of the {@link SingleSocketTcpWriter}.
+ * Records are serialized into a ring of direct buffers. When a buffer is full, the writer continues with the next
+ * buffer of the ring instead of writing to the socket. The registry buffer and all filled record buffers are sent with
+ * one gathering write when the ring is full or when the oldest unsent record has waited for the configured maximal
+ * latency. Hence, the writer coalesces small writes itself and disables Nagle's algorithm on the socket.
+ * <br>
+ * The registry buffer is always the first buffer of a gathering write, hence string registry entries arrive before
+ * the records referring to them.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class GatheringTcpWriter extends AbstractMonitoringWriter implements IRegistryListener<String> {
+
+	/** prefix of all configuration keys of this writer. */
+	public static final String PREFIX = GatheringTcpWriter.class.getName() + ".";
+
+	/** configuration key for the hostname. */
+	public static final String CONFIG_HOSTNAME = PREFIX + "hostname"; // NOCS (afterPREFIX)
+	/** configuration key for the port. */
+	public static final String CONFIG_PORT = PREFIX + "port"; // NOCS (afterPREFIX)
+	/** configuration key for the size of each buffer of the ring and of the registry buffer. */
+	public static final String CONFIG_BUFFERSIZE = PREFIX + "bufferSize"; // NOCS (afterPREFIX)
+	/** configuration key for the number of record buffers in the ring. */
+	public static final String CONFIG_BUFFERS = PREFIX + "buffers"; // NOCS (afterPREFIX)
+	/** configuration key for the maximal time a record is buffered; 0 sends the records of each write call. */
+	public static final String CONFIG_MAX_LATENCY_IN_MS = PREFIX + "maxLatencyInMs"; // NOCS (afterPREFIX)
+	/** configuration key for the connection timeout. */
+	public static final String CONFIG_CONN_TIMEOUT_IN_MS = PREFIX + "connectionTimeoutInMs"; // NOCS (afterPREFIX)
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(GatheringTcpWriter.class);
+
+	private static final int DEFAULT_BUFFER_SIZE = 16384;
+	private static final int DEFAULT_BUFFERS = 8;
+
+	private final InetSocketAddress socketAddress;
+	private final int connectionTimeoutInMs;
+	private final long maxLatencyInNs;
+
+	/** the registry buffer followed by the ring of record buffers. */
+	private final ByteBuffer[] buffers;
+	/** one serializer for each record buffer, aligned to {@link #buffers}. */
+	private final IValueSerializer[] serializers;
+	private final ByteBuffer registryBuffer;
+	/** index of the record buffer which is filled. */
+	private int current;
+
+	private final WriterRegistry writerRegistry;
+	private final EncodedEventSerializer encodedEventSerializer;
+	private final ScheduledExecutorService latencyExecutor;
+
+	private SocketChannel socketChannel;
+	private boolean unsent;
+	private long firstUnsentTimestamp;
+
+	/**
+	 * Create a gathering TCP writer.
+	 *
+	 * @param configuration
+	 *            writer configuration
+	 */
+	public GatheringTcpWriter(final Configuration configuration) {
+		super(configuration);
+		this.socketAddress = new InetSocketAddress(configuration.getStringProperty(CONFIG_HOSTNAME),
+				configuration.getIntProperty(CONFIG_PORT));
+		this.connectionTimeoutInMs = Math.max(1, configuration.getIntProperty(CONFIG_CONN_TIMEOUT_IN_MS, 1000));
+		final long maxLatencyInMs = Math.max(0, configuration.getLongProperty(CONFIG_MAX_LATENCY_IN_MS, 10));
+		this.maxLatencyInNs = TimeUnit.MILLISECONDS.toNanos(maxLatencyInMs);
+
+		final int bufferSize = configuration.getIntProperty(CONFIG_BUFFERSIZE, DEFAULT_BUFFER_SIZE);
+		final int numOfBuffers = Math.max(1, configuration.getIntProperty(CONFIG_BUFFERS, DEFAULT_BUFFERS));
+
+		this.writerRegistry = new WriterRegistry(this);
+		this.encodedEventSerializer = new EncodedEventSerializer(this.writerRegistry);
+
+		this.buffers = new ByteBuffer[numOfBuffers + 1];
+		this.serializers = new IValueSerializer[numOfBuffers + 1];
+		this.registryBuffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffers[0] = this.registryBuffer;
+		for (int i = 1; i <= numOfBuffers; i++) {
+			this.buffers[i] = ByteBuffer.allocateDirect(bufferSize);
+			this.serializers[i] = BinaryValueSerializer.create(this.buffers[i], this.writerRegistry);
+		}
+		this.current = 1;
+
+		if (maxLatencyInMs > 0) {
+			this.latencyExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+		} else {
+			this.latencyExecutor = null;
+		}
+	}
+
+	@Override
+	public void onStarting() {
+		try {
+			this.socketChannel = SocketChannel.open();
+			this.socketChannel.socket().setTcpNoDelay(true);
+			this.socketChannel.socket().connect(this.socketAddress, this.connectionTimeoutInMs);
+		} catch (SocketTimeoutException | ConnectException e) {
+			WriterUtil.close(this.socketChannel, LOGGER);
+			throw new ConnectionTimeoutException(String.format("Could not connect to %s: %s", this.socketAddress, e.getMessage()));
+		} catch (final IOException e) {
+			WriterUtil.close(this.socketChannel, LOGGER);
+			throw new IllegalStateException(e);
+		}
+		LOGGER.info("Successfully connected to {}.", this.socketAddress);
+
+		if (this.latencyExecutor != null) {
+			final long periodInNs = Math.max(1, this.maxLatencyInNs / 2);
+			this.latencyExecutor.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					GatheringTcpWriter.this.flushLateRecords();
+				}
+			}, periodInNs, periodInNs, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@Override
+	public synchronized void writeMonitoringRecord(final IMonitoringRecord monitoringRecord) {
+		this.serialize(monitoringRecord);
+		this.flushOnLatency();
+	}
+
+	@Override
+	public synchronized void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		for (final IMonitoringRecord monitoringRecord : records) {
+			this.serialize(monitoringRecord);
+		}
+		this.flushOnLatency();
+	}
+
+	@Override
+	public synchronized void writeEncodedEvents(final EncodedEventChunk chunk) {
+		for (int i = 0; i < chunk.size(); i++) {
+			this.encodedEventSerializer.serialize(chunk, i, this.requestBufferSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE));
+		}
+		this.flushOnLatency();
+	}
+
+	@Override
+	public void onNewRegistryEntry(final String value, final int id) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (this.registryBuffer.remaining() < (RegistryRecord.SIZE + 4 + bytes.length)) {
+			// the record buffers may contain a partially serialized record, hence, only the registry buffer is sent
+			WriterUtil.flushBuffer(this.registryBuffer, this.socketChannel, LOGGER);
+		}
+		this.registryBuffer.putInt(RegistryRecord.CLASS_ID);
+		this.registryBuffer.putInt(id);
+		this.registryBuffer.putInt(bytes.length);
+		this.registryBuffer.put(bytes);
+	}
+
+	@Override
+	public void onTerminating() {
+		if (this.latencyExecutor != null) {
+			this.latencyExecutor.shutdown();
+		}
+		if (this.socketChannel != null) {
+			synchronized (this) {
+				this.flushBuffers();
+				WriterUtil.close(this.socketChannel, LOGGER);
+			}
+		}
+	}
+
+	private void serialize(final IMonitoringRecord monitoringRecord) {
+		final ByteBuffer buffer = this.requestBufferSpace(4 + 8 + monitoringRecord.getSize());
+		buffer.putInt(this.writerRegistry.getId(monitoringRecord.getClass().getName()));
+		buffer.putLong(monitoringRecord.getLoggingTimestamp());
+		monitoringRecord.serialize(this.serializers[this.current]);
+	}
+
+	/**
+	 * Select a record buffer with the given space. The next buffer of the ring is used when the current one is full;
+	 * the buffers are only sent when the ring is full.
+	 */
+	private ByteBuffer requestBufferSpace(final int bufferSpace) {
+		if (bufferSpace > this.buffers[this.current].remaining()) {
+			if (this.current < (this.buffers.length - 1)) {
+				this.current++;
+			} else {
+				this.flushBuffers();
+			}
+		}
+		if (!this.unsent) {
+			this.unsent = true;
+			this.firstUnsentTimestamp = System.nanoTime();
+		}
+		return this.buffers[this.current];
+	}
+
+	private void flushOnLatency() {
+		if (this.unsent && ((System.nanoTime() - this.firstUnsentTimestamp) >= this.maxLatencyInNs)) {
+			this.flushBuffers();
+		}
+	}
+
+	/**
+	 * Called periodically to send records of an idle writer.
+	 */
+	private synchronized void flushLateRecords() {
+		if (this.socketChannel.isOpen()) {
+			this.flushOnLatency();
+		}
+	}
+
+	private void flushBuffers() {
+		// the registry buffer is the first buffer of the gathering write
+		WriterUtil.flushBuffers(this.buffers, 0, this.current + 1, this.socketChannel, LOGGER);
+		this.current = 1;
+		this.unsent = false;
+	}
+}
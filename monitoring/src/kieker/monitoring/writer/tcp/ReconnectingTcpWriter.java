@@ -0,0 +1,539 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.record.io.IValueSerializer;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.monitoring.writer.AbstractMonitoringWriter;
+import kieker.monitoring.writer.WriterUtil;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
+
+/**
+ * Monitoring writer which sends records via TCP to a given host:port like the {@link SingleSocketTcpWriter}, but
+ * survives restarts of the collector. The socket is non-blocking, hence the writer thread never waits for the
+ * collector:
+ * <ul>
+ * <li>When the connection is lost or cannot be established, the writer reconnects with an exponential backoff. The
+ * reconnection and the draining of spilled data are driven by new records and, while no records arrive, by the idle
+ * events of the writer thread.</li>
+ * <li>Data which cannot be sent is appended to a bounded local spill file and drained in order as soon as the
+ * connection accepts data again. When the spill file is full, records are dropped, but string registry entries are
+ * always kept.</li>
+ * <li>On every new connection, all strings of the {@link WriterRegistry} are sent first, as the collector starts
+ * with an empty registry.</li>
+ * </ul>
+ * Data is sent in blocks, each consisting of the buffered registry entries and records. The writer keeps the start
+ * offsets of the records of each block. When the connection breaks within a block, the block is resent on the next
+ * connection from the start of the first record which has not been sent completely. Hence, no record is sent twice
+ * and the stream stays readable. Records which have been written completely to the broken connection are not resent.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ReconnectingTcpWriter extends AbstractMonitoringWriter implements IRegistryListener<String> {
+
+	/** prefix of all configuration keys of this writer. */
+	public static final String PREFIX = ReconnectingTcpWriter.class.getName() + ".";
+
+	/** configuration key for the hostname. */
+	public static final String CONFIG_HOSTNAME = PREFIX + "hostname"; // NOCS (afterPREFIX)
+	/** configuration key for the port. */
+	public static final String CONFIG_PORT = PREFIX + "port"; // NOCS (afterPREFIX)
+	/** configuration key for the size of the record and the registry buffer. */
+	public static final String CONFIG_BUFFERSIZE = PREFIX + "bufferSize"; // NOCS (afterPREFIX)
+	/** configuration key to send the buffers after each record. */
+	public static final String CONFIG_FLUSH = PREFIX + "flush"; // NOCS (afterPREFIX)
+	/** configuration key for the time to wait for a connection, also used on start up. */
+	public static final String CONFIG_CONN_TIMEOUT_IN_MS = PREFIX + "connectionTimeoutInMs"; // NOCS (afterPREFIX)
+	/** configuration key for the initial delay between reconnection attempts. */
+	public static final String CONFIG_MIN_BACKOFF_IN_MS = PREFIX + "minBackoffInMs"; // NOCS (afterPREFIX)
+	/** configuration key for the maximal delay between reconnection attempts. */
+	public static final String CONFIG_MAX_BACKOFF_IN_MS = PREFIX + "maxBackoffInMs"; // NOCS (afterPREFIX)
+	/** configuration key for the directory of the spill file, the default is the temporary directory. */
+	public static final String CONFIG_SPILL_DIRECTORY = PREFIX + "spillDirectory"; // NOCS (afterPREFIX)
+	/** configuration key for the maximal size of the spill file in bytes. */
+	public static final String CONFIG_SPILL_SIZE = PREFIX + "spillSize"; // NOCS (afterPREFIX)
+	/** configuration key for the time without records after which the writer reconnects and drains the spill file. */
+	public static final String CONFIG_IDLE_TIMEOUT_IN_MS = PREFIX + "idleTimeoutInMs"; // NOCS (afterPREFIX)
+	/** configuration key for the time to send remaining data on termination. */
+	public static final String CONFIG_TERMINATION_TIMEOUT_IN_MS = PREFIX + "terminationTimeoutInMs"; // NOCS (afterPREFIX)
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReconnectingTcpWriter.class);
+
+	private static final int DEFAULT_BUFFER_SIZE = 65535;
+	private static final long POLL_INTERVAL_IN_NS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final InetSocketAddress socketAddress;
+	private final long connectionTimeoutInNs;
+	private final long minBackoffInNs;
+	private final long maxBackoffInNs;
+	private final long terminationTimeoutInNs;
+	private final long idleTimeoutInMs;
+	private final boolean flush;
+
+	/** the buffer used for buffering monitoring records. */
+	private final ByteBuffer buffer;
+	/** the buffer used for buffering registry records. */
+	private final ByteBuffer registryBuffer;
+	/** a block containing the registry entries and the records. */
+	private final ByteBuffer[] block;
+	/** a block containing the registry entries only. */
+	private final ByteBuffer[] registryBlock;
+	/** start offsets of the records in the record buffer. */
+	private final RecordOffsets recordOffsets = new RecordOffsets();
+	/** start offsets of the records in the block which is sent. */
+	private final RecordOffsets blockOffsets = new RecordOffsets();
+	/** start offsets of the records in the remaining bytes of a spilled block. */
+	private final RecordOffsets spillOffsets = new RecordOffsets();
+	/** the block in transmission, it is resent from its first incompletely sent record when the connection is lost. */
+	private final ByteBuffer pendingBlock;
+	/** start offsets of the records in the pending block. */
+	private final RecordOffsets pendingOffsets = new RecordOffsets();
+	/** the registry entries sent at the start of a connection, or null. */
+	private ByteBuffer replayBuffer;
+	private final TcpSpillFile spillFile;
+
+	private final IValueSerializer serializer;
+	private final WriterRegistry writerRegistry;
+	private final EncodedEventSerializer encodedEventSerializer;
+	/** UTF-8 bytes of all registered strings, indexed by their registry id. */
+	private final List<byte[]> registeredStrings = new ArrayList<>();
+
+	private SocketChannel socketChannel;
+	private boolean connected;
+	private long connectStartTime;
+	private long nextConnectTime;
+	private long backoffInNs;
+	private long numOfDroppedBlocks;
+
+	/**
+	 * Create a reconnecting TCP writer.
+	 *
+	 * @param configuration
+	 *            writer configuration
+	 */
+	public ReconnectingTcpWriter(final Configuration configuration) {
+		super(configuration);
+		this.socketAddress = new InetSocketAddress(configuration.getStringProperty(CONFIG_HOSTNAME),
+				configuration.getIntProperty(CONFIG_PORT));
+		this.connectionTimeoutInNs = TimeUnit.MILLISECONDS.toNanos(configuration.getIntProperty(CONFIG_CONN_TIMEOUT_IN_MS, 1000));
+		this.minBackoffInNs = TimeUnit.MILLISECONDS.toNanos(Math.max(1, configuration.getIntProperty(CONFIG_MIN_BACKOFF_IN_MS, 100)));
+		this.maxBackoffInNs = Math.max(this.minBackoffInNs,
+				TimeUnit.MILLISECONDS.toNanos(configuration.getIntProperty(CONFIG_MAX_BACKOFF_IN_MS, 10000)));
+		this.terminationTimeoutInNs = TimeUnit.MILLISECONDS.toNanos(configuration.getIntProperty(CONFIG_TERMINATION_TIMEOUT_IN_MS, 1000));
+		this.idleTimeoutInMs = Math.max(1, configuration.getIntProperty(CONFIG_IDLE_TIMEOUT_IN_MS, 100));
+		this.flush = configuration.getBooleanProperty(CONFIG_FLUSH, false);
+
+		final int bufferSize = configuration.getIntProperty(CONFIG_BUFFERSIZE, DEFAULT_BUFFER_SIZE);
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		this.registryBuffer = ByteBuffer.allocateDirect(bufferSize);
+		this.block = new ByteBuffer[] { this.registryBuffer, this.buffer };
+		this.registryBlock = new ByteBuffer[] { this.registryBuffer };
+		this.pendingBlock = ByteBuffer.allocateDirect(2 * bufferSize);
+		this.pendingBlock.limit(0);
+
+		String spillDirectory = configuration.getStringProperty(CONFIG_SPILL_DIRECTORY);
+		if (spillDirectory.isEmpty()) {
+			spillDirectory = System.getProperty("java.io.tmpdir");
+		}
+		this.spillFile = new TcpSpillFile(Paths.get(spillDirectory), configuration.getLongProperty(CONFIG_SPILL_SIZE, 64L * 1024 * 1024));
+
+		this.writerRegistry = new WriterRegistry(this);
+		this.serializer = BinaryValueSerializer.create(this.buffer, this.writerRegistry);
+		this.encodedEventSerializer = new EncodedEventSerializer(this.writerRegistry);
+
+		this.backoffInNs = this.minBackoffInNs;
+		this.nextConnectTime = System.nanoTime();
+	}
+
+	@Override
+	public void onStarting() {
+		final long deadline = System.nanoTime() + this.connectionTimeoutInNs;
+		this.connect();
+		while (!this.connected && ((System.nanoTime() - deadline) < 0)) {
+			LockSupport.parkNanos(POLL_INTERVAL_IN_NS);
+			this.connect();
+		}
+		if (!this.connected) {
+			LOGGER.warn("Could not connect to {}. Data is spilled until the connection is established.", this.socketAddress);
+		}
+	}
+
+	@Override
+	public void writeMonitoringRecord(final IMonitoringRecord monitoringRecord) {
+		this.requestBufferSpace(4 + 8 + monitoringRecord.getSize());
+		this.recordOffsets.add(this.buffer.position());
+
+		this.buffer.putInt(this.writerRegistry.getId(monitoringRecord.getClass().getName()));
+		this.buffer.putLong(monitoringRecord.getLoggingTimestamp());
+		monitoringRecord.serialize(this.serializer);
+
+		if (this.flush) {
+			this.sendBlock(this.block);
+		}
+	}
+
+	@Override
+	public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		for (final IMonitoringRecord monitoringRecord : records) {
+			this.requestBufferSpace(4 + 8 + monitoringRecord.getSize());
+			this.recordOffsets.add(this.buffer.position());
+
+			this.buffer.putInt(this.writerRegistry.getId(monitoringRecord.getClass().getName()));
+			this.buffer.putLong(monitoringRecord.getLoggingTimestamp());
+			monitoringRecord.serialize(this.serializer);
+		}
+
+		if (this.flush) {
+			this.sendBlock(this.block);
+		}
+	}
+
+	@Override
+	public void writeEncodedEvents(final EncodedEventChunk chunk) {
+		for (int i = 0; i < chunk.size(); i++) {
+			this.requestBufferSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE);
+			this.recordOffsets.add(this.buffer.position());
+			this.encodedEventSerializer.serialize(chunk, i, this.buffer);
+		}
+
+		if (this.flush) {
+			this.sendBlock(this.block);
+		}
+	}
+
+	@Override
+	public void onNewRegistryEntry(final String value, final int id) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		this.registeredStrings.add(bytes);
+
+		if (this.registryBuffer.remaining() < (RegistryRecord.SIZE + 4 + bytes.length)) {
+			// the string may be registered while a record is serialized, hence, the records are not sent
+			this.sendBlock(this.registryBlock);
+		}
+		ReconnectingTcpWriter.putRegistryEntry(this.registryBuffer, id, bytes);
+	}
+
+	@Override
+	public long getIdleTimeoutInMs() {
+		return this.idleTimeoutInMs;
+	}
+
+	/**
+	 * Reconnect and drain the spill file while no records arrive.
+	 */
+	@Override
+	public void onIdle() {
+		this.transmit();
+	}
+
+	@Override
+	public void onTerminating() {
+		this.sendBlock(this.block);
+
+		final long deadline = System.nanoTime() + this.terminationTimeoutInNs;
+		while (!(this.connected && this.isIdle()) && ((System.nanoTime() - deadline) < 0)) {
+			LockSupport.parkNanos(POLL_INTERVAL_IN_NS);
+			this.transmit();
+		}
+		if (!this.isIdle()) {
+			LOGGER.warn("Could not send all data to {}, {} spilled blocks are lost.", this.socketAddress,
+					this.spillFile.getNumOfBlocks());
+		}
+
+		this.closeChannel();
+		try {
+			this.spillFile.close();
+		} catch (final IOException e) {
+			LOGGER.warn("Caught exception while closing the spill file.", e);
+		}
+	}
+
+	private void requestBufferSpace(final int bufferSpace) {
+		if (bufferSpace > this.buffer.remaining()) {
+			this.sendBlock(this.block);
+		}
+	}
+
+	/**
+	 * Send the given block, or spill it if the connection is not available or busy. The buffers of the block are
+	 * cleared afterwards.
+	 */
+	private void sendBlock(final ByteBuffer[] currentBlock) {
+		for (final ByteBuffer blockBuffer : currentBlock) {
+			blockBuffer.flip();
+		}
+		if (currentBlock == this.block) { // NOPMD (compare references by == not by equals())
+			this.blockOffsets.copyFrom(this.recordOffsets, 0, this.registryBuffer.remaining());
+		} else {
+			this.blockOffsets.clear();
+		}
+
+		this.transmit();
+		if (this.connected && this.isIdle()) {
+			this.writeDirectly(currentBlock);
+		}
+		if (ReconnectingTcpWriter.hasRemaining(currentBlock)) {
+			this.spill(currentBlock);
+		}
+
+		for (final ByteBuffer blockBuffer : currentBlock) {
+			blockBuffer.clear();
+		}
+		if (currentBlock == this.block) { // NOPMD (compare references by == not by equals())
+			this.recordOffsets.clear();
+		}
+	}
+
+	private void writeDirectly(final ByteBuffer[] currentBlock) {
+		int length = 0;
+		for (final ByteBuffer blockBuffer : currentBlock) {
+			length += blockBuffer.remaining();
+		}
+
+		long bytesWritten = 0;
+		try {
+			long lastBytesWritten;
+			do {
+				lastBytesWritten = this.socketChannel.write(currentBlock);
+				bytesWritten += lastBytesWritten;
+			} while ((lastBytesWritten > 0) && (bytesWritten < length));
+
+			if ((bytesWritten > 0) && (bytesWritten < length)) {
+				// the socket is busy, keep the whole block as a partially sent record is resent on a new connection
+				this.pendingBlock.clear();
+				for (final ByteBuffer blockBuffer : currentBlock) {
+					blockBuffer.rewind();
+					this.pendingBlock.put(blockBuffer);
+				}
+				this.pendingBlock.flip();
+				this.pendingBlock.position((int) bytesWritten);
+				this.pendingOffsets.copyFrom(this.blockOffsets, 0, 0);
+			}
+		} catch (final IOException e) {
+			this.disconnect(e);
+			// the records which have not been sent completely are spilled and resent on the next connection
+			ReconnectingTcpWriter.skip(currentBlock, this.blockOffsets.getResendPosition((int) bytesWritten, length));
+		}
+	}
+
+	private void spill(final ByteBuffer[] currentBlock) {
+		int sentLength = 0;
+		for (final ByteBuffer blockBuffer : currentBlock) {
+			sentLength += blockBuffer.position();
+		}
+		this.spillOffsets.copyFrom(this.blockOffsets, sentLength, 0);
+
+		try {
+			if (!this.spillFile.append(currentBlock, this.spillOffsets, false)) {
+				if (this.numOfDroppedBlocks == 0) {
+					LOGGER.warn("Spill file is full, records are dropped until the connection to {} is available.", this.socketAddress);
+				}
+				this.numOfDroppedBlocks++;
+				// later records may refer to the strings of the block
+				if (this.registryBuffer.hasRemaining()) {
+					this.spillOffsets.clear();
+					this.spillFile.append(this.registryBlock, this.spillOffsets, true);
+				}
+			}
+		} catch (final IOException e) {
+			LOGGER.error("Caught exception while writing to the spill file, records are lost.", e);
+		}
+	}
+
+	/**
+	 * Reconnect if necessary and send the registry replay, the pending block, and the spilled blocks as long as the
+	 * socket accepts data.
+	 */
+	private void transmit() {
+		if (!this.connected) {
+			this.connect();
+			if (!this.connected) {
+				return;
+			}
+		}
+
+		try {
+			boolean accepting = true;
+			while (accepting) {
+				if (this.replayBuffer != null) {
+					this.socketChannel.write(this.replayBuffer);
+					if (this.replayBuffer.hasRemaining()) {
+						return;
+					}
+					this.replayBuffer = null; // NOPMD (release the buffer)
+				}
+				if (this.pendingBlock.hasRemaining()) {
+					this.socketChannel.write(this.pendingBlock);
+					if (this.pendingBlock.hasRemaining()) {
+						return;
+					}
+				}
+				accepting = this.takeSpilledBlock();
+			}
+		} catch (final IOException e) {
+			this.disconnect(e);
+		}
+	}
+
+	private boolean takeSpilledBlock() {
+		try {
+			if (this.spillFile.take(this.pendingBlock, this.pendingOffsets)) {
+				return true;
+			}
+			if (this.numOfDroppedBlocks > 0) {
+				LOGGER.info("Spill file drained, {} blocks of records have been dropped.", this.numOfDroppedBlocks);
+				this.numOfDroppedBlocks = 0;
+			}
+		} catch (final IOException e) {
+			LOGGER.error("Caught exception while reading the spill file, spilled records are lost.", e);
+			this.pendingBlock.limit(0);
+			try {
+				this.spillFile.close();
+			} catch (final IOException ce) {
+				LOGGER.warn("Caught exception while closing the spill file.", ce);
+			}
+		}
+		return false;
+	}
+
+	private boolean isIdle() {
+		return (this.replayBuffer == null) && !this.pendingBlock.hasRemaining() && this.spillFile.isEmpty();
+	}
+
+	/**
+	 * Start or complete a non-blocking connection attempt, if the backoff delay has passed.
+	 */
+	private void connect() {
+		final long now = System.nanoTime();
+		try {
+			if (this.socketChannel == null) {
+				if ((now - this.nextConnectTime) < 0) {
+					return;
+				}
+				this.socketChannel = SocketChannel.open();
+				this.socketChannel.configureBlocking(false);
+				this.connectStartTime = now;
+				this.connected = this.socketChannel.connect(this.socketAddress);
+			} else {
+				this.connected = this.socketChannel.finishConnect();
+			}
+
+			if (this.connected) {
+				this.onConnected();
+			} else if ((now - this.connectStartTime) > this.connectionTimeoutInNs) {
+				this.closeChannel();
+				this.scheduleReconnect();
+			}
+		} catch (final IOException e) {
+			LOGGER.debug("Connection attempt to {} failed: {}", this.socketAddress, e.getMessage());
+			this.closeChannel();
+			this.scheduleReconnect();
+		}
+	}
+
+	private void onConnected() {
+		LOGGER.info("Connected to {}.", this.socketAddress);
+		this.backoffInNs = this.minBackoffInNs;
+
+		if (!this.registeredStrings.isEmpty()) {
+			int size = 0;
+			for (final byte[] bytes : this.registeredStrings) {
+				size += RegistryRecord.SIZE + 4 + bytes.length;
+			}
+			this.replayBuffer = ByteBuffer.allocate(size);
+			for (int id = 0; id < this.registeredStrings.size(); id++) {
+				ReconnectingTcpWriter.putRegistryEntry(this.replayBuffer, id, this.registeredStrings.get(id));
+			}
+			this.replayBuffer.flip();
+		}
+	}
+
+	private void disconnect(final IOException cause) {
+		LOGGER.warn("Lost connection to {}: {}", this.socketAddress, cause.getMessage());
+		this.closeChannel();
+		this.replayBuffer = null; // NOPMD (release the buffer)
+		if (this.pendingBlock.hasRemaining()) {
+			// the registry entries of the block are part of the replay
+			this.pendingBlock.position(this.pendingOffsets.getResendPosition(this.pendingBlock.position(), this.pendingBlock.limit()));
+		}
+		this.nextConnectTime = System.nanoTime() + this.backoffInNs;
+	}
+
+	private void scheduleReconnect() {
+		this.nextConnectTime = System.nanoTime() + this.backoffInNs;
+		this.backoffInNs = Math.min(this.backoffInNs * 2, this.maxBackoffInNs);
+	}
+
+	private void closeChannel() {
+		if (this.socketChannel != null) {
+			WriterUtil.close(this.socketChannel, LOGGER);
+			this.socketChannel = null; // NOPMD (closed channels are not reused)
+		}
+		this.connected = false;
+	}
+
+	private static void putRegistryEntry(final ByteBuffer buffer, final int id, final byte[] bytes) {
+		buffer.putInt(RegistryRecord.CLASS_ID);
+		buffer.putInt(id);
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Move the positions of the buffers of a block to the given position within the whole block.
+	 */
+	private static void skip(final ByteBuffer[] buffers, final int position) {
+		int remainingSkip = position;
+		for (final ByteBuffer buffer : buffers) {
+			buffer.rewind();
+			final int skip = Math.min(remainingSkip, buffer.remaining());
+			buffer.position(skip);
+			remainingSkip -= skip;
+		}
+	}
+
+	private static boolean hasRemaining(final ByteBuffer[] buffers) {
+		for (final ByteBuffer buffer : buffers) {
+			if (buffer.hasRemaining()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
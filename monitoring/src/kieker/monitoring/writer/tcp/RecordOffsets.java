@@ -0,0 +1,107 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.util.Arrays;
+
+/**
+ * Ascending start offsets of the records in a block of the {@link ReconnectingTcpWriter}. When a connection breaks
+ * within a block, the block is resent on the next connection from the start of the first record which has not been
+ * sent completely.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+class RecordOffsets {
+
+	private int[] offsets = new int[64];
+	private int size;
+
+	/**
+	 * Create an empty list of offsets.
+	 */
+	public RecordOffsets() {
+		// empty default constructor
+	}
+
+	/**
+	 * @param offset
+	 *            start of the next record, larger than all previous offsets
+	 */
+	public void add(final int offset) {
+		if (this.size == this.offsets.length) {
+			this.offsets = Arrays.copyOf(this.offsets, 2 * this.size);
+		}
+		this.offsets[this.size++] = offset;
+	}
+
+	public int get(final int index) {
+		return this.offsets[index];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	/**
+	 * Replace the offsets by the offsets of another list which are not smaller than <code>from</code>.
+	 *
+	 * @param source
+	 *            the other offsets
+	 * @param from
+	 *            offsets before this one are skipped, it is subtracted from the other offsets
+	 * @param shift
+	 *            added to the other offsets
+	 */
+	public void copyFrom(final RecordOffsets source, final int from, final int shift) {
+		this.clear();
+		for (int i = 0; i < source.size; i++) {
+			if (source.offsets[i] >= from) {
+				this.add((source.offsets[i] - from) + shift);
+			}
+		}
+	}
+
+	/**
+	 * Find the position from which a block has to be resent on a new connection. The data before the first record
+	 * consists of registry entries, which are sent again on each new connection anyway.
+	 *
+	 * @param position
+	 *            number of bytes of the block which have been sent
+	 * @param limit
+	 *            length of the block
+	 * @return start of the record containing the position, or the limit when no record remains to be sent
+	 */
+	public int getResendPosition(final int position, final int limit) {
+		if (position >= limit) {
+			return limit;
+		}
+		int resendPosition = limit;
+		for (int i = this.size - 1; i >= 0; i--) {
+			resendPosition = this.offsets[i];
+			if (resendPosition <= position) {
+				break;
+			}
+		}
+		return resendPosition;
+	}
+}
@@ -24,6 +24,7 @@ import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -33,12 +34,16 @@ import kieker.common.configuration.Configuration;
 import kieker.common.record.AbstractMonitoringRecord;
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.record.io.CompactValueSerializer;
 import kieker.common.record.io.IValueSerializer;
 import kieker.common.record.misc.RegistryRecord;
 import kieker.common.registry.IRegistryListener;
 import kieker.common.registry.writer.WriterRegistry;
+import kieker.common.util.dataformat.FormatIdentifier;
 import kieker.monitoring.writer.AbstractMonitoringWriter;
 import kieker.monitoring.writer.WriterUtil;
+import kieker.monitoring.writer.encoding.EncodedEventChunk;
+import kieker.monitoring.writer.encoding.EncodedEventSerializer;
 
 /**
  * Represents a monitoring writer which serializes records via TCP to a given
@@ -64,6 +69,8 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 	public static final String CONFIG_BUFFERSIZE = PREFIX + "bufferSize"; // NOCS (afterPREFIX)
 	/** configuration key for {@link #flush}. */
 	public static final String CONFIG_FLUSH = PREFIX + "flush"; // NOCS
+	/** configuration key for {@link #compactSerializer}, i.e., to use the compact binary encoding. */
+	public static final String CONFIG_COMPACT = PREFIX + "compact"; // NOCS
 
 	/** configuration key for {@link #connectionTimeoutInMs}. */
 	public static final String CONFIG_CONN_TIMEOUT_IN_MS = PREFIX + "connectionTimeoutInMs";
@@ -82,6 +89,8 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 	private final ByteBuffer buffer;
 	/** the buffer used for buffering registry records. */
 	private final ByteBuffer registryBuffer;
+	/** the registry and the record buffer in the order they are sent with one gathering write. */
+	private final ByteBuffer[] buffers;
 	/**
 	 * <code>true</code> if the {@link #buffer} should be flushed upon each new
 	 * incoming monitoring record.
@@ -89,6 +98,12 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 	private final boolean flush;
 	/** the serializer to use for the incoming records. */
 	private final IValueSerializer serializer;
+	/** the registry for the strings of the serialized records. */
+	private final WriterRegistry writerRegistry;
+	/** the serializer for events encoded by probes. */
+	private final EncodedEventSerializer encodedEventSerializer;
+	/** the serializer of the compact binary encoding, or null when the default binary encoding is used. */
+	private final CompactValueSerializer compactSerializer;
 
 	// remove RegisterAdapter
 
@@ -110,10 +125,19 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 		final int bufferSize = this.configuration.getIntProperty(CONFIG_BUFFERSIZE);
 		this.buffer = ByteBuffer.allocateDirect(bufferSize);
 		this.registryBuffer = ByteBuffer.allocateDirect(bufferSize);
+		this.buffers = new ByteBuffer[] { this.registryBuffer, this.buffer };
 		this.flush = configuration.getBooleanProperty(CONFIG_FLUSH);
 
-		final WriterRegistry writerRegistry = new WriterRegistry(this);
-		this.serializer = BinaryValueSerializer.create(this.buffer, writerRegistry);
+		this.writerRegistry = new WriterRegistry(this);
+		this.serializer = BinaryValueSerializer.create(this.buffer, this.writerRegistry);
+		this.encodedEventSerializer = new EncodedEventSerializer(this.writerRegistry);
+		if (configuration.getBooleanProperty(CONFIG_COMPACT, false)) {
+			this.compactSerializer = CompactValueSerializer.create(this.writerRegistry);
+			// the registry buffer is always sent first, so the reader can detect the encoding
+			this.registryBuffer.putInt(FormatIdentifier.COMPACT_BINARY_FORMAT.getIdentifierValue());
+		} else {
+			this.compactSerializer = null;
+		}
 	}
 
 	@Override
@@ -173,12 +197,16 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 
 	@Override
 	public void writeMonitoringRecord(final IMonitoringRecord monitoringRecord) {
+		if (this.compactSerializer != null) {
+			this.writeCompactMonitoringRecord(monitoringRecord);
+			this.flushIfRequested();
+			return;
+		}
 		final ByteBuffer recordBuffer = this.buffer;
 		if ((4 + 8 + monitoringRecord.getSize()) > recordBuffer.remaining()) {
-			// Always flush the registryBuffer before flushing the recordBuffer. Otherwise
+			// Always write the registryBuffer before the recordBuffer. Otherwise
 			// the monitoring records could arrive before their string records
-			WriterUtil.flushBuffer(this.registryBuffer, this.socketChannel, LOGGER);
-			WriterUtil.flushBuffer(recordBuffer, this.socketChannel, LOGGER);
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
 		}
 
 		final String recordClassName = monitoringRecord.getClass().getName();
@@ -188,10 +216,77 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 		monitoringRecord.serialize(this.serializer);
 
 		if (this.flush) {
-			// Always flush the registryBuffer before flushing the recordBuffer. Otherwise
+			// Always write the registryBuffer before the recordBuffer. Otherwise
+			// the monitoring records could arrive before their string records
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
+		}
+	}
+
+	/**
+	 * Writes a batch of records. If the whole batch fits into the buffer, the buffer space is checked once for
+	 * the batch. The registry id of a record type is looked up once for each run of records of the same type.
+	 */
+	@Override
+	public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+		if (this.compactSerializer != null) {
+			for (final IMonitoringRecord monitoringRecord : records) {
+				this.writeCompactMonitoringRecord(monitoringRecord);
+			}
+			this.flushIfRequested();
+			return;
+		}
+		final ByteBuffer recordBuffer = this.buffer;
+
+		int requiredBufferSize = 0;
+		for (final IMonitoringRecord monitoringRecord : records) {
+			requiredBufferSize += 4 + 8 + monitoringRecord.getSize();
+		}
+		if (requiredBufferSize > recordBuffer.remaining()) {
+			// the batch does not fit into the buffer; check the buffer space for each record
+			for (final IMonitoringRecord monitoringRecord : records) {
+				this.writeMonitoringRecord(monitoringRecord);
+			}
+			return;
+		}
+
+		Class<?> lastRecordClass = null;
+		int lastRecordClassId = -1;
+		for (final IMonitoringRecord monitoringRecord : records) {
+			final Class<?> recordClass = monitoringRecord.getClass();
+			if (recordClass != lastRecordClass) { // NOPMD (compare references by == not by equals())
+				lastRecordClassId = this.writerRegistry.getId(recordClass.getName());
+				lastRecordClass = recordClass;
+			}
+
+			recordBuffer.putInt(lastRecordClassId);
+			recordBuffer.putLong(monitoringRecord.getLoggingTimestamp());
+			monitoringRecord.serialize(this.serializer);
+		}
+
+		if (this.flush) {
+			// Always write the registryBuffer before the recordBuffer. Otherwise
 			// the monitoring records could arrive before their string records
-			WriterUtil.flushBuffer(this.registryBuffer, this.socketChannel, LOGGER);
-			WriterUtil.flushBuffer(recordBuffer, this.socketChannel, LOGGER);
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
+		}
+	}
+
+	@Override
+	public void writeEncodedEvents(final EncodedEventChunk chunk) {
+		final ByteBuffer recordBuffer = this.buffer;
+		for (int i = 0; i < chunk.size(); i++) {
+			if (this.compactSerializer != null) {
+				this.requestBufferSpace(EncodedEventSerializer.COMPACT_ENCODED_RECORD_SIZE);
+				this.encodedEventSerializer.serialize(chunk, i, this.compactSerializer, recordBuffer);
+			} else {
+				this.requestBufferSpace(EncodedEventSerializer.ENCODED_RECORD_SIZE);
+				this.encodedEventSerializer.serialize(chunk, i, recordBuffer);
+			}
+		}
+
+		if (this.flush) {
+			// Always write the registryBuffer before the recordBuffer. Otherwise
+			// the monitoring records could arrive before their string records
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
 		}
 	}
 
@@ -200,6 +295,13 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 		final ByteBuffer localRegistryBuffer = this.registryBuffer;
 
 		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		if (this.compactSerializer != null) {
+			if (localRegistryBuffer.remaining() < CompactValueSerializer.getMaxRegistryEntrySize(bytes)) {
+				WriterUtil.flushBuffer(localRegistryBuffer, this.socketChannel, LOGGER);
+			}
+			this.compactSerializer.putRegistryEntry(id, bytes, localRegistryBuffer);
+			return;
+		}
 		// logging timestamp + class id + RegistryRecord.SIZE + bytes.length
 		final int requiredBufferSize = (2 * AbstractMonitoringRecord.TYPE_SIZE_INT) + RegistryRecord.SIZE
 				+ bytes.length;
@@ -214,12 +316,33 @@ public class SingleSocketTcpWriter extends AbstractMonitoringWriter implements I
 		localRegistryBuffer.put(bytes);
 	}
 
+	private void writeCompactMonitoringRecord(final IMonitoringRecord monitoringRecord) {
+		this.requestBufferSpace(CompactValueSerializer.getMaxRecordSize(monitoringRecord.getSize()));
+		final int recordClassId = this.writerRegistry.getId(monitoringRecord.getClass().getName());
+		this.compactSerializer.putRecord(recordClassId, monitoringRecord, this.buffer);
+	}
+
+	private void requestBufferSpace(final int bufferSpace) {
+		if (bufferSpace > this.buffer.remaining()) {
+			// Always write the registryBuffer before the recordBuffer. Otherwise
+			// the monitoring records could arrive before their string records
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
+		}
+	}
+
+	private void flushIfRequested() {
+		if (this.flush) {
+			// Always write the registryBuffer before the recordBuffer. Otherwise
+			// the monitoring records could arrive before their string records
+			WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
+		}
+	}
+
 	@Override
 	public void onTerminating() {
-		// Always flush the registryBuffer before flushing the recordBuffer. Otherwise
+		// Always write the registryBuffer before the recordBuffer. Otherwise
 		// the monitoring records could arrive before their string records
-		WriterUtil.flushBuffer(this.registryBuffer, this.socketChannel, LOGGER);
-		WriterUtil.flushBuffer(this.buffer, this.socketChannel, LOGGER);
+		WriterUtil.flushBuffers(this.buffers, 0, 2, this.socketChannel, LOGGER);
 		WriterUtil.close(this.socketChannel, LOGGER);
 	}
 }
@@ -0,0 +1,193 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bounded first-in first-out queue of data blocks stored in a local file. The {@link ReconnectingTcpWriter} spills
+ * blocks which cannot be sent to this file and drains them when the connection is available again. Each block is
+ * stored with the start offsets of its records as <code>[int length][int numOfRecords][int offsets...][bytes]</code>.
+ * The file is created on the first block and deleted on {@link #close()}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+class TcpSpillFile {
+
+	private static final int INT_SIZE = 4;
+	private static final int HEADER_SIZE = 2 * INT_SIZE;
+
+	private final Path directory;
+	private final long maxSize;
+	private final ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+
+	private FileChannel channel;
+	private long readPosition;
+	private long writePosition;
+	private int numOfBlocks;
+
+	/**
+	 * Create a spill file.
+	 *
+	 * @param directory
+	 *            directory of the file
+	 * @param maxSize
+	 *            maximal size of the file in bytes
+	 */
+	public TcpSpillFile(final Path directory, final long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return true when the file does not contain any blocks
+	 */
+	public boolean isEmpty() {
+		return this.numOfBlocks == 0;
+	}
+
+	/**
+	 * @return number of blocks in the file
+	 */
+	public int getNumOfBlocks() {
+		return this.numOfBlocks;
+	}
+
+	/**
+	 * Append the remaining bytes of the given buffers as one block.
+	 *
+	 * @param buffers
+	 *            buffers containing the block, their positions are moved to their limits
+	 * @param recordOffsets
+	 *            start offsets of the records relative to the start of the remaining bytes
+	 * @param force
+	 *            append the block even if the file exceeds its maximal size afterwards
+	 * @return true if the block has been appended, false if the file is full
+	 * @throws IOException
+	 *             when the file cannot be written
+	 */
+	public boolean append(final ByteBuffer[] buffers, final RecordOffsets recordOffsets, final boolean force) throws IOException {
+		int length = 0;
+		for (final ByteBuffer buffer : buffers) {
+			length += buffer.remaining();
+		}
+		final int offsetsSize = INT_SIZE * recordOffsets.size();
+		if (!force && ((this.writePosition - this.readPosition + HEADER_SIZE + offsetsSize + length) > this.maxSize)) {
+			return false;
+		}
+		if (this.channel == null) {
+			final Path file = Files.createTempFile(this.directory, "kieker-tcp-spill-", ".bin");
+			this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + offsetsSize);
+		header.putInt(length);
+		header.putInt(recordOffsets.size());
+		for (int i = 0; i < recordOffsets.size(); i++) {
+			header.putInt(recordOffsets.get(i));
+		}
+		header.flip();
+		this.writeFully(header);
+		for (final ByteBuffer buffer : buffers) {
+			this.writeFully(buffer);
+		}
+		this.numOfBlocks++;
+		return true;
+	}
+
+	/**
+	 * Remove the oldest block from the file and put it into the given buffer.
+	 *
+	 * @param target
+	 *            buffer which is cleared and flipped afterwards; it must be large enough for the largest block
+	 * @param recordOffsets
+	 *            replaced by the start offsets of the records of the block
+	 * @return false if the file is empty
+	 * @throws IOException
+	 *             when the file cannot be read
+	 */
+	public boolean take(final ByteBuffer target, final RecordOffsets recordOffsets) throws IOException {
+		if (this.numOfBlocks == 0) {
+			return false;
+		}
+		this.headerBuffer.clear();
+		this.readFully(this.headerBuffer);
+		this.headerBuffer.flip();
+		final int length = this.headerBuffer.getInt();
+		final int numOfRecords = this.headerBuffer.getInt();
+
+		final ByteBuffer offsets = ByteBuffer.allocate(INT_SIZE * numOfRecords);
+		this.readFully(offsets);
+		offsets.flip();
+		recordOffsets.clear();
+		for (int i = 0; i < numOfRecords; i++) {
+			recordOffsets.add(offsets.getInt());
+		}
+
+		target.clear();
+		target.limit(length);
+		this.readFully(target);
+		target.flip();
+
+		this.numOfBlocks--;
+		if (this.numOfBlocks == 0) {
+			// reuse the file from the start
+			this.channel.truncate(0);
+			this.readPosition = 0;
+			this.writePosition = 0;
+		}
+		return true;
+	}
+
+	/**
+	 * Close and delete the file.
+	 *
+	 * @throws IOException
+	 *             when the file cannot be closed
+	 */
+	public void close() throws IOException {
+		if (this.channel != null) {
+			this.channel.close();
+			this.channel = null;
+		}
+		this.numOfBlocks = 0;
+	}
+
+	private void writeFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.writePosition += this.channel.write(buffer, this.writePosition);
+		}
+	}
+
+	private void readFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			final int bytesRead = this.channel.read(buffer, this.readPosition);
+			if (bytesRead < 0) {
+				throw new IOException("Spill file ends within a block.");
+			}
+			this.readPosition += bytesRead;
+		}
+	}
+}
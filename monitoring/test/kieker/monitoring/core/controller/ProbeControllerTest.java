@@ -28,6 +28,7 @@ import org.junit.Test;
 import kieker.common.configuration.Configuration;
 import kieker.monitoring.core.configuration.ConfigurationConstants;
 import kieker.monitoring.core.configuration.ConfigurationFactory;
+import kieker.monitoring.probe.aspectj.SignatureDescriptor;
 
 /**
  * Test probe controller.
@@ -84,6 +85,25 @@ public class ProbeControllerTest {
 		Assert.assertFalse("Probe should be deactived for " + OPERATION_SIGNATURE, this.controller.isProbeActivated(OPERATION_SIGNATURE));
 	}
 
+	/**
+	 * Test whether a signature descriptor re-evaluates its cached activation state after the activation version changed.
+	 */
+	@Test
+	public void testSignatureDescriptorFollowsActivationVersion() {
+		final SignatureDescriptor descriptor = new SignatureDescriptor(OPERATION_SIGNATURE, null, CLASSNAME);
+
+		final long initialVersion = this.controller.getProbeActivationVersion();
+		this.controller.activateProbe(OPERATION_SIGNATURE);
+		Assert.assertTrue("Activation should increment the version", this.controller.getProbeActivationVersion() > initialVersion);
+		Assert.assertTrue("Probe should be actived for " + OPERATION_SIGNATURE, descriptor.isProbeActivated(this.controller));
+
+		this.controller.deactivateProbe(OPERATION_SIGNATURE);
+		Assert.assertFalse("Probe should be deactived for " + OPERATION_SIGNATURE, descriptor.isProbeActivated(this.controller));
+
+		this.controller.activateProbe(OPERATION_SIGNATURE);
+		Assert.assertTrue("Probe should be actived for " + OPERATION_SIGNATURE, descriptor.isProbeActivated(this.controller));
+	}
+
 	/**
 	 * Test method for {@link kieker.monitoring.core.controller.ProbeController#setProbePatternList(java.util.List, boolean)}.
 	 */
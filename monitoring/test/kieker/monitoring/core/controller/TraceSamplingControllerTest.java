@@ -0,0 +1,97 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.controller;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.configuration.Configuration;
+import kieker.monitoring.core.configuration.ConfigurationConstants;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+
+/**
+ * Test the sampling decisions of the trace sampling controller. The controllers are not connected to a monitoring
+ * controller, i.e., the queue feedback and the refill of the token bucket are not active.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceSamplingControllerTest {
+
+	private static final int TRACES = 100;
+
+	/** trace sampling controller test. */
+	public TraceSamplingControllerTest() {
+		// nothing to be done on construction of the test
+	}
+
+	/** by default, all traces are recorded and not counted. */
+	@Test
+	public void testNone() {
+		final TraceSamplingController controller = new TraceSamplingController(ConfigurationFactory.createDefaultConfiguration());
+		for (int i = 0; i < TRACES; i++) {
+			Assert.assertTrue(controller.sampleTrace());
+		}
+		Assert.assertEquals(0, controller.getNumberOfSampledTraces());
+		Assert.assertEquals(0, controller.getNumberOfUnsampledTraces());
+	}
+
+	/** the fixed rate bounds are exact. */
+	@Test
+	public void testFixedRate() {
+		final TraceSamplingController never = this.createController(TraceSamplingMode.FIXED_RATE, 0.0, 1);
+		final TraceSamplingController always = this.createController(TraceSamplingMode.FIXED_RATE, 1.0, 1);
+		for (int i = 0; i < TRACES; i++) {
+			Assert.assertFalse(never.sampleTrace());
+			Assert.assertTrue(always.sampleTrace());
+		}
+		Assert.assertEquals(TRACES, never.getNumberOfUnsampledTraces());
+		Assert.assertEquals(TRACES, always.getNumberOfSampledTraces());
+	}
+
+	/** a full bucket holds the records of one second. */
+	@Test
+	public void testTokenBucket() {
+		final int recordsPerSecond = 10;
+		final TraceSamplingController controller = this.createController(TraceSamplingMode.TOKEN_BUCKET, 1.0, recordsPerSecond);
+		for (int i = 0; i < TRACES; i++) {
+			controller.sampleTrace();
+		}
+		Assert.assertEquals(recordsPerSecond, controller.getNumberOfSampledTraces());
+		Assert.assertEquals(TRACES - recordsPerSecond, controller.getNumberOfUnsampledTraces());
+	}
+
+	/** the probability decreases linearly between the watermarks. */
+	@Test
+	public void testPressureFactor() {
+		final TraceSamplingController controller = this.createController(TraceSamplingMode.NONE, 1.0, 1);
+		Assert.assertEquals(1.0, controller.computePressureFactor(0.2), 0.0001);
+		Assert.assertEquals(1.0, controller.computePressureFactor(0.5), 0.0001);
+		Assert.assertEquals(0.5, controller.computePressureFactor(0.7), 0.0001);
+		Assert.assertEquals(0.0, controller.computePressureFactor(0.9), 0.0001);
+		Assert.assertEquals(0.0, controller.computePressureFactor(1.0), 0.0001);
+	}
+
+	private TraceSamplingController createController(final TraceSamplingMode mode, final double rate, final long recordsPerSecond) {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(ConfigurationConstants.TRACE_SAMPLING_MODE, mode.name());
+		configuration.setProperty(ConfigurationConstants.TRACE_SAMPLING_RATE, rate);
+		configuration.setProperty(ConfigurationConstants.TRACE_SAMPLING_RECORDS_PER_SECOND, recordsPerSecond);
+		return new TraceSamplingController(configuration);
+	}
+}
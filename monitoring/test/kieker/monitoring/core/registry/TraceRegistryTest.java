@@ -0,0 +1,120 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.core.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+
+/**
+ * Test the per-thread state of the {@link TraceRegistry} and the {@link ControlFlowRegistry}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceRegistryTest {
+
+	private static final int NESTING_DEPTH = 10;
+
+	/** trace registry test. */
+	public TraceRegistryTest() {
+		// nothing to be done on construction of the test
+	}
+
+	/** enclosing traces are restored in reverse order, also beyond the initial stack capacity. */
+	@Test
+	public void testNestedTraces() {
+		final TraceRegistry registry = TraceRegistry.INSTANCE;
+		Assert.assertNull(registry.getTrace());
+
+		final List<TraceMetadata> traces = new ArrayList<>();
+		for (int i = 0; i < NESTING_DEPTH; i++) {
+			final TraceMetadata trace = registry.registerTrace();
+			if (i > 0) {
+				Assert.assertEquals("parent of sub trace", traces.get(i - 1).getTraceId(), trace.getParentTraceId());
+			}
+			traces.add(trace);
+			Assert.assertSame(trace, registry.getTrace());
+		}
+		for (int i = NESTING_DEPTH - 1; i > 0; i--) {
+			registry.unregisterTrace();
+			Assert.assertSame(traces.get(i - 1), registry.getTrace());
+		}
+		registry.unregisterTrace();
+		Assert.assertNull(registry.getTrace());
+	}
+
+	/** a split point is used by the next trace of the given thread only. */
+	@Test
+	public void testSplitPoint() {
+		final TraceRegistry registry = TraceRegistry.INSTANCE;
+		registry.setParentTraceId(Thread.currentThread(), 42L, 7);
+
+		final TraceMetadata trace = registry.registerTrace();
+		Assert.assertEquals(42L, trace.getParentTraceId());
+		Assert.assertEquals(7, trace.getParentOrderId());
+		registry.unregisterTrace();
+
+		final TraceMetadata nextTrace = registry.registerTrace();
+		Assert.assertEquals(nextTrace.getTraceId(), nextTrace.getParentTraceId());
+		Assert.assertEquals(-1, nextTrace.getParentOrderId());
+		registry.unregisterTrace();
+	}
+
+	/** without trace sampling, every trace is sampled and nested traces are sub traces. */
+	@Test
+	public void testSampledTrace() {
+		final TraceRegistry registry = TraceRegistry.INSTANCE;
+		final TraceMetadata trace = registry.registerSampledTrace();
+		Assert.assertNotNull(trace);
+		final TraceMetadata subTrace = registry.registerSampledTrace();
+		Assert.assertEquals("parent of sub trace", trace.getTraceId(), subTrace.getParentTraceId());
+		registry.unregisterTrace();
+		Assert.assertSame(trace, registry.getTrace());
+		registry.unregisterTrace();
+		Assert.assertNull(registry.getTrace());
+	}
+
+	/** trace id, eoi, and ess are independent and only valid while registered. */
+	@Test
+	public void testControlFlowRegistry() {
+		final ControlFlowRegistry registry = ControlFlowRegistry.INSTANCE;
+		Assert.assertEquals(-1L, registry.recallThreadLocalTraceId());
+
+		final long traceId = registry.getAndStoreUniqueThreadLocalTraceId();
+		registry.storeThreadLocalEOI(0);
+		registry.storeThreadLocalESS(1);
+
+		Assert.assertEquals(traceId, registry.recallThreadLocalTraceId());
+		Assert.assertEquals(1, registry.incrementAndRecallThreadLocalEOI());
+		Assert.assertEquals(1, registry.recallAndIncrementThreadLocalESS());
+		Assert.assertEquals(2, registry.recallThreadLocalESS());
+		Assert.assertEquals(1, registry.recallThreadLocalEOI());
+
+		registry.unsetThreadLocalTraceId();
+		registry.unsetThreadLocalEOI();
+		registry.unsetThreadLocalESS();
+		Assert.assertEquals(-1L, registry.recallThreadLocalTraceId());
+		Assert.assertEquals(-1, registry.recallThreadLocalEOI());
+		Assert.assertEquals(-1, registry.recallThreadLocalESS());
+	}
+}
@@ -0,0 +1,141 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.monitoring.probe.aspectj.flow.concurrency;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.monitoring.core.registry.TraceRegistry;
+
+/**
+ * Test the propagation of traces to asynchronous stages of completable futures by the {@link CompletableFutureAspect}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class CompletableFutureAspectTest {
+
+	private final TraceRegistry registry = TraceRegistry.INSTANCE;
+	private final CompletableFutureAspect aspect = new CompletableFutureAspect();
+	private ExecutorService executor;
+
+	/** completable future aspect test. */
+	public CompletableFutureAspectTest() {
+		// nothing to be done on construction of the test
+	}
+
+	/** single pooled thread, i.e., all tasks run in the same thread. */
+	@Before
+	public void setUp() {
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	/** stop the pool. */
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	/** the supplier of supplyAsync creates a sub trace of the split point. */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSupplyAsync() throws Throwable { // NOCS (Throwable of the advice)
+		final TraceMetadata trace = this.registry.registerTrace();
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.supplyAsync(joinPoint, new Supplier<TraceMetadata>() {
+			@Override
+			public TraceMetadata get() {
+				return CompletableFutureAspectTest.this.createTrace();
+			}
+		});
+		this.registry.unregisterTrace();
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		final Supplier<TraceMetadata> task = (Supplier<TraceMetadata>) arguments.getValue()[0];
+		final TraceMetadata subTrace = CompletableFuture.supplyAsync(task, this.executor).get();
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+	}
+
+	/** the function of an async stage creates a sub trace of the split point of the thread creating the stage. */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testFunctionAsync() throws Throwable { // NOCS (Throwable of the advice)
+		final TraceMetadata trace = this.registry.registerTrace();
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.functionAsync(joinPoint, new Function<String, TraceMetadata>() {
+			@Override
+			public TraceMetadata apply(final String value) {
+				return CompletableFutureAspectTest.this.createTrace();
+			}
+		});
+		this.registry.unregisterTrace();
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		final Function<String, TraceMetadata> task = (Function<String, TraceMetadata>) arguments.getValue()[0];
+		final TraceMetadata subTrace = CompletableFuture.completedFuture("value").thenApplyAsync(task, this.executor).get();
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+
+		// later tasks of the pooled thread are not affected by the split point
+		final TraceMetadata unrelatedTrace = CompletableFuture.supplyAsync(new Supplier<TraceMetadata>() {
+			@Override
+			public TraceMetadata get() {
+				return CompletableFutureAspectTest.this.createTrace();
+			}
+		}, this.executor).get();
+		Assert.assertEquals("no parent", unrelatedTrace.getTraceId(), unrelatedTrace.getParentTraceId());
+	}
+
+	/** the other stage of a combining stage is passed on unchanged. */
+	@Test
+	public void testCombineAsyncKeepsOtherStage() throws Throwable { // NOCS (Throwable of the advice)
+		this.registry.registerTrace();
+		final CompletableFuture<String> other = CompletableFuture.completedFuture("other");
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.runAfterAsync(joinPoint, other, new Runnable() {
+			@Override
+			public void run() {
+				// nothing to be done
+			}
+		});
+		this.registry.unregisterTrace();
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		Assert.assertSame("other stage", other, arguments.getValue()[0]);
+		Assert.assertTrue("wrapped task", arguments.getValue()[1] instanceof Runnable);
+	}
+
+	TraceMetadata createTrace() { // NOPMD package for inner class
+		final TraceMetadata trace = this.registry.registerTrace();
+		this.registry.unregisterTrace();
+		return trace;
+	}
+}
@@ -0,0 +1,143 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+package kieker.monitoring.probe.aspectj.flow.concurrency;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.monitoring.core.registry.TraceRegistry;
+
+/**
+ * Test the propagation of traces to tasks submitted to executors by the {@link ExecutorAspect}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ExecutorAspectTest {
+
+	private final TraceRegistry registry = TraceRegistry.INSTANCE;
+	private final ExecutorAspect aspect = new ExecutorAspect();
+	private ExecutorService executor;
+
+	/** executor aspect test. */
+	public ExecutorAspectTest() {
+		// nothing to be done on construction of the test
+	}
+
+	/** single pooled thread, i.e., all tasks run in the same thread. */
+	@Before
+	public void setUp() {
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	/** stop the pool. */
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	/** a callable submitted inside of a trace is replaced by a task creating a sub trace of the split point. */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSubmitCallableInsideOfTrace() throws Throwable { // NOCS (Throwable of the advice)
+		final TraceMetadata trace = this.registry.registerTrace();
+		final Callable<TraceMetadata> task = new TraceCreatingCallable();
+		final Object[] arguments = this.proceedSubmitCallable(task);
+		this.registry.unregisterTrace();
+
+		Assert.assertNotSame("wrapped task", task, arguments[0]);
+		final TraceMetadata subTrace = this.executor.submit((Callable<TraceMetadata>) arguments[0]).get();
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+	}
+
+	/** outside of a trace, the submitted runnable is passed on unchanged. */
+	@Test
+	public void testSubmitRunnableOutsideOfTrace() throws Throwable { // NOCS (Throwable of the advice)
+		final Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				// nothing to be done
+			}
+		};
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.submitRunnable(joinPoint, task);
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		Assert.assertSame("unchanged task", task, arguments.getValue()[0]);
+	}
+
+	/** the split point of a runnable does not affect later tasks of the pooled thread. */
+	@Test
+	public void testSubmitRunnableDoesNotLeakSplitPoint() throws Throwable { // NOCS (Throwable of the advice)
+		this.registry.registerTrace();
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.submitRunnable(joinPoint, new Runnable() {
+			@Override
+			public void run() {
+				// no trace created
+			}
+		});
+		this.registry.unregisterTrace();
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		this.executor.submit((Runnable) arguments.getValue()[0]).get();
+
+		final TraceMetadata unrelatedTrace = this.executor.submit(new TraceCreatingCallable()).get();
+		Assert.assertEquals("no parent", unrelatedTrace.getTraceId(), unrelatedTrace.getParentTraceId());
+	}
+
+	private Object[] proceedSubmitCallable(final Callable<?> task) throws Throwable { // NOCS (Throwable of the advice)
+		final ProceedingJoinPoint joinPoint = Mockito.mock(ProceedingJoinPoint.class);
+		this.aspect.submitCallable(joinPoint, task);
+
+		final ArgumentCaptor<Object[]> arguments = ArgumentCaptor.forClass(Object[].class);
+		Mockito.verify(joinPoint).proceed(arguments.capture());
+		return arguments.getValue();
+	}
+
+	TraceMetadata createTrace() { // NOPMD package for inner class
+		final TraceMetadata trace = this.registry.registerTrace();
+		this.registry.unregisterTrace();
+		return trace;
+	}
+
+	/**
+	 * Task which creates a trace and returns its metadata.
+	 */
+	private class TraceCreatingCallable implements Callable<TraceMetadata> {
+		public TraceCreatingCallable() {
+			// nothing to be done
+		}
+
+		@Override
+		public TraceMetadata call() {
+			return ExecutorAspectTest.this.createTrace();
+		}
+	}
+}
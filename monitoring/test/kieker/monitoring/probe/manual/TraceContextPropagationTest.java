@@ -0,0 +1,172 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.probe.manual;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import kieker.common.record.flow.trace.TraceMetadata;
+import kieker.monitoring.core.registry.TraceRegistry;
+
+/**
+ * Test the propagation of traces to tasks executed by other threads.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TraceContextPropagationTest {
+
+	private final TraceRegistry registry = TraceRegistry.INSTANCE;
+	private ExecutorService executor;
+
+	/** trace context propagation test. */
+	public TraceContextPropagationTest() {
+		// nothing to be done on construction of the test
+	}
+
+	/** single pooled thread, i.e., all tasks run in the same thread. */
+	@Before
+	public void setUp() {
+		this.executor = Executors.newSingleThreadExecutor();
+	}
+
+	/** stop the pool. */
+	@After
+	public void tearDown() {
+		this.executor.shutdownNow();
+	}
+
+	/** a task submitted inside of a trace creates a sub trace of the split point in a pooled thread. */
+	@Test
+	public void testCallableInPooledThread() throws InterruptedException, ExecutionException {
+		final TraceMetadata trace = this.registry.registerTrace();
+		final int lastOrderId = trace.getNextOrderId();
+		final Callable<TraceMetadata> task = TraceContextPropagation.wrapCallable(new TraceCreatingCallable());
+		final TraceMetadata subTrace = this.executor.submit(task).get();
+		this.registry.unregisterTrace();
+
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+		Assert.assertEquals("parent order id", lastOrderId + 1, subTrace.getParentOrderId());
+
+		// later tasks of the pooled thread are not affected by the split point
+		final TraceMetadata unrelatedTrace = this.executor.submit(new TraceCreatingCallable()).get();
+		Assert.assertEquals("no parent", unrelatedTrace.getTraceId(), unrelatedTrace.getParentTraceId());
+	}
+
+	/** a split point which is not used by the task is discarded after the task. */
+	@Test
+	public void testUnusedSplitPointIsDiscarded() throws InterruptedException, ExecutionException {
+		this.registry.registerTrace();
+		final Runnable task = TraceContextPropagation.wrapRunnable(new Runnable() {
+			@Override
+			public void run() {
+				// no trace created
+			}
+		});
+		this.registry.unregisterTrace();
+		this.executor.submit(task).get();
+
+		final TraceMetadata unrelatedTrace = this.executor.submit(new TraceCreatingCallable()).get();
+		Assert.assertEquals("no parent", unrelatedTrace.getTraceId(), unrelatedTrace.getParentTraceId());
+	}
+
+	/** a task executed synchronously by another task does not discard the unused split point of the outer task. */
+	@Test
+	public void testNestedTaskRestoresSplitPoint() throws InterruptedException, ExecutionException {
+		final TraceMetadata trace = this.registry.registerTrace();
+		final Runnable innerTask = TraceContextPropagation.wrapRunnable(new Runnable() {
+			@Override
+			public void run() {
+				// no trace created
+			}
+		});
+		final int outerOrderId = trace.getNextOrderId() + 1;
+		final Callable<TraceMetadata> outerTask = TraceContextPropagation.wrapCallable(new Callable<TraceMetadata>() {
+			@Override
+			public TraceMetadata call() {
+				innerTask.run(); // e.g., a caller-runs policy or a completed future
+				return TraceContextPropagationTest.this.createTrace();
+			}
+		});
+		final TraceMetadata subTrace = this.executor.submit(outerTask).get();
+		this.registry.unregisterTrace();
+
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+		Assert.assertEquals("parent order id", outerOrderId, subTrace.getParentOrderId());
+
+		final TraceMetadata unrelatedTrace = this.executor.submit(new TraceCreatingCallable()).get();
+		Assert.assertEquals("no parent", unrelatedTrace.getTraceId(), unrelatedTrace.getParentTraceId());
+	}
+
+	/** outside of a trace, tasks are not wrapped. */
+	@Test
+	public void testNoTrace() {
+		final Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				// nothing to be done
+			}
+		};
+		Assert.assertSame(task, TraceContextPropagation.wrapRunnable(task));
+	}
+
+	/** completable future stages are linked to the submitting trace. */
+	@Test
+	public void testSupplierInCompletableFuture() throws InterruptedException, ExecutionException {
+		final TraceMetadata trace = this.registry.registerTrace();
+		final Supplier<TraceMetadata> task = TraceContextPropagation.wrapSupplier(new Supplier<TraceMetadata>() {
+			@Override
+			public TraceMetadata get() {
+				return TraceContextPropagationTest.this.createTrace();
+			}
+		});
+		final TraceMetadata subTrace = CompletableFuture.supplyAsync(task, this.executor).get();
+		this.registry.unregisterTrace();
+
+		Assert.assertEquals("parent trace", trace.getTraceId(), subTrace.getParentTraceId());
+	}
+
+	TraceMetadata createTrace() { // NOPMD package for inner class
+		final TraceMetadata trace = this.registry.registerTrace();
+		this.registry.unregisterTrace();
+		return trace;
+	}
+
+	/**
+	 * Task which creates a trace and returns its metadata.
+	 */
+	private class TraceCreatingCallable implements Callable<TraceMetadata> {
+		public TraceCreatingCallable() {
+			// nothing to be done
+		}
+
+		@Override
+		public TraceMetadata call() {
+			return TraceContextPropagationTest.this.createTrace();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.queue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.monitoring.queue.putstrategy.YieldPutStrategy;
+import kieker.monitoring.queue.takestrategy.YieldTakeStrategy;
+
+/**
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class MpscRingBufferTest {
+
+	private static final int NUM_PRODUCERS = 4;
+	private static final int NUM_ELEMENTS_PER_PRODUCER = 100000;
+
+	public MpscRingBufferTest() {
+		super();
+	}
+
+	@Test
+	public void testCapacityIsRoundedToPowerOfTwo() {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1000);
+		Assert.assertThat(buffer.capacity(), CoreMatchers.is(1024));
+	}
+
+	@Test
+	public void testOfferFailsWhenFull() {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(2);
+		Assert.assertTrue(buffer.offer(1));
+		Assert.assertTrue(buffer.offer(2));
+		Assert.assertFalse(buffer.offer(3));
+		Assert.assertThat(buffer.size(), CoreMatchers.is(2));
+
+		Assert.assertThat(buffer.poll(), CoreMatchers.is(1));
+		Assert.assertTrue(buffer.offer(3));
+		Assert.assertThat(buffer.poll(), CoreMatchers.is(2));
+		Assert.assertThat(buffer.poll(), CoreMatchers.is(3));
+		Assert.assertNull(buffer.poll());
+		Assert.assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	public void testDrainToRespectsMaxElements() {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(8);
+		for (int i = 0; i < 5; i++) {
+			buffer.offer(i);
+		}
+
+		final List<Integer> drained = new ArrayList<>();
+		Assert.assertThat(buffer.drainTo(drained, 3), CoreMatchers.is(3));
+		Assert.assertThat(buffer.drainTo(drained, 10), CoreMatchers.is(2));
+		Assert.assertThat(drained.size(), CoreMatchers.is(5));
+		for (int i = 0; i < 5; i++) {
+			Assert.assertThat(drained.get(i), CoreMatchers.is(i));
+		}
+	}
+
+	@Test
+	public void testIteratorReturnsPublishedElementsInOrder() {
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+		for (int i = 0; i < 4; i++) {
+			buffer.offer(i);
+		}
+		buffer.poll();
+		buffer.offer(4); // wraps around
+
+		final List<Integer> elements = new ArrayList<>();
+		for (final Integer element : buffer) {
+			elements.add(element);
+		}
+		Assert.assertThat(elements.toString(), CoreMatchers.is("[1, 2, 3, 4]"));
+		Assert.assertTrue(buffer.contains(3));
+		Assert.assertFalse(buffer.contains(0));
+
+		final Iterator<Integer> iterator = new BlockingQueueDecorator<>(buffer, new YieldPutStrategy(), new YieldTakeStrategy()).iterator();
+		Assert.assertThat(iterator.next(), CoreMatchers.is(1));
+		buffer.poll();
+		buffer.poll();
+		buffer.poll(); // the element read ahead is still returned, other consumed elements are skipped
+		Assert.assertThat(iterator.next(), CoreMatchers.is(2));
+		Assert.assertThat(iterator.next(), CoreMatchers.is(4));
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	@Test
+	public void testConcurrentProducersKeepPerProducerOrder() throws Exception {
+		final MpscRingBuffer<long[]> buffer = new MpscRingBuffer<>(1024);
+		final Thread[] producers = new Thread[NUM_PRODUCERS];
+		for (int p = 0; p < NUM_PRODUCERS; p++) {
+			final long producerId = p;
+			producers[p] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (long i = 0; i < NUM_ELEMENTS_PER_PRODUCER; i++) {
+						final long[] element = { producerId, i };
+						while (!buffer.offer(element)) {
+							Thread.yield();
+						}
+					}
+				}
+			});
+			producers[p].start();
+		}
+
+		final long[] expectedNext = new long[NUM_PRODUCERS];
+		final List<long[]> batch = new ArrayList<>();
+		int received = 0;
+		while (received < (NUM_PRODUCERS * NUM_ELEMENTS_PER_PRODUCER)) {
+			batch.clear();
+			received += buffer.drainTo(batch, 128);
+			for (final long[] element : batch) {
+				Assert.assertThat(element[1], CoreMatchers.is(expectedNext[(int) element[0]]));
+				expectedNext[(int) element[0]]++;
+			}
+		}
+
+		for (final Thread producer : producers) {
+			producer.join();
+		}
+		Assert.assertTrue(buffer.isEmpty());
+	}
+}
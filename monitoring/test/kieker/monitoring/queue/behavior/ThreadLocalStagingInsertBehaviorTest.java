@@ -0,0 +1,146 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.queue.behavior;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import kieker.monitoring.queue.BlockingQueueDecorator;
+import kieker.monitoring.queue.MpscRingBuffer;
+import kieker.monitoring.queue.putstrategy.YieldPutStrategy;
+import kieker.monitoring.queue.takestrategy.YieldTakeStrategy;
+
+/**
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ThreadLocalStagingInsertBehaviorTest {
+
+	private static final int BUFFER_SIZE = 4;
+	private static final long FLUSH_INTERVAL_MS = 10000;
+
+	private BlockingQueue<Integer> queue;
+	private ThreadLocalStagingInsertBehavior<Integer> behavior;
+	private final CountDownLatch failedInserts = new CountDownLatch(1);
+
+	public ThreadLocalStagingInsertBehaviorTest() {
+		super();
+	}
+
+	@Before
+	public void setUp() {
+		this.queue = new BlockingQueueDecorator<>(new MpscRingBuffer<Integer>(16), new YieldPutStrategy(), new YieldTakeStrategy());
+		this.behavior = new ThreadLocalStagingInsertBehavior<>(this.queue, new CountOnFailedInsertBehavior<>(this.queue),
+				BUFFER_SIZE, FLUSH_INTERVAL_MS, this.createFailedInsertHandler());
+	}
+
+	private Runnable createFailedInsertHandler() {
+		return new Runnable() {
+			@Override
+			public void run() {
+				ThreadLocalStagingInsertBehaviorTest.this.failedInserts.countDown();
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		this.behavior.terminate();
+	}
+
+	@Test
+	public void testChunkIsPublishedWhenFull() {
+		for (int i = 0; i < (BUFFER_SIZE - 1); i++) {
+			Assert.assertTrue(this.behavior.insert(i));
+		}
+		Assert.assertTrue(this.queue.isEmpty());
+
+		Assert.assertTrue(this.behavior.insert(BUFFER_SIZE - 1));
+		Assert.assertThat(this.queue.size(), CoreMatchers.is(BUFFER_SIZE));
+		for (int i = 0; i < BUFFER_SIZE; i++) {
+			Assert.assertThat(this.queue.poll(), CoreMatchers.is(i));
+		}
+	}
+
+	@Test
+	public void testFlushPublishesStagedAndNextElement() {
+		this.behavior.insert(1);
+		Assert.assertTrue(this.behavior.flush());
+		Assert.assertThat(this.queue.size(), CoreMatchers.is(1));
+
+		// the record following a flush, e.g., the last event of a trace, is published immediately
+		this.behavior.insert(2);
+		Assert.assertThat(this.queue.size(), CoreMatchers.is(2));
+
+		this.behavior.insert(3);
+		Assert.assertThat(this.queue.size(), CoreMatchers.is(2));
+	}
+
+	@Test
+	public void testTerminatePublishesAllThreads() throws Exception {
+		final Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				ThreadLocalStagingInsertBehaviorTest.this.behavior.insert(1);
+			}
+		});
+		thread.start();
+		thread.join();
+		this.behavior.insert(2);
+
+		this.behavior.terminate();
+		Assert.assertThat(this.queue.size(), CoreMatchers.is(2));
+	}
+
+	@Test
+	public void testFailedIdleFlushIsReported() throws Exception {
+		this.behavior.terminate();
+		final BlockingQueue<Integer> fullQueue = new ArrayBlockingQueue<>(1);
+		fullQueue.add(0);
+		this.behavior = new ThreadLocalStagingInsertBehavior<>(fullQueue, new TerminateOnFailedInsertBehavior<>(fullQueue),
+				BUFFER_SIZE, 1, this.createFailedInsertHandler());
+
+		// the staged element is published by the flush task, which cannot insert it into the full queue
+		Assert.assertTrue(this.behavior.insert(1));
+		Assert.assertTrue(this.failedInserts.await(10, TimeUnit.SECONDS));
+		Assert.assertThat(fullQueue.size(), CoreMatchers.is(1));
+	}
+
+	@Test
+	public void testIdleFlushPublishesStagedElements() throws Exception {
+		this.behavior.terminate();
+		this.behavior = new ThreadLocalStagingInsertBehavior<>(this.queue, new CountOnFailedInsertBehavior<>(this.queue),
+				BUFFER_SIZE, 1, this.createFailedInsertHandler());
+
+		Assert.assertTrue(this.behavior.insert(1));
+		Assert.assertThat(this.queue.take(), CoreMatchers.is(1));
+		// the owning thread keeps staging after its elements have been taken by the flush task
+		Assert.assertTrue(this.behavior.flush());
+		Assert.assertTrue(this.behavior.insert(2));
+		Assert.assertThat(this.queue.poll(), CoreMatchers.is(2));
+		Assert.assertThat(this.failedInserts.getCount(), CoreMatchers.is(1L));
+	}
+}
@@ -17,8 +17,12 @@
 package kieker.monitoring.writer;
 
 import java.lang.Thread.State;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Assert;
@@ -29,6 +33,7 @@ import kieker.common.configuration.Configuration;
 import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.misc.EmptyRecord;
 import kieker.monitoring.writer.dump.DumpWriter;
+import kieker.test.monitoring.util.DummyRecordCountWriter;
 
 /**
  *
@@ -95,4 +100,85 @@ public class MonitoringWriterThreadTest {
 
 		Assert.assertThat(thread.getState(), CoreMatchers.is(State.TERMINATED));
 	}
+
+	@Test
+	public void testBatchedWritingWritesAllRecordsBeforeTermination() throws Exception {
+		final Configuration configuration = new Configuration();
+		final DummyRecordCountWriter writer = new DummyRecordCountWriter(configuration);
+		final BlockingQueue<IMonitoringRecord> writerQueue = new LinkedBlockingQueue<>();
+
+		for (int i = 0; i < 100; i++) {
+			writerQueue.add(new EmptyRecord());
+		}
+
+		final MonitoringWriterThread thread = new MonitoringWriterThread(writer, writerQueue, 16);
+		thread.terminate(); // the end-of-monitoring record is queued after all regular records
+		writerQueue.add(new EmptyRecord()); // records after the end-of-monitoring record must not be written
+		thread.start();
+		thread.join(THREAD_STATE_CHANGE_TIMEOUT_IN_MS);
+
+		Assert.assertThat(thread.getState(), CoreMatchers.is(State.TERMINATED));
+		Assert.assertThat(writer.getNumDummyRecords(), CoreMatchers.is(100));
+	}
+
+	@Test
+	public void testNoBatchingByDefault() throws Exception {
+		final Configuration configuration = new Configuration();
+		final AtomicInteger numOfRecords = new AtomicInteger();
+		final AtomicInteger numOfBatches = new AtomicInteger();
+		final AbstractMonitoringWriter writer = new DumpWriter(configuration) {
+			@Override
+			public void writeMonitoringRecord(final IMonitoringRecord record) {
+				numOfRecords.incrementAndGet();
+			}
+
+			@Override
+			public void writeMonitoringRecords(final List<IMonitoringRecord> records) {
+				numOfBatches.incrementAndGet();
+				super.writeMonitoringRecords(records);
+			}
+		};
+		final BlockingQueue<IMonitoringRecord> writerQueue = new LinkedBlockingQueue<>();
+
+		for (int i = 0; i < 100; i++) {
+			writerQueue.add(new EmptyRecord());
+		}
+
+		final MonitoringWriterThread thread = new MonitoringWriterThread(writer, writerQueue);
+		thread.terminate();
+		thread.start();
+		thread.join(THREAD_STATE_CHANGE_TIMEOUT_IN_MS);
+
+		Assert.assertThat(thread.getState(), CoreMatchers.is(State.TERMINATED));
+		Assert.assertThat(numOfRecords.get(), CoreMatchers.is(100));
+		Assert.assertThat(numOfBatches.get(), CoreMatchers.is(0));
+	}
+
+	@Test
+	public void testIdleEvents() throws Exception {
+		final Configuration configuration = new Configuration();
+		final CountDownLatch idleEvents = new CountDownLatch(3);
+		final AbstractMonitoringWriter writer = new DumpWriter(configuration) {
+			@Override
+			public long getIdleTimeoutInMs() {
+				return 1;
+			}
+
+			@Override
+			public void onIdle() {
+				idleEvents.countDown();
+			}
+		};
+		final BlockingQueue<IMonitoringRecord> writerQueue = new LinkedBlockingQueue<>();
+
+		final MonitoringWriterThread thread = new MonitoringWriterThread(writer, writerQueue);
+		thread.start();
+
+		Assert.assertTrue("idle events", idleEvents.await(THREAD_STATE_CHANGE_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS));
+
+		thread.terminate();
+		thread.join(THREAD_STATE_CHANGE_TIMEOUT_IN_MS);
+
+		Assert.assertThat(thread.getState(), CoreMatchers.is(State.TERMINATED));
+	}
 }
@@ -0,0 +1,144 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.IWriterQueueElement;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.BinaryValueSerializer;
+import kieker.common.record.io.IValueSerializer;
+import kieker.common.record.misc.EmptyRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.monitoring.queue.behavior.CountOnFailedInsertBehavior;
+import kieker.monitoring.queue.behavior.DoNotInsertBehavior;
+
+/**
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class EncodedEventSerializerTest {
+
+	private static final String OPERATION_SIGNATURE = "public void kieker.Test.operation()";
+	private static final String CLASS_SIGNATURE = "kieker.Test";
+
+	public EncodedEventSerializerTest() {
+		super();
+	}
+
+	@Test
+	public void testEncodedEventsAreSerializedLikeRecords() {
+		final EncodedEventChunk chunk = new EncodedEventChunk(4);
+		final StringInterner interner = StringInterner.INSTANCE;
+		chunk.add(EncodedEventChunk.BEFORE_OPERATION_EVENT, 10L, 1L, 0, interner.intern(OPERATION_SIGNATURE),
+				interner.intern(CLASS_SIGNATURE));
+		chunk.add(EncodedEventChunk.AFTER_OPERATION_EVENT, 20L, 1L, 1, interner.intern(OPERATION_SIGNATURE),
+				interner.intern(CLASS_SIGNATURE));
+		chunk.enableAutoLoggingTimestamp();
+
+		final List<IMonitoringRecord> records = new ArrayList<>();
+		final BeforeOperationEvent beforeEvent = new BeforeOperationEvent(10L, 1L, 0, OPERATION_SIGNATURE, CLASS_SIGNATURE);
+		beforeEvent.setLoggingTimestamp(10L);
+		records.add(beforeEvent);
+		final AfterOperationEvent afterEvent = new AfterOperationEvent(20L, 1L, 1, OPERATION_SIGNATURE, CLASS_SIGNATURE);
+		afterEvent.setLoggingTimestamp(20L);
+		records.add(afterEvent);
+
+		// serialize the records in the same way as the BinaryLogStreamHandler
+		final List<String> expectedRegistryEntries = new ArrayList<>();
+		final WriterRegistry recordRegistry = new WriterRegistry(new RegistryEntryCollector(expectedRegistryEntries));
+		final ByteBuffer expected = ByteBuffer.allocate(1024);
+		final IValueSerializer serializer = BinaryValueSerializer.create(expected, recordRegistry);
+		for (final IMonitoringRecord record : records) {
+			expected.putInt(recordRegistry.getId(record.getClass().getName()));
+			expected.putLong(record.getLoggingTimestamp());
+			record.serialize(serializer);
+		}
+
+		final List<String> actualRegistryEntries = new ArrayList<>();
+		final EncodedEventSerializer encodedEventSerializer = new EncodedEventSerializer(
+				new WriterRegistry(new RegistryEntryCollector(actualRegistryEntries)));
+		final ByteBuffer actual = ByteBuffer.allocate(1024);
+		for (int i = 0; i < chunk.size(); i++) {
+			encodedEventSerializer.serialize(chunk, i, actual);
+		}
+
+		Assert.assertThat(actual.position(), CoreMatchers.is(2 * EncodedEventSerializer.ENCODED_RECORD_SIZE));
+		expected.flip();
+		actual.flip();
+		Assert.assertThat(actual, CoreMatchers.is(expected));
+		Assert.assertThat(actualRegistryEntries, CoreMatchers.is(expectedRegistryEntries));
+	}
+
+	@Test
+	public void testReleasedChunkIsEmpty() {
+		final EncodedEventChunk chunk = new EncodedEventChunk(2);
+		Assert.assertThat(chunk.add(EncodedEventChunk.BEFORE_OPERATION_EVENT, 1L, 1L, 0, 0, 0), CoreMatchers.is(false));
+		Assert.assertThat(chunk.add(EncodedEventChunk.AFTER_OPERATION_EVENT, 2L, 1L, 1, 0, 0), CoreMatchers.is(true));
+		chunk.markPublished();
+		chunk.release();
+
+		Assert.assertThat(chunk.size(), CoreMatchers.is(0));
+		Assert.assertThat(chunk.isPublished(), CoreMatchers.is(false));
+	}
+
+	@Test
+	public void testDroppedChunkIsReleased() {
+		final EncodedEventChunk chunk = new EncodedEventChunk(2);
+		chunk.add(EncodedEventChunk.BEFORE_OPERATION_EVENT, 1L, 1L, 0, 0, 0);
+		chunk.markPublished();
+		Assert.assertThat(new DoNotInsertBehavior<IWriterQueueElement>().insert(chunk), CoreMatchers.is(true));
+		Assert.assertThat(chunk.isPublished(), CoreMatchers.is(false));
+
+		final BlockingQueue<IWriterQueueElement> fullQueue = new ArrayBlockingQueue<>(1);
+		fullQueue.add(new EmptyRecord());
+		chunk.add(EncodedEventChunk.BEFORE_OPERATION_EVENT, 1L, 1L, 0, 0, 0);
+		chunk.markPublished();
+		Assert.assertThat(new CountOnFailedInsertBehavior<>(fullQueue).insert(chunk), CoreMatchers.is(true));
+		Assert.assertThat(chunk.isPublished(), CoreMatchers.is(false));
+		Assert.assertThat(chunk.size(), CoreMatchers.is(0));
+	}
+
+	/**
+	 * Collects the registry entries in the order of their registration.
+	 */
+	private static class RegistryEntryCollector implements IRegistryListener<String> {
+
+		private final List<String> entries;
+
+		public RegistryEntryCollector(final List<String> entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		public void onNewRegistryEntry(final String value, final int id) {
+			this.entries.add(value);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.encoding;
+
+import java.util.List;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.flow.trace.operation.AfterOperationEvent;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.test.monitoring.util.NamedListWriter;
+import kieker.test.monitoring.util.NamedPipeFactory;
+
+/**
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class OperationEventEncoderTest {
+
+	private static final String OPERATION_SIGNATURE = "public void kieker.Test.operation()";
+	private static final String CLASS_SIGNATURE = "kieker.Test";
+	private static final int TIMEOUT_IN_MS = 10000;
+
+	public OperationEventEncoderTest() {
+		super();
+	}
+
+	@Test
+	public void testEventsOfIdleThreadAndOnTerminationAreWritten() throws InterruptedException {
+		final String pipeName = NamedPipeFactory.createPipeName();
+		final MonitoringController controller = NamedPipeFactory.createMonitoringControllerWithNamedPipe(pipeName);
+		final List<IMonitoringRecord> records = NamedPipeFactory.createAndRegisterNamedPipeRecordCollector(pipeName);
+		final int operationSignatureId = StringInterner.INSTANCE.intern(OPERATION_SIGNATURE);
+		final int classSignatureId = StringInterner.INSTANCE.intern(CLASS_SIGNATURE);
+
+		// a single event never fills a chunk, the periodic flush has to hand it over
+		OperationEventEncoder.INSTANCE.encodeBeforeOperationEvent(controller, 1L, 42L, 0, operationSignatureId,
+				classSignatureId);
+		NamedListWriter.awaitListSize(records, 1, TIMEOUT_IN_MS);
+
+		OperationEventEncoder.INSTANCE.encodeAfterOperationEvent(controller, 2L, 42L, 1, operationSignatureId,
+				classSignatureId);
+		controller.terminateMonitoring();
+		controller.waitForTermination(TIMEOUT_IN_MS);
+
+		Assert.assertThat(records.size(), CoreMatchers.is(2));
+		Assert.assertThat(records.get(0), CoreMatchers.instanceOf(BeforeOperationEvent.class));
+		Assert.assertThat(records.get(1), CoreMatchers.instanceOf(AfterOperationEvent.class));
+		Assert.assertThat(((AfterOperationEvent) records.get(1)).getOperationSignature(),
+				CoreMatchers.is(OPERATION_SIGNATURE));
+	}
+}
@@ -0,0 +1,168 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.filesystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+import kieker.monitoring.writer.compression.NoneCompressionFilter;
+
+/**
+ * Test the asynchronous binary log stream handler, which must produce the same bytes as the binary log stream handler.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class AsyncBinaryLogStreamHandlerTest implements IRegistryListener<String> {
+
+	private static final int RECORDS = 1000;
+	private static final int TYPE_ID = 2;
+	private static final int BUFFER_SIZE = 256;
+
+	/** shared by all handlers of a test, as the string ids depend on the order of registration. */
+	private final WriterRegistry writerRegistry = new WriterRegistry(this);
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder(); // NOCS (rule must be public)
+
+	/** asynchronous binary log stream handler test. */
+	public AsyncBinaryLogStreamHandlerTest() {
+		// nothing to be done here.
+	}
+
+	/** all buffers are written in order and forced to the disk, also across two files. */
+	@Test
+	public void testFileWithFsync() throws IOException {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(AsyncBinaryLogStreamHandler.CONFIG_BUFFERS, 3);
+		configuration.setProperty(AsyncBinaryLogStreamHandler.CONFIG_FSYNC, FsyncPolicy.BUFFER.name());
+		final AsyncBinaryLogStreamHandler handler = this.createHandler(configuration);
+		final byte[] expected = this.writeBinary();
+
+		for (int file = 0; file < 2; file++) {
+			final Path path = this.tmpFolder.getRoot().toPath().resolve("async-" + file + ".bin");
+			handler.initialize(path);
+			this.writeRecords(handler);
+			handler.close();
+
+			Assert.assertEquals("entries", RECORDS, handler.getNumOfEntries());
+			Assert.assertEquals("bytes", expected.length, handler.getNumOfBytes());
+			Assert.assertArrayEquals("binary format", expected, Files.readAllBytes(path));
+		}
+		Assert.assertTrue("synced", handler.getNumOfSyncs() > 0);
+	}
+
+	/** a stream can be used instead of a file, but it is not forced to the disk. */
+	@Test
+	public void testStream() throws IOException {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(AsyncBinaryLogStreamHandler.CONFIG_FSYNC, FsyncPolicy.INTERVAL.name());
+		final AsyncBinaryLogStreamHandler handler = this.createHandler(configuration);
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+		handler.initialize(stream, this.tmpFolder.getRoot().toPath().resolve("stream.bin"));
+		this.writeRecords(handler);
+		handler.close();
+
+		Assert.assertArrayEquals("binary format", this.writeBinary(), stream.toByteArray());
+		Assert.assertEquals("no sync", 0, handler.getNumOfSyncs());
+	}
+
+	/** after a write failure, the failure is reported once and the handler can switch to the next log file. */
+	@Test
+	public void testNextFileAfterWriteFailure() throws IOException {
+		final AsyncBinaryLogStreamHandler handler = this.createHandler(ConfigurationFactory.createDefaultConfiguration());
+		final OutputStream failingStream = new OutputStream() {
+			@Override
+			public void write(final int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+
+		handler.initialize(failingStream, this.tmpFolder.getRoot().toPath().resolve("failing.bin"));
+		int failures = 0;
+		for (int i = 0; i < RECORDS; i++) {
+			try {
+				handler.serialize(this.createRecord(i), TYPE_ID);
+			} catch (final IOException e) {
+				failures++;
+			}
+		}
+		Assert.assertEquals("reported failures", 1, failures);
+
+		// same sequence as FileWriter.createNewLogFile()
+		final Path path = this.tmpFolder.getRoot().toPath().resolve("next.bin");
+		handler.close();
+		handler.initialize(path);
+		this.writeRecords(handler);
+		handler.close();
+		handler.close(); // no effect
+
+		Assert.assertArrayEquals("binary format", this.writeBinary(), Files.readAllBytes(path));
+	}
+
+	private AsyncBinaryLogStreamHandler createHandler(final Configuration configuration) {
+		final AsyncBinaryLogStreamHandler handler = new AsyncBinaryLogStreamHandler(false, BUFFER_SIZE, Charset.defaultCharset(),
+				new NoneCompressionFilter(null), this.writerRegistry);
+		handler.configure(configuration);
+		return handler;
+	}
+
+	private byte[] writeBinary() throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final BinaryLogStreamHandler handler = new BinaryLogStreamHandler(false, BUFFER_SIZE, Charset.defaultCharset(),
+				new NoneCompressionFilter(null), this.writerRegistry);
+		handler.initialize(stream, this.tmpFolder.getRoot().toPath().resolve("binary.bin"));
+		this.writeRecords(handler);
+		handler.close();
+		return stream.toByteArray();
+	}
+
+	private void writeRecords(final AbstractLogStreamHandler handler) throws IOException {
+		for (int i = 0; i < RECORDS; i++) {
+			handler.serialize(this.createRecord(i), TYPE_ID);
+		}
+	}
+
+	private IMonitoringRecord createRecord(final int index) {
+		final IMonitoringRecord record = new OperationExecutionRecord("op" + (index % 7), "session", index, 1000L + index, 2000L + index,
+				"localhost", index, 0);
+		record.setLoggingTimestamp(index);
+		return record;
+	}
+
+	@Override
+	public void onNewRegistryEntry(final String value, final int id) {
+		// ignore, as we only want to mock the serialization
+	}
+}
@@ -352,4 +352,18 @@ public class BinaryFileWriterTest {
 		Assert.assertThat(kiekerPath.getFileName().toString(), CoreMatchers.startsWith(FSUtil.FILE_PREFIX));
 		Assert.assertThat(kiekerPath.getFileName().toString(), CoreMatchers.endsWith(hostName + "-" + controllerName));
 	}
+
+	/**
+	 * The mapped log stream handler writes directly into the file, hence, it cannot be combined with a compression filter.
+	 *
+	 * @throws IOException
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectCompressionOfMappedLogStreamHandler() throws IOException {
+		this.configuration.setProperty(FileWriter.CONFIG_COMPRESSION_FILTER, ZipCompressionFilter.class.getName());
+		this.configuration.setProperty(FileWriter.CONFIG_MAP_FILE_HANDLER, TextMapFileHandler.class.getCanonicalName());
+		this.configuration.setProperty(FileWriter.CONFIG_LOG_STREAM_HANDLER, MappedLogStreamHandler.class.getCanonicalName());
+
+		new FileWriter(this.configuration);
+	}
 }
@@ -0,0 +1,147 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.filesystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.registry.IRegistryListener;
+import kieker.common.registry.writer.WriterRegistry;
+import kieker.monitoring.writer.compression.NoneCompressionFilter;
+
+/**
+ * Test the mapped log stream handler, which must produce the same bytes as the binary log stream handler.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class MappedLogStreamHandlerTest implements IRegistryListener<String> {
+
+	private static final int RECORDS = 100;
+	private static final int TYPE_ID = 2;
+
+	@Rule
+	public final TemporaryFolder tmpFolder = new TemporaryFolder(); // NOCS (rule must be public)
+
+	/** mapped log stream handler test. */
+	public MappedLogStreamHandlerTest() {
+		// nothing to be done here.
+	}
+
+	/** multiple segments are written and the file is truncated to the records on close. */
+	@Test
+	public void testSegmentsAndTruncation() throws IOException {
+		final Path file = this.tmpFolder.getRoot().toPath().resolve("mapped.bin");
+		final MappedLogStreamHandler handler = this.createHandler(1024);
+		handler.setMaxBytesInFile(1024); // i.e., several records per segment and several segments
+		handler.initialize(file);
+		for (int i = 0; i < RECORDS; i++) {
+			handler.serialize(this.createRecord(i), TYPE_ID);
+		}
+		final long numOfBytes = handler.getNumOfBytes();
+		handler.close();
+
+		Assert.assertEquals("entries", RECORDS, handler.getNumOfEntries());
+		Assert.assertEquals("truncated", numOfBytes, Files.size(file));
+		Assert.assertArrayEquals("binary format", this.writeBinary(), Files.readAllBytes(file));
+	}
+
+	/** before close, the records are followed by the end marker, i.e., they are complete after a crash. */
+	@Test
+	public void testEndMarker() throws IOException {
+		final Path file = this.tmpFolder.getRoot().toPath().resolve("marker.bin");
+		final MappedLogStreamHandler handler = this.createHandler(1024);
+		handler.initialize(file);
+		handler.serialize(this.createRecord(0), TYPE_ID);
+		final int numOfBytes = (int) handler.getNumOfBytes();
+
+		final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+		Assert.assertEquals("type id", TYPE_ID, content.getInt(0));
+		Assert.assertEquals("end marker", -1, content.getInt(numOfBytes));
+		handler.close();
+	}
+
+	/** closing twice keeps the truncated file. */
+	@Test
+	public void testCloseTwice() throws IOException {
+		final Path file = this.tmpFolder.getRoot().toPath().resolve("twice.bin");
+		final MappedLogStreamHandler handler = this.createHandler(1024);
+		handler.initialize(file);
+		handler.serialize(this.createRecord(0), TYPE_ID);
+		handler.close();
+		handler.close();
+
+		Assert.assertEquals("truncated", handler.getNumOfBytes(), Files.size(file));
+	}
+
+	/** a handler whose file could not be opened can be closed. */
+	@Test
+	public void testCloseAfterFailedInitialize() throws IOException {
+		final Path file = this.tmpFolder.newFile("existing.bin").toPath();
+		final MappedLogStreamHandler handler = this.createHandler(1024);
+		try {
+			handler.initialize(file);
+			Assert.fail("existing file must not be overwritten");
+		} catch (final FileAlreadyExistsException e) {
+			handler.close();
+		}
+
+		Assert.assertEquals("untouched", 0, Files.size(file));
+	}
+
+	private MappedLogStreamHandler createHandler(final int bufferSize) {
+		return new MappedLogStreamHandler(false, bufferSize, Charset.defaultCharset(), new NoneCompressionFilter(null),
+				new WriterRegistry(this));
+	}
+
+	private byte[] writeBinary() throws IOException {
+		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		final BinaryLogStreamHandler handler = new BinaryLogStreamHandler(false, 1024, Charset.defaultCharset(),
+				new NoneCompressionFilter(null), new WriterRegistry(this));
+		handler.initialize(stream, this.tmpFolder.getRoot().toPath().resolve("binary.bin"));
+		for (int i = 0; i < RECORDS; i++) {
+			handler.serialize(this.createRecord(i), TYPE_ID);
+		}
+		handler.close();
+		return stream.toByteArray();
+	}
+
+	private IMonitoringRecord createRecord(final int index) {
+		final IMonitoringRecord record = new OperationExecutionRecord("op" + (index % 7), "session", index, 1000L + index, 2000L + index,
+				"localhost", index, 0);
+		record.setLoggingTimestamp(index);
+		return record;
+	}
+
+	@Override
+	public void onNewRegistryEntry(final String value, final int id) {
+		// ignore, as we only want to mock the serialization
+	}
+}
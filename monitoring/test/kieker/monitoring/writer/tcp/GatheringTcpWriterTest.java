@@ -0,0 +1,158 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.exception.RecordInstantiationException;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.BinaryValueDeserializer;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.registry.reader.ReaderRegistry;
+
+/**
+ * Test the buffer ring and the latency bound of the {@link GatheringTcpWriter}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class GatheringTcpWriterTest {
+
+	private static final String HOSTNAME = "localhost";
+	private static final int PORT = 10447;
+
+	private Configuration configuration;
+	private ServerSocket serverSocket;
+
+	/**
+	 * Empty default constructor.
+	 */
+	public GatheringTcpWriterTest() {
+		super();
+	}
+
+	@Before
+	public void before() throws IOException {
+		this.configuration = new Configuration();
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_HOSTNAME, HOSTNAME);
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_PORT, PORT);
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_BUFFERSIZE, 512);
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_BUFFERS, 4);
+
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.setReuseAddress(true);
+		this.serverSocket.bind(new InetSocketAddress(HOSTNAME, PORT));
+	}
+
+	@After
+	public void after() throws IOException {
+		this.serverSocket.close();
+	}
+
+	/** records spanning several rings arrive in order, and their strings arrive before them. */
+	@Test
+	public void shouldSendRecordsAfterTheirStrings() throws Exception {
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_MAX_LATENCY_IN_MS, 10000);
+		final GatheringTcpWriter writer = new GatheringTcpWriter(this.configuration);
+		writer.onStarting();
+		try (Socket socket = this.serverSocket.accept()) {
+			for (int i = 0; i < 1000; i++) {
+				writer.writeMonitoringRecord(GatheringTcpWriterTest.createRecord(i));
+			}
+			writer.onTerminating();
+
+			final List<BeforeOperationEvent> records = GatheringTcpWriterTest.decode(GatheringTcpWriterTest.readAll(socket.getInputStream()));
+			Assert.assertEquals("records", 1000, records.size());
+			for (int i = 0; i < records.size(); i++) {
+				Assert.assertEquals("record", GatheringTcpWriterTest.createRecord(i), records.get(i));
+			}
+		}
+	}
+
+	/** a record of an idle writer is sent after the maximal latency. */
+	@Test
+	public void shouldSendAfterMaxLatency() throws Exception {
+		this.configuration.setProperty(GatheringTcpWriter.CONFIG_MAX_LATENCY_IN_MS, 20);
+		final GatheringTcpWriter writer = new GatheringTcpWriter(this.configuration);
+		writer.onStarting();
+		try (Socket socket = this.serverSocket.accept()) {
+			socket.setSoTimeout(5000);
+			writer.writeMonitoringRecord(GatheringTcpWriterTest.createRecord(0));
+
+			// blocks until the data arrives, the writer is not called again
+			Assert.assertTrue("data", socket.getInputStream().read() >= 0);
+		} finally {
+			writer.onTerminating();
+		}
+	}
+
+	private static BeforeOperationEvent createRecord(final int orderIndex) {
+		// every tenth record introduces a new string
+		return new BeforeOperationEvent(1000L + orderIndex, 42L, orderIndex, "public void kieker.Test.operation" + (orderIndex / 10) + "()",
+				"kieker.Test");
+	}
+
+	private static byte[] readAll(final InputStream inputStream) throws IOException {
+		final ByteArrayOutputStream data = new ByteArrayOutputStream();
+		final byte[] bytes = new byte[1024];
+		int size = inputStream.read(bytes);
+		while (size >= 0) {
+			data.write(bytes, 0, size);
+			size = inputStream.read(bytes);
+		}
+		return data.toByteArray();
+	}
+
+	/**
+	 * Decode a stream of the writer; strings which have not been registered before their use are decoded as null.
+	 */
+	private static List<BeforeOperationEvent> decode(final byte[] data) throws RecordInstantiationException {
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		final ReaderRegistry<String> registry = new ReaderRegistry<>();
+		final List<BeforeOperationEvent> records = new ArrayList<>();
+		while (buffer.hasRemaining()) {
+			final int classId = buffer.getInt();
+			if (classId == RegistryRecord.CLASS_ID) {
+				final int id = buffer.getInt();
+				final byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				registry.register(id, new String(bytes, StandardCharsets.UTF_8));
+			} else {
+				Assert.assertEquals("record type", BeforeOperationEvent.class.getName(), registry.get(classId));
+				buffer.getLong();
+				records.add(new BeforeOperationEvent(BinaryValueDeserializer.create(buffer, registry)));
+			}
+		}
+		return records;
+	}
+}
@@ -0,0 +1,302 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.monitoring.writer.tcp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.exception.RecordInstantiationException;
+import kieker.common.record.flow.trace.operation.BeforeOperationEvent;
+import kieker.common.record.io.BinaryValueDeserializer;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.registry.reader.ReaderRegistry;
+
+/**
+ * Test the reconnect and spill behavior of the {@link ReconnectingTcpWriter}.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class ReconnectingTcpWriterTest {
+
+	private static final String HOSTNAME = "localhost";
+	private static final int PORT = 10446;
+
+	private Configuration configuration;
+
+	/**
+	 * Empty default constructor.
+	 */
+	public ReconnectingTcpWriterTest() {
+		super();
+	}
+
+	@Before
+	public void before() {
+		this.configuration = new Configuration();
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_HOSTNAME, HOSTNAME);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_PORT, PORT);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_FLUSH, true);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_CONN_TIMEOUT_IN_MS, 10);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_MIN_BACKOFF_IN_MS, 1);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_MAX_BACKOFF_IN_MS, 5);
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_TERMINATION_TIMEOUT_IN_MS, 5000);
+	}
+
+	/** records written before the collector is available are spilled and sent in order later. */
+	@Test
+	public void shouldSpillUntilConnected() throws Exception {
+		final ReconnectingTcpWriter writer = new ReconnectingTcpWriter(this.configuration);
+		writer.onStarting();
+		for (int i = 0; i < 100; i++) {
+			writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+		}
+
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket()) {
+			final Collector collector = new Collector(serverSocket);
+			collector.start();
+			for (int i = 100; i < 200; i++) {
+				writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+			}
+			writer.onTerminating();
+			collector.join(5000);
+
+			final List<BeforeOperationEvent> records = ReconnectingTcpWriterTest.decode(collector.getData(), true);
+			Assert.assertEquals("records", 200, records.size());
+			for (int i = 0; i < records.size(); i++) {
+				Assert.assertEquals("order", i, records.get(i).getOrderIndex());
+			}
+		}
+	}
+
+	/** after a restart of the collector, the registry is sent again and later records arrive. */
+	@Test
+	public void shouldReplayRegistryAfterReconnect() throws Exception {
+		final ReconnectingTcpWriter writer = new ReconnectingTcpWriter(this.configuration);
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket()) {
+			writer.onStarting();
+			final Socket socket = serverSocket.accept();
+			writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(0));
+			socket.close();
+		}
+
+		// the writer detects the lost connection on one of these writes and spills the following records
+		for (int i = 1; i < 100; i++) {
+			writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+			Thread.sleep(1);
+		}
+
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket()) {
+			final Collector collector = new Collector(serverSocket);
+			collector.start();
+			for (int i = 100; i < 200; i++) {
+				writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+			}
+			writer.onTerminating();
+			collector.join(5000);
+
+			final List<BeforeOperationEvent> records = ReconnectingTcpWriterTest.decode(collector.getData(), true);
+			final int offset = records.size() - 100;
+			Assert.assertTrue("records after the restart", offset >= 0);
+			for (int i = 0; i < 100; i++) {
+				Assert.assertEquals("order", 100 + i, records.get(offset + i).getOrderIndex());
+			}
+		}
+	}
+
+	/** while no records arrive, the idle events of the writer thread reconnect and drain the spill file. */
+	@Test
+	public void shouldDrainSpillFileWhenIdle() throws Exception {
+		final ReconnectingTcpWriter writer = new ReconnectingTcpWriter(this.configuration);
+		writer.onStarting();
+		for (int i = 0; i < 100; i++) {
+			writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+		}
+
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket()) {
+			final Collector collector = new Collector(serverSocket);
+			collector.start();
+
+			final long deadline = System.currentTimeMillis() + 5000;
+			List<BeforeOperationEvent> records = ReconnectingTcpWriterTest.decode(collector.getData(), false);
+			while ((records.size() < 100) && (System.currentTimeMillis() < deadline)) {
+				writer.onIdle();
+				Thread.sleep(1);
+				records = ReconnectingTcpWriterTest.decode(collector.getData(), false);
+			}
+			Assert.assertEquals("records before termination", 100, records.size());
+
+			writer.onTerminating();
+			collector.join(5000);
+		}
+	}
+
+	/**
+	 * A block which has been partially sent when the connection breaks is resent on the next connection from the
+	 * first record which has not been sent completely, hence no record is received twice.
+	 */
+	@Test
+	public void shouldNotResendRecordsAfterReconnect() throws Exception {
+		final int numOfRecords = 200000;
+		this.configuration.setProperty(ReconnectingTcpWriter.CONFIG_FLUSH, false);
+		final ReconnectingTcpWriter writer = new ReconnectingTcpWriter(this.configuration);
+		final List<BeforeOperationEvent> firstRecords;
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket(4096)) {
+			writer.onStarting();
+			try (Socket socket = serverSocket.accept(); InputStream inputStream = socket.getInputStream()) {
+				// the collector does not read, hence the socket becomes busy within a block
+				for (int i = 0; i < numOfRecords; i++) {
+					writer.writeMonitoringRecord(ReconnectingTcpWriterTest.createRecord(i));
+				}
+
+				socket.setSoTimeout(200);
+				final ByteArrayOutputStream data = new ByteArrayOutputStream();
+				final byte[] bytes = new byte[65536];
+				try {
+					int size = inputStream.read(bytes);
+					while (size >= 0) {
+						data.write(bytes, 0, size);
+						size = inputStream.read(bytes);
+					}
+				} catch (final SocketTimeoutException e) { // NOPMD (all sent data has been read)
+					// the writer does not send more data
+				}
+				firstRecords = ReconnectingTcpWriterTest.decode(data.toByteArray(), false);
+				// reset the connection, so that the writer fails on the block it has partially sent
+				socket.setSoLinger(true, 0);
+			}
+		}
+
+		try (ServerSocket serverSocket = ReconnectingTcpWriterTest.createServerSocket()) {
+			final Collector collector = new Collector(serverSocket);
+			collector.start();
+			writer.onTerminating();
+			collector.join(5000);
+
+			final List<BeforeOperationEvent> records = ReconnectingTcpWriterTest.decode(collector.getData(), true);
+			Assert.assertFalse("records after the restart", records.isEmpty());
+			final int firstIndex = records.get(0).getOrderIndex();
+			if (!firstRecords.isEmpty()) {
+				Assert.assertTrue("no record is sent twice", firstRecords.get(firstRecords.size() - 1).getOrderIndex() < firstIndex);
+			}
+			for (int i = 0; i < records.size(); i++) {
+				Assert.assertEquals("order", firstIndex + i, records.get(i).getOrderIndex());
+			}
+			Assert.assertEquals("last record", numOfRecords - 1, records.get(records.size() - 1).getOrderIndex());
+		}
+	}
+
+	private static ServerSocket createServerSocket() throws IOException {
+		return ReconnectingTcpWriterTest.createServerSocket(65536);
+	}
+
+	private static ServerSocket createServerSocket(final int receiveBufferSize) throws IOException {
+		final ServerSocket serverSocket = new ServerSocket(); // NOPMD (closed by the test)
+		serverSocket.setReuseAddress(true);
+		serverSocket.setReceiveBufferSize(receiveBufferSize);
+		serverSocket.bind(new InetSocketAddress(HOSTNAME, PORT));
+		return serverSocket;
+	}
+
+	private static BeforeOperationEvent createRecord(final int orderIndex) {
+		return new BeforeOperationEvent(1000L + orderIndex, 42L, orderIndex, "public void kieker.Test.operation()", "kieker.Test");
+	}
+
+	/**
+	 * Decode a stream of the writer; it fails on records whose type has not been registered on the connection.
+	 *
+	 * @param complete
+	 *            whether the stream must end with a complete record, otherwise a trailing partial record is ignored
+	 */
+	private static List<BeforeOperationEvent> decode(final byte[] data, final boolean complete) throws RecordInstantiationException {
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		final ReaderRegistry<String> registry = new ReaderRegistry<>();
+		final List<BeforeOperationEvent> records = new ArrayList<>();
+		try {
+			while (buffer.hasRemaining()) {
+				ReconnectingTcpWriterTest.decodeNext(buffer, registry, records);
+			}
+		} catch (final BufferUnderflowException e) {
+			if (complete) {
+				throw e;
+			}
+		}
+		return records;
+	}
+
+	private static void decodeNext(final ByteBuffer buffer, final ReaderRegistry<String> registry,
+			final List<BeforeOperationEvent> records) throws RecordInstantiationException {
+		final int classId = buffer.getInt();
+		if (classId == RegistryRecord.CLASS_ID) {
+			final int id = buffer.getInt();
+			final byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+			registry.register(id, new String(bytes, StandardCharsets.UTF_8));
+		} else {
+			Assert.assertEquals("record type", BeforeOperationEvent.class.getName(), registry.get(classId));
+			buffer.getLong();
+			records.add(new BeforeOperationEvent(BinaryValueDeserializer.create(buffer, registry)));
+		}
+	}
+
+	/**
+	 * Accepts one connection and reads it until it is closed.
+	 */
+	private static class Collector extends Thread {
+
+		private final ServerSocket serverSocket;
+		private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+		public Collector(final ServerSocket serverSocket) {
+			this.serverSocket = serverSocket;
+		}
+
+		@Override
+		public void run() {
+			try (Socket socket = this.serverSocket.accept(); InputStream inputStream = socket.getInputStream()) {
+				final byte[] bytes = new byte[1024];
+				int size = inputStream.read(bytes);
+				while (size >= 0) {
+					this.data.write(bytes, 0, size);
+					size = inputStream.read(bytes);
+				}
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		public byte[] getData() {
+			return this.data.toByteArray();
+		}
+	}
+}
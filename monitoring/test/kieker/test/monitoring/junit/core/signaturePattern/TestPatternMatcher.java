@@ -0,0 +1,132 @@
+/***************************************************************************
+ * Copyright 2022 Kieker Project (http://kieker-monitoring.net)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+package kieker.test.monitoring.junit.core.signaturePattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import kieker.monitoring.core.signaturePattern.InvalidPatternException;
+import kieker.monitoring.core.signaturePattern.PatternEntry;
+import kieker.monitoring.core.signaturePattern.PatternMatcher;
+
+import kieker.test.common.junit.AbstractKiekerTest;
+
+/**
+ * Compares the decisions of the {@link PatternMatcher} with the sequential evaluation of all patterns.
+ *
+ * @author Kieker Project
+ *
+ * @since 2.0.0
+ */
+public class TestPatternMatcher extends AbstractKiekerTest {
+
+	private static final String[] PATTERNS = {
+		"+ *",
+		"- public void org.example.Clazz.get*(..)",
+		"+ public void org.example.Clazz.getValue(int)",
+		"- * org.example.*.*(..)",
+		"+ * org..Inner.*(..)",
+		"- * ..Clazz.set*(..)",
+		"+ public * org.example.sub.Other$Nested.*(..)",
+		"- %.*CPU.*",
+		"+ * org.ex*.Clazz.run()",
+		"- * org.example.sub.Other.*(..) throws ..",
+		"- public new org.example.Clazz.<init>(..)",
+		"+ * Clazz.*(..)",
+	};
+
+	private static final String[] SIGNATURES = {
+		"public void org.example.Clazz.getValue(int)",
+		"public void org.example.Clazz.getValue(long)",
+		"public void org.example.Clazz.setValue(int)",
+		"private void org.example.Clazz.run()",
+		"public void org.example.sub.Inner.run()",
+		"public void org.other.Inner.run()",
+		"public java.lang.String org.example.sub.Other$Nested.toString()",
+		"public void org.example.sub.Other.run() throws java.io.IOException",
+		"public void org.example.sub.Other.run()",
+		"public new org.example.Clazz.<init>(int, java.lang.String)",
+		"public void other.Clazz.setValue(int)",
+		"public void Clazz.getValue()",
+		"public static int[] org.example.Clazz.values()",
+		"%CPU::0",
+		"nonsense",
+	};
+
+	/**
+	 * Default constructor.
+	 */
+	public TestPatternMatcher() {
+		// empty default constructor
+	}
+
+	@Test
+	public void testEmptyMatcherActivatesAll() {
+		Assert.assertTrue(PatternMatcher.empty().isActivated("public void org.example.Clazz.getValue(int)"));
+		Assert.assertTrue(PatternMatcher.empty().isActivated("%CPU::0"));
+	}
+
+	@Test
+	public void testSameDecisionsAsSequentialEvaluation() throws InvalidPatternException {
+		final List<PatternEntry> entries = TestPatternMatcher.createEntries(PATTERNS);
+		// check every prefix of the pattern list, i.e., every stage of a growing configuration
+		for (int size = 0; size <= entries.size(); size++) {
+			final List<PatternEntry> subList = entries.subList(0, size);
+			final PatternMatcher matcher = new PatternMatcher(subList);
+			for (final String signature : SIGNATURES) {
+				Assert.assertEquals("Decision for '" + signature + "' with " + size + " patterns",
+						TestPatternMatcher.evaluateSequentially(subList, signature), matcher.isActivated(signature));
+			}
+		}
+	}
+
+	@Test
+	public void testAppendOverridesExistingPatterns() throws InvalidPatternException {
+		final PatternMatcher matcher = new PatternMatcher(TestPatternMatcher.createEntries(PATTERNS));
+		final String signature = "public java.lang.String org.example.sub.Other$Nested.toString()";
+		Assert.assertTrue(matcher.isActivated(signature));
+
+		final PatternMatcher appended = matcher.append(new PatternEntry("* org.example.sub.Other$Nested.toString()", false));
+		Assert.assertFalse(appended.isActivated(signature));
+		Assert.assertEquals(PATTERNS.length + 1, appended.getPatternEntries().size());
+		// the original matcher is unchanged
+		Assert.assertTrue(matcher.isActivated(signature));
+		Assert.assertEquals(PATTERNS.length, matcher.getPatternEntries().size());
+	}
+
+	private static List<PatternEntry> createEntries(final String[] patterns) throws InvalidPatternException {
+		final List<PatternEntry> entries = new ArrayList<>(patterns.length);
+		for (final String pattern : Arrays.asList(patterns)) {
+			entries.add(new PatternEntry(pattern.substring(1).trim(), pattern.charAt(0) == '+'));
+		}
+		return entries;
+	}
+
+	private static boolean evaluateSequentially(final List<PatternEntry> entries, final String signature) {
+		for (int i = entries.size() - 1; i >= 0; i--) {
+			final PatternEntry entry = entries.get(i);
+			if (entry.getPattern().matcher(signature).matches()) {
+				return entry.isActivated();
+			}
+		}
+		return true;
+	}
+}
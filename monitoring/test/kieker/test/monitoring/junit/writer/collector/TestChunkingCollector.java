@@ -89,6 +89,45 @@ public final class TestChunkingCollector {
 		Assert.assertEquals(recordCount + 1, numberOfLines);
 	}
 
+	/**
+	 * Tests that a burst exceeding the queue size blocks the caller instead of dropping records, and that the chunk
+	 * size grows during the burst.
+	 *
+	 * @throws IOException
+	 *             Not expected
+	 */
+	@Test
+	public void testBurstGrowsChunkSize() throws IOException {
+		final String testId = "testBurstGrowsChunkSize";
+		final int recordCount = 20000;
+
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(ChunkingCollector.CONFIG_SERIALIZER_CLASSNAME, StringSerializer.class.getName());
+		configuration.setProperty(ChunkingCollector.CONFIG_WRITER_CLASSNAME, TestRawDataWriter.class.getName());
+		configuration.setProperty(ChunkingCollector.CONFIG_QUEUE_SIZE, 64);
+		configuration.setProperty(ChunkingCollector.CONFIG_CHUNK_SIZE, 4);
+		configuration.setProperty(ChunkingCollector.CONFIG_MAX_CHUNK_SIZE, 64);
+		configuration.setProperty(ChunkingCollector.CONFIG_MAX_BLOCK_TIME, 10000);
+		configuration.setProperty(TestRawDataWriter.CONFIG_TEST_ID, testId);
+
+		final ChunkingCollector collector = new ChunkingCollector(configuration);
+		collector.onStarting();
+		int maxChunkSize = 0;
+		for (int recordIndex = 0; recordIndex < recordCount; recordIndex++) {
+			collector.writeMonitoringRecord(new OperationExecutionRecord("op()", "SESS-ID", 0, recordIndex, recordIndex, "host", recordIndex, 1));
+			maxChunkSize = Math.max(maxChunkSize, collector.getChunkSize());
+		}
+		collector.onTerminating();
+
+		Assert.assertEquals("dropped records", 0, collector.getNumberOfDroppedRecords());
+		Assert.assertTrue("blocked inserts", collector.getNumberOfBlockedInserts() > 0);
+		Assert.assertTrue("chunk size", maxChunkSize > 4);
+		Assert.assertEquals("queued bytes", 0, collector.getQueuedBytes());
+
+		final List<String> lines = TestChunkingCollector.linesFromData(TestRawDataStorage.getInstance().getData(testId));
+		Assert.assertEquals(recordCount, lines.size());
+	}
+
 	private static List<String> linesFromData(final byte[] data) throws IOException {
 		final List<String> lines = new ArrayList<>();
 
@@ -39,6 +39,8 @@ import teetime.framework.OutputPort;
  * <dd>capacity of the receiving buffer</dd>
  * <dt>recordRewriter</dt>
  * <dd>the record rewriter used to rewrite trace ids</dd>
+ * <dt>readers</dt>
+ * <dd>number of threads reading and deserializing records, the default is the number of processors</dd>
  * </dl>
  * All names are prefixed with kieker.tools.source.MultipleConnectionTcpSourceCompositeStage.
  *
@@ -55,6 +57,7 @@ public class MultipleConnectionTcpSourceCompositeStage extends CompositeStage im
 	private static final int DEFAULT_CAPACITY = 1024 * 1024;
 
 	private static final String REWRITER = MultipleConnectionTcpSourceCompositeStage.PREFIX + ".recordRewriter";
+	private static final String READERS = MultipleConnectionTcpSourceCompositeStage.PREFIX + ".readers";
 
 	private final MultipleConnectionTcpSourceStage reader;
 
@@ -77,7 +80,9 @@ public class MultipleConnectionTcpSourceCompositeStage extends CompositeStage im
 				NoneTraceMetadataRewriter.class.getName());
 		final ITraceMetadataRewriter rewriter = InstantiationFactory.getInstance(configuration).create(ITraceMetadataRewriter.class,
 				rewriterClassName, null);
-		this.reader = new MultipleConnectionTcpSourceStage(inputPort, capacity, rewriter);
+		final int readers = configuration.getIntProperty(MultipleConnectionTcpSourceCompositeStage.READERS,
+				Runtime.getRuntime().availableProcessors());
+		this.reader = new MultipleConnectionTcpSourceStage(inputPort, capacity, rewriter, readers);
 	}
 
 	/**